@@ -0,0 +1,276 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import java.net.URL;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * <a href="http://openjdk.java.net/projects/code-tools/jmh/">JMH</a>
+ * benchmarks for each step of the {@link
+ * ListEntityClassnamesMojo#execute()} method, run against a
+ * {@linkplain SyntheticClasspath synthetic classpath}.
+ *
+ * <p>The steps are measured separately:</p>
+ *
+ * <ul>
+ *
+ * <li>{@link #scan()}: {@linkplain AbstractJPAMojo#scan(Set)
+ * scanning} the classpath</li>
+ *
+ * <li>{@link #indexByPropertyName()}: {@linkplain
+ * ListEntityClassnamesMojo#indexByPropertyName(Map) building the
+ * property name index} from the annotation index</li>
+ *
+ * <li>{@link #determinePropertyNames(Blackhole)}: {@linkplain
+ * ListEntityClassnamesMojo#determinePropertyName(String) resolving
+ * the property name} of every annotated class</li>
+ *
+ * <li>{@link #toProperties()} and {@link #store()}: {@linkplain
+ * ListEntityClassnamesMojo#toProperties(Map) formatting} and
+ * {@linkplain ListEntityClassnamesMojo#store(Properties,
+ * java.io.Writer) writing} the output</li>
+ *
+ * </ul>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ *
+ * @see BenchmarkRunner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScanBenchmark {
+
+  /**
+   * The total number of classes on the synthetic classpath.
+   */
+  @Param({ "1000", "10000" })
+  public int classCount;
+
+  /**
+   * The number of classes on the synthetic classpath that bear a JPA
+   * annotation.
+   */
+  @Param({ "10", "100" })
+  public int annotatedCount;
+
+  /**
+   * How the synthetic classes are packaged: {@code directory} or
+   * {@code jar}.
+   */
+  @Param({ "directory", "jar" })
+  public String layout;
+
+  /**
+   * A temporary directory holding the synthetic classpath.
+   */
+  private File directory;
+
+  /**
+   * The {@link URL}s to scan.
+   */
+  private Set<URL> urls;
+
+  /**
+   * The {@link ListEntityClassnamesMojo} under test.
+   */
+  private ListEntityClassnamesMojo mojo;
+
+  /**
+   * The names of the annotated classes.
+   */
+  private List<String> annotatedClassNames;
+
+  /**
+   * The annotation index produced by a single scan.
+   */
+  private Map<String, Set<String>> annotationIndex;
+
+  /**
+   * The property name index produced from the {@link
+   * #annotationIndex}.
+   */
+  private Map<String, Set<String>> propertyNameIndex;
+
+  /**
+   * The {@link Properties} produced from the {@link
+   * #propertyNameIndex}.
+   */
+  private Properties properties;
+
+  /**
+   * Creates a new {@link ScanBenchmark}.
+   */
+  public ScanBenchmark() {
+    super();
+  }
+
+  /**
+   * Generates the synthetic classpath, configures the {@link
+   * ListEntityClassnamesMojo} and precomputes the inputs of each
+   * step.
+   *
+   * @exception IOException if an error occurs
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    this.directory = File.createTempFile("jpa-maven-plugin-benchmark", "");
+    if (!this.directory.delete() || !this.directory.mkdirs()) {
+      throw new IOException(String.format("Could not create %s", this.directory));
+    }
+    final File classpath;
+    if ("jar".equals(this.layout)) {
+      classpath = new File(this.directory, "synthetic.jar");
+      SyntheticClasspath.writeJar(classpath, this.classCount, this.annotatedCount);
+    } else {
+      classpath = new File(this.directory, "classes");
+      SyntheticClasspath.writeDirectory(classpath, this.classCount, this.annotatedCount);
+    }
+    this.urls = Collections.singleton(classpath.toURI().toURL());
+    this.annotatedClassNames = SyntheticClasspath.annotatedClassNames(this.annotatedCount);
+
+    this.mojo = new ListEntityClassnamesMojo();
+    // Map half of the packages to their own property names, leaving
+    // the rest to fall back to the default property name.
+    final Map<String, String> propertyNames = new HashMap<String, String>();
+    for (int i = 0; i < SyntheticClasspath.PACKAGE_COUNT; i += 2) {
+      propertyNames.put(SyntheticClasspath.packageName(i), String.format("p%dClassnames", i));
+    }
+    this.mojo.setPropertyNames(propertyNames);
+
+    this.annotationIndex = this.mojo.scan(this.urls).getAnnotationIndex();
+    this.propertyNameIndex = this.mojo.indexByPropertyName(this.annotationIndex);
+    this.properties = this.mojo.toProperties(this.propertyNameIndex);
+  }
+
+  /**
+   * Deletes the synthetic classpath.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    SyntheticClasspath.delete(this.directory);
+  }
+
+  /**
+   * Measures scanning the synthetic classpath.
+   *
+   * @return the annotation index, to defeat dead code elimination
+   *
+   * @exception IOException if an error occurs
+   */
+  @Benchmark
+  public Map<String, Set<String>> scan() throws IOException {
+    return this.mojo.scan(this.urls).getAnnotationIndex();
+  }
+
+  /**
+   * Measures building the property name index from a precomputed
+   * annotation index.
+   *
+   * @return the property name index, to defeat dead code elimination
+   */
+  @Benchmark
+  public Map<String, Set<String>> indexByPropertyName() {
+    return this.mojo.indexByPropertyName(this.annotationIndex);
+  }
+
+  /**
+   * Measures resolving the property name of every annotated class.
+   *
+   * @param blackhole the {@link Blackhole} that consumes each result;
+   * supplied by JMH
+   */
+  @Benchmark
+  public void determinePropertyNames(final Blackhole blackhole) {
+    for (final String className : this.annotatedClassNames) {
+      blackhole.consume(this.mojo.determinePropertyName(className));
+    }
+  }
+
+  /**
+   * Measures formatting a precomputed property name index as {@link
+   * Properties}.
+   *
+   * @return the {@link Properties}, to defeat dead code elimination
+   */
+  @Benchmark
+  public Properties toProperties() {
+    return this.mojo.toProperties(this.propertyNameIndex);
+  }
+
+  /**
+   * Measures writing precomputed {@link Properties}.
+   *
+   * @return the written text, to defeat dead code elimination
+   *
+   * @exception IOException if an error occurs
+   */
+  @Benchmark
+  public String store() throws IOException {
+    final StringWriter writer = new StringWriter();
+    this.mojo.store(this.properties, writer);
+    return writer.toString();
+  }
+
+}
@@ -0,0 +1,225 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.ConstPool;
+
+import javassist.bytecode.annotation.Annotation;
+
+import javax.persistence.Embeddable;
+import javax.persistence.Entity;
+import javax.persistence.MappedSuperclass;
+
+/**
+ * Generates synthetic class files for benchmarking: a given number of
+ * empty classes spread over a number of packages, a given number of
+ * which bear one of the {@link Entity}, {@link MappedSuperclass} or
+ * {@link Embeddable} annotations, written either to a directory or
+ * to a jar file.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+final class SyntheticClasspath {
+
+  /**
+   * The number of packages over which generated classes are spread.
+   */
+  static final int PACKAGE_COUNT = 10;
+
+  /**
+   * The JPA annotations applied, in rotation, to annotated classes.
+   */
+  private static final String[] ANNOTATIONS = { Entity.class.getName(), MappedSuperclass.class.getName(), Embeddable.class.getName() };
+
+  /**
+   * Creates a new {@link SyntheticClasspath}.
+   */
+  private SyntheticClasspath() {
+    super();
+  }
+
+  /**
+   * Returns the name of the package that holds the generated class
+   * with the supplied index.
+   *
+   * @param index the index of the class
+   *
+   * @return a package name; never {@code null}
+   */
+  static final String packageName(final int index) {
+    return String.format("com.example.p%d", index % PACKAGE_COUNT);
+  }
+
+  /**
+   * Returns the name of the generated class with the supplied index.
+   *
+   * @param index the index of the class
+   *
+   * @return a class name; never {@code null}
+   */
+  static final String className(final int index) {
+    return String.format("%s.Synthetic%d", packageName(index), index);
+  }
+
+  /**
+   * Returns the names of the generated classes that bear a JPA
+   * annotation.
+   *
+   * @param annotatedCount the number of annotated classes
+   *
+   * @return an unmodifiable {@link List} of class names; never
+   * {@code null}
+   */
+  static final List<String> annotatedClassNames(final int annotatedCount) {
+    final List<String> names = new ArrayList<String>(annotatedCount);
+    for (int i = 0; i < annotatedCount; i++) {
+      names.add(className(i));
+    }
+    return Collections.unmodifiableList(names);
+  }
+
+  /**
+   * Generates {@code classCount} class files, the first {@code
+   * annotatedCount} of which are annotated, into the supplied
+   * directory, which is created if necessary.
+   *
+   * @param directory the directory to write to; must not be {@code
+   * null}
+   *
+   * @param classCount the number of classes to generate
+   *
+   * @param annotatedCount the number of those classes that bear a JPA
+   * annotation
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  static final void writeDirectory(final File directory, final int classCount, final int annotatedCount) throws IOException {
+    for (int i = 0; i < classCount; i++) {
+      final File file = new File(directory, String.format("%s.class", className(i).replace('.', File.separatorChar)));
+      final File parent = file.getParentFile();
+      if (!parent.isDirectory() && !parent.mkdirs()) {
+        throw new IOException(String.format("Could not create %s", parent));
+      }
+      final OutputStream out = new FileOutputStream(file);
+      try {
+        write(out, i, i < annotatedCount);
+      } finally {
+        out.close();
+      }
+    }
+  }
+
+  /**
+   * Generates {@code classCount} class files, the first {@code
+   * annotatedCount} of which are annotated, into a new jar file.
+   *
+   * @param jar the jar file to create; must not be {@code null}
+   *
+   * @param classCount the number of classes to generate
+   *
+   * @param annotatedCount the number of those classes that bear a JPA
+   * annotation
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  static final void writeJar(final File jar, final int classCount, final int annotatedCount) throws IOException {
+    final JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+    try {
+      for (int i = 0; i < classCount; i++) {
+        out.putNextEntry(new JarEntry(String.format("%s.class", className(i).replace('.', '/'))));
+        write(out, i, i < annotatedCount);
+        out.closeEntry();
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Writes the class file for the generated class with the supplied
+   * index to the supplied {@link OutputStream}, which is not closed.
+   *
+   * @param out the {@link OutputStream} to write to; must not be
+   * {@code null}
+   *
+   * @param index the index of the class
+   *
+   * @param annotated whether the class should bear a JPA annotation
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  private static final void write(final OutputStream out, final int index, final boolean annotated) throws IOException {
+    final ClassFile classFile = new ClassFile(false, className(index), null);
+    if (annotated) {
+      final ConstPool constPool = classFile.getConstPool();
+      final AnnotationsAttribute attribute = new AnnotationsAttribute(constPool, AnnotationsAttribute.visibleTag);
+      attribute.addAnnotation(new Annotation(ANNOTATIONS[index % ANNOTATIONS.length], constPool));
+      classFile.addAttribute(attribute);
+    }
+    final DataOutputStream data = new DataOutputStream(out);
+    classFile.write(data);
+    data.flush();
+  }
+
+  /**
+   * Recursively deletes the supplied {@link File}.
+   *
+   * @param file the {@link File} to delete; may be {@code null}
+   */
+  static final void delete(final File file) {
+    if (file != null) {
+      final File[] children = file.listFiles();
+      if (children != null) {
+        for (final File child : children) {
+          delete(child);
+        }
+      }
+      file.delete();
+    }
+  }
+
+}
@@ -0,0 +1,396 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+
+import java.net.URL;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * An index of persistent classes and the JPA annotations they bear,
+ * read from {@linkplain #RESOURCE_NAME <tt>META-INF/jpa-entity-index</tt>}
+ * resources written at build time by the
+ * <tt>generate-entity-index</tt> goal.
+ *
+ * <p>A persistence provider bootstrap, or any code that builds a
+ * list of managed classes, can call {@link #load(ClassLoader)} and
+ * use the {@linkplain #getClassNames() class names} it returns
+ * instead of scanning the classpath.  Loading reads each index
+ * resource once, line by line, so its cost is proportional to the
+ * number of entries and does not depend on the size of the
+ * classpath.  No classes are loaded.</p>
+ *
+ * <p>Each index resource is a UTF-8 text file.  Lines that are empty
+ * or begin with {@code #} are ignored; every other line has the
+ * form</p>
+ *
+ * <pre><i>className</i>=<i>annotationName</i>[,<i>annotationName</i>...]</pre>
+ *
+ * <p>This class depends on nothing but the Java platform.</p>
+ *
+ * <p>Instances of this class are immutable and safe for use by
+ * multiple threads.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public final class EntityIndex {
+
+  /**
+   * The name of the classpath resource that holds an entity index
+   * ({@value}).
+   */
+  public static final String RESOURCE_NAME = "META-INF/jpa-entity-index";
+
+  /**
+   * The names of the annotations borne by each indexed class, indexed
+   * by class name, in the order in which the classes were read.  This
+   * field is never {@code null}.
+   */
+  private final Map<String, Set<String>> annotationNamesByClassName;
+
+  /**
+   * The names of the indexed classes bearing each annotation, indexed
+   * by annotation name.  This field is never {@code null}.
+   */
+  private final Map<String, Set<String>> classNamesByAnnotationName;
+
+  /**
+   * Creates a new {@link EntityIndex}.
+   *
+   * @param annotationNamesByClassName the names of the annotations
+   * borne by each indexed class, indexed by class name; must not be
+   * {@code null}; is used, not copied
+   */
+  private EntityIndex(final Map<String, Set<String>> annotationNamesByClassName) {
+    super();
+    assert annotationNamesByClassName != null;
+    final Map<String, Set<String>> classNamesByAnnotationName = new HashMap<String, Set<String>>();
+    for (final Entry<String, Set<String>> entry : annotationNamesByClassName.entrySet()) {
+      for (final String annotationName : entry.getValue()) {
+        Set<String> classNames = classNamesByAnnotationName.get(annotationName);
+        if (classNames == null) {
+          classNames = new LinkedHashSet<String>();
+          classNamesByAnnotationName.put(annotationName, classNames);
+        }
+        classNames.add(entry.getKey());
+      }
+      entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+    }
+    for (final Entry<String, Set<String>> entry : classNamesByAnnotationName.entrySet()) {
+      entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+    }
+    this.annotationNamesByClassName = annotationNamesByClassName;
+    this.classNamesByAnnotationName = classNamesByAnnotationName;
+  }
+
+  /**
+   * Returns the names of all indexed classes, in the order in which
+   * they were read.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return an unmodifiable {@link Set} of class names; never {@code
+   * null}
+   */
+  public final Set<String> getClassNames() {
+    return Collections.unmodifiableSet(this.annotationNamesByClassName.keySet());
+  }
+
+  /**
+   * Returns the names of the indexed classes that bear the annotation
+   * with the supplied name, such as {@code javax.persistence.Entity}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param annotationName the fully qualified name of an annotation;
+   * may be {@code null}
+   *
+   * @return an unmodifiable {@link Set} of class names; never {@code
+   * null}
+   */
+  public final Set<String> getClassNames(final String annotationName) {
+    final Set<String> classNames = this.classNamesByAnnotationName.get(annotationName);
+    if (classNames == null) {
+      return Collections.emptySet();
+    }
+    return classNames;
+  }
+
+  /**
+   * Returns the names of the annotations borne by the indexed class
+   * with the supplied name.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param className the name of a class; may be {@code null}
+   *
+   * @return an unmodifiable {@link Set} of annotation names, which
+   * will be empty if the class is not indexed; never {@code null}
+   */
+  public final Set<String> getAnnotationNames(final String className) {
+    final Set<String> annotationNames = this.annotationNamesByClassName.get(className);
+    if (annotationNames == null) {
+      return Collections.emptySet();
+    }
+    return annotationNames;
+  }
+
+  /**
+   * Returns {@code true} if this {@link EntityIndex} indexes no
+   * classes.
+   *
+   * @return {@code true} if this {@link EntityIndex} is empty
+   */
+  public final boolean isEmpty() {
+    return this.annotationNamesByClassName.isEmpty();
+  }
+
+  /**
+   * Returns an {@link EntityIndex} built from every {@linkplain
+   * #RESOURCE_NAME index resource} visible to the current thread's
+   * {@linkplain Thread#getContextClassLoader() context
+   * <tt>ClassLoader</tt>}, or to the {@link ClassLoader} that loaded
+   * this class if there is none.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a new {@link EntityIndex}; never {@code null}
+   *
+   * @exception IOException if an index resource could not be read
+   *
+   * @see #load(ClassLoader)
+   */
+  public static final EntityIndex load() throws IOException {
+    ClassLoader loader = Thread.currentThread().getContextClassLoader();
+    if (loader == null) {
+      loader = EntityIndex.class.getClassLoader();
+    }
+    return load(loader);
+  }
+
+  /**
+   * Returns an {@link EntityIndex} built from every {@linkplain
+   * #RESOURCE_NAME index resource} visible to the supplied {@link
+   * ClassLoader}.  A class listed by several resources bears the
+   * union of the annotations they list for it.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param loader the {@link ClassLoader} to search; if {@code null}
+   * then the system {@link ClassLoader} is searched
+   *
+   * @return a new {@link EntityIndex}, which will be {@linkplain
+   * #isEmpty() empty} if there are no index resources; never {@code
+   * null}
+   *
+   * @exception IOException if an index resource could not be read
+   */
+  public static final EntityIndex load(final ClassLoader loader) throws IOException {
+    final Enumeration<URL> resources;
+    if (loader == null) {
+      resources = ClassLoader.getSystemResources(RESOURCE_NAME);
+    } else {
+      resources = loader.getResources(RESOURCE_NAME);
+    }
+    final Map<String, Set<String>> index = new LinkedHashMap<String, Set<String>>();
+    final Map<String, String> annotationNames = new HashMap<String, String>();
+    if (resources != null) {
+      while (resources.hasMoreElements()) {
+        final URL resource = resources.nextElement();
+        if (resource != null) {
+          final InputStream stream = resource.openStream();
+          try {
+            read(stream, index, annotationNames);
+          } finally {
+            stream.close();
+          }
+        }
+      }
+    }
+    return new EntityIndex(index);
+  }
+
+  /**
+   * Returns an {@link EntityIndex} read from a single index resource
+   * supplied as an {@link InputStream}.  The {@link InputStream} is
+   * not closed.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param stream the {@link InputStream} to read; must not be {@code
+   * null}
+   *
+   * @return a new {@link EntityIndex}; never {@code null}
+   *
+   * @exception IOException if {@code stream} could not be read
+   *
+   * @exception IllegalArgumentException if {@code stream} is {@code
+   * null}
+   */
+  public static final EntityIndex read(final InputStream stream) throws IOException {
+    if (stream == null) {
+      throw new IllegalArgumentException("stream", new NullPointerException("stream == null"));
+    }
+    final Map<String, Set<String>> index = new LinkedHashMap<String, Set<String>>();
+    read(stream, index, new HashMap<String, String>());
+    return new EntityIndex(index);
+  }
+
+  /**
+   * Reads a single index resource from the supplied {@link
+   * InputStream} into the supplied {@link Map}.
+   *
+   * @param stream the {@link InputStream} to read; must not be {@code
+   * null}; is not closed
+   *
+   * @param index the {@link Map} of annotation names indexed by class
+   * name to add to; must not be {@code null}
+   *
+   * @param annotationNames a {@link Map} used to share a single
+   * instance of each annotation name across entries; must not be
+   * {@code null}
+   *
+   * @exception IOException if {@code stream} could not be read
+   */
+  private static final void read(final InputStream stream, final Map<String, Set<String>> index, final Map<String, String> annotationNames) throws IOException {
+    assert stream != null;
+    assert index != null;
+    assert annotationNames != null;
+    final BufferedReader reader = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      line = line.trim();
+      if (line.isEmpty() || line.charAt(0) == '#') {
+        continue;
+      }
+      final int equals = line.indexOf('=');
+      final String className = (equals < 0 ? line : line.substring(0, equals)).trim();
+      if (className.isEmpty()) {
+        continue;
+      }
+      Set<String> annotationNamesForClass = index.get(className);
+      if (annotationNamesForClass == null) {
+        annotationNamesForClass = new LinkedHashSet<String>(4);
+        index.put(className, annotationNamesForClass);
+      }
+      if (equals >= 0) {
+        int start = equals + 1;
+        final int length = line.length();
+        while (start < length) {
+          int end = line.indexOf(',', start);
+          if (end < 0) {
+            end = length;
+          }
+          final String annotationName = line.substring(start, end).trim();
+          if (!annotationName.isEmpty()) {
+            String sharedAnnotationName = annotationNames.get(annotationName);
+            if (sharedAnnotationName == null) {
+              sharedAnnotationName = annotationName;
+              annotationNames.put(annotationName, annotationName);
+            }
+            annotationNamesForClass.add(sharedAnnotationName);
+          }
+          start = end + 1;
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes an index resource holding the supplied annotation names,
+   * indexed by class name, to the supplied {@link Writer}, which must
+   * encode characters as UTF-8.  Classes, and the annotations of each
+   * class, are written in their natural order.  The {@link Writer} is
+   * flushed but not closed.
+   *
+   * <p>This method is public for use by the
+   * <tt>generate-entity-index</tt> goal.</p>
+   *
+   * @param annotationNamesByClassName the names of the annotations
+   * borne by each class, indexed by class name; may be {@code null}
+   *
+   * @param writer the {@link Writer} to write to; must not be {@code
+   * null}
+   *
+   * @exception IOException if an error occurs while writing
+   *
+   * @exception IllegalArgumentException if {@code writer} is {@code
+   * null}
+   */
+  public static final void write(final Map<String, ? extends Collection<String>> annotationNamesByClassName, final Writer writer) throws IOException {
+    if (writer == null) {
+      throw new IllegalArgumentException("writer", new NullPointerException("writer == null"));
+    }
+    writer.write("# ");
+    writer.write(RESOURCE_NAME);
+    writer.write('\n');
+    if (annotationNamesByClassName != null) {
+      for (final Entry<String, ? extends Collection<String>> entry : new TreeMap<String, Collection<String>>(annotationNamesByClassName).entrySet()) {
+        final String className = entry.getKey();
+        if (className != null) {
+          writer.write(className);
+          writer.write('=');
+          final Collection<String> annotationNames = entry.getValue();
+          if (annotationNames != null) {
+            boolean first = true;
+            for (final String annotationName : new TreeSet<String>(annotationNames)) {
+              if (!first) {
+                writer.write(',');
+              }
+              writer.write(annotationName);
+              first = false;
+            }
+          }
+          writer.write('\n');
+        }
+      }
+    }
+    writer.flush();
+  }
+
+}
@@ -0,0 +1,1798 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.persistence.Embeddable; // for javadoc only
+import javax.persistence.Entity; // for javadoc only
+import javax.persistence.IdClass; // for javadoc only
+import javax.persistence.MappedSuperclass; // for javadoc only
+
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+
+import org.apache.maven.execution.MavenSession;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+import org.apache.maven.plugin.logging.Log;
+
+import org.apache.maven.model.Build;
+
+import org.apache.maven.project.MavenProject;
+
+/**
+ * An {@link AbstractMojo} that provides support for scanning a set of
+ * {@link URL}s and reporting back on the annotated classnames found
+ * there.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 1.0-SNAPSHOT
+ */
+public abstract class AbstractJPAMojo extends AbstractMojo {
+
+  /**
+   * The {@link List} of <a
+   * href="http://download.oracle.com/javaee/6/api/javax/persistence/package-summary.html">JPA</a>
+   * annotations that the mojos in this package scan for, in each of
+   * the {@linkplain #getNamespaces() namespaces}, unless {@linkplain
+   * #setAnnotations(List) configured otherwise}.  A class
+   * that has been annotated with one of these annotations must be
+   * made known to the JPA persistence unit in some fashion, which is
+   * the task with which these mojos provide assistance.
+   *
+   * <p>This field is package-private for use by this package's mojos
+   * only.</p>
+   *
+   * @see Embeddable
+   *
+   * @see Entity
+   *
+   * @see IdClass
+   *
+   * @see MappedSuperclass
+   *
+   * @see <a href="http://jcp.org/en/jsr/detail?id=317">Java
+   * Persistence 2.0 Specification</a>
+   */
+  static final List<String> JPA_ANNOTATIONS = Arrays.asList(Entity.class.getName(), MappedSuperclass.class.getName(), Embeddable.class.getName(), IdClass.class.getName());
+
+  /**
+   * The JPA annotation namespaces that the mojos in this package scan
+   * for unless {@linkplain #setNamespaces(List) configured
+   * otherwise}: {@code javax.persistence} and its successor, {@code
+   * jakarta.persistence}.
+   *
+   * <p>This field is package-private for use by this package's mojos
+   * only.</p>
+   *
+   * @see #getNamespaces()
+   */
+  static final List<String> JPA_NAMESPACES = Collections.unmodifiableList(Arrays.asList("javax.persistence", "jakarta.persistence"));
+
+  /**
+   * The {@link MavenProject} usually injected by the Maven runtime.
+   * Used for the return value of its {@link
+   * MavenProject#getTestClasspathElements()
+   * getTestClasspathElements()} method and its associated {@link
+   * Build}'s {@link Build#getTestOutputDirectory()
+   * getTestOutputDirectory()} method.  This field may be {@code null}
+   * when this {@link AbstractJPAMojo} is not <a
+   * href="http://maven.apache.org/guides/mini/guide-configuring-plugins.html">configured
+   * by Maven</a>.
+   *
+   * @parameter default-value="${project}" property="project"
+   *
+   * @readonly
+   *
+   * @required
+   *
+   * @see <a
+   * href="http://maven.apache.org/guides/mini/guide-configuring-plugins.html">Guide
+   * to Configuring Plug-ins</a>
+   */
+  private MavenProject project;
+
+  /**
+   * The {@link MavenSession} in effect.  This field may be {@code
+   * null} when this {@link AbstractJPAMojo} is not <a
+   * href="http://maven.apache.org/guides/mini/guide-configuring-plugins.html">configured
+   * by Maven</a>.
+   *
+   * @parameter default-value="${session}"
+   *
+   * @readonly
+   *
+   * @see #getUseSessionScanCache()
+   */
+  private MavenSession session;
+
+  /**
+   * The {@link AnnotationDB} that will be {@linkplain
+   * #cloneAnnotationDB() cloned} for use by this {@link
+   * AbstractJPAMojo}.  This field may be {@code null} at any point,
+   * and may be populated by either <a
+   * href="http://maven.apache.org/guides/mini/guide-configuring-plugins.html">Maven</a>,
+   * the {@link #setAnnotationDB(AnnotationDB)} method or the {@link
+   * #createAnnotationDB()} method.
+   *
+   * @parameter alias="db" property="annotationDB"
+   *
+   * @see #cloneAnnotationDB()
+   *
+   * @see #createAnnotationDB()
+   *
+   * @see #setAnnotationDB(AnnotationDB)
+   *
+   * @see <a
+   * href="http://maven.apache.org/guides/mini/guide-configuring-plugins.html">Guide
+   * to Configuring Plug-ins</a>
+   */
+  private AnnotationDB db;
+
+  /**
+   * A {@link URLFilter} that will be used to construct the {@link
+   * Set} of {@link URL}s that will be scanned by this {@link
+   * AbstractJPAMojo}.  This field may be {@code null} at any point
+   * and may be populated by either <a
+   * href="http://maven.apache.org/guides/mini/guide-configuring-plugins.html">Maven</a>
+   * or the {@link #setURLFilter(URLFilter)} method.
+   *
+   * @parameter property="URLFilter"
+   *
+   * @see #getURLFilter()
+   *
+   * @see #setURLFilter(URLFilter)
+   *
+   * @see <a
+   * href="http://maven.apache.org/guides/mini/guide-configuring-plugins.html">Guide
+   * to Configuring Plug-ins</a>
+   */
+  private URLFilter urlFilter;
+
+  /**
+   * The maximum number of threads that will be used to scan the
+   * {@link URL}s handed to the {@link #scan(Set)} method.  Each
+   * {@link URL} is scanned by its own {@link AnnotationDB}, and the
+   * results are {@linkplain AnnotationDB#merge(AnnotationDB) merged}
+   * in {@link URL} order, so the results are identical to those of a
+   * sequential scan.  Values less than or equal to {@code 1} cause
+   * all {@link URL}s to be scanned sequentially on the calling
+   * thread.
+   *
+   * @parameter default-value="1" property="scanThreads"
+   *
+   * @see #getScanThreads()
+   *
+   * @see #setScanThreads(int)
+   */
+  private int scanThreads;
+
+  /**
+   * Whether the results of scanning archive files (as opposed to
+   * directories) should be stored in, and when possible loaded from,
+   * a persistent cache located in the {@linkplain
+   * #getScanCacheDirectory() scan cache directory}.
+   *
+   * @parameter default-value="false" property="useScanCache"
+   *
+   * @see #getUseScanCache()
+   *
+   * @see #setUseScanCache(boolean)
+   */
+  private boolean useScanCache;
+
+  /**
+   * The directory in which cached scan results are stored when the
+   * {@linkplain #getUseScanCache() scan cache is in use}.  This field
+   * may be {@code null} at any point.
+   *
+   * @parameter
+   * default-value="${project.build.directory}${file.separator}jpa-maven-plugin${file.separator}cache"
+   * property="scanCacheDirectory"
+   *
+   * @see #getScanCacheDirectory()
+   *
+   * @see #setScanCacheDirectory(File)
+   */
+  private File scanCacheDirectory;
+
+  /**
+   * Whether cached scan results should be validated against a
+   * checksum of each archive's contents in addition to its size and
+   * last modification time.
+   *
+   * @parameter default-value="false" property="scanCacheChecksums"
+   *
+   * @see #getScanCacheChecksums()
+   *
+   * @see #setScanCacheChecksums(boolean)
+   */
+  private boolean scanCacheChecksums;
+
+  /**
+   * Whether directories of class files should be scanned
+   * incrementally, reparsing only those class files that have
+   * changed since the previous build.  The state of each directory is
+   * stored in the {@linkplain #getScanCacheDirectory() scan cache
+   * directory}.
+   *
+   * @parameter default-value="false" property="useIncrementalScan"
+   *
+   * @see #getUseIncrementalScan()
+   *
+   * @see #setUseIncrementalScan(boolean)
+   */
+  private boolean useIncrementalScan;
+
+  /**
+   * Whether the {@link AnnotationDB} used for scanning should hold
+   * its indices in a {@linkplain AnnotationDB#setCompactIndices(boolean)
+   * compact, interned representation}, trading a little indexing
+   * speed for a much smaller memory footprint on large classpaths.
+   *
+   * @parameter default-value="false" property="compactIndices"
+   *
+   * @see #getCompactIndices()
+   *
+   * @see #setCompactIndices(boolean)
+   */
+  private boolean compactIndices;
+
+  /**
+   * Whether the scan results of archive files should be shared by
+   * every execution of this plugin within the current Maven session,
+   * so that an archive on the classpath of many modules of a reactor
+   * build is scanned at most once per build.  The scan results of
+   * every such archive are kept in memory until the session ends, so
+   * this is off by default.
+   *
+   * @parameter default-value="false" property="useSessionScanCache"
+   *
+   * @see #getUseSessionScanCache()
+   *
+   * @see #setUseSessionScanCache(boolean)
+   */
+  private boolean useSessionScanCache;
+
+  /**
+   * The JPA annotation namespaces (package names such as {@code
+   * javax.persistence} or {@code jakarta.persistence}) in which the
+   * {@linkplain #JPA_ANNOTATIONS JPA annotations} are sought when no
+   * {@linkplain #getAnnotations() annotations} have been explicitly
+   * configured.  If {@code null} or empty, the {@linkplain
+   * #JPA_NAMESPACES default namespaces} are used.  All namespaces are
+   * sought in a single scan.  This field may be {@code null} at any
+   * point.
+   *
+   * @parameter
+   *
+   * @see #getNamespaces()
+   *
+   * @see #setNamespaces(List)
+   */
+  private List<String> namespaces;
+
+  /**
+   * The fully qualified names of the annotations whose bearers this
+   * mojo finds.  If {@code null} or empty, the {@linkplain
+   * #JPA_ANNOTATIONS JPA annotations} are sought in each of the
+   * {@linkplain #getNamespaces() namespaces}.  Annotations are found
+   * whether their retention policy is {@link
+   * java.lang.annotation.RetentionPolicy#RUNTIME RUNTIME} or {@link
+   * java.lang.annotation.RetentionPolicy#CLASS CLASS}, the default.
+   * This field may be {@code null} at any point.
+   *
+   * @parameter
+   *
+   * @see #getAnnotations()
+   *
+   * @see #setAnnotations(List)
+   */
+  private List<String> annotations;
+
+  /**
+   * Whether the {@linkplain #getAnnotations() annotations} should be
+   * {@linkplain AnnotationResolver resolved} through meta-annotations
+   * and class hierarchies after scanning, so that classes bearing
+   * stereotype annotations (annotation types that are themselves
+   * annotated with one of the annotations) are found too.  Stereotypes
+   * need not be retained at runtime.
+   *
+   * @parameter default-value="false" property="resolveAnnotations"
+   *
+   * @see #getResolveAnnotations()
+   *
+   * @see #setResolveAnnotations(boolean)
+   */
+  private boolean resolveAnnotations;
+
+  /**
+   * Whether the time taken to scan each {@link URL}, the number of
+   * class file bytes read, class file entries seen, class files
+   * parsed and matching classes found there should be recorded and
+   * {@linkplain #reportScanMetrics() reported} once scanning is
+   * complete.
+   *
+   * @parameter default-value="false" property="collectScanMetrics"
+   *
+   * @see #getCollectScanMetrics()
+   *
+   * @see #setCollectScanMetrics(boolean)
+   */
+  private boolean collectScanMetrics;
+
+  /**
+   * The number of slowest {@link URL}s that are listed when
+   * {@linkplain #getCollectScanMetrics() scan metrics} are
+   * {@linkplain #reportScanMetrics() reported}.
+   *
+   * @parameter default-value="10" property="scanMetricsLimit"
+   *
+   * @see #getScanMetricsLimit()
+   *
+   * @see #setScanMetricsLimit(int)
+   */
+  private int scanMetricsLimit;
+
+  /**
+   * The file to which {@linkplain #getCollectScanMetrics() scan
+   * metrics} are written as JSON, such as {@code
+   * ${project.build.directory}/jpa-maven-plugin/scan-metrics.json}.
+   * If {@code null}, scan metrics are only logged.  Relative paths
+   * are resolved against the project's build directory.  This field
+   * may be {@code null} at any point.
+   *
+   * @parameter property="scanMetricsFile"
+   *
+   * @see #getScanMetricsFile()
+   *
+   * @see #setScanMetricsFile(File)
+   */
+  private File scanMetricsFile;
+
+  /**
+   * The maximum number of lines that are logged, when debug logging
+   * is enabled, for any one potentially large listing, such as the
+   * {@link URL}s being scanned or the {@linkplain
+   * #logAnnotationIndex(AnnotationDB) annotation index}.  A summary
+   * line accounts for anything left out.
+   *
+   * @parameter default-value="100" property="debugOutputLimit"
+   *
+   * @see #getDebugOutputLimit()
+   *
+   * @see #setDebugOutputLimit(int)
+   */
+  private int debugOutputLimit;
+
+  /**
+   * The {@link ScanMetrics} recorded by the most recent {@linkplain
+   * #scan(Set) scan}, or {@code null} if {@linkplain
+   * #getCollectScanMetrics() scan metrics are not being collected} or
+   * no scan has taken place.
+   *
+   * @see #getScanMetrics()
+   */
+  private volatile ScanMetrics scanMetrics;
+
+  /**
+   * Constructs a new {@link AbstractJPAMojo}.  No configuration
+   * automatic or otherwise will have taken place as a result of
+   * calling this constructor.
+   */
+  protected AbstractJPAMojo() {
+    super();
+    this.setScanThreads(1);
+    this.setScanMetricsLimit(10);
+    this.setDebugOutputLimit(100);
+  }
+
+  /**
+   * Creates a new {@link AnnotationDB} in the (common) case where a
+   * user has not supplied this {@link AbstractJPAMojo} with a
+   * pre-configured {@link AnnotationDB}.
+   *
+   * <p>This method never returns {@code null}.  Subclasses overriding
+   * this method must ensure that their overridden implementation
+   * never returns {@code null}.</p>
+   *
+   * @return a new {@link AnnotationDB}; never {@code null}
+   *
+   * @see AnnotationDB
+   *
+   * @see org.scannotation.AnnotationDB
+   */
+  protected AnnotationDB createAnnotationDB() {
+    return new AnnotationDB();
+  }
+
+  /**
+   * Returns this {@link AbstractJPAMojo}'s associated {@link
+   * URLFilter}, or {@code null} if no such {@link URLFilter} exists.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the {@link URLFilter} used by this {@link
+   * AbstractJPAMojo}, or {@code null}
+   *
+   * @see #setURLFilter(URLFilter)
+   *
+   * @see URLFilter
+   */
+  public URLFilter getURLFilter() {
+    return this.urlFilter;
+  }
+
+  /**
+   * Sets this {@link AbstractJPAMojo}'s associated {@link URLFilter}.
+   * {@code null} is permitted as a parameter value.
+   *
+   * @param filter the {@link URLFilter} to set; may be {@code null}
+   *
+   * @see #getURLFilter()
+   *
+   * @see URLFilter
+   */
+  public void setURLFilter(final URLFilter filter) {
+    this.urlFilter = filter;
+  }
+
+  /**
+   * Returns the maximum number of threads that this {@link
+   * AbstractJPAMojo} will use to scan {@link URL}s.  A return value
+   * less than or equal to {@code 1} indicates that scanning will be
+   * performed sequentially.
+   *
+   * @return the maximum number of scanning threads
+   *
+   * @see #setScanThreads(int)
+   */
+  public int getScanThreads() {
+    return this.scanThreads;
+  }
+
+  /**
+   * Sets the maximum number of threads that this {@link
+   * AbstractJPAMojo} will use to scan {@link URL}s.
+   *
+   * @param scanThreads the maximum number of scanning threads; values
+   * less than or equal to {@code 1} cause scanning to be performed
+   * sequentially
+   *
+   * @see #getScanThreads()
+   */
+  public void setScanThreads(final int scanThreads) {
+    this.scanThreads = scanThreads;
+  }
+
+  /**
+   * Returns whether the results of scanning archive files will be
+   * cached persistently in the {@linkplain #getScanCacheDirectory()
+   * scan cache directory}.
+   *
+   * @return whether the scan cache is in use
+   *
+   * @see #setUseScanCache(boolean)
+   */
+  public boolean getUseScanCache() {
+    return this.useScanCache;
+  }
+
+  /**
+   * Sets whether the results of scanning archive files will be
+   * cached persistently in the {@linkplain #getScanCacheDirectory()
+   * scan cache directory}.
+   *
+   * @param useScanCache whether the scan cache should be used
+   *
+   * @see #getUseScanCache()
+   */
+  public void setUseScanCache(final boolean useScanCache) {
+    this.useScanCache = useScanCache;
+  }
+
+  /**
+   * Returns the directory in which cached scan results are stored.
+   * This method does not perform any validation or initialization.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the scan cache directory, or {@code null}
+   *
+   * @see #setScanCacheDirectory(File)
+   */
+  public File getScanCacheDirectory() {
+    return this.scanCacheDirectory;
+  }
+
+  /**
+   * Sets the directory in which cached scan results are stored.  This
+   * method does not perform any validation or initialization.
+   *
+   * @param scanCacheDirectory the scan cache directory; may be {@code
+   * null}
+   *
+   * @see #getScanCacheDirectory()
+   */
+  public void setScanCacheDirectory(final File scanCacheDirectory) {
+    this.scanCacheDirectory = scanCacheDirectory;
+  }
+
+  /**
+   * Returns whether cached scan results are validated against a
+   * checksum of each archive's contents in addition to its size and
+   * last modification time.
+   *
+   * @return whether archive checksums are used
+   *
+   * @see #setScanCacheChecksums(boolean)
+   */
+  public boolean getScanCacheChecksums() {
+    return this.scanCacheChecksums;
+  }
+
+  /**
+   * Sets whether cached scan results are validated against a
+   * checksum of each archive's contents in addition to its size and
+   * last modification time.
+   *
+   * @param scanCacheChecksums whether archive checksums should be used
+   *
+   * @see #getScanCacheChecksums()
+   */
+  public void setScanCacheChecksums(final boolean scanCacheChecksums) {
+    this.scanCacheChecksums = scanCacheChecksums;
+  }
+
+  /**
+   * Returns whether directories of class files are scanned
+   * incrementally, reparsing only those class files whose size or
+   * last modification time has changed since the previous scan.
+   *
+   * @return whether incremental directory scanning is in use
+   *
+   * @see #setUseIncrementalScan(boolean)
+   */
+  public boolean getUseIncrementalScan() {
+    return this.useIncrementalScan;
+  }
+
+  /**
+   * Sets whether directories of class files are scanned
+   * incrementally, reparsing only those class files whose size or
+   * last modification time has changed since the previous scan.
+   *
+   * @param useIncrementalScan whether incremental directory scanning
+   * should be used
+   *
+   * @see #getUseIncrementalScan()
+   */
+  public void setUseIncrementalScan(final boolean useIncrementalScan) {
+    this.useIncrementalScan = useIncrementalScan;
+  }
+
+  /**
+   * Returns whether the {@link AnnotationDB} used for scanning holds
+   * its indices in a compact, interned representation.
+   *
+   * @return whether compact indices are in use
+   *
+   * @see #setCompactIndices(boolean)
+   *
+   * @see AnnotationDB#setCompactIndices(boolean)
+   */
+  public boolean getCompactIndices() {
+    return this.compactIndices;
+  }
+
+  /**
+   * Sets whether the {@link AnnotationDB} used for scanning holds its
+   * indices in a compact, interned representation.
+   *
+   * @param compactIndices whether compact indices should be used
+   *
+   * @see #getCompactIndices()
+   *
+   * @see AnnotationDB#setCompactIndices(boolean)
+   */
+  public void setCompactIndices(final boolean compactIndices) {
+    this.compactIndices = compactIndices;
+  }
+
+  /**
+   * Returns whether the scan results of archive files are shared by
+   * every execution of this plugin within the current {@linkplain
+   * #getSession() Maven session}.
+   *
+   * @return whether the session scan cache is in use
+   *
+   * @see #setUseSessionScanCache(boolean)
+   */
+  public boolean getUseSessionScanCache() {
+    return this.useSessionScanCache;
+  }
+
+  /**
+   * Sets whether the scan results of archive files are shared by
+   * every execution of this plugin within the current {@linkplain
+   * #getSession() Maven session}.  The session scan cache is in use
+   * only if this property is {@code true} and a {@link MavenSession}
+   * has been set.
+   *
+   * @param useSessionScanCache whether the session scan cache should
+   * be used
+   *
+   * @see #getUseSessionScanCache()
+   */
+  public void setUseSessionScanCache(final boolean useSessionScanCache) {
+    this.useSessionScanCache = useSessionScanCache;
+  }
+
+  /**
+   * Returns an unmodifiable {@link List} of the JPA annotation
+   * namespaces in which the {@linkplain #JPA_ANNOTATIONS JPA
+   * annotations} are sought when no {@linkplain #getAnnotations()
+   * annotations} have been explicitly configured.  If none have been
+   * {@linkplain #setNamespaces(List) set}, the {@linkplain
+   * #JPA_NAMESPACES default namespaces} are returned.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return the namespaces to search; never {@code null}
+   *
+   * @see #setNamespaces(List)
+   */
+  public List<String> getNamespaces() {
+    final List<String> namespaces = this.namespaces;
+    if (namespaces == null || namespaces.isEmpty()) {
+      return JPA_NAMESPACES;
+    }
+    return namespaces;
+  }
+
+  /**
+   * Sets the JPA annotation namespaces in which the {@linkplain
+   * #JPA_ANNOTATIONS JPA annotations} are sought when no {@linkplain
+   * #getAnnotations() annotations} have been explicitly configured.
+   * {@code null} and blank names are discarded and the remainder are
+   * trimmed.  The supplied {@link List} is copied.
+   *
+   * @param namespaces the namespaces to search, such as {@code
+   * jakarta.persistence}; may be {@code null} in which case the
+   * {@linkplain #JPA_NAMESPACES default namespaces} will be searched
+   *
+   * @see #getNamespaces()
+   */
+  public void setNamespaces(final List<String> namespaces) {
+    this.namespaces = trim(namespaces);
+  }
+
+  /**
+   * Returns an unmodifiable {@link List} of the fully qualified names
+   * of the annotations whose bearers this mojo finds.  If none have
+   * been {@linkplain #setAnnotations(List) set}, the {@linkplain
+   * #JPA_ANNOTATIONS JPA annotations} as they appear in each of the
+   * {@linkplain #getNamespaces() namespaces} are returned.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return the names of the annotations to find; never {@code null}
+   *
+   * @see #setAnnotations(List)
+   */
+  public List<String> getAnnotations() {
+    final List<String> annotations = this.annotations;
+    if (annotations != null && !annotations.isEmpty()) {
+      return annotations;
+    }
+    final List<String> namespaces = this.getNamespaces();
+    final List<String> returnValue = new ArrayList<String>(namespaces.size() * JPA_ANNOTATIONS.size());
+    for (final String namespace : namespaces) {
+      for (final String jpaAnnotation : JPA_ANNOTATIONS) {
+        returnValue.add(namespace + jpaAnnotation.substring(jpaAnnotation.lastIndexOf('.')));
+      }
+    }
+    return Collections.unmodifiableList(returnValue);
+  }
+
+  /**
+   * Sets the fully qualified names of the annotations whose bearers
+   * this mojo finds, overriding the {@linkplain #getNamespaces()
+   * namespaces}.  {@code null} and blank names are discarded and the
+   * remainder are trimmed.  The supplied {@link List} is copied.
+   *
+   * @param annotations the names of the annotations to find; may be
+   * {@code null} in which case the {@linkplain #JPA_ANNOTATIONS JPA
+   * annotations} will be found in each of the {@linkplain
+   * #getNamespaces() namespaces}
+   *
+   * @see #getAnnotations()
+   */
+  public void setAnnotations(final List<String> annotations) {
+    this.annotations = trim(annotations);
+  }
+
+  /**
+   * Returns an unmodifiable copy of the supplied {@link List} with
+   * {@code null}, blank and duplicate elements removed and the
+   * remainder trimmed, or {@code null} if the supplied {@link List}
+   * is {@code null}.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param strings the {@link List} to copy; may be {@code null}
+   *
+   * @return a trimmed, unmodifiable copy of {@code strings}, or
+   * {@code null}
+   */
+  private static final List<String> trim(final List<String> strings) {
+    if (strings == null) {
+      return null;
+    }
+    final List<String> copy = new ArrayList<String>(strings.size());
+    for (final String string : strings) {
+      if (string != null) {
+        final String trimmed = string.trim();
+        if (trimmed.length() > 0 && !copy.contains(trimmed)) {
+          copy.add(trimmed);
+        }
+      }
+    }
+    return Collections.unmodifiableList(copy);
+  }
+
+  /**
+   * Returns the namespace (package name) of the annotation with the
+   * supplied fully qualified name, or the empty string if it belongs
+   * to the unnamed package.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>This method is package-private for use by this package's mojos
+   * only.</p>
+   *
+   * @param annotationName the fully qualified annotation name; must
+   * not be {@code null}
+   *
+   * @return the namespace of the annotation; never {@code null}
+   */
+  static final String namespaceOf(final String annotationName) {
+    assert annotationName != null;
+    final int lastDot = annotationName.lastIndexOf('.');
+    return lastDot < 0 ? "" : annotationName.substring(0, lastDot);
+  }
+
+  /**
+   * Returns whether the {@linkplain #getAnnotations() annotations}
+   * are resolved through meta-annotations and class hierarchies after
+   * scanning.
+   *
+   * @return whether annotations are resolved
+   *
+   * @see #setResolveAnnotations(boolean)
+   *
+   * @see AnnotationResolver
+   */
+  public boolean getResolveAnnotations() {
+    return this.resolveAnnotations;
+  }
+
+  /**
+   * Sets whether the {@linkplain #getAnnotations() annotations} are
+   * resolved through meta-annotations and class hierarchies after
+   * scanning.  Resolution uses only the indices built by the scan
+   * itself, but because a stereotype-annotated class need not
+   * reference the annotations it ultimately bears, the {@linkplain
+   * #getRequiredReferences() constant pool prefilter} is disabled
+   * while resolution is in effect.
+   *
+   * @param resolveAnnotations whether annotations should be resolved
+   *
+   * @see #getResolveAnnotations()
+   *
+   * @see AnnotationResolver
+   */
+  public void setResolveAnnotations(final boolean resolveAnnotations) {
+    this.resolveAnnotations = resolveAnnotations;
+  }
+
+  /**
+   * Returns whether per-{@link URL} scan metrics are recorded and
+   * {@linkplain #reportScanMetrics() reported}.
+   *
+   * @return whether scan metrics are collected
+   *
+   * @see #setCollectScanMetrics(boolean)
+   */
+  public boolean getCollectScanMetrics() {
+    return this.collectScanMetrics;
+  }
+
+  /**
+   * Sets whether per-{@link URL} scan metrics are recorded and
+   * {@linkplain #reportScanMetrics() reported}.  Recording costs a
+   * few counter increments per class file; when it is enabled, every
+   * {@link URL} is scanned by its own {@link AnnotationDB} even if
+   * only one {@linkplain #getScanThreads() thread} is in use.
+   *
+   * @param collectScanMetrics whether scan metrics should be
+   * collected
+   *
+   * @see #getCollectScanMetrics()
+   */
+  public void setCollectScanMetrics(final boolean collectScanMetrics) {
+    this.collectScanMetrics = collectScanMetrics;
+  }
+
+  /**
+   * Returns the number of slowest {@link URL}s that are listed when
+   * scan metrics are {@linkplain #reportScanMetrics() reported}.
+   *
+   * @return the number of slowest {@link URL}s listed
+   *
+   * @see #setScanMetricsLimit(int)
+   */
+  public int getScanMetricsLimit() {
+    return this.scanMetricsLimit;
+  }
+
+  /**
+   * Sets the number of slowest {@link URL}s that are listed when scan
+   * metrics are {@linkplain #reportScanMetrics() reported}.
+   *
+   * @param scanMetricsLimit the number of slowest {@link URL}s to
+   * list; values less than {@code 0} are treated as {@code 0}
+   *
+   * @see #getScanMetricsLimit()
+   */
+  public void setScanMetricsLimit(final int scanMetricsLimit) {
+    this.scanMetricsLimit = Math.max(0, scanMetricsLimit);
+  }
+
+  /**
+   * Returns the file to which scan metrics are written as JSON, or
+   * {@code null} if they are only logged.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the scan metrics file, or {@code null}
+   *
+   * @see #setScanMetricsFile(File)
+   */
+  public File getScanMetricsFile() {
+    return this.scanMetricsFile;
+  }
+
+  /**
+   * Sets the file to which scan metrics are written as JSON.
+   *
+   * @param scanMetricsFile the scan metrics file; may be {@code null}
+   * in which case scan metrics are only logged
+   *
+   * @see #getScanMetricsFile()
+   */
+  public void setScanMetricsFile(final File scanMetricsFile) {
+    this.scanMetricsFile = scanMetricsFile;
+  }
+
+  /**
+   * Returns the maximum number of lines that are logged, when debug
+   * logging is enabled, for any one potentially large listing.
+   *
+   * @return the maximum number of lines logged per listing
+   *
+   * @see #setDebugOutputLimit(int)
+   */
+  public int getDebugOutputLimit() {
+    return this.debugOutputLimit;
+  }
+
+  /**
+   * Sets the maximum number of lines that are logged, when debug
+   * logging is enabled, for any one potentially large listing.
+   *
+   * @param debugOutputLimit the maximum number of lines logged per
+   * listing; values less than {@code 0} are treated as {@code 0}
+   *
+   * @see #getDebugOutputLimit()
+   */
+  public void setDebugOutputLimit(final int debugOutputLimit) {
+    this.debugOutputLimit = Math.max(0, debugOutputLimit);
+  }
+
+  /**
+   * Returns whether {@link ScanMetrics} should be recorded by the
+   * next {@linkplain #scan(Set) scan}.
+   *
+   * <p>This implementation returns the value of {@link
+   * #getCollectScanMetrics()}.  Subclasses that report on scans in
+   * other ways may override it.</p>
+   *
+   * <p>This method is package-private for use by this package's mojos
+   * only.</p>
+   *
+   * @return whether scan metrics should be recorded
+   */
+  boolean isScanMetricsNeeded() {
+    return this.getCollectScanMetrics();
+  }
+
+  /**
+   * Returns the {@link ScanMetrics} recorded by the most recent
+   * {@linkplain #scan(Set) scan}, or {@code null} if {@linkplain
+   * #getCollectScanMetrics() scan metrics are not being collected} or
+   * no scan has taken place.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>This method is package-private for use by this package's mojos
+   * and unit tests only.</p>
+   *
+   * @return the most recent {@link ScanMetrics}, or {@code null}
+   */
+  final ScanMetrics getScanMetrics() {
+    return this.scanMetrics;
+  }
+
+  /**
+   * Logs a summary of the {@linkplain #getScanMetrics() most recent
+   * scan metrics}, listing the {@linkplain #getScanMetricsLimit()
+   * slowest} {@link URL}s first, and writes them as JSON to the
+   * {@linkplain #getScanMetricsFile() scan metrics file} if one has
+   * been set.  If no scan metrics have been recorded, no operation
+   * takes place.
+   *
+   * <p>Failure to write the scan metrics file is logged as a warning
+   * and does not fail the build.</p>
+   *
+   * <p>Mojos in this package call this method at the end of their
+   * {@link #execute()} methods.</p>
+   */
+  protected final void reportScanMetrics() {
+    final ScanMetrics metrics = this.getScanMetrics();
+    if (metrics == null || !this.getCollectScanMetrics()) {
+      return;
+    }
+    final Log log = this.getLog();
+    if (log != null && log.isInfoEnabled()) {
+      final List<ScanMetrics.Entry> entries = metrics.getEntries();
+      final ScanMetrics.Entry total = metrics.getTotal();
+      final int limit = Math.min(this.getScanMetricsLimit(), entries.size());
+      log.info(String.format("Scanned %d URLs in %d ms of scanning time (%d bytes, %d class entries, %d parsed, %d matches)%s",
+                             entries.size(), total.getNanos() / 1000000L, total.getBytesRead(), total.getClassEntries(), total.getClassesParsed(), total.getMatches(),
+                             limit > 0 ? String.format("; the %d slowest were:", limit) : ""));
+      for (int i = 0; i < limit; i++) {
+        log.info(entries.get(i).toString());
+      }
+    }
+    final File file = this.resolveAgainstBuildDirectory(this.getScanMetricsFile());
+    if (file != null) {
+      try {
+        final Writer writer = newReportWriter(file);
+        try {
+          metrics.writeJson(writer);
+        } finally {
+          writer.close();
+        }
+        if (log != null && log.isDebugEnabled()) {
+          log.debug(String.format("Wrote scan metrics to %s", file));
+        }
+      } catch (final IOException kaboom) {
+        if (log != null && log.isWarnEnabled()) {
+          log.warn(String.format("The scan metrics could not be written to %s", file), kaboom);
+        }
+      }
+    }
+  }
+
+  /**
+   * Logs the supplied {@link AnnotationDB}'s {@linkplain
+   * AnnotationDB#getAnnotationIndex() annotation index} at debug
+   * level, one line per annotation and one line per annotated class,
+   * followed by a summary.  No more than {@linkplain
+   * #getDebugOutputLimit() the debug output limit} class lines are
+   * logged; the summary reports how many were left out.  If debug
+   * logging is not enabled, no operation takes place.
+   *
+   * <p>Each line is handed to the {@link Log} as soon as it is
+   * formatted, so the index is never rendered in its entirety.</p>
+   *
+   * @param db the {@link AnnotationDB} whose index should be logged;
+   * may be {@code null} in which case no operation takes place
+   */
+  protected final void logAnnotationIndex(final AnnotationDB db) {
+    final Log log = this.getLog();
+    if (db == null || log == null || !log.isDebugEnabled()) {
+      return;
+    }
+    final Map<String, Set<String>> index = db.getAnnotationIndex();
+    if (index == null) {
+      return;
+    }
+    final int limit = this.getDebugOutputLimit();
+    int logged = 0;
+    int total = 0;
+    log.debug("Annotation index:");
+    for (final Entry<String, Set<String>> entry : index.entrySet()) {
+      final Set<String> classNames = entry.getValue();
+      final int size = classNames == null ? 0 : classNames.size();
+      total += size;
+      if (logged < limit) {
+        log.debug(String.format("@%s (%d)", entry.getKey(), size));
+        if (classNames != null) {
+          for (final String className : classNames) {
+            if (logged >= limit) {
+              break;
+            }
+            log.debug(String.format("    %s", className));
+            logged++;
+          }
+        }
+      }
+    }
+    log.debug(String.format("Annotation index: %d annotations, %d annotated class entries, %d not shown (debugOutputLimit = %d)",
+                            index.size(), total, total - logged, limit));
+  }
+
+  /**
+   * Returns the supplied {@link File} if it is absolute, or resolves
+   * it against the {@linkplain Build#getDirectory() build directory}
+   * of the current {@linkplain #getProject() project} if it is
+   * relative and there is one.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>This method is package-private for use by this package's mojos
+   * only.</p>
+   *
+   * @param file the {@link File} to resolve; may be {@code null} in
+   * which case {@code null} will be returned
+   *
+   * @return the resolved {@link File}, or {@code null}
+   */
+  final File resolveAgainstBuildDirectory(final File file) {
+    if (file == null || file.isAbsolute()) {
+      return file;
+    }
+    final MavenProject project = this.getProject();
+    final Build build = project == null ? null : project.getBuild();
+    final String directory = build == null ? null : build.getDirectory();
+    return directory == null ? file : new File(directory, file.getPath());
+  }
+
+  /**
+   * Returns a new UTF-8 {@link Writer} that replaces the contents of
+   * the supplied report file, creating its parent directories if
+   * necessary.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>This method is package-private for use by this package's mojos
+   * only.</p>
+   *
+   * @param file the report file; must not be {@code null}
+   *
+   * @return a new {@link Writer}; never {@code null}
+   *
+   * @exception IOException if the file could not be opened
+   */
+  static final Writer newReportWriter(final File file) throws IOException {
+    assert file != null;
+    final File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+      throw new IOException(String.format("Could not create %s", parent));
+    }
+    return new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+  }
+
+  /**
+   * Returns the internal-form package prefixes, one of which must be
+   * present in a class file's constant pool for that class file to
+   * possibly bear any of the {@linkplain #getAnnotations()
+   * annotations}, or {@code null} if no such prefilter may be
+   * applied.
+   *
+   * <p>No prefilter may be applied if {@linkplain
+   * #getResolveAnnotations() annotations are resolved}, or if any of
+   * the annotations belongs to the unnamed package.</p>
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>This method is package-private for use by this package's mojos
+   * only.</p>
+   *
+   * @return the required references in sorted order, or {@code null}
+   *
+   * @see AnnotationDB#setRequiredReferences(String[])
+   */
+  final String[] getRequiredReferences() {
+    if (this.getResolveAnnotations()) {
+      return null;
+    }
+    final Set<String> references = new TreeSet<String>();
+    for (final String annotation : this.getAnnotations()) {
+      final String namespace = namespaceOf(annotation);
+      if (namespace.length() == 0) {
+        return null;
+      }
+      references.add(namespace.replace('.', '/') + '/');
+    }
+    return references.toArray(new String[references.size()]);
+  }
+
+  /**
+   * Configures the supplied {@link AnnotationDB}, freshly {@linkplain
+   * #createAnnotationDB() created} by a subclass, to read only class
+   * annotations, to skip class files that cannot bear any of the
+   * {@linkplain #getAnnotations() annotations} and, if {@linkplain
+   * #getResolveAnnotations() annotations are resolved}, to index
+   * supertypes.
+   *
+   * <p>This method is package-private for use by this package's mojos
+   * only.</p>
+   *
+   * @param db the {@link AnnotationDB} to configure; must not be
+   * {@code null}
+   *
+   * @return the supplied {@link AnnotationDB}
+   */
+  final AnnotationDB configureAnnotationDB(final AnnotationDB db) {
+    assert db != null;
+    db.setRequiredReferences(this.getRequiredReferences());
+    db.setClassAnnotationsOnly(true);
+    db.setIndexSupertypes(this.getResolveAnnotations());
+    return db;
+  }
+
+  /**
+   * Returns a {@link Map} of the names of the classes recorded in the
+   * supplied {@link AnnotationDB} that bear each of the {@linkplain
+   * #getAnnotations() annotations}, indexed by annotation name.  If
+   * {@linkplain #getResolveAnnotations() annotations are resolved},
+   * classes that bear them through meta-annotations or inheritance
+   * are included.
+   *
+   * <p>This method never returns {@code null}.  Annotations borne by
+   * no class have no entry in the {@link Map} returned.</p>
+   *
+   * <p>This method is package-private for use by this package's mojos
+   * only.</p>
+   *
+   * @param db the {@link AnnotationDB} that performed the scan; must
+   * not be {@code null}
+   *
+   * @return a {@link Map} of class names indexed by annotation name;
+   * never {@code null}
+   *
+   * @see AnnotationResolver#resolve(AnnotationDB)
+   */
+  final Map<String, Set<String>> findAnnotatedClasses(final AnnotationDB db) {
+    assert db != null;
+    final List<String> annotations = this.getAnnotations();
+    if (this.getResolveAnnotations()) {
+      return new AnnotationResolver(annotations).resolve(db);
+    }
+    final Map<String, Set<String>> ai = db.getAnnotationIndex();
+    final Map<String, Set<String>> returnValue = new HashMap<String, Set<String>>();
+    for (final String annotation : annotations) {
+      final Set<String> classNames = ai.get(annotation);
+      if (classNames != null && !classNames.isEmpty()) {
+        returnValue.put(annotation, classNames);
+      }
+    }
+    return returnValue;
+  }
+
+  /**
+   * Returns a new {@link ScanCache} reflecting this {@link
+   * AbstractJPAMojo}'s configuration, or {@code null} if the
+   * {@linkplain #getUseScanCache() scan cache is not in use} or no
+   * {@linkplain #getScanCacheDirectory() scan cache directory} has
+   * been set.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return a new {@link ScanCache}, or {@code null}
+   */
+  private final ScanCache createScanCache() {
+    final File directory = this.getScanCacheDirectory();
+    if (!this.getUseScanCache() || directory == null) {
+      return null;
+    }
+    return new ScanCache(directory, this.getScanCacheChecksums());
+  }
+
+  /**
+   * Returns a new {@link IncrementalDirectoryScanner} reflecting this
+   * {@link AbstractJPAMojo}'s configuration, or {@code null} if
+   * {@linkplain #getUseIncrementalScan() incremental scanning is not
+   * in use} or no {@linkplain #getScanCacheDirectory() scan cache
+   * directory} has been set.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return a new {@link IncrementalDirectoryScanner}, or {@code
+   * null}
+   */
+  private final IncrementalDirectoryScanner createIncrementalDirectoryScanner() {
+    final File directory = this.getScanCacheDirectory();
+    if (!this.getUseIncrementalScan() || directory == null) {
+      return null;
+    }
+    return new IncrementalDirectoryScanner(directory);
+  }
+
+  /**
+   * Returns the {@link SessionScanCache} belonging to the current
+   * {@linkplain #getSession() Maven session}, or {@code null} if the
+   * {@linkplain #getUseSessionScanCache() session scan cache is not in
+   * use} or no {@link MavenSession} has been set.
+   *
+   * <p>Maven gives each project of a reactor build its own {@linkplain
+   * MavenSession#clone() copy} of the {@link MavenSession}, so the
+   * {@link SessionScanCache} is looked up by the {@link
+   * MavenSession#getRequest() MavenExecutionRequest} that all of the
+   * copies share.</p>
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return a {@link SessionScanCache}, or {@code null}
+   */
+  private final SessionScanCache getSessionScanCache() {
+    final MavenSession session = this.getSession();
+    if (!this.getUseSessionScanCache() || session == null) {
+      return null;
+    }
+    final Object request = session.getRequest();
+    return SessionScanCache.forSession(request == null ? session : request);
+  }
+
+  /**
+   * Returns the {@link MavenProject} that Maven customarily injects
+   * into this mojo, or {@code null} if no such {@link MavenProject}
+   * has been set.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the {@link MavenProject} associated with this mojo, or
+   * {@code null}
+   */
+  public MavenProject getProject() {
+    return this.project;
+  }
+
+  /**
+   * Installs the {@link MavenProject} for use by this mojo during its
+   * run.
+   *
+   * @param project the {@link MavenProject} to use; may be {@code
+   * null}
+   */
+  public void setProject(final MavenProject project) {
+    this.project = project;
+  }
+
+  /**
+   * Returns the {@link MavenSession} in effect, or {@code null} if no
+   * such {@link MavenSession} has been set.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the {@link MavenSession} in effect, or {@code null}
+   */
+  public MavenSession getSession() {
+    return this.session;
+  }
+
+  /**
+   * Installs the {@link MavenSession} for use by this mojo during its
+   * run.
+   *
+   * @param session the {@link MavenSession} to use; may be {@code
+   * null}
+   */
+  public void setSession(final MavenSession session) {
+    this.session = session;
+  }
+
+  /**
+   * Returns a {@linkplain AnnotationDB#clone() clone} of this {@link
+   * AbstractJPAMojo}'s {@linkplain #setAnnotationDB(AnnotationDB)
+   * associated <tt>AnnotationDB</tt>}.
+   *
+   * <p>A clone is returned because {@link
+   * org.scannotation.AnnotationDB} retains state after {@linkplain
+   * org.scannotation.AnnotationDB#scanArchives(URL[]) scanning}, and
+   * Maven plugins have no contractually defined lifecycle semantics.
+   * Consequently it is unknown how long-lived this {@link
+   * AbstractJPAMojo}'s {@link #db} reference might be.</p>
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return a {@linkplain AnnotationDB#clone() clone} of this {@link
+   * AbstractJPAMojo}'s {@linkplain #setAnnotationDB(AnnotationDB)
+   * associated <tt>AnnotationDB</tt>}, or {@code null} if no such
+   * {@link AnnotationDB} could be cloned
+   *
+   * @see #setAnnotationDB(AnnotationDB)
+   * 
+   * @see AnnotationDB
+   *
+   * @see AnnotationDB#clone()
+   *
+   * @see org.scannotation.AnnotationDB
+   *
+   * @see org.scannotation.AnnotationDB#annotationIndex
+   *
+   * @see org.scannotation.AnnotationDB#classIndex
+   */
+  public final synchronized AnnotationDB cloneAnnotationDB() {
+    if (this.db == null) {
+      this.db = this.createAnnotationDB();
+    }
+    if (this.db == null) {
+      return null;
+    }
+    return this.db.clone();
+  }
+
+  /**
+   * Sets the {@link AnnotationDB} that will be used by this {@link
+   * AbstractJPAMojo}'s {@link #cloneAnnotationDB()} method.  {@code
+   * null} is permitted as a parameter value.
+   *
+   * @param db the {@link AnnotationDB} to set; may be {@code null}
+   *
+   * @see #cloneAnnotationDB()
+   *
+   * @see AnnotationDB
+   */
+  public synchronized void setAnnotationDB(final AnnotationDB db) {
+    this.db = db;
+  }
+
+  /**
+   * Scans the supplied {@link Set} of {@link URL}s and returns the
+   * {@link AnnotationDB} that contains the scanned annotation
+   * information.
+   *
+   * <p>This method may return {@code null} in exceptional
+   * circumstances.</p>
+   *
+   * @param urls the {@link Set} of {@link URL}s to scan; if {@code
+   * null}, then no scanning operation will take place
+   *
+   * @return the {@link AnnotationDB} that was used to perform the
+   * scan, or {@code null} if no {@link AnnotationDB} could be
+   * {@linkplain #cloneAnnotationDB() found}
+   *
+   * @exception IOException if an error occurs during scanning
+   *
+   * @see #cloneAnnotationDB()
+   *
+   * @see org.scannotation.AnnotationDB#scanArchives(URL[])
+   */
+  protected final AnnotationDB scan(final Set<URL> urls) throws IOException {
+    final AnnotationDB db = this.cloneAnnotationDB();
+    if (db != null && this.getCompactIndices()) {
+      db.setCompactIndices(true);
+    }
+    this.scanMetrics = db != null && this.isScanMetricsNeeded() ? new ScanMetrics(this.getAnnotations()) : null;
+    final AnnotationDB result = this.scan(db, urls);
+    assert result == db;
+    return result;
+  }
+
+  /**
+   * Scans the supplied {@link Set} of {@link URL}s and as a
+   * convenience returns the supplied {@link AnnotationDB} that
+   * contains the scanned annotation information.
+   *
+   * <p>This method may return {@code null} if the supplied {@code db}
+   * is {@code null}.</p>
+   *
+   * @param db the {@link AnnotationDB} used to {@linkplain
+   * org.scannotation.AnnotationDB#scanArchives(URL[]) perform the
+   * scan}; if {@code null} then no scanning operation will take place
+   *
+   * @param urls the {@link Set} of {@link URL}s to scan; if {@code
+   * null}, then no scanning operation will take place
+   *
+   * @return the {@code db} parameter
+   *
+   * @exception IOException if an error occurs during scanning
+   *
+   * @see #getScanThreads()
+   *
+   * @see org.scannotation.AnnotationDB#scanArchives(URL[])
+   */
+  private final AnnotationDB scan(AnnotationDB db, final Set<URL> urls) throws IOException {
+    if (db != null && urls != null && !urls.isEmpty()) {
+      final Log log = this.getLog();
+      if (log != null && log.isDebugEnabled()) {
+        final int limit = this.getDebugOutputLimit();
+        log.debug(String.format("Scanning %d URLs:", urls.size()));
+        int logged = 0;
+        for (final URL url : urls) {
+          if (logged >= limit) {
+            log.debug(String.format("...and %d more (debugOutputLimit = %d)", urls.size() - logged, limit));
+            break;
+          }
+          log.debug(String.format("    %s", url));
+          logged++;
+        }
+      }
+      db.clear();
+      final ScanCache scanCache = this.createScanCache();
+      final IncrementalDirectoryScanner directoryScanner = this.createIncrementalDirectoryScanner();
+      final SessionScanCache sessionScanCache = this.getSessionScanCache();
+      final int threads = Math.min(this.getScanThreads(), urls.size());
+      final ScanMetrics metrics = this.scanMetrics;
+      if (threads > 1 && log != null && log.isDebugEnabled()) {
+        log.debug(String.format("Scanning %d URLs using %d threads", urls.size(), threads));
+      }
+      this.scan(db, urls, threads, scanCache, directoryScanner, sessionScanCache, metrics);
+      if (metrics != null) {
+        metrics.setThreads(threads);
+        if (scanCache != null) {
+          metrics.recordCache(ScanMetrics.SCAN_CACHE, scanCache.getHits(), scanCache.getMisses());
+        }
+        if (directoryScanner != null) {
+          metrics.recordCache(ScanMetrics.INCREMENTAL_SCAN, directoryScanner.getHits(), directoryScanner.getMisses());
+        }
+      }
+    }
+    return db;
+  }
+
+  /**
+   * Scans each of the supplied {@link URL}s {@linkplain
+   * #scan(AnnotationDB, URL, ScanCache, IncrementalDirectoryScanner,
+   * SessionScanCache, ScanMetrics) individually}, using a pool
+   * of at most {@code threads} threads, and then {@linkplain
+   * AnnotationDB#merge(AnnotationDB) merges} the results into the
+   * supplied {@link AnnotationDB} in {@link URL} iteration order.
+   *
+   * @param db the {@link AnnotationDB} into which results will be
+   * merged; must not be {@code null} and should be {@linkplain
+   * AnnotationDB#clear() empty}
+   *
+   * @param urls the {@link Set} of {@link URL}s to scan; must not be
+   * {@code null}
+   *
+   * @param threads the size of the thread pool to use; if less than
+   * or equal to {@code 1} then the {@link URL}s will be scanned
+   * sequentially on the calling thread
+   *
+   * @param scanCache the {@link ScanCache} to consult; may be {@code
+   * null}
+   *
+   * @param directoryScanner the {@link IncrementalDirectoryScanner}
+   * to scan directories with; may be {@code null}
+   *
+   * @param sessionScanCache the {@link SessionScanCache} to consult;
+   * may be {@code null}
+   *
+   * @param metrics the {@link ScanMetrics} in which to record the
+   * scan of each {@link URL}; may be {@code null}
+   *
+   * @exception IOException if an error occurs during scanning, or if
+   * the current thread is interrupted while waiting for scanning to
+   * complete
+   */
+  private final void scan(final AnnotationDB db, final Set<URL> urls, final int threads, final ScanCache scanCache, final IncrementalDirectoryScanner directoryScanner, final SessionScanCache sessionScanCache, final ScanMetrics metrics) throws IOException {
+    assert db != null;
+    assert urls != null;
+    final AnnotationDB prototype = db.clone();
+    assert prototype != null;
+    if (threads <= 1) {
+      for (final URL url : urls) {
+        if (url != null) {
+          db.merge(this.scan(prototype, url, scanCache, directoryScanner, sessionScanCache, metrics));
+        }
+      }
+    } else {
+      final ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        final List<Future<AnnotationDB>> futures = new ArrayList<Future<AnnotationDB>>(urls.size());
+        for (final URL url : urls) {
+          if (url != null) {
+            futures.add(executor.submit(new Callable<AnnotationDB>() {
+                @Override
+                public final AnnotationDB call() throws IOException {
+                  return scan(prototype, url, scanCache, directoryScanner, sessionScanCache, metrics);
+                }
+              }));
+          }
+        }
+        for (final Future<AnnotationDB> future : futures) {
+          assert future != null;
+          try {
+            db.merge(future.get());
+          } catch (final InterruptedException kaboom) {
+            Thread.currentThread().interrupt();
+            throw (IOException)new InterruptedIOException("Interrupted while waiting for URL scanning to complete").initCause(kaboom);
+          } catch (final ExecutionException kaboom) {
+            final Throwable cause = kaboom.getCause();
+            if (cause instanceof IOException) {
+              throw (IOException)cause;
+            } else if (cause instanceof RuntimeException) {
+              throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+              throw (Error)cause;
+            } else {
+              throw (IOException)new IOException("An unexpected exception was encountered during URL scanning").initCause(cause);
+            }
+          }
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * Scans the supplied {@link URL} with a new {@linkplain
+   * AnnotationDB#clone() copy} of the supplied {@code prototype} and
+   * returns the copy.
+   *
+   * <p>If the supplied {@link SessionScanCache} is non-{@code null}
+   * and the {@link URL} designates a local archive file, then the
+   * archive is scanned at most once per Maven session: results
+   * already produced by this or any other execution are reused.</p>
+   *
+   * <p>Otherwise, if the supplied {@link ScanCache} is non-{@code null} and the
+   * {@link URL} designates a local archive file, then the cached scan
+   * results for that archive are returned if they are still current;
+   * otherwise the archive is scanned and the results are cached.</p>
+   *
+   * <p>If the supplied {@link IncrementalDirectoryScanner} is
+   * non-{@code null} and the {@link URL} designates a local
+   * directory, then the directory is {@linkplain
+   * IncrementalDirectoryScanner#scan(File, AnnotationDB) scanned
+   * incrementally}.</p>
+   *
+   * <p>Each {@link URL} is read in a single pass.  If none of its
+   * class files passes the {@code prototype}'s {@linkplain
+   * AnnotationDB#setRequiredReferences(String[]) constant pool
+   * prefilter}, then no class file is parsed and only their constant
+   * pools are read.</p>
+   *
+   * <p>This method is safe to call from multiple threads at once
+   * provided that the supplied {@code prototype} is not modified.</p>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param prototype the {@link AnnotationDB} to copy; must not be
+   * {@code null} and should be {@linkplain AnnotationDB#clear()
+   * empty}
+   *
+   * @param url the {@link URL} to scan; must not be {@code null}
+   *
+   * @param scanCache the {@link ScanCache} to consult; may be {@code
+   * null}
+   *
+   * @param directoryScanner the {@link IncrementalDirectoryScanner}
+   * to scan directories with; may be {@code null}
+   *
+   * @param sessionScanCache the {@link SessionScanCache} to consult;
+   * may be {@code null}
+   *
+   * @param metrics the {@link ScanMetrics} in which to record the
+   * scan; may be {@code null}
+   *
+   * @return an {@link AnnotationDB} containing the results of
+   * scanning {@code url} alone; never {@code null}
+   *
+   * @exception IOException if an error occurs during scanning
+   */
+  private final AnnotationDB scan(final AnnotationDB prototype, final URL url, final ScanCache scanCache, final IncrementalDirectoryScanner directoryScanner, final SessionScanCache sessionScanCache, final ScanMetrics metrics) throws IOException {
+    assert prototype != null;
+    assert url != null;
+    final Log log = this.getLog();
+    final long start = metrics == null ? 0L : System.nanoTime();
+    final ScanMetrics.Outcome outcome = metrics == null ? null : new ScanMetrics.Outcome();
+    final File file = toFile(url);
+    final AnnotationDB result;
+    if (directoryScanner != null && file != null && file.isDirectory()) {
+      if (log != null && log.isDebugEnabled()) {
+        log.debug(String.format("Incrementally scanning %s", file));
+      }
+      result = directoryScanner.scan(file, prototype);
+      if (outcome != null) {
+        outcome.setSource("incremental");
+      }
+    } else if (sessionScanCache != null && file != null && file.isFile()) {
+      final AtomicBoolean missed = new AtomicBoolean();
+      result = sessionScanCache.get(file, prototype, new Callable<AnnotationDB>() {
+          @Override
+          public final AnnotationDB call() throws IOException {
+            missed.set(true);
+            return scan(prototype, url, file, scanCache, outcome);
+          }
+        });
+      if (outcome != null) {
+        // The session scan cache is shared by every execution in the
+        // build, some of which may be running concurrently, so its
+        // own counts cannot be attributed to this one.  The Callable
+        // above runs only on a miss.
+        if (missed.get()) {
+          metrics.recordCache(ScanMetrics.SESSION_SCAN_CACHE, 0, 1);
+        } else {
+          outcome.setSource("session");
+          metrics.recordCache(ScanMetrics.SESSION_SCAN_CACHE, 1, 0);
+        }
+      }
+    } else {
+      result = this.scan(prototype, url, file, scanCache, outcome);
+    }
+    if (metrics != null) {
+      metrics.record(url, outcome, System.nanoTime() - start, result);
+    }
+    return result;
+  }
+
+  /**
+   * Scans the supplied {@link URL} with a new {@linkplain
+   * AnnotationDB#clone() copy} of the supplied {@code prototype},
+   * consulting the supplied {@link ScanCache} if it is non-{@code
+   * null}, and returns the copy.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param prototype the {@link AnnotationDB} to copy; must not be
+   * {@code null}
+   *
+   * @param url the {@link URL} to scan; must not be {@code null}
+   *
+   * @param file the {@link File} designated by {@code url}; may be
+   * {@code null}
+   *
+   * @param scanCache the {@link ScanCache} to consult; may be {@code
+   * null}
+   *
+   * @param outcome the {@link ScanMetrics.Outcome} in which to note
+   * how the results were obtained; may be {@code null}
+   *
+   * @return an {@link AnnotationDB} containing the results of
+   * scanning {@code url} alone; never {@code null}
+   *
+   * @exception IOException if an error occurs during scanning
+   *
+   * @see #scan(AnnotationDB, URL, ScanCache,
+   * IncrementalDirectoryScanner, SessionScanCache, ScanMetrics)
+   */
+  private final AnnotationDB scan(final AnnotationDB prototype, final URL url, final File file, final ScanCache scanCache, final ScanMetrics.Outcome outcome) throws IOException {
+    assert prototype != null;
+    assert url != null;
+    final Log log = this.getLog();
+    ScanCache.Key key = null;
+    AnnotationDB result = null;
+    if (scanCache != null) {
+      final File archive = file;
+      if (archive != null && archive.isFile()) {
+        key = scanCache.getKey(archive, prototype);
+        result = scanCache.get(key, prototype);
+        if (result != null) {
+          if (outcome != null) {
+            outcome.setSource("cached");
+          }
+          if (log != null && log.isDebugEnabled()) {
+            log.debug(String.format("Using cached scan results for %s", key));
+          }
+        }
+      }
+    }
+    if (result == null) {
+      result = prototype.clone();
+      assert result != null;
+      result.scanArchives(url);
+      // With a prefilter installed, an archive none of whose classes
+      // passes it has been rejected class by class within this one
+      // pass, at the cost of reading only their constant pools.
+      final boolean rejected = result.getRequiredReferences() != null && result.getClassesParsedCount() == 0L;
+      if (outcome != null) {
+        outcome.setSource(rejected ? "skipped" : "scanned");
+        outcome.setScanner(result);
+      }
+      if (rejected && log != null && log.isDebugEnabled()) {
+        log.debug(String.format("None of the classes in %s reference any of %s", url, Arrays.toString(prototype.getRequiredReferences())));
+      }
+      if (key != null) {
+        try {
+          scanCache.put(key, result);
+        } catch (final IOException kaboom) {
+          if (log != null && log.isWarnEnabled()) {
+            log.warn(String.format("The scan results for %s could not be cached in %s", url, scanCache.getDirectory()), kaboom);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the {@link File} designated by the supplied {@link URL},
+   * or {@code null} if the {@link URL} does not use the {@code file}
+   * protocol.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param url the {@link URL} to convert; may be {@code null} in
+   * which case {@code null} will be returned
+   *
+   * @return a {@link File}, or {@code null}
+   */
+  static final File toFile(final URL url) {
+    File file = null;
+    if (url != null && "file".equals(url.getProtocol())) {
+      // See http://sourceforge.net/tracker/?func=detail&aid=3134533&group_id=214374&atid=1029423
+      try {
+        file = new File(url.toURI());
+      } catch (final URISyntaxException e) {
+        file = new File(url.getPath());
+      } catch (final IllegalArgumentException e) {
+        file = new File(url.getPath());
+      }
+    }
+    return file;
+  }
+
+}
\ No newline at end of file
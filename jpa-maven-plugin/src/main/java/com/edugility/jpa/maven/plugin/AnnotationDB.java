@@ -0,0 +1,1185 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.DataInput;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutput;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.net.URL;
+
+import java.lang.annotation.ElementType; // for javadoc only
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javassist.bytecode.annotation.Annotation;
+
+/**
+ * An {@link org.scannotation.AnnotationDB} subclass that adds {@link
+ * Cloneable} support and the ability to {@linkplain #clear() clear
+ * state}.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @version 1.0-SNAPSHOT
+ *
+ * @since 1.0-SNAPSHOT
+ */
+public class AnnotationDB extends org.scannotation.AnnotationDB implements Cloneable {
+  
+  /**
+   * A serial version identifier uniquely identifying the version of
+   * this class.  See the <a
+   * href="http://download.oracle.com/javase/6/docs/api/java/io/Serializable.html">documentation
+   * for the {@code Serializable} class</a> for details.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The strings, at least one of which must appear in the constant
+   * pool of a class file for that class file to be parsed and
+   * indexed.  This field may be {@code null}, in which case every
+   * class file is parsed.
+   *
+   * @see #setRequiredReferences(String[])
+   */
+  private String[] requiredReferences;
+
+  /**
+   * The ASCII bytes of each of the {@link #requiredReferences}.  This
+   * field is {@code null} whenever the {@link #requiredReferences}
+   * field is {@code null}.
+   */
+  private transient byte[][] requiredReferenceBytes;
+
+  /**
+   * Whether this {@link AnnotationDB} indexes only the annotations
+   * of classes themselves, without a full parse.
+   *
+   * @see #setClassAnnotationsOnly(boolean)
+   */
+  private boolean classAnnotationsOnly;
+
+  /**
+   * Whether this {@link AnnotationDB}, when it {@linkplain
+   * #setClassAnnotationsOnly(boolean) indexes class annotations only},
+   * also records each class' annotations in its {@linkplain
+   * #getClassIndex() class index} and its direct supertypes in its
+   * {@link org.scannotation.AnnotationDB#implementsIndex
+   * implementsIndex}.
+   *
+   * @see #setIndexSupertypes(boolean)
+   */
+  private boolean indexSupertypes;
+
+  /**
+   * Whether this {@link AnnotationDB}'s indices are {@link
+   * CompactIndex} instances sharing a single {@link
+   * CompactIndex.Names} table.
+   *
+   * @see #setCompactIndices(boolean)
+   */
+  private boolean compactIndices;
+
+  /**
+   * Whether the {@link #getAnnotationIndex() annotationIndex}, {@link
+   * #getClassIndex() classIndex} and {@link
+   * org.scannotation.AnnotationDB#implementsIndex implementsIndex}
+   * fields currently refer to maps that may be shared with other
+   * {@link AnnotationDB}s and so must not be modified.
+   *
+   * <p>This field is {@code volatile} because a single prototype
+   * {@link AnnotationDB} may be {@linkplain #clone() cloned} by
+   * several threads at once.</p>
+   *
+   * @see #ownIndices()
+   */
+  private transient volatile boolean sharedIndices;
+
+  /**
+   * The number of class file entries that this {@link AnnotationDB}
+   * has {@linkplain #scanArchives(URL[]) visited} since it was
+   * created or {@linkplain #clone() cloned}.
+   *
+   * @see #getClassEntryCount()
+   */
+  private transient long classEntryCount;
+
+  /**
+   * The number of class file bytes that this {@link AnnotationDB} has
+   * read since it was created or {@linkplain #clone() cloned}.
+   *
+   * @see #getBytesRead()
+   */
+  private transient long bytesRead;
+
+  /**
+   * The number of class files that this {@link AnnotationDB} has
+   * parsed, having passed its {@linkplain
+   * #setRequiredReferences(String[]) constant pool prefilter}, since
+   * it was created or {@linkplain #clone() cloned}.
+   *
+   * @see #getClassesParsedCount()
+   */
+  private transient long classesParsedCount;
+
+  /**
+   * Creates a new {@link AnnotationDB}.
+   */
+  public AnnotationDB() {
+    super();
+  }
+  
+  /**
+   * Creates a new {@link AnnotationDB} with the same configuration
+   * and, {@linkplain #copyState(AnnotationDB) copy-on-write}, the same
+   * indices as the supplied {@link AnnotationDB}.
+   *
+   * @param db the {@link AnnotationDB} whose state should be copied;
+   * may be {@code null}
+   */
+  public AnnotationDB(final AnnotationDB db) {
+    super();
+    this.copyState(db);
+  }
+  
+  /**
+   * Copies all known state from the supplied {@link AnnotationDB} to
+   * this one without allocating any index storage.
+   *
+   * <p>Specifically, this method makes this {@link AnnotationDB}
+   * share the supplied {@link AnnotationDB}'s {@link
+   * #getAnnotationIndex() annotationIndex}, {@link #getClassIndex()
+   * classIndex} and {@link
+   * org.scannotation.AnnotationDB#implementsIndex implementsIndex}
+   * maps, and marks both {@link AnnotationDB}s as sharing them.
+   * Whichever {@link AnnotationDB} next writes to its indices first
+   * {@linkplain #ownIndices() takes a private copy}; if it is
+   * {@linkplain #clear() cleared} first, no copy is ever made.</p>
+   *
+   * <p>This method also shares the configuration of the supplied
+   * {@link AnnotationDB}: its {@code boolean} properties ({@link
+   * #getScanClassAnnotations scanClassAnnotations} and the like), its
+   * {@linkplain #getIgnoredPackages() ignored packages} and its
+   * {@linkplain #getRequiredReferences() required references}.  None
+   * of these is ever modified in place, so none is copied.</p>
+   *
+   * @param db the {@link AnnotationDB} whose state should be copied;
+   * may be {@code null} in which case no operation takes place
+   */
+  private final void copyState(final AnnotationDB db) {
+    if (db != null && db != this) {
+      db.sharedIndices = true;
+      this.annotationIndex = db.annotationIndex;
+      this.implementsIndex = db.implementsIndex;
+      this.classIndex = db.classIndex;
+      this.compactIndices = db.compactIndices;
+      this.sharedIndices = true;
+
+      this.setScanClassAnnotations(db.getScanClassAnnotations());
+      this.setScanMethodAnnotations(db.getScanMethodAnnotations());
+      this.setScanParameterAnnotations(db.getScanParameterAnnotations());
+      this.setScanFieldAnnotations(db.getScanFieldAnnotations());
+
+      this.setIgnoredPackages(db.getIgnoredPackages());
+      this.requiredReferences = db.requiredReferences;
+      this.requiredReferenceBytes = db.requiredReferenceBytes;
+      this.setClassAnnotationsOnly(db.getClassAnnotationsOnly());
+      this.setIndexSupertypes(db.getIndexSupertypes());
+    }
+  }
+
+  /**
+   * Ensures that this {@link AnnotationDB}'s indices are not shared
+   * with any other {@link AnnotationDB}, copying them if necessary.
+   * Every method that modifies the indices calls this method first.
+   *
+   * <p>Shared indices are copied deeply: the {@link Set}s they
+   * contain are copied as well, so that later additions to them are
+   * never visible to another {@link AnnotationDB}.  If this {@link
+   * AnnotationDB} {@linkplain #getCompactIndices() uses compact
+   * indices}, then the copies are compact as well.</p>
+   */
+  private final void ownIndices() {
+    if (this.sharedIndices) {
+      if (this.compactIndices) {
+        final CompactIndex.Names names;
+        if (this.annotationIndex instanceof CompactIndex) {
+          names = new CompactIndex.Names(((CompactIndex)this.annotationIndex).getNames());
+          this.annotationIndex = new CompactIndex(names, (CompactIndex)this.annotationIndex);
+          this.implementsIndex = new CompactIndex(names, (CompactIndex)this.implementsIndex);
+          this.classIndex = new CompactIndex(names, (CompactIndex)this.classIndex);
+        } else {
+          names = new CompactIndex.Names();
+          this.annotationIndex = new CompactIndex(names, this.annotationIndex);
+          this.implementsIndex = new CompactIndex(names, this.implementsIndex);
+          this.classIndex = new CompactIndex(names, this.classIndex);
+        }
+      } else {
+        this.annotationIndex = copy(this.annotationIndex);
+        this.implementsIndex = copy(this.implementsIndex);
+        this.classIndex = copy(this.classIndex);
+      }
+      this.sharedIndices = false;
+    }
+  }
+
+  /**
+   * Returns a copy-on-write copy of this {@link AnnotationDB}.
+   *
+   * <p>The copy shares this {@link AnnotationDB}'s configuration and,
+   * until either {@link AnnotationDB} modifies them, its indices; see
+   * {@link #copyState(AnnotationDB)}.  The two {@link AnnotationDB}s
+   * are nevertheless fully independent: changes made to one through
+   * its scanning, {@link #clear()} and {@link #merge(AnnotationDB)}
+   * methods are never visible in the other.  The {@link Map}s returned
+   * by the {@link #getAnnotationIndex()} and {@link #getClassIndex()}
+   * methods must be treated as read-only.</p>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a copy of this {@link AnnotationDB}; never {@code null}
+   */
+  @Override
+  public AnnotationDB clone() {
+    final AnnotationDB copy;
+    AnnotationDB temp = null;
+    try {
+      temp = (AnnotationDB)super.clone();
+    } catch (final CloneNotSupportedException error) {
+      throw (InternalError)new InternalError().initCause(error);
+    } finally {
+      copy = temp;
+    }
+    copy.copyState(this);
+    copy.classEntryCount = 0L;
+    copy.bytesRead = 0L;
+    copy.classesParsedCount = 0L;
+    return copy;
+  }
+
+  /**
+   * Returns a copy of the strings, at least one of which must appear
+   * in the constant pool of a class file for that class file to be
+   * parsed and indexed, or {@code null} if every class file is
+   * parsed.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the required references, or {@code null}
+   *
+   * @see #setRequiredReferences(String[])
+   */
+  public String[] getRequiredReferences() {
+    return this.requiredReferences == null ? null : this.requiredReferences.clone();
+  }
+
+  /**
+   * Installs a constant pool prefilter: a class file will be fully
+   * parsed and indexed only if at least one of the supplied strings
+   * occurs within one of its {@code CONSTANT_Utf8} constant pool
+   * entries.  Class files that fail this test are skipped entirely
+   * and so do not appear in any of this {@link AnnotationDB}'s
+   * indices.
+   *
+   * <p>Because every annotation present on a class, method or field
+   * is recorded in the constant pool by its descriptor, a reference
+   * such as {@code javax/persistence/} lets class files that cannot
+   * carry any JPA annotation be rejected after reading only their
+   * constant pool, without the cost of a full parse.</p>
+   *
+   * @param requiredReferences the references to look for, each of
+   * which must consist of ASCII characters only and use {@code /} as
+   * its package separator; may be {@code null} in which case every
+   * class file will be parsed
+   *
+   * @exception IllegalArgumentException if any element of {@code
+   * requiredReferences} is {@code null} or contains a non-ASCII
+   * character
+   *
+   * @see #getRequiredReferences()
+   */
+  public void setRequiredReferences(final String[] requiredReferences) {
+    if (requiredReferences == null) {
+      this.requiredReferences = null;
+      this.requiredReferenceBytes = null;
+    } else {
+      final byte[][] bytes = new byte[requiredReferences.length][];
+      for (int i = 0; i < requiredReferences.length; i++) {
+        final String reference = requiredReferences[i];
+        if (reference == null) {
+          throw new IllegalArgumentException("requiredReferences", new NullPointerException("requiredReferences[" + i + "] == null"));
+        }
+        bytes[i] = new byte[reference.length()];
+        for (int j = 0; j < reference.length(); j++) {
+          final char c = reference.charAt(j);
+          if (c == 0 || c > 0x7F) {
+            throw new IllegalArgumentException("requiredReferences[" + i + "] contains a non-ASCII character: " + reference);
+          }
+          bytes[i][j] = (byte)c;
+        }
+      }
+      this.requiredReferences = requiredReferences.clone();
+      this.requiredReferenceBytes = bytes;
+    }
+  }
+
+  /**
+   * Returns whether this {@link AnnotationDB} indexes only the
+   * annotations of classes themselves.
+   *
+   * @return whether only class annotations are indexed
+   *
+   * @see #setClassAnnotationsOnly(boolean)
+   */
+  public boolean getClassAnnotationsOnly() {
+    return this.classAnnotationsOnly;
+  }
+
+  /**
+   * Sets whether this {@link AnnotationDB} indexes only the
+   * annotations of classes themselves.
+   *
+   * <p>When {@code true}, each class file is read by a purpose-built
+   * {@linkplain ClassFileReader#readClassAnnotations(byte[],
+   * Collection) reader} that interprets only the class' {@code
+   * RuntimeVisibleAnnotations} and {@code RuntimeInvisibleAnnotations}
+   * attributes, and only the {@linkplain
+   * #getAnnotationIndex() annotation index} is populated.  No
+   * Javassist {@link javassist.bytecode.ClassFile} is built, and the
+   * {@linkplain #getClassIndex() class index} and {@link
+   * org.scannotation.AnnotationDB#implementsIndex implementsIndex}
+   * remain empty.  The {@linkplain #setScanClassAnnotations(boolean)
+   * scanning flags} are ignored.  As with a full parse, annotations
+   * whose retention policy is {@link
+   * java.lang.annotation.RetentionPolicy#CLASS CLASS} are indexed
+   * along with those whose retention policy is {@link
+   * java.lang.annotation.RetentionPolicy#RUNTIME RUNTIME}.</p>
+   *
+   * @param classAnnotationsOnly whether only class annotations should
+   * be indexed
+   *
+   * @see #getClassAnnotationsOnly()
+   */
+  public void setClassAnnotationsOnly(final boolean classAnnotationsOnly) {
+    this.classAnnotationsOnly = classAnnotationsOnly;
+  }
+
+  /**
+   * Returns whether this {@link AnnotationDB}, when it {@linkplain
+   * #getClassAnnotationsOnly() indexes class annotations only}, also
+   * populates its {@linkplain #getClassIndex() class index} and its
+   * {@link org.scannotation.AnnotationDB#implementsIndex
+   * implementsIndex}.
+   *
+   * @return whether supertypes are indexed
+   *
+   * @see #setIndexSupertypes(boolean)
+   */
+  public boolean getIndexSupertypes() {
+    return this.indexSupertypes;
+  }
+
+  /**
+   * Sets whether this {@link AnnotationDB}, when it {@linkplain
+   * #setClassAnnotationsOnly(boolean) indexes class annotations only},
+   * also populates its {@linkplain #getClassIndex() class index} and
+   * its {@link org.scannotation.AnnotationDB#implementsIndex
+   * implementsIndex}.
+   *
+   * <p>When {@code true}, the class index records the class
+   * annotations of every class that is indexed, and the {@link
+   * org.scannotation.AnnotationDB#implementsIndex implementsIndex}
+   * records its <em>direct supertypes</em>: the names of the
+   * interfaces it implements together with the name of its
+   * superclass, if it has one.  This is the information an
+   * {@link AnnotationResolver} needs to follow meta-annotations and
+   * class hierarchies without a second scan.  It is still read by
+   * the same purpose-built {@linkplain
+   * ClassFileReader#readClassAnnotations(byte[], Collection,
+   * Collection) reader}.</p>
+   *
+   * <p>This property has no effect unless this {@link AnnotationDB}
+   * indexes class annotations only; a full parse always populates
+   * both indices, though its {@link
+   * org.scannotation.AnnotationDB#implementsIndex implementsIndex}
+   * records interfaces only.</p>
+   *
+   * @param indexSupertypes whether supertypes should be indexed
+   *
+   * @see #getIndexSupertypes()
+   */
+  public void setIndexSupertypes(final boolean indexSupertypes) {
+    this.indexSupertypes = indexSupertypes;
+  }
+
+  /**
+   * Returns whether this {@link AnnotationDB}'s indices use a compact,
+   * interned representation.
+   *
+   * @return whether compact indices are in use
+   *
+   * @see #setCompactIndices(boolean)
+   */
+  public boolean getCompactIndices() {
+    return this.compactIndices;
+  }
+
+  /**
+   * Sets whether this {@link AnnotationDB}'s indices use a compact,
+   * interned representation, converting any existing index contents
+   * accordingly.
+   *
+   * <p>When {@code true}, the {@linkplain #getAnnotationIndex()
+   * annotation index}, {@linkplain #getClassIndex() class index} and
+   * {@link org.scannotation.AnnotationDB#implementsIndex
+   * implementsIndex} become {@link CompactIndex} instances that share
+   * a single {@link CompactIndex.Names} table, so that each class and
+   * annotation name is stored once no matter how many indices or
+   * entries mention it, and each entry's values are held as a sorted
+   * array of {@code int}s instead of a {@link HashSet}.  The indices
+   * remain {@link Map}s, but their values are lazy views that support
+   * only addition.  Use this on very large classpaths where the
+   * indices' memory footprint matters.</p>
+   *
+   * <p>Compact indices cannot be used with the {@link
+   * #crossReferenceMetaAnnotations()} and {@link
+   * #crossReferenceImplementedInterfaces()} methods.</p>
+   *
+   * @param compactIndices whether compact indices should be used
+   *
+   * @see #getCompactIndices()
+   */
+  public void setCompactIndices(final boolean compactIndices) {
+    if (compactIndices != this.compactIndices) {
+      this.ownIndices();
+      if (compactIndices) {
+        final CompactIndex.Names names = new CompactIndex.Names();
+        this.annotationIndex = new CompactIndex(names, this.annotationIndex);
+        this.implementsIndex = new CompactIndex(names, this.implementsIndex);
+        this.classIndex = new CompactIndex(names, this.classIndex);
+      } else {
+        this.annotationIndex = copy(this.annotationIndex);
+        this.implementsIndex = copy(this.implementsIndex);
+        this.classIndex = copy(this.classIndex);
+      }
+      this.compactIndices = compactIndices;
+    }
+  }
+
+  /**
+   * Returns a new {@link HashMap} holding copies of the supplied
+   * index' entries.
+   *
+   * @param index the index to copy; must not be {@code null}
+   *
+   * @return a new {@link HashMap}; never {@code null}
+   */
+  private static final Map<String, Set<String>> copy(final Map<String, Set<String>> index) {
+    assert index != null;
+    final Map<String, Set<String>> copy = new HashMap<String, Set<String>>(index.size() * 2);
+    for (final Entry<String, Set<String>> entry : index.entrySet()) {
+      copy.put(entry.getKey(), new HashSet<String>(entry.getValue()));
+    }
+    return copy;
+  }
+
+  /**
+   * Records the supplied annotations as being present on the class
+   * with the supplied name.
+   *
+   * <p>This implementation behaves exactly like the superclass
+   * implementation, but adds to the {@link Set}s obtained from this
+   * {@link AnnotationDB}'s indices only after they have been stored,
+   * as required by {@linkplain #setCompactIndices(boolean) compact
+   * indices}.</p>
+   *
+   * @param annotations the annotations; may be {@code null}
+   *
+   * @param className the name of the class bearing them; must not be
+   * {@code null} and must already be a key of the {@linkplain
+   * #getClassIndex() class index}
+   */
+  @Override
+  protected void populate(final Annotation[] annotations, final String className) {
+    if (annotations != null) {
+      this.ownIndices();
+      final Set<String> classAnnotationNames = this.classIndex.get(className);
+      for (final Annotation annotation : annotations) {
+        final String annotationName = annotation.getTypeName();
+        valuesFor(this.annotationIndex, annotationName).add(className);
+        classAnnotationNames.add(annotationName);
+      }
+    }
+  }
+
+  /**
+   * Returns the {@link Set} stored under the supplied key in the
+   * supplied index, storing a new, empty {@link Set} there first if
+   * necessary.
+   *
+   * <p>The {@link Set} returned is always the one obtained by calling
+   * {@link Map#get(Object)} on the index, so additions to it are
+   * reflected in the index whether or not the index copies the
+   * {@link Set}s it is given.</p>
+   *
+   * @param index the index; must not be {@code null}
+   *
+   * @param key the key; must not be {@code null}
+   *
+   * @return the values stored under the key; never {@code null}
+   */
+  private static final Set<String> valuesFor(final Map<String, Set<String>> index, final String key) {
+    assert index != null;
+    Set<String> values = index.get(key);
+    if (values == null) {
+      index.put(key, new HashSet<String>());
+      values = index.get(key);
+    }
+    return values;
+  }
+
+  /**
+   * Cross-references meta-annotations as described by the superclass
+   * implementation.
+   *
+   * @exception IllegalStateException if this {@link AnnotationDB}
+   * {@linkplain #getCompactIndices() uses compact indices}
+   *
+   * @exception CrossReferenceException if a cross-reference could not
+   * be resolved
+   */
+  @Override
+  public void crossReferenceMetaAnnotations() throws CrossReferenceException {
+    if (this.getCompactIndices()) {
+      throw new IllegalStateException("getCompactIndices()");
+    }
+    this.ownIndices();
+    super.crossReferenceMetaAnnotations();
+  }
+
+  /**
+   * Cross-references implemented interfaces as described by the
+   * superclass implementation.
+   *
+   * @exception IllegalStateException if this {@link AnnotationDB}
+   * {@linkplain #getCompactIndices() uses compact indices}
+   *
+   * @exception CrossReferenceException if a cross-reference could not
+   * be resolved
+   */
+  @Override
+  public void crossReferenceImplementedInterfaces() throws CrossReferenceException {
+    if (this.getCompactIndices()) {
+      throw new IllegalStateException("getCompactIndices()");
+    }
+    this.ownIndices();
+    super.crossReferenceImplementedInterfaces();
+  }
+
+  /**
+   * Scans the class files found at each of the supplied {@link URL}s.
+   *
+   * <p>This implementation behaves like the superclass
+   * implementation, but reads each {@link URL} through an {@link
+   * ArchiveSource} {@linkplain ArchiveSource#forURL(URL) created} for
+   * it, which it closes once the {@link URL} has been scanned.
+   * Scannotation's {@link org.scannotation.archiveiterator.IteratorFactory}
+   * is not used, which also works around <a
+   * href="http://sourceforge.net/tracker/?func=detail&aid=3134533&group_id=214374&atid=1029423">Scannotation
+   * bug #3134533</a>.</p>
+   *
+   * <p>Each class file is selected by the {@link #accepts(String)}
+   * method on the basis of its entry name, which for a directory is
+   * its path relative to that directory.</p>
+   *
+   * @param urls the {@link URL}s to scan; may be {@code null}
+   *
+   * @exception IOException if an error occurs while scanning
+   */
+  @Override
+  public void scanArchives(final URL... urls) throws IOException {
+    if (urls != null) {
+      final ArchiveSource.Visitor visitor = new ArchiveSource.Visitor() {
+          @Override
+          public final boolean accepts(final String entryName) {
+            return AnnotationDB.this.accepts(entryName);
+          }
+
+          @Override
+          public final boolean visit(final String entryName, final InputStream stream) throws IOException {
+            classEntryCount++;
+            scanClass(new FilterInputStream(stream) {
+                @Override
+                public final int read() throws IOException {
+                  final int b = super.read();
+                  if (b >= 0) {
+                    bytesRead++;
+                  }
+                  return b;
+                }
+
+                @Override
+                public final int read(final byte[] bytes, final int offset, final int length) throws IOException {
+                  final int count = super.read(bytes, offset, length);
+                  if (count > 0) {
+                    bytesRead += count;
+                  }
+                  return count;
+                }
+
+                @Override
+                public final long skip(final long n) throws IOException {
+                  final long count = super.skip(n);
+                  if (count > 0L) {
+                    bytesRead += count;
+                  }
+                  return count;
+                }
+              });
+            return true;
+          }
+        };
+      for (final URL url : urls) {
+        if (url != null) {
+          final ArchiveSource source = ArchiveSource.forURL(url);
+          try {
+            source.scan(visitor);
+          } finally {
+            source.close();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Scans the class file represented by the supplied {@link
+   * InputStream}, first consulting the {@linkplain
+   * #setRequiredReferences(String[]) constant pool prefilter} if one
+   * is installed.
+   *
+   * <p>If no prefilter is installed and this {@link AnnotationDB}
+   * does not {@linkplain #setClassAnnotationsOnly(boolean) index
+   * class annotations only}, this method simply calls the superclass
+   * implementation.  Otherwise, if a prefilter is installed, the
+   * class file's constant pool is {@linkplain
+   * ClassFileReader#readIfContainsUtf8(InputStream, byte[][]) read
+   * from the stream}, and the class file is skipped, without the rest
+   * of it ever being read, unless one of the {@linkplain
+   * #getRequiredReferences() required references} is present.  A
+   * class file that is not skipped is read into memory and then
+   * either {@linkplain
+   * ClassFileReader#readClassAnnotations(byte[], Collection) read for
+   * its class annotations only} or passed on to the superclass
+   * implementation for a full parse.</p>
+   *
+   * <p>In all cases the supplied {@link InputStream} is closed.</p>
+   *
+   * @param bits the {@link InputStream} to read the class file from;
+   * must not be {@code null}
+   *
+   * @exception IOException if an error occurs while reading
+   */
+  @Override
+  public void scanClass(final InputStream bits) throws IOException {
+    final byte[][] needles = this.requiredReferenceBytes;
+    final boolean classAnnotationsOnly = this.getClassAnnotationsOnly();
+    this.ownIndices();
+    if (needles == null && !classAnnotationsOnly) {
+      this.classesParsedCount++;
+      super.scanClass(bits);
+    } else {
+      final byte[] classFile;
+      try {
+        classFile = needles == null ? ClassFileReader.read(bits) : ClassFileReader.readIfContainsUtf8(bits, needles);
+      } finally {
+        bits.close();
+      }
+      if (classFile != null) {
+        this.classesParsedCount++;
+        if (classAnnotationsOnly) {
+          final Collection<String> annotationNames = new ArrayList<String>(4);
+          final Collection<String> supertypeNames = this.getIndexSupertypes() ? new ArrayList<String>(4) : null;
+          final String className = ClassFileReader.readClassAnnotations(classFile, annotationNames, supertypeNames);
+          this.index(className, annotationNames, supertypeNames);
+        } else {
+          super.scanClass(new ByteArrayInputStream(classFile));
+        }
+      }
+    }
+  }
+
+  /**
+   * Clears all transient state from this {@link AnnotationDB}.
+   *
+   * <p>If this {@link AnnotationDB}'s indices are shared with a
+   * {@linkplain #clone() copy} or prototype, they are simply replaced
+   * with empty, immutable {@link Map}s; new storage is allocated only
+   * once something is written to them.</p>
+   */
+  public void clear() {
+    if (this.sharedIndices) {
+      final Map<String, Set<String>> empty = Collections.emptyMap();
+      this.annotationIndex = empty;
+      this.implementsIndex = empty;
+      this.classIndex = empty;
+    } else if (this.getCompactIndices()) {
+      final CompactIndex.Names names = new CompactIndex.Names();
+      this.annotationIndex = new CompactIndex(names);
+      this.implementsIndex = new CompactIndex(names);
+      this.classIndex = new CompactIndex(names);
+    } else {
+      this.annotationIndex.clear();
+      this.implementsIndex.clear();
+      this.classIndex.clear();
+    }
+  }
+
+  /**
+   * Merges the scan results held by the supplied {@link AnnotationDB}
+   * into this one, exactly as though the archives scanned by the
+   * supplied {@link AnnotationDB} had been {@linkplain
+   * #scanArchives(java.net.URL[]) scanned} by this {@link
+   * AnnotationDB} after the archives it has already scanned.
+   *
+   * <p>Specifically, the {@link #getAnnotationIndex()
+   * annotationIndex} entries of the supplied {@link AnnotationDB} are
+   * added to those of this {@link AnnotationDB}, while its {@link
+   * #getClassIndex() classIndex} and {@link
+   * org.scannotation.AnnotationDB#implementsIndex implementsIndex}
+   * entries replace any existing entries for the same class name.
+   * This mirrors what {@link org.scannotation.AnnotationDB} does when
+   * it encounters the same class twice.  Merging a series of {@link
+   * AnnotationDB}s in the order in which their archives would have
+   * been scanned therefore yields indices identical to those of a
+   * single sequential scan.</p>
+   *
+   * <p>The {@link Set}s contained by the supplied {@link
+   * AnnotationDB} are copied, not shared.</p>
+   *
+   * @param db the {@link AnnotationDB} whose scan results should be
+   * merged into this one; may be {@code null} in which case no
+   * operation takes place
+   *
+   * @see #clear()
+   */
+  public void merge(final AnnotationDB db) {
+    if (db != null && db != this) {
+      this.ownIndices();
+      for (final Entry<String, Set<String>> entry : db.getAnnotationIndex().entrySet()) {
+        valuesFor(this.annotationIndex, entry.getKey()).addAll(entry.getValue());
+      }
+      for (final Entry<String, Set<String>> entry : db.getClassIndex().entrySet()) {
+        this.classIndex.put(entry.getKey(), new HashSet<String>(entry.getValue()));
+      }
+      for (final Entry<String, Set<String>> entry : db.implementsIndex.entrySet()) {
+        this.implementsIndex.put(entry.getKey(), new HashSet<String>(entry.getValue()));
+      }
+    }
+  }
+
+  /**
+   * Returns {@code true} if the entry or file named by the supplied
+   * {@code path} would be scanned by this {@link AnnotationDB}'s
+   * {@link #scanArchives(java.net.URL[])} method.
+   *
+   * <p>This method applies exactly the same test as the {@link
+   * org.scannotation.archiveiterator.Filter} that {@link
+   * org.scannotation.AnnotationDB} uses internally: the {@code path}
+   * must end with {@code .class} and, once any leading {@code /} has
+   * been removed and all {@code /} characters have been converted to
+   * {@code .} characters, must not begin with any of this {@link
+   * AnnotationDB}'s {@linkplain #getIgnoredPackages() ignored
+   * packages}.</p>
+   *
+   * <p>This method is package-private for use by this package's
+   * scanning machinery only.</p>
+   *
+   * @param path the path to test; may be {@code null} in which case
+   * {@code false} will be returned
+   *
+   * @return {@code true} if the supplied {@code path} would be
+   * scanned; {@code false} otherwise
+   */
+  final boolean accepts(String path) {
+    if (path == null || !path.endsWith(".class")) {
+      return false;
+    }
+    if (path.startsWith("/")) {
+      path = path.substring(1);
+    }
+    path = path.replace('/', '.');
+    final String[] ignoredPackages = this.getIgnoredPackages();
+    if (ignoredPackages != null) {
+      for (final String ignoredPackage : ignoredPackages) {
+        if (ignoredPackage != null && path.startsWith(ignoredPackage + ".")) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of class file entries that this {@link
+   * AnnotationDB} has visited while {@linkplain #scanArchives(URL[])
+   * scanning} since it was created or {@linkplain #clone() cloned}.
+   *
+   * <p>This method is package-private for use by this package's
+   * instrumentation only.</p>
+   *
+   * @return the number of class file entries visited
+   *
+   * @see ScanMetrics
+   */
+  final long getClassEntryCount() {
+    return this.classEntryCount;
+  }
+
+  /**
+   * Returns the number of class file bytes that this {@link
+   * AnnotationDB} has read while {@linkplain #scanArchives(URL[])
+   * scanning} since it was created or {@linkplain #clone() cloned}.
+   *
+   * <p>This method is package-private for use by this package's
+   * instrumentation only.</p>
+   *
+   * @return the number of bytes read
+   *
+   * @see ScanMetrics
+   */
+  final long getBytesRead() {
+    return this.bytesRead;
+  }
+
+  /**
+   * Returns the number of class files that this {@link AnnotationDB}
+   * has parsed since it was created or {@linkplain #clone() cloned}.
+   *
+   * <p>This method is package-private for use by this package's
+   * instrumentation only.</p>
+   *
+   * @return the number of class files parsed
+   *
+   * @see ScanMetrics
+   */
+  final long getClassesParsedCount() {
+    return this.classesParsedCount;
+  }
+
+  /**
+   * Returns the {@link org.scannotation.AnnotationDB#implementsIndex
+   * implementsIndex} of this {@link AnnotationDB}: a {@link Map} of
+   * the names of the interfaces directly implemented by each scanned
+   * class, indexed by class name.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>This method is package-private for use by this package's
+   * scanning machinery only.</p>
+   *
+   * @return the implements index; never {@code null}
+   */
+  final Map<String, Set<String>> getImplementsIndex() {
+    return this.implementsIndex;
+  }
+
+  /**
+   * Records the supplied scan results for a single class in this
+   * {@link AnnotationDB}'s indices exactly as though the class had
+   * just been scanned.  If this {@link AnnotationDB} {@linkplain
+   * #setClassAnnotationsOnly(boolean) indexes class annotations only},
+   * then only the {@linkplain #getAnnotationIndex() annotation index}
+   * is affected.
+   *
+   * <p>This method is package-private for use by this package's
+   * scanning machinery only.</p>
+   *
+   * @param className the name of the scanned class; must not be
+   * {@code null}
+   *
+   * @param annotationNames the names of the annotations found on the
+   * class; may be {@code null}
+   *
+   * @param interfaceNames the names of the interfaces directly
+   * implemented by the class, or of its {@linkplain
+   * #setIndexSupertypes(boolean) direct supertypes}; may be {@code
+   * null}
+   */
+  final void index(final String className, final Collection<String> annotationNames, final Collection<String> interfaceNames) {
+    if (className == null) {
+      throw new IllegalArgumentException("className", new NullPointerException("className == null"));
+    }
+    this.ownIndices();
+    final boolean indexClasses = !this.getClassAnnotationsOnly() || this.getIndexSupertypes();
+    if (annotationNames != null) {
+      for (final String annotationName : annotationNames) {
+        valuesFor(this.annotationIndex, annotationName).add(className);
+      }
+    }
+    if (indexClasses) {
+      this.classIndex.put(className, annotationNames == null ? new HashSet<String>() : new HashSet<String>(annotationNames));
+    }
+    if (interfaceNames != null && indexClasses) {
+      this.implementsIndex.put(className, new HashSet<String>(interfaceNames));
+    }
+  }
+
+  /**
+   * Returns a {@link String} that describes every configuration
+   * setting of this {@link AnnotationDB} that affects the results of
+   * a scan.  Two {@link AnnotationDB}s whose scan configurations are
+   * {@linkplain String#equals(Object) equal} will produce identical
+   * indices when they scan the same archive.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * <p>This method is package-private for use by this package's
+   * caching machinery only.</p>
+   *
+   * @return a description of this {@link AnnotationDB}'s scan
+   * configuration; never {@code null}
+   */
+  String getScanConfiguration() {
+    final StringBuilder sb = new StringBuilder(this.getClass().getName());
+    sb.append(";class=").append(this.getScanClassAnnotations());
+    sb.append(";method=").append(this.getScanMethodAnnotations());
+    sb.append(";parameter=").append(this.getScanParameterAnnotations());
+    sb.append(";field=").append(this.getScanFieldAnnotations());
+    sb.append(";ignoredPackages=").append(Arrays.toString(this.getIgnoredPackages()));
+    sb.append(";requiredReferences=").append(Arrays.toString(this.requiredReferences));
+    sb.append(";classAnnotationsOnly=").append(this.getClassAnnotationsOnly());
+    sb.append(";indexSupertypes=").append(this.getIndexSupertypes());
+    return sb.toString();
+  }
+
+  /**
+   * Writes the {@link #getAnnotationIndex() annotationIndex}, {@link
+   * #getClassIndex() classIndex} and {@link
+   * org.scannotation.AnnotationDB#implementsIndex implementsIndex}
+   * of this {@link AnnotationDB} to the supplied {@link DataOutput}.
+   *
+   * <p>This method is package-private for use by {@link ScanCache}
+   * only.</p>
+   *
+   * @param out the {@link DataOutput} to write to; must not be {@code
+   * null}
+   *
+   * @exception IOException if an error occurs while writing
+   *
+   * @see #readIndexes(DataInput)
+   */
+  final void writeIndexes(final DataOutput out) throws IOException {
+    writeIndex(out, this.annotationIndex);
+    writeIndex(out, this.classIndex);
+    writeIndex(out, this.implementsIndex);
+  }
+
+  /**
+   * Reads index information previously written by the {@link
+   * #writeIndexes(DataOutput)} method from the supplied {@link
+   * DataInput} and adds it to this {@link AnnotationDB}'s indices.
+   *
+   * <p>This method is package-private for use by {@link ScanCache}
+   * only.</p>
+   *
+   * @param in the {@link DataInput} to read from; must not be {@code
+   * null}
+   *
+   * @exception IOException if an error occurs while reading
+   *
+   * @see #writeIndexes(DataOutput)
+   */
+  final void readIndexes(final DataInput in) throws IOException {
+    this.ownIndices();
+    readIndex(in, this.annotationIndex);
+    readIndex(in, this.classIndex);
+    readIndex(in, this.implementsIndex);
+  }
+
+  /**
+   * Writes the supplied index to the supplied {@link DataOutput}.
+   *
+   * @param out the {@link DataOutput} to write to; must not be {@code
+   * null}
+   *
+   * @param index the index to write; must not be {@code null}
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  private static final void writeIndex(final DataOutput out, final Map<String, Set<String>> index) throws IOException {
+    assert out != null;
+    assert index != null;
+    out.writeInt(index.size());
+    for (final Entry<String, Set<String>> entry : index.entrySet()) {
+      out.writeUTF(entry.getKey());
+      final Set<String> values = entry.getValue();
+      if (values == null) {
+        out.writeInt(0);
+      } else {
+        out.writeInt(values.size());
+        for (final String value : values) {
+          out.writeUTF(value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads an index written by the {@link #writeIndex(DataOutput,
+   * Map)} method from the supplied {@link DataInput} and stores its
+   * entries in the supplied index.
+   *
+   * @param in the {@link DataInput} to read from; must not be {@code
+   * null}
+   *
+   * @param index the index to populate; must not be {@code null}
+   *
+   * @exception IOException if an error occurs while reading
+   */
+  private static final void readIndex(final DataInput in, final Map<String, Set<String>> index) throws IOException {
+    assert in != null;
+    assert index != null;
+    final int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      final String key = in.readUTF();
+      final int valueCount = in.readInt();
+      final Set<String> values = new HashSet<String>();
+      for (int j = 0; j < valueCount; j++) {
+        values.add(in.readUTF());
+      }
+      index.put(key, values);
+    }
+  }
+
+  /**
+   * Returns whether this {@link AnnotationDB} should scan field
+   * annotations.
+   *
+   * @return {@code true} if this {@link AnnotationDB} should scan
+   * {@linkplain ElementType#FIELD field annotations}; {@code false}
+   * otherwise
+   */
+  public boolean getScanFieldAnnotations() {
+    return this.scanFieldAnnotations;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setScanFieldAnnotations(final boolean scan) {
+    super.setScanFieldAnnotations(scan);
+  }
+
+  /**
+   * Returns whether this {@link AnnotationDB} should scan method
+   * annotations.
+   *
+   * @return {@code true} if this {@link AnnotationDB} should scan
+   * {@linkplain ElementType#METHOD method annotations}; {@code false}
+   * otherwise
+   */
+  public boolean getScanMethodAnnotations() {
+    return this.scanMethodAnnotations;
+  }
+
+  /**
+   * Sets whether this {@link AnnotationDB} should scan {@linkplain
+   * ElementType#METHOD method annotations}.
+   *
+   * @param scan whether to scan {@linkplain ElementType#METHOD method
+   * annotations}
+   */
+  @Override
+  public void setScanMethodAnnotations(final boolean scan) {
+    super.setScanMethodAnnotations(scan);
+  }
+
+  /**
+   * Returns whether this {@link AnnotationDB} should scan parameter
+   * annotations.
+   *
+   * @return {@code true} if this {@link AnnotationDB} should scan
+   * {@linkplain ElementType#PARAMETER parameter annotations}; {@code false}
+   * otherwise
+   */
+  public boolean getScanParameterAnnotations() {
+    return this.scanParameterAnnotations;
+  }
+
+  /**
+   * Sets whether this {@link AnnotationDB} should scan {@linkplain
+   * ElementType#PARAMETER parameter annotations}.
+   *
+   * @param scan whether to scan {@linkplain ElementType#PARAMETER
+   * parameter annotations}
+   */
+  @Override
+  public void setScanParameterAnnotations(final boolean scan) {
+    super.setScanParameterAnnotations(scan);
+  }
+
+  /**
+   * Returns whether this {@link AnnotationDB} should scan class annotations.
+   *
+   * @return {@code true} if this {@link AnnotationDB} should scan
+   * {@linkplain ElementType#TYPE class annotations}; {@code false}
+   * otherwise
+   */
+  public boolean getScanClassAnnotations() {
+    return this.scanClassAnnotations;
+  }
+
+  /**
+   * Sets whether this {@link AnnotationDB} should scan {@linkplain
+   * ElementType#TYPE class annotations}.
+   *
+   * @param scan whether to scan {@linkplain ElementType#TYPE class
+   * annotations}
+   */
+  @Override
+  public void setScanClassAnnotations(final boolean scan) {
+    super.setScanClassAnnotations(scan);
+  }
+
+}
\ No newline at end of file
@@ -0,0 +1,310 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.lang.annotation.Annotation; // for javadoc only
+import java.lang.annotation.Inherited; // for javadoc only
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Finds the classes that bear a given set of <em>target</em>
+ * annotations once meta-annotations and class hierarchies have been
+ * taken into account, using nothing but the indices of an already
+ * populated {@link AnnotationDB}.
+ *
+ * <p>Two kinds of resolution are performed:</p>
+ *
+ * <ul>
+ *
+ * <li><strong>Meta-annotations.</strong> An annotation type that is
+ * itself annotated with a target annotation (a <em>stereotype</em>,
+ * such as an {@code @AuditedEntity} annotation type annotated with
+ * {@link javax.persistence.Entity @Entity}) stands for that target
+ * annotation, as does any annotation type annotated with such a
+ * stereotype, and so on.  Stereotypes themselves are never reported
+ * as bearers of the target annotations they stand for.</li>
+ *
+ * <li><strong>Inheritance.</strong> An annotation that is
+ * meta-annotated with {@link Inherited @Inherited} and that is, or
+ * stands for, a target annotation is propagated down every class
+ * hierarchy in which it appears, through any intervening classes
+ * such as {@link javax.persistence.MappedSuperclass
+ * &#64;MappedSuperclass} classes, exactly as {@link
+ * Class#getAnnotation(Class)} would report it.</li>
+ *
+ * </ul>
+ *
+ * <p>Both kinds of resolution require an {@link AnnotationDB} whose
+ * {@linkplain AnnotationDB#getClassIndex() class index} and {@link
+ * org.scannotation.AnnotationDB#implementsIndex implementsIndex}
+ * have been populated, either by a full parse or because it
+ * {@linkplain AnnotationDB#setIndexSupertypes(boolean) indexes
+ * supertypes}.  An annotation type is recognized as such because it
+ * implements {@link Annotation}, or because some class is annotated
+ * with it.  Because the {@link
+ * org.scannotation.AnnotationDB#implementsIndex implementsIndex}
+ * does not distinguish a class' superclass from its interfaces,
+ * inherited annotations are followed through both; in practice
+ * neither target annotations nor stereotypes are placed on
+ * interfaces.</p>
+ *
+ * <p>Instances of this class are safe for use by multiple
+ * threads.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ *
+ * @see AbstractJPAMojo#getResolveAnnotations()
+ */
+final class AnnotationResolver {
+
+  /**
+   * The name of the {@link Annotation} interface, which every
+   * annotation type implements.
+   */
+  private static final String ANNOTATION = "java.lang.annotation.Annotation";
+
+  /**
+   * The name of the {@link Inherited} meta-annotation.
+   */
+  private static final String INHERITED = "java.lang.annotation.Inherited";
+
+  /**
+   * The names of the target annotations.  This field is never {@code
+   * null}.
+   */
+  private final Set<String> annotationNames;
+
+  /**
+   * Creates a new {@link AnnotationResolver}.
+   *
+   * @param annotationNames the fully qualified names of the target
+   * annotations; must not be {@code null}
+   *
+   * @exception IllegalArgumentException if {@code annotationNames} is
+   * {@code null}
+   */
+  AnnotationResolver(final Collection<String> annotationNames) {
+    super();
+    if (annotationNames == null) {
+      throw new IllegalArgumentException("annotationNames", new NullPointerException("annotationNames == null"));
+    }
+    this.annotationNames = Collections.unmodifiableSet(new LinkedHashSet<String>(annotationNames));
+  }
+
+  /**
+   * Returns a {@link Map} of the names of the classes that bear each
+   * target annotation, directly, through a meta-annotation or by
+   * inheritance, indexed by target annotation name.
+   *
+   * <p>This method never returns {@code null}.  Target annotations
+   * borne by no class have no entry in the {@link Map} returned.</p>
+   *
+   * @param db the {@link AnnotationDB} whose indices should be
+   * consulted; must not be {@code null}
+   *
+   * @return a new {@link Map} of class names indexed by target
+   * annotation name; never {@code null}
+   *
+   * @exception IllegalArgumentException if {@code db} is {@code
+   * null}
+   */
+  final Map<String, Set<String>> resolve(final AnnotationDB db) {
+    if (db == null) {
+      throw new IllegalArgumentException("db", new NullPointerException("db == null"));
+    }
+    final Map<String, Set<String>> annotationIndex = db.getAnnotationIndex();
+    final Map<String, Set<String>> classIndex = db.getClassIndex();
+    final Map<String, Set<String>> supertypeIndex = db.getImplementsIndex();
+
+    // Work out which target annotations each annotation stands for.
+    final Map<String, Set<String>> targets = new HashMap<String, Set<String>>();
+    final List<String> work = new ArrayList<String>(this.annotationNames);
+    for (final String annotationName : this.annotationNames) {
+      targets.put(annotationName, new HashSet<String>(Collections.singleton(annotationName)));
+    }
+    while (!work.isEmpty()) {
+      final String annotationName = work.remove(work.size() - 1);
+      final Set<String> bearers = annotationIndex.get(annotationName);
+      if (bearers != null) {
+        final Set<String> annotationTargets = targets.get(annotationName);
+        for (final String bearer : bearers) {
+          if (isAnnotationType(bearer, annotationIndex, supertypeIndex)) {
+            Set<String> stereotypeTargets = targets.get(bearer);
+            if (stereotypeTargets == null) {
+              stereotypeTargets = new HashSet<String>();
+              targets.put(bearer, stereotypeTargets);
+            }
+            if (stereotypeTargets.addAll(annotationTargets)) {
+              work.add(bearer);
+            }
+          }
+        }
+      }
+    }
+
+    // Record the classes that bear each target annotation directly
+    // or through a stereotype, and note which annotations are
+    // inherited.
+    final Map<String, Set<String>> returnValue = new HashMap<String, Set<String>>();
+    final Map<String, Set<String>> inheritedTargets = new HashMap<String, Set<String>>();
+    for (final Entry<String, Set<String>> entry : targets.entrySet()) {
+      final String annotationName = entry.getKey();
+      final Set<String> annotationTargets = entry.getValue();
+      final Set<String> bearers = annotationIndex.get(annotationName);
+      if (bearers != null) {
+        for (final String bearer : bearers) {
+          if (!isAnnotationType(bearer, annotationIndex, supertypeIndex)) {
+            add(returnValue, annotationTargets, bearer);
+          }
+        }
+      }
+      final Set<String> metaAnnotations = classIndex.get(annotationName);
+      if (metaAnnotations != null && metaAnnotations.contains(INHERITED)) {
+        inheritedTargets.put(annotationName, annotationTargets);
+      }
+    }
+
+    // Propagate inherited annotations down class hierarchies.
+    if (!inheritedTargets.isEmpty()) {
+      final Map<String, Set<String>> cache = new HashMap<String, Set<String>>();
+      for (final String className : classIndex.keySet()) {
+        if (!isAnnotationType(className, annotationIndex, supertypeIndex)) {
+          add(returnValue, inherited(className, classIndex, supertypeIndex, inheritedTargets, cache), className);
+        }
+      }
+    }
+    return returnValue;
+  }
+
+  /**
+   * Returns the target annotations that the class with the supplied
+   * name inherits from its supertypes.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param className the name of the class; must not be {@code null}
+   *
+   * @param classIndex the {@linkplain AnnotationDB#getClassIndex()
+   * class index}; must not be {@code null}
+   *
+   * @param supertypeIndex the index of direct supertypes; must not be
+   * {@code null}
+   *
+   * @param inheritedTargets the target annotations that each
+   * {@link Inherited @Inherited} annotation stands for; must not be
+   * {@code null}
+   *
+   * @param cache the results computed so far, indexed by class name;
+   * must not be {@code null}
+   *
+   * @return the inherited target annotations; never {@code null}
+   */
+  private static final Set<String> inherited(final String className, final Map<String, Set<String>> classIndex, final Map<String, Set<String>> supertypeIndex, final Map<String, Set<String>> inheritedTargets, final Map<String, Set<String>> cache) {
+    Set<String> returnValue = cache.get(className);
+    if (returnValue == null) {
+      // Guard against (invalid) circular hierarchies.
+      cache.put(className, Collections.<String>emptySet());
+      returnValue = new HashSet<String>();
+      final Set<String> supertypes = supertypeIndex.get(className);
+      if (supertypes != null) {
+        for (final String supertype : supertypes) {
+          final Set<String> annotations = classIndex.get(supertype);
+          if (annotations != null) {
+            for (final String annotation : annotations) {
+              final Set<String> annotationTargets = inheritedTargets.get(annotation);
+              if (annotationTargets != null) {
+                returnValue.addAll(annotationTargets);
+              }
+            }
+            returnValue.addAll(inherited(supertype, classIndex, supertypeIndex, inheritedTargets, cache));
+          }
+        }
+      }
+      cache.put(className, returnValue);
+    }
+    return returnValue;
+  }
+
+  /**
+   * Returns {@code true} if the type with the supplied name is known
+   * to be an annotation type.
+   *
+   * @param typeName the name of the type; must not be {@code null}
+   *
+   * @param annotationIndex the {@linkplain
+   * AnnotationDB#getAnnotationIndex() annotation index}; must not be
+   * {@code null}
+   *
+   * @param supertypeIndex the index of direct supertypes; must not be
+   * {@code null}
+   *
+   * @return {@code true} if the type is an annotation type
+   */
+  private static final boolean isAnnotationType(final String typeName, final Map<String, Set<String>> annotationIndex, final Map<String, Set<String>> supertypeIndex) {
+    final Set<String> supertypes = supertypeIndex.get(typeName);
+    return (supertypes != null && supertypes.contains(ANNOTATION)) || annotationIndex.containsKey(typeName);
+  }
+
+  /**
+   * Adds the supplied class name to the {@link Set} stored under each
+   * of the supplied target annotation names in the supplied {@link
+   * Map}.
+   *
+   * @param index the {@link Map} to add to; must not be {@code null}
+   *
+   * @param annotationNames the target annotation names; must not be
+   * {@code null}
+   *
+   * @param className the class name to add; must not be {@code null}
+   */
+  private static final void add(final Map<String, Set<String>> index, final Collection<String> annotationNames, final String className) {
+    for (final String annotationName : annotationNames) {
+      Set<String> classNames = index.get(annotationName);
+      if (classNames == null) {
+        classNames = new HashSet<String>();
+        index.put(annotationName, classNames);
+      }
+      classNames.add(className);
+    }
+  }
+
+}
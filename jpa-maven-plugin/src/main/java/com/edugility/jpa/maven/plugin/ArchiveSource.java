@@ -0,0 +1,335 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.net.URL;
+
+import java.util.Collections;
+import java.util.List;
+
+import java.util.zip.ZipException;
+
+/**
+ * A source of named entries, such as a directory of class files or a
+ * jar file, from which an {@link AnnotationDB} reads the class files
+ * it {@linkplain AnnotationDB#scanArchives(URL[]) scans}.
+ *
+ * <p>Entry names are relative to the root of the source, use {@code
+ * /} as their separator and never begin with {@code /}.  Directories
+ * are not entries.</p>
+ *
+ * <p>An {@link ArchiveSource} offers both sequential access, through
+ * its {@link #scan(Visitor)} method, which each implementation
+ * performs in the cheapest way available to it, and random access,
+ * through its {@link #getEntryNames()} and {@link #open(String)}
+ * methods.</p>
+ *
+ * <p>{@link ArchiveSource}s are obtained from the {@link
+ * #forURL(URL)} method, or constructed directly.  The following
+ * implementations exist:</p>
+ *
+ * <ul>
+ *
+ * <li>{@link DirectoryArchiveSource}, for directories</li>
+ *
+ * <li>{@link JarFileArchiveSource}, for local zip and jar files, or
+ * directories within them</li>
+ *
+ * <li>{@link NestedJarArchiveSource}, for jar files stored within
+ * local jar files</li>
+ *
+ * <li>{@link InMemoryArchiveSource}, for entries held in memory,
+ * including the contents of archives at {@link URL}s that are not
+ * local</li>
+ *
+ * </ul>
+ *
+ * <p>Instances of this class are not safe for use by multiple
+ * threads.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+abstract class ArchiveSource implements Closeable {
+
+  /**
+   * A name for this {@link ArchiveSource} suitable for use in
+   * messages.  This field is never {@code null}.
+   */
+  private final String name;
+
+  /**
+   * Creates a new {@link ArchiveSource}.
+   *
+   * @param name a name for this {@link ArchiveSource} suitable for use
+   * in messages; must not be {@code null}
+   *
+   * @exception IllegalArgumentException if {@code name} is {@code
+   * null}
+   */
+  ArchiveSource(final String name) {
+    super();
+    if (name == null) {
+      throw new IllegalArgumentException("name", new NullPointerException("name == null"));
+    }
+    this.name = name;
+  }
+
+  /**
+   * Returns a name for this {@link ArchiveSource} suitable for use in
+   * messages.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a name; never {@code null}
+   */
+  final String getName() {
+    return this.name;
+  }
+
+  /**
+   * Returns the names of all entries in this {@link ArchiveSource}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return an unmodifiable {@link List} of entry names; never {@code
+   * null}
+   *
+   * @exception IOException if the entry names could not be read
+   */
+  abstract List<String> getEntryNames() throws IOException;
+
+  /**
+   * Returns an {@link InputStream} from which the contents of the
+   * named entry may be read, or {@code null} if there is no such
+   * entry.  The caller is responsible for closing the {@link
+   * InputStream}.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param entryName the name of the entry; must not be {@code null}
+   *
+   * @return an {@link InputStream}, or {@code null}
+   *
+   * @exception IOException if the entry could not be opened
+   */
+  abstract InputStream open(final String entryName) throws IOException;
+
+  /**
+   * Presents each entry of this {@link ArchiveSource} that the
+   * supplied {@link Visitor} {@linkplain Visitor#accepts(String)
+   * accepts} to that {@link Visitor}, in this {@link ArchiveSource}'s
+   * natural order, until there are no more entries or the {@link
+   * Visitor} asks to stop.
+   *
+   * <p>This implementation {@linkplain #open(String) opens} each
+   * accepted entry named by the {@link #getEntryNames()} method in
+   * turn.  Subclasses override it to read their entries more
+   * cheaply.</p>
+   *
+   * @param visitor the {@link Visitor}; must not be {@code null}
+   *
+   * @return {@code false} if the {@link Visitor} asked to stop;
+   * {@code true} otherwise
+   *
+   * @exception IOException if an entry could not be read, or if the
+   * {@link Visitor} throws one
+   */
+  boolean scan(final Visitor visitor) throws IOException {
+    if (visitor == null) {
+      throw new IllegalArgumentException("visitor", new NullPointerException("visitor == null"));
+    }
+    for (final String entryName : this.getEntryNames()) {
+      if (visitor.accepts(entryName)) {
+        final InputStream stream = this.open(entryName);
+        if (stream != null && !visit(visitor, entryName, stream)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Presents the supplied entry to the supplied {@link Visitor} and
+   * closes the supplied {@link InputStream}.
+   *
+   * @param visitor the {@link Visitor}; must not be {@code null}
+   *
+   * @param entryName the name of the entry; must not be {@code null}
+   *
+   * @param stream the contents of the entry; must not be {@code null}
+   *
+   * @return what the {@link Visitor} returned
+   *
+   * @exception IOException if the {@link Visitor} throws one
+   */
+  static final boolean visit(final Visitor visitor, final String entryName, final InputStream stream) throws IOException {
+    assert visitor != null;
+    assert stream != null;
+    try {
+      return visitor.visit(entryName, stream);
+    } finally {
+      stream.close();
+    }
+  }
+
+  /**
+   * Releases any resources held by this {@link ArchiveSource}.  This
+   * implementation does nothing.
+   *
+   * @exception IOException if an error occurs
+   */
+  @Override
+  public void close() throws IOException {
+
+  }
+
+  /**
+   * Returns a {@link String} representation of this {@link
+   * ArchiveSource}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return the {@linkplain #getName() name} of this {@link
+   * ArchiveSource}; never {@code null}
+   */
+  @Override
+  public String toString() {
+    return this.getName();
+  }
+
+  /**
+   * Returns a new {@link ArchiveSource} for the supplied {@link URL}.
+   *
+   * <p>A {@code file:} {@link URL} designating a directory yields a
+   * {@link DirectoryArchiveSource}, and one designating a zip or jar
+   * file yields a {@link JarFileArchiveSource}.  A local file that is
+   * not a zip file yields an empty {@link InMemoryArchiveSource}.  A
+   * {@code jar:} {@link URL} of the form
+   * <tt>jar:file:<i>path</i>!/<i>entry</i></tt> yields a {@link
+   * NestedJarArchiveSource} if <tt><i>entry</i></tt> names a file,
+   * and a {@link JarFileArchiveSource} restricted to that directory
+   * otherwise.  The contents of any other {@link URL} are read into
+   * an {@link InMemoryArchiveSource}.</p>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param url the {@link URL}; must not be {@code null}
+   *
+   * @return a new {@link ArchiveSource}; never {@code null}
+   *
+   * @exception IOException if the {@link URL} could not be opened
+   *
+   * @exception IllegalArgumentException if {@code url} is {@code
+   * null}
+   */
+  static final ArchiveSource forURL(final URL url) throws IOException {
+    if (url == null) {
+      throw new IllegalArgumentException("url", new NullPointerException("url == null"));
+    }
+    final File file = AbstractJPAMojo.toFile(url);
+    if (file != null) {
+      if (file.isDirectory()) {
+        return new DirectoryArchiveSource(file);
+      }
+      try {
+        return new JarFileArchiveSource(file, null);
+      } catch (final ZipException notAZipFile) {
+        return new InMemoryArchiveSource(url.toString(), Collections.<String, byte[]>emptyMap());
+      }
+    }
+    if ("jar".equals(url.getProtocol())) {
+      final String path = url.getPath();
+      final int bang = path == null ? -1 : path.indexOf("!/");
+      if (bang > 0) {
+        final File outer = AbstractJPAMojo.toFile(new URL(path.substring(0, bang)));
+        if (outer != null && outer.isFile()) {
+          final String entryName = path.substring(bang + 2);
+          if (entryName.isEmpty() || entryName.endsWith("/")) {
+            return new JarFileArchiveSource(outer, entryName);
+          }
+          return new NestedJarArchiveSource(outer, entryName);
+        }
+      }
+    }
+    final InputStream stream = url.openStream();
+    try {
+      return InMemoryArchiveSource.read(url.toString(), stream);
+    } finally {
+      stream.close();
+    }
+  }
+
+  /**
+   * An object that is presented with the entries of an {@link
+   * ArchiveSource} by its {@link ArchiveSource#scan(Visitor)} method.
+   *
+   * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+   *
+   * @since 3-SNAPSHOT
+   */
+  static interface Visitor {
+
+    /**
+     * Returns {@code true} if the named entry should be {@linkplain
+     * #visit(String, InputStream) visited}.
+     *
+     * @param entryName the name of the entry; never {@code null}
+     *
+     * @return {@code true} if the entry should be visited
+     */
+    boolean accepts(final String entryName);
+
+    /**
+     * Visits the named entry.  The supplied {@link InputStream} is
+     * valid only for the duration of this call, and need not be
+     * closed.
+     *
+     * @param entryName the name of the entry; never {@code null}
+     *
+     * @param stream the contents of the entry; never {@code null}
+     *
+     * @return {@code true} if further entries should be visited;
+     * {@code false} to stop
+     *
+     * @exception IOException if an error occurs
+     */
+    boolean visit(final String entryName, final InputStream stream) throws IOException;
+
+  }
+
+}
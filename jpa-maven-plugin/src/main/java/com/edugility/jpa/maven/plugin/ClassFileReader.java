@@ -0,0 +1,793 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.util.Collection;
+
+/**
+ * A minimal reader of the binary <a
+ * href="http://docs.oracle.com/javase/specs/jvms/se7/html/jvms-4.html">class
+ * file format</a> that examines a class file's constant pool without
+ * building a full object model of the class.
+ *
+ * <p>This class is used to decide cheaply whether a class file can
+ * possibly be of interest before it is handed to <a
+ * href="http://www.jboss.org/javassist">Javassist</a> for a full
+ * parse, and to extract a class' own annotations without such a
+ * parse at all.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ *
+ * @see AnnotationDB#setRequiredReferences(String[])
+ *
+ * @see AnnotationDB#setClassAnnotationsOnly(boolean)
+ */
+final class ClassFileReader {
+
+  /**
+   * The magic number that begins every class file.
+   */
+  private static final int MAGIC = 0xCAFEBABE;
+
+  /**
+   * The modified UTF-8 bytes of the name of the {@code
+   * RuntimeVisibleAnnotations} attribute.
+   */
+  private static final byte[] RUNTIME_VISIBLE_ANNOTATIONS = { 'R', 'u', 'n', 't', 'i', 'm', 'e', 'V', 'i', 's', 'i', 'b', 'l', 'e', 'A', 'n', 'n', 'o', 't', 'a', 't', 'i', 'o', 'n', 's' };
+
+  /**
+   * The modified UTF-8 bytes of the name of the {@code
+   * RuntimeInvisibleAnnotations} attribute, which records the
+   * annotations whose retention policy is {@link
+   * java.lang.annotation.RetentionPolicy#CLASS CLASS}, the default.
+   */
+  private static final byte[] RUNTIME_INVISIBLE_ANNOTATIONS = { 'R', 'u', 'n', 't', 'i', 'm', 'e', 'I', 'n', 'v', 'i', 's', 'i', 'b', 'l', 'e', 'A', 'n', 'n', 'o', 't', 'a', 't', 'i', 'o', 'n', 's' };
+
+  /**
+   * Creates a new {@link ClassFileReader}.
+   */
+  private ClassFileReader() {
+    super();
+  }
+
+  /**
+   * Reads the supplied {@link InputStream} fully and returns its
+   * contents.  The {@link InputStream} is not closed.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param stream the {@link InputStream} to read; must not be {@code
+   * null}
+   *
+   * @return the bytes read; never {@code null}
+   *
+   * @exception IOException if an error occurs while reading
+   */
+  static final byte[] read(final InputStream stream) throws IOException {
+    if (stream == null) {
+      throw new IllegalArgumentException("stream", new NullPointerException("stream == null"));
+    }
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+    final byte[] buffer = new byte[4096];
+    int bytesRead;
+    while ((bytesRead = stream.read(buffer)) >= 0) {
+      out.write(buffer, 0, bytesRead);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Returns {@code true} if any {@code CONSTANT_Utf8} entry in the
+   * constant pool of the supplied class file contains any of the
+   * supplied {@code needles}.
+   *
+   * <p>Each needle must consist of ASCII characters only, which
+   * allows it to be matched directly against the modified UTF-8
+   * bytes of each constant pool entry.  A needle such as {@code
+   * javax/persistence/} will therefore match both class references
+   * ({@code javax/persistence/Entity}) and the field descriptors used
+   * by annotations ({@code Ljavax/persistence/Entity;}).</p>
+   *
+   * <p>If the supplied bytes do not form a class file that this
+   * method can understand, then {@code true} is returned so that the
+   * class file will be passed on for a full parse, which will report
+   * the problem as it always has.</p>
+   *
+   * @param classFile the bytes of the class file; must not be {@code
+   * null}
+   *
+   * @param needles the ASCII byte sequences to look for; must not be
+   * {@code null}
+   *
+   * @return {@code true} if any needle occurs in the constant pool or
+   * the class file could not be understood; {@code false} if the
+   * class file definitely does not reference any of the needles
+   */
+  static final boolean containsUtf8(final byte[] classFile, final byte[][] needles) {
+    if (classFile == null) {
+      throw new IllegalArgumentException("classFile", new NullPointerException("classFile == null"));
+    }
+    try {
+      return containsUtf8(new DataInputStream(new ByteArrayInputStream(classFile)), needles);
+    } catch (final IOException kaboom) {
+      throw (InternalError)new InternalError(String.format("An IOException was encountered while reading a byte array: %s", kaboom)).initCause(kaboom);
+    }
+  }
+
+  /**
+   * Returns {@code true} if any {@code CONSTANT_Utf8} entry in the
+   * constant pool of the class file read from the supplied {@link
+   * DataInput} contains any of the supplied {@code needles}.
+   *
+   * <p>Reading stops as soon as a needle is found or the end of the
+   * constant pool is reached; the remainder of the class file is
+   * never read.  Otherwise this method behaves exactly like the
+   * {@link #containsUtf8(byte[], byte[][])} method.</p>
+   *
+   * @param in the {@link DataInput} positioned at the start of a
+   * class file; must not be {@code null}
+   *
+   * @param needles the ASCII byte sequences to look for; must not be
+   * {@code null}
+   *
+   * @return {@code true} if any needle occurs in the constant pool or
+   * the class file could not be understood; {@code false} if the
+   * class file definitely does not reference any of the needles
+   *
+   * @exception IOException if an error other than a premature end of
+   * input occurs while reading
+   *
+   * @see #containsUtf8(byte[], byte[][])
+   */
+  static final boolean containsUtf8(final DataInput in, final byte[][] needles) throws IOException {
+    if (in == null) {
+      throw new IllegalArgumentException("in", new NullPointerException("in == null"));
+    }
+    if (needles == null) {
+      throw new IllegalArgumentException("needles", new NullPointerException("needles == null"));
+    }
+    try {
+      if (in.readInt() != MAGIC) {
+        return true;
+      }
+      in.readInt(); // minor and major versions
+      final int count = in.readUnsignedShort();
+      byte[] buffer = new byte[256];
+      for (int i = 1; i < count; i++) {
+        final int tag = in.readUnsignedByte();
+        switch (tag) {
+        case 1: // CONSTANT_Utf8
+          final int utf8Length = in.readUnsignedShort();
+          if (utf8Length > buffer.length) {
+            buffer = new byte[Math.max(utf8Length, buffer.length * 2)];
+          }
+          in.readFully(buffer, 0, utf8Length);
+          for (final byte[] needle : needles) {
+            if (needle != null && indexOf(buffer, 0, utf8Length, needle) >= 0) {
+              return true;
+            }
+          }
+          break;
+        case 7: // CONSTANT_Class
+        case 8: // CONSTANT_String
+        case 16: // CONSTANT_MethodType
+        case 19: // CONSTANT_Module
+        case 20: // CONSTANT_Package
+          in.readFully(buffer, 0, 2);
+          break;
+        case 15: // CONSTANT_MethodHandle
+          in.readFully(buffer, 0, 3);
+          break;
+        case 3: // CONSTANT_Integer
+        case 4: // CONSTANT_Float
+        case 9: // CONSTANT_Fieldref
+        case 10: // CONSTANT_Methodref
+        case 11: // CONSTANT_InterfaceMethodref
+        case 12: // CONSTANT_NameAndType
+        case 17: // CONSTANT_Dynamic
+        case 18: // CONSTANT_InvokeDynamic
+          in.readFully(buffer, 0, 4);
+          break;
+        case 5: // CONSTANT_Long
+        case 6: // CONSTANT_Double
+          in.readFully(buffer, 0, 8);
+          i++; // eight-byte constants occupy two slots
+          break;
+        default:
+          // An unknown tag; let the full parser decide.
+          return true;
+        }
+      }
+    } catch (final EOFException truncated) {
+      // A truncated class file; let the full parser decide.
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Reads the class file available from the supplied {@link
+   * InputStream} and returns its contents, but only if any {@code
+   * CONSTANT_Utf8} entry in its constant pool {@linkplain
+   * #containsUtf8(DataInput, byte[][]) contains} any of the supplied
+   * {@code needles}.  The {@link InputStream} is not closed.
+   *
+   * <p>Only the bytes up to the end of the constant pool are read
+   * and retained while the constant pool is examined.  If no needle
+   * is found, {@code null} is returned and the remainder of the class
+   * file is never read; otherwise the remainder is read and appended
+   * to the bytes already retained.</p>
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param stream the {@link InputStream} positioned at the start of
+   * a class file; must not be {@code null}
+   *
+   * @param needles the ASCII byte sequences to look for; must not be
+   * {@code null}
+   *
+   * @return the bytes of the class file, or {@code null} if the class
+   * file definitely does not reference any of the needles
+   *
+   * @exception IOException if an error occurs while reading
+   *
+   * @see #containsUtf8(DataInput, byte[][])
+   */
+  static final byte[] readIfContainsUtf8(final InputStream stream, final byte[][] needles) throws IOException {
+    if (stream == null) {
+      throw new IllegalArgumentException("stream", new NullPointerException("stream == null"));
+    }
+    final InputStream buffered = new BufferedInputStream(stream, 1024);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+    final InputStream recorder = new FilterInputStream(buffered) {
+        @Override
+        public final int read() throws IOException {
+          final int b = super.read();
+          if (b >= 0) {
+            out.write(b);
+          }
+          return b;
+        }
+
+        @Override
+        public final int read(final byte[] bytes, final int offset, final int length) throws IOException {
+          final int count = super.read(bytes, offset, length);
+          if (count > 0) {
+            out.write(bytes, offset, count);
+          }
+          return count;
+        }
+
+        @Override
+        public final long skip(final long n) throws IOException {
+          // Skipped bytes must be retained too.
+          long skipped = 0L;
+          while (skipped < n && this.read() >= 0) {
+            skipped++;
+          }
+          return skipped;
+        }
+      };
+    if (!containsUtf8(new DataInputStream(recorder), needles)) {
+      return null;
+    }
+    final byte[] buffer = new byte[4096];
+    int bytesRead;
+    while ((bytesRead = buffered.read(buffer)) >= 0) {
+      out.write(buffer, 0, bytesRead);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Reads the name of the class defined by the supplied class file
+   * and adds the names of the annotations found in its class-level
+   * {@code RuntimeVisibleAnnotations} and {@code
+   * RuntimeInvisibleAnnotations} attributes to the supplied {@link
+   * Collection}.
+   *
+   * <p>No other part of the class file is interpreted: fields,
+   * methods and all other attributes are skipped over, and only the
+   * constant pool entries that are actually needed are decoded into
+   * {@link String}s.</p>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param classFile the bytes of the class file; must not be {@code
+   * null}
+   *
+   * @param annotationNames the {@link Collection} to which the fully
+   * qualified names of the class' annotations will be added; must not be {@code null}
+   *
+   * @return the fully qualified name of the class; never {@code null}
+   *
+   * @exception IOException if the supplied bytes do not form a valid
+   * class file
+   */
+  static final String readClassAnnotations(final byte[] classFile, final Collection<String> annotationNames) throws IOException {
+    return readClassAnnotations(classFile, annotationNames, null);
+  }
+
+  /**
+   * Reads the name of the class defined by the supplied class file,
+   * adds the names of the annotations found in its class-level
+   * {@code RuntimeVisibleAnnotations} and {@code
+   * RuntimeInvisibleAnnotations} attributes to the supplied
+   * annotation name {@link Collection} and, if the supplied supertype
+   * name {@link Collection} is non-{@code null}, adds the names of
+   * its superclass and of the interfaces it directly implements to
+   * it.
+   *
+   * <p>No other part of the class file is interpreted: fields,
+   * methods and all other attributes are skipped over, and only the
+   * constant pool entries that are actually needed are decoded into
+   * {@link String}s.</p>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param classFile the bytes of the class file; must not be {@code
+   * null}
+   *
+   * @param annotationNames the {@link Collection} to which the fully
+   * qualified names of the class' annotations will be added; must not be {@code null}
+   *
+   * @param supertypeNames the {@link Collection} to which the fully
+   * qualified names of the class' superclass (if it has one) and
+   * directly implemented interfaces will be added; may be {@code
+   * null} in which case they are not decoded
+   *
+   * @return the fully qualified name of the class; never {@code null}
+   *
+   * @exception IOException if the supplied bytes do not form a valid
+   * class file
+   */
+  static final String readClassAnnotations(final byte[] classFile, final Collection<String> annotationNames, final Collection<String> supertypeNames) throws IOException {
+    if (classFile == null) {
+      throw new IllegalArgumentException("classFile", new NullPointerException("classFile == null"));
+    }
+    if (annotationNames == null) {
+      throw new IllegalArgumentException("annotationNames", new NullPointerException("annotationNames == null"));
+    }
+    final Cursor cursor = new Cursor(classFile);
+    if (cursor.u4() != MAGIC) {
+      throw new IOException("Not a class file");
+    }
+    cursor.skip(4); // minor and major versions
+
+    // Record where each constant pool entry starts.
+    final int count = cursor.u2();
+    final int[] offsets = new int[count];
+    for (int i = 1; i < count; i++) {
+      offsets[i] = cursor.position;
+      final int tag = cursor.u1();
+      switch (tag) {
+      case 1: // CONSTANT_Utf8
+        cursor.skip(cursor.u2());
+        break;
+      case 7: // CONSTANT_Class
+      case 8: // CONSTANT_String
+      case 16: // CONSTANT_MethodType
+      case 19: // CONSTANT_Module
+      case 20: // CONSTANT_Package
+        cursor.skip(2);
+        break;
+      case 15: // CONSTANT_MethodHandle
+        cursor.skip(3);
+        break;
+      case 3: // CONSTANT_Integer
+      case 4: // CONSTANT_Float
+      case 9: // CONSTANT_Fieldref
+      case 10: // CONSTANT_Methodref
+      case 11: // CONSTANT_InterfaceMethodref
+      case 12: // CONSTANT_NameAndType
+      case 17: // CONSTANT_Dynamic
+      case 18: // CONSTANT_InvokeDynamic
+        cursor.skip(4);
+        break;
+      case 5: // CONSTANT_Long
+      case 6: // CONSTANT_Double
+        cursor.skip(8);
+        i++; // eight-byte constants occupy two slots
+        break;
+      default:
+        throw new IOException(String.format("Unknown constant pool tag: %d", tag));
+      }
+    }
+
+    cursor.skip(2); // access_flags
+    final int thisClass = cursor.u2();
+    if (thisClass <= 0 || thisClass >= count || (classFile[offsets[thisClass]] & 0xFF) != 7) {
+      throw new IOException("Invalid this_class index");
+    }
+    final String className = utf8(classFile, offsets, new Cursor(classFile, offsets[thisClass] + 1).u2()).replace('/', '.');
+    if (supertypeNames == null) {
+      cursor.skip(2); // super_class
+      cursor.skip(2 * cursor.u2()); // interfaces
+    } else {
+      final int superClass = cursor.u2();
+      if (superClass != 0) {
+        supertypeNames.add(className(classFile, offsets, superClass));
+      }
+      final int interfaceCount = cursor.u2();
+      for (int i = 0; i < interfaceCount; i++) {
+        supertypeNames.add(className(classFile, offsets, cursor.u2()));
+      }
+    }
+
+    // Skip fields and then methods.
+    for (int pass = 0; pass < 2; pass++) {
+      final int memberCount = cursor.u2();
+      for (int i = 0; i < memberCount; i++) {
+        cursor.skip(6); // access_flags, name_index, descriptor_index
+        skipAttributes(cursor);
+      }
+    }
+
+    final int attributeCount = cursor.u2();
+    for (int i = 0; i < attributeCount; i++) {
+      final int nameIndex = cursor.u2();
+      final int length = cursor.u4();
+      if (utf8Equals(classFile, offsets, nameIndex, RUNTIME_VISIBLE_ANNOTATIONS) || utf8Equals(classFile, offsets, nameIndex, RUNTIME_INVISIBLE_ANNOTATIONS)) {
+        final int annotationCount = cursor.u2();
+        for (int j = 0; j < annotationCount; j++) {
+          final String descriptor = utf8(classFile, offsets, cursor.u2());
+          if (descriptor.length() > 2 && descriptor.charAt(0) == 'L' && descriptor.charAt(descriptor.length() - 1) == ';') {
+            annotationNames.add(descriptor.substring(1, descriptor.length() - 1).replace('/', '.'));
+          } else {
+            annotationNames.add(descriptor.replace('/', '.'));
+          }
+          skipElementValuePairs(cursor);
+        }
+      } else {
+        cursor.skip(length);
+      }
+    }
+    return className;
+  }
+
+  /**
+   * Returns the fully qualified name of the class designated by the
+   * {@code CONSTANT_Class} entry at the supplied constant pool index.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param classFile the bytes of the class file; must not be {@code
+   * null}
+   *
+   * @param offsets the offsets of the constant pool entries; must not
+   * be {@code null}
+   *
+   * @param index the constant pool index of the {@code
+   * CONSTANT_Class} entry
+   *
+   * @return the fully qualified class name; never {@code null}
+   *
+   * @exception IOException if the index does not designate a {@code
+   * CONSTANT_Class} entry
+   */
+  private static final String className(final byte[] classFile, final int[] offsets, final int index) throws IOException {
+    if (index <= 0 || index >= offsets.length || (classFile[offsets[index]] & 0xFF) != 7) {
+      throw new IOException(String.format("Invalid class index: %d", index));
+    }
+    return utf8(classFile, offsets, new Cursor(classFile, offsets[index] + 1).u2()).replace('/', '.');
+  }
+
+  /**
+   * Skips over a {@code attributes_count} item and the attributes
+   * that follow it.
+   *
+   * @param cursor the {@link Cursor} positioned at the {@code
+   * attributes_count} item; must not be {@code null}
+   *
+   * @exception IOException if the class file is truncated
+   */
+  private static final void skipAttributes(final Cursor cursor) throws IOException {
+    final int attributeCount = cursor.u2();
+    for (int i = 0; i < attributeCount; i++) {
+      cursor.skip(2); // attribute_name_index
+      cursor.skip(cursor.u4());
+    }
+  }
+
+  /**
+   * Skips over the {@code num_element_value_pairs} item of an {@code
+   * annotation} structure and the pairs that follow it.
+   *
+   * @param cursor the {@link Cursor} positioned at the {@code
+   * num_element_value_pairs} item; must not be {@code null}
+   *
+   * @exception IOException if the class file is truncated or
+   * malformed
+   */
+  private static final void skipElementValuePairs(final Cursor cursor) throws IOException {
+    final int pairCount = cursor.u2();
+    for (int i = 0; i < pairCount; i++) {
+      cursor.skip(2); // element_name_index
+      skipElementValue(cursor);
+    }
+  }
+
+  /**
+   * Skips over a single {@code element_value} structure.
+   *
+   * @param cursor the {@link Cursor} positioned at the {@code
+   * element_value}; must not be {@code null}
+   *
+   * @exception IOException if the class file is truncated or
+   * malformed
+   */
+  private static final void skipElementValue(final Cursor cursor) throws IOException {
+    final int tag = cursor.u1();
+    switch (tag) {
+    case 'B':
+    case 'C':
+    case 'D':
+    case 'F':
+    case 'I':
+    case 'J':
+    case 'S':
+    case 'Z':
+    case 's':
+    case 'c':
+      cursor.skip(2);
+      break;
+    case 'e':
+      cursor.skip(4);
+      break;
+    case '@':
+      cursor.skip(2); // type_index
+      skipElementValuePairs(cursor);
+      break;
+    case '[':
+      final int valueCount = cursor.u2();
+      for (int i = 0; i < valueCount; i++) {
+        skipElementValue(cursor);
+      }
+      break;
+    default:
+      throw new IOException(String.format("Unknown element_value tag: %c", (char)tag));
+    }
+  }
+
+  /**
+   * Decodes the {@code CONSTANT_Utf8} constant pool entry at the
+   * supplied index.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param classFile the bytes of the class file; must not be {@code
+   * null}
+   *
+   * @param offsets the offsets of the constant pool entries; must not
+   * be {@code null}
+   *
+   * @param index the constant pool index
+   *
+   * @return the decoded {@link String}; never {@code null}
+   *
+   * @exception IOException if the entry is not a {@code
+   * CONSTANT_Utf8} entry or cannot be decoded
+   */
+  private static final String utf8(final byte[] classFile, final int[] offsets, final int index) throws IOException {
+    if (index <= 0 || index >= offsets.length || classFile[offsets[index]] != 1) {
+      throw new IOException(String.format("Invalid CONSTANT_Utf8 index: %d", index));
+    }
+    // The entry is laid out exactly as DataInput#readUTF() expects.
+    return new DataInputStream(new ByteArrayInputStream(classFile, offsets[index] + 1, classFile.length - offsets[index] - 1)).readUTF();
+  }
+
+  /**
+   * Returns {@code true} if the {@code CONSTANT_Utf8} constant pool
+   * entry at the supplied index consists of exactly the supplied
+   * bytes.
+   *
+   * @param classFile the bytes of the class file; must not be {@code
+   * null}
+   *
+   * @param offsets the offsets of the constant pool entries; must not
+   * be {@code null}
+   *
+   * @param index the constant pool index
+   *
+   * @param expected the bytes to compare against; must not be {@code
+   * null}
+   *
+   * @return {@code true} if the entry matches
+   */
+  private static final boolean utf8Equals(final byte[] classFile, final int[] offsets, final int index, final byte[] expected) {
+    if (index <= 0 || index >= offsets.length) {
+      return false;
+    }
+    final int offset = offsets[index];
+    if (classFile[offset] != 1 || offset + 3 + expected.length > classFile.length) {
+      return false;
+    }
+    final int length = ((classFile[offset + 1] & 0xFF) << 8) | (classFile[offset + 2] & 0xFF);
+    if (length != expected.length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (classFile[offset + 3 + i] != expected[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the index of the first occurrence of the supplied {@code
+   * needle} within the given region of the supplied {@code haystack},
+   * or {@code -1} if there is no such occurrence.
+   *
+   * @param haystack the bytes to search; must not be {@code null}
+   *
+   * @param offset the start of the region to search
+   *
+   * @param length the length of the region to search
+   *
+   * @param needle the bytes to look for; must not be {@code null}
+   *
+   * @return the index of the first occurrence, or {@code -1}
+   */
+  private static final int indexOf(final byte[] haystack, final int offset, final int length, final byte[] needle) {
+    final int last = offset + length - needle.length;
+    outer:
+    for (int i = offset; i <= last; i++) {
+      for (int j = 0; j < needle.length; j++) {
+        if (haystack[i + j] != needle[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  /**
+   * A bounds-checked read position within the bytes of a class file.
+   *
+   * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+   *
+   * @since 3-SNAPSHOT
+   */
+  private static final class Cursor {
+
+    /**
+     * The bytes being read.  This field is never {@code null}.
+     */
+    private final byte[] bytes;
+
+    /**
+     * The current read position.
+     */
+    private int position;
+
+    /**
+     * Creates a new {@link Cursor} positioned at the start of the
+     * supplied bytes.
+     *
+     * @param bytes the bytes to read; must not be {@code null}
+     */
+    private Cursor(final byte[] bytes) {
+      this(bytes, 0);
+    }
+
+    /**
+     * Creates a new {@link Cursor} positioned at the supplied
+     * position.
+     *
+     * @param bytes the bytes to read; must not be {@code null}
+     *
+     * @param position the initial read position
+     */
+    private Cursor(final byte[] bytes, final int position) {
+      super();
+      assert bytes != null;
+      this.bytes = bytes;
+      this.position = position;
+    }
+
+    /**
+     * Ensures that the supplied number of bytes remain to be read.
+     *
+     * @param count the number of bytes
+     *
+     * @exception EOFException if fewer bytes remain
+     */
+    private final void require(final int count) throws EOFException {
+      if (count < 0 || this.position + count > this.bytes.length) {
+        throw new EOFException("Truncated class file");
+      }
+    }
+
+    /**
+     * Reads an unsigned byte.
+     *
+     * @return the value read
+     *
+     * @exception EOFException if no bytes remain
+     */
+    private final int u1() throws EOFException {
+      this.require(1);
+      return this.bytes[this.position++] & 0xFF;
+    }
+
+    /**
+     * Reads a big-endian unsigned two-byte value.
+     *
+     * @return the value read
+     *
+     * @exception EOFException if fewer than two bytes remain
+     */
+    private final int u2() throws EOFException {
+      this.require(2);
+      final int value = ((this.bytes[this.position] & 0xFF) << 8) | (this.bytes[this.position + 1] & 0xFF);
+      this.position += 2;
+      return value;
+    }
+
+    /**
+     * Reads a big-endian four-byte value.
+     *
+     * @return the value read
+     *
+     * @exception EOFException if fewer than four bytes remain
+     */
+    private final int u4() throws EOFException {
+      return (this.u2() << 16) | this.u2();
+    }
+
+    /**
+     * Skips the supplied number of bytes.
+     *
+     * @param count the number of bytes to skip
+     *
+     * @exception EOFException if fewer bytes remain
+     */
+    private final void skip(final int count) throws EOFException {
+      this.require(count);
+      this.position += count;
+    }
+
+  }
+
+}
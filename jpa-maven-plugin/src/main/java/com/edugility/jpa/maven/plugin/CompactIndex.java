@@ -0,0 +1,697 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A memory-efficient {@link Map} of {@link String}s to {@link Set}s of
+ * {@link String}s, suitable for use as one of an {@link
+ * AnnotationDB}'s indices on very large classpaths.
+ *
+ * <p>Every name is stored exactly once, in a {@link Names} table that
+ * may be shared by several {@link CompactIndex} instances, and is
+ * thereafter represented by its {@code int} identifier.  Each key's
+ * values are held as a sorted {@code int} array of such identifiers
+ * (a <em>postings list</em>) rather than as a {@link
+ * java.util.HashSet}.</p>
+ *
+ * <p>The {@link Set}s returned by the {@link #get(Object)} method and
+ * by this {@link CompactIndex}'s {@linkplain #entrySet() entries} are
+ * lazy, live views of the postings lists; no {@link String}s or
+ * {@link Set}s are materialized until they are iterated.  Those views
+ * support {@link Set#add(Object)}.  The {@link #put(String, Set)}
+ * method copies its argument.  Removal of individual keys or values
+ * is not supported, but the {@link #clear()} method is.</p>
+ *
+ * <p>Instances of this class are not safe for use by multiple
+ * threads.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ *
+ * @see AnnotationDB#setCompactIndices(boolean)
+ */
+final class CompactIndex extends AbstractMap<String, Set<String>> {
+
+  /**
+   * An empty {@code int} array.
+   */
+  private static final int[] EMPTY = new int[0];
+
+  /**
+   * The {@link Names} table holding the keys and values of this
+   * {@link CompactIndex}.  This field is never {@code null}.
+   */
+  private final Names names;
+
+  /**
+   * The name identifiers of the keys of this {@link CompactIndex}, in
+   * insertion order.  Only the first {@link #size} elements are
+   * meaningful.
+   */
+  private int[] keys;
+
+  /**
+   * The postings list of each key, parallel to the {@link #keys}
+   * array.
+   */
+  private int[][] postings;
+
+  /**
+   * The number of meaningful elements in each postings list, parallel
+   * to the {@link #keys} array.
+   */
+  private int[] postingSizes;
+
+  /**
+   * The number of keys in this {@link CompactIndex}.
+   */
+  private int size;
+
+  /**
+   * An open-addressing hash table mapping key name identifiers to
+   * their positions in the {@link #keys} array; each element holds
+   * such a position plus one, or {@code 0} if it is vacant.  Its
+   * length is always a power of two.
+   */
+  private int[] slots;
+
+  /**
+   * The lazily created {@link #entrySet()} view.
+   */
+  private Set<Entry<String, Set<String>>> entrySet;
+
+  /**
+   * Creates a new, empty {@link CompactIndex}.
+   *
+   * @param names the {@link Names} table to use; must not be {@code
+   * null}
+   *
+   * @exception IllegalArgumentException if {@code names} is {@code
+   * null}
+   */
+  CompactIndex(final Names names) {
+    super();
+    if (names == null) {
+      throw new IllegalArgumentException("names", new NullPointerException("names == null"));
+    }
+    this.names = names;
+    this.clear();
+  }
+
+  /**
+   * Creates a new {@link CompactIndex} holding the same mappings as
+   * the supplied {@link Map}.
+   *
+   * @param names the {@link Names} table to use; must not be {@code
+   * null}
+   *
+   * @param map the {@link Map} to copy; may be {@code null}
+   *
+   * @exception IllegalArgumentException if {@code names} is {@code
+   * null}
+   */
+  CompactIndex(final Names names, final Map<? extends String, ? extends Set<String>> map) {
+    this(names);
+    if (map != null) {
+      this.putAll(map);
+    }
+  }
+
+  /**
+   * Creates a new {@link CompactIndex} that is an exact copy of the
+   * supplied {@link CompactIndex} but uses the supplied {@link Names}
+   * table, which must be a {@linkplain Names#Names(Names) copy} of
+   * the one used by {@code other}.
+   *
+   * @param names the {@link Names} table to use; must not be {@code
+   * null}
+   *
+   * @param other the {@link CompactIndex} to copy; must not be {@code
+   * null}
+   *
+   * @exception IllegalArgumentException if either parameter is {@code
+   * null}
+   */
+  CompactIndex(final Names names, final CompactIndex other) {
+    super();
+    if (names == null) {
+      throw new IllegalArgumentException("names", new NullPointerException("names == null"));
+    }
+    if (other == null) {
+      throw new IllegalArgumentException("other", new NullPointerException("other == null"));
+    }
+    this.names = names;
+    this.size = other.size;
+    this.keys = other.keys.clone();
+    this.postingSizes = other.postingSizes.clone();
+    this.postings = new int[other.postings.length][];
+    for (int i = 0; i < this.size; i++) {
+      this.postings[i] = Arrays.copyOf(other.postings[i], other.postingSizes[i]);
+    }
+    this.slots = other.slots.clone();
+  }
+
+  /**
+   * Returns the {@link Names} table used by this {@link
+   * CompactIndex}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return the {@link Names} table; never {@code null}
+   */
+  final Names getNames() {
+    return this.names;
+  }
+
+  @Override
+  public final int size() {
+    return this.size;
+  }
+
+  @Override
+  public final boolean containsKey(final Object key) {
+    return this.slotOf(key) >= 0;
+  }
+
+  /**
+   * Returns a live view of the values mapped to the supplied key, or
+   * {@code null} if there are none.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param key the key; may be {@code null}
+   *
+   * @return a live {@link Set} view, or {@code null}
+   */
+  @Override
+  public final Set<String> get(final Object key) {
+    final int slot = this.slotOf(key);
+    return slot < 0 ? null : new Postings(slot);
+  }
+
+  /**
+   * Replaces the values mapped to the supplied key with a copy of the
+   * supplied {@link Set}.
+   *
+   * <p>Unlike a {@link java.util.HashMap}, this {@link CompactIndex}
+   * does not retain the supplied {@link Set}; subsequent changes to
+   * it are not reflected here.  Callers wishing to add values should
+   * use the {@link Set} returned by the {@link #get(Object)}
+   * method.</p>
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param key the key; must not be {@code null}
+   *
+   * @param values the values; may be {@code null} in which case the
+   * key will be mapped to an empty {@link Set}
+   *
+   * @return {@code null}, or a snapshot of the previous values
+   */
+  @Override
+  public final Set<String> put(final String key, final Set<String> values) {
+    if (key == null) {
+      throw new IllegalArgumentException("key", new NullPointerException("key == null"));
+    }
+    final int nameId = this.names.intern(key);
+    int slot = this.slotOf(nameId);
+    final Set<String> old;
+    if (slot < 0) {
+      old = null;
+      slot = this.addKey(nameId);
+    } else {
+      old = new java.util.HashSet<String>(new Postings(slot));
+      this.postingSizes[slot] = 0;
+    }
+    if (values != null && !values.isEmpty()) {
+      final int[] ids = new int[values.size()];
+      int count = 0;
+      for (final String value : values) {
+        if (value != null) {
+          ids[count++] = this.names.intern(value);
+        }
+      }
+      Arrays.sort(ids, 0, count);
+      int unique = 0;
+      for (int i = 0; i < count; i++) {
+        if (unique == 0 || ids[unique - 1] != ids[i]) {
+          ids[unique++] = ids[i];
+        }
+      }
+      this.postings[slot] = ids;
+      this.postingSizes[slot] = unique;
+    } else {
+      this.postings[slot] = EMPTY;
+    }
+    return old;
+  }
+
+  /**
+   * Removes all keys from this {@link CompactIndex}.  The {@link
+   * Names} table is unaffected.
+   */
+  @Override
+  public final void clear() {
+    this.keys = new int[8];
+    this.postings = new int[8][];
+    this.postingSizes = new int[8];
+    this.slots = new int[16];
+    this.size = 0;
+  }
+
+  @Override
+  public final Set<Entry<String, Set<String>>> entrySet() {
+    if (this.entrySet == null) {
+      this.entrySet = new AbstractSet<Entry<String, Set<String>>>() {
+        @Override
+        public final int size() {
+          return size;
+        }
+
+        @Override
+        public final Iterator<Entry<String, Set<String>>> iterator() {
+          return new Iterator<Entry<String, Set<String>>>() {
+            private int next;
+
+            @Override
+            public final boolean hasNext() {
+              return this.next < size;
+            }
+
+            @Override
+            public final Entry<String, Set<String>> next() {
+              if (this.next >= size) {
+                throw new NoSuchElementException();
+              }
+              final int slot = this.next++;
+              return new SimpleImmutableEntry<String, Set<String>>(names.get(keys[slot]), new Postings(slot));
+            }
+
+            @Override
+            public final void remove() {
+              throw new UnsupportedOperationException();
+            }
+          };
+        }
+      };
+    }
+    return this.entrySet;
+  }
+
+  /**
+   * Returns the position in the {@link #keys} array of the supplied
+   * key, or {@code -1} if it is not a key of this {@link
+   * CompactIndex}.
+   *
+   * @param key the key; may be {@code null}
+   *
+   * @return a position, or {@code -1}
+   */
+  private final int slotOf(final Object key) {
+    if (!(key instanceof String)) {
+      return -1;
+    }
+    final int nameId = this.names.lookup((String)key);
+    return nameId < 0 ? -1 : this.slotOf(nameId);
+  }
+
+  /**
+   * Returns the position in the {@link #keys} array of the key with
+   * the supplied name identifier, or {@code -1} if it is not a key of
+   * this {@link CompactIndex}.
+   *
+   * @param nameId the name identifier
+   *
+   * @return a position, or {@code -1}
+   */
+  private final int slotOf(final int nameId) {
+    final int mask = this.slots.length - 1;
+    for (int i = Names.mix(nameId) & mask; ; i = (i + 1) & mask) {
+      final int slot = this.slots[i] - 1;
+      if (slot < 0) {
+        return -1;
+      } else if (this.keys[slot] == nameId) {
+        return slot;
+      }
+    }
+  }
+
+  /**
+   * Adds the key with the supplied name identifier, which must not
+   * already be present, and returns its position in the {@link #keys}
+   * array.
+   *
+   * @param nameId the name identifier
+   *
+   * @return the new key's position
+   */
+  private final int addKey(final int nameId) {
+    if (this.size == this.keys.length) {
+      final int capacity = this.size * 2;
+      this.keys = Arrays.copyOf(this.keys, capacity);
+      this.postings = Arrays.copyOf(this.postings, capacity);
+      this.postingSizes = Arrays.copyOf(this.postingSizes, capacity);
+    }
+    final int slot = this.size++;
+    this.keys[slot] = nameId;
+    this.postings[slot] = EMPTY;
+    this.postingSizes[slot] = 0;
+    if (this.size * 2 > this.slots.length) {
+      this.slots = new int[this.slots.length * 2];
+      for (int i = 0; i < this.size; i++) {
+        this.insertSlot(this.keys[i], i);
+      }
+    } else {
+      this.insertSlot(nameId, slot);
+    }
+    return slot;
+  }
+
+  /**
+   * Records the supplied position of the key with the supplied name
+   * identifier in the {@link #slots} table.
+   *
+   * @param nameId the name identifier
+   *
+   * @param slot the key's position in the {@link #keys} array
+   */
+  private final void insertSlot(final int nameId, final int slot) {
+    final int mask = this.slots.length - 1;
+    int i = Names.mix(nameId) & mask;
+    while (this.slots[i] != 0) {
+      i = (i + 1) & mask;
+    }
+    this.slots[i] = slot + 1;
+  }
+
+  /**
+   * A live {@link Set} view of the postings list of a single key.
+   *
+   * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+   *
+   * @since 3-SNAPSHOT
+   */
+  private final class Postings extends AbstractSet<String> {
+
+    /**
+     * The position of the key in the {@link CompactIndex#keys} array.
+     */
+    private final int slot;
+
+    /**
+     * Creates a new {@link Postings} view.
+     *
+     * @param slot the position of the key in the {@link
+     * CompactIndex#keys} array
+     */
+    private Postings(final int slot) {
+      super();
+      this.slot = slot;
+    }
+
+    @Override
+    public final int size() {
+      return postingSizes[this.slot];
+    }
+
+    @Override
+    public final boolean contains(final Object value) {
+      if (!(value instanceof String)) {
+        return false;
+      }
+      final int nameId = names.lookup((String)value);
+      return nameId >= 0 && Arrays.binarySearch(postings[this.slot], 0, postingSizes[this.slot], nameId) >= 0;
+    }
+
+    /**
+     * Adds the supplied value to the postings list, keeping it sorted.
+     * Values are usually added in the order in which they were first
+     * interned, in which case this is a simple append.
+     *
+     * @param value the value to add; must not be {@code null}
+     *
+     * @return {@code true} if the value was not already present
+     */
+    @Override
+    public final boolean add(final String value) {
+      if (value == null) {
+        throw new IllegalArgumentException("value", new NullPointerException("value == null"));
+      }
+      final int nameId = names.intern(value);
+      int[] ids = postings[this.slot];
+      final int count = postingSizes[this.slot];
+      int insertion;
+      if (count == 0 || ids[count - 1] < nameId) {
+        insertion = count;
+      } else {
+        insertion = Arrays.binarySearch(ids, 0, count, nameId);
+        if (insertion >= 0) {
+          return false;
+        }
+        insertion = -insertion - 1;
+      }
+      if (count == ids.length) {
+        ids = Arrays.copyOf(ids, Math.max(4, count + (count >> 1) + 1));
+        postings[this.slot] = ids;
+      }
+      System.arraycopy(ids, insertion, ids, insertion + 1, count - insertion);
+      ids[insertion] = nameId;
+      postingSizes[this.slot] = count + 1;
+      return true;
+    }
+
+    @Override
+    public final boolean addAll(final Collection<? extends String> values) {
+      boolean changed = false;
+      for (final String value : values) {
+        changed = this.add(value) || changed;
+      }
+      return changed;
+    }
+
+    @Override
+    public final Iterator<String> iterator() {
+      return new Iterator<String>() {
+        private int next;
+
+        @Override
+        public final boolean hasNext() {
+          return this.next < postingSizes[slot];
+        }
+
+        @Override
+        public final String next() {
+          if (this.next >= postingSizes[slot]) {
+            throw new NoSuchElementException();
+          }
+          return names.get(postings[slot][this.next++]);
+        }
+
+        @Override
+        public final void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+  }
+
+  /**
+   * An append-only table of distinct {@link String}s, each identified
+   * by a dense, non-negative {@code int}.
+   *
+   * <p>Instances of this class are not safe for use by multiple
+   * threads.</p>
+   *
+   * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+   *
+   * @since 3-SNAPSHOT
+   */
+  static final class Names {
+
+    /**
+     * The names, indexed by identifier.  Only the first {@link #size}
+     * elements are meaningful.
+     */
+    private String[] names;
+
+    /**
+     * The number of names in this table.
+     */
+    private int size;
+
+    /**
+     * An open-addressing hash table mapping names to their
+     * identifiers; each element holds such an identifier plus one, or
+     * {@code 0} if it is vacant.  Its length is always a power of
+     * two.
+     */
+    private int[] table;
+
+    /**
+     * Creates a new, empty {@link Names} table.
+     */
+    Names() {
+      super();
+      this.names = new String[64];
+      this.table = new int[128];
+    }
+
+    /**
+     * Creates a new {@link Names} table that is an exact copy of the
+     * supplied one.
+     *
+     * @param other the {@link Names} table to copy; must not be {@code
+     * null}
+     */
+    Names(final Names other) {
+      super();
+      if (other == null) {
+        throw new IllegalArgumentException("other", new NullPointerException("other == null"));
+      }
+      this.names = other.names.clone();
+      this.size = other.size;
+      this.table = other.table.clone();
+    }
+
+    /**
+     * Returns the number of names in this table.
+     *
+     * @return the number of names
+     */
+    final int size() {
+      return this.size;
+    }
+
+    /**
+     * Returns the name with the supplied identifier.
+     *
+     * @param id the identifier
+     *
+     * @return the name; never {@code null}
+     *
+     * @exception IndexOutOfBoundsException if there is no such name
+     */
+    final String get(final int id) {
+      if (id < 0 || id >= this.size) {
+        throw new IndexOutOfBoundsException(String.valueOf(id));
+      }
+      return this.names[id];
+    }
+
+    /**
+     * Returns the identifier of the supplied name, or {@code -1} if it
+     * is not in this table.
+     *
+     * @param name the name; must not be {@code null}
+     *
+     * @return an identifier, or {@code -1}
+     */
+    final int lookup(final String name) {
+      final int mask = this.table.length - 1;
+      for (int i = mix(name.hashCode()) & mask; ; i = (i + 1) & mask) {
+        final int id = this.table[i] - 1;
+        if (id < 0) {
+          return -1;
+        } else if (this.names[id].equals(name)) {
+          return id;
+        }
+      }
+    }
+
+    /**
+     * Returns the identifier of the supplied name, adding it to this
+     * table first if necessary.
+     *
+     * @param name the name; must not be {@code null}
+     *
+     * @return the name's identifier
+     */
+    final int intern(final String name) {
+      int id = this.lookup(name);
+      if (id < 0) {
+        if (this.size == this.names.length) {
+          this.names = Arrays.copyOf(this.names, this.size * 2);
+        }
+        id = this.size++;
+        this.names[id] = name;
+        if (this.size * 2 > this.table.length) {
+          this.table = new int[this.table.length * 2];
+          for (int i = 0; i < this.size; i++) {
+            this.insert(i);
+          }
+        } else {
+          this.insert(id);
+        }
+      }
+      return id;
+    }
+
+    /**
+     * Records the name with the supplied identifier in the {@link
+     * #table}.
+     *
+     * @param id the identifier
+     */
+    private final void insert(final int id) {
+      final int mask = this.table.length - 1;
+      int i = mix(this.names[id].hashCode()) & mask;
+      while (this.table[i] != 0) {
+        i = (i + 1) & mask;
+      }
+      this.table[i] = id + 1;
+    }
+
+    /**
+     * Spreads the bits of the supplied hash code so that it may be
+     * used to index a power-of-two-sized table.
+     *
+     * @param hashCode the hash code
+     *
+     * @return the spread hash code
+     */
+    static final int mix(final int hashCode) {
+      final int h = hashCode * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+
+  }
+
+}
@@ -0,0 +1,163 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An {@link ArchiveSource} whose entries are the files beneath a
+ * directory.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+final class DirectoryArchiveSource extends ArchiveSource {
+
+  /**
+   * The directory.  This field is never {@code null}.
+   */
+  private final File root;
+
+  /**
+   * The names of the entries, computed lazily.  This field may be
+   * {@code null}.
+   *
+   * @see #getEntryNames()
+   */
+  private List<String> entryNames;
+
+  /**
+   * Creates a new {@link DirectoryArchiveSource}.
+   *
+   * @param root the directory; must not be {@code null}
+   *
+   * @exception IllegalArgumentException if {@code root} is {@code
+   * null}
+   */
+  DirectoryArchiveSource(final File root) {
+    super(root == null ? "" : root.getPath());
+    if (root == null) {
+      throw new IllegalArgumentException("root", new NullPointerException("root == null"));
+    }
+    this.root = root;
+  }
+
+  @Override
+  final List<String> getEntryNames() throws IOException {
+    if (this.entryNames == null) {
+      final List<String> entryNames = new ArrayList<String>();
+      this.scan(this.root, "", new Visitor() {
+          @Override
+          public final boolean accepts(final String entryName) {
+            entryNames.add(entryName);
+            return false;
+          }
+
+          @Override
+          public final boolean visit(final String entryName, final InputStream stream) {
+            return true;
+          }
+        });
+      this.entryNames = Collections.unmodifiableList(entryNames);
+    }
+    return this.entryNames;
+  }
+
+  @Override
+  final InputStream open(final String entryName) throws IOException {
+    if (entryName == null) {
+      throw new IllegalArgumentException("entryName", new NullPointerException("entryName == null"));
+    }
+    final File file = new File(this.root, entryName);
+    return file.isFile() ? new FileInputStream(file) : null;
+  }
+
+  /**
+   * Walks the directory, opening only those files that the supplied
+   * {@link Visitor} accepts.
+   *
+   * @param visitor the {@link Visitor}; must not be {@code null}
+   *
+   * @return {@code false} if the {@link Visitor} asked to stop;
+   * {@code true} otherwise
+   *
+   * @exception IOException if a file could not be read
+   */
+  @Override
+  final boolean scan(final Visitor visitor) throws IOException {
+    if (visitor == null) {
+      throw new IllegalArgumentException("visitor", new NullPointerException("visitor == null"));
+    }
+    return this.scan(this.root, "", visitor);
+  }
+
+  /**
+   * Walks the supplied directory, opening only those files that the
+   * supplied {@link Visitor} accepts.
+   *
+   * @param directory the directory; must not be {@code null}
+   *
+   * @param relativePath the path of {@code directory} relative to the
+   * {@link #root}, ending with {@code /} unless it is empty; must not
+   * be {@code null}
+   *
+   * @param visitor the {@link Visitor}; must not be {@code null}
+   *
+   * @return {@code false} if the {@link Visitor} asked to stop;
+   * {@code true} otherwise
+   *
+   * @exception IOException if a file could not be read
+   */
+  private final boolean scan(final File directory, final String relativePath, final Visitor visitor) throws IOException {
+    final File[] files = directory.listFiles();
+    if (files != null) {
+      for (final File file : files) {
+        final String entryName = relativePath + file.getName();
+        if (file.isDirectory()) {
+          if (!this.scan(file, entryName + "/", visitor)) {
+            return false;
+          }
+        } else if (visitor.accepts(entryName) && !visit(visitor, entryName, new FileInputStream(file))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,282 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.edugility.jpa.index.EntityIndex;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Writes an {@linkplain EntityIndex entity index} of the classes in
+ * a project's {@linkplain #getClassesDirectory() classes directory}
+ * that have been annotated with the {@link
+ * javax.persistence.Entity}, {@link
+ * javax.persistence.MappedSuperclass}, {@link
+ * javax.persistence.Embeddable} or {@link javax.persistence.IdClass}
+ * annotations to <tt>META-INF/jpa-entity-index</tt> within that
+ * directory, so that it is packaged with them.
+ *
+ * <p>At runtime, the {@link EntityIndex#load(ClassLoader)} method
+ * reads every such index on the classpath, so that the persistent
+ * classes of a persistence unit can be listed without scanning the
+ * classpath.</p>
+ *
+ * <p>The index is only rewritten when its content changes.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ *
+ * @requiresDependencyResolution compile
+ *
+ * @goal generate-entity-index
+ *
+ * @phase process-classes
+ *
+ * @threadSafe
+ *
+ * @see EntityIndex
+ *
+ * @see AbstractJPAMojo
+ */
+public class GenerateEntityIndexMojo extends AbstractJPAMojo {
+
+  /**
+   * The directory of compiled classes to scan.  The index is written
+   * within it, unless an {@link #indexFile} is specified.  This field
+   * may be {@code null} at any point.
+   *
+   * @parameter default-value="${project.build.outputDirectory}" property="classesDirectory"
+   */
+  private File classesDirectory;
+
+  /**
+   * The {@link File} to which the index will be written.  If {@code
+   * null}, then <tt>META-INF/jpa-entity-index</tt> within the {@link
+   * #classesDirectory} is used.  This field may be {@code null} at any
+   * point.
+   *
+   * @parameter property="indexFile"
+   */
+  private File indexFile;
+
+  /**
+   * Creates a new {@link GenerateEntityIndexMojo}.
+   */
+  public GenerateEntityIndexMojo() {
+    super();
+  }
+
+  /**
+   * Returns the directory of compiled classes to scan.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the classes directory, or {@code null}
+   */
+  public File getClassesDirectory() {
+    return this.classesDirectory;
+  }
+
+  /**
+   * Sets the directory of compiled classes to scan.
+   *
+   * @param classesDirectory the classes directory; may be {@code
+   * null}
+   */
+  public void setClassesDirectory(final File classesDirectory) {
+    this.classesDirectory = classesDirectory;
+  }
+
+  /**
+   * Returns the {@link File} to which the index will be written, as
+   * configured.  This method does not perform any initialization.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the index {@link File}, or {@code null}
+   */
+  public File getIndexFile() {
+    return this.indexFile;
+  }
+
+  /**
+   * Sets the {@link File} to which the index will be written.
+   *
+   * @param indexFile the index {@link File}; may be {@code null} in
+   * which case <tt>META-INF/jpa-entity-index</tt> within the
+   * {@linkplain #getClassesDirectory() classes directory} will be used
+   */
+  public void setIndexFile(final File indexFile) {
+    this.indexFile = indexFile;
+  }
+
+  /**
+   * Scans the {@linkplain #getClassesDirectory() classes directory}
+   * and writes the {@linkplain EntityIndex entity index}.
+   *
+   * @exception MojoExecutionException if an error occurs
+   *
+   * @exception MojoFailureException if an error occurs
+   */
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException {
+    final Log log = this.getLog();
+    if (log == null) {
+      throw new MojoExecutionException("this.getLog() == null");
+    }
+
+    final File classesDirectory = this.getClassesDirectory();
+    if (classesDirectory == null || !classesDirectory.isDirectory()) {
+      if (log.isInfoEnabled()) {
+        log.info(String.format("The classes directory (%s) does not exist; no entity index will be written", classesDirectory));
+      }
+      return;
+    }
+    File indexFile = this.getIndexFile();
+    if (indexFile == null) {
+      indexFile = new File(classesDirectory, EntityIndex.RESOURCE_NAME.replace('/', File.separatorChar));
+    } else if (!indexFile.isAbsolute()) {
+      indexFile = new File(classesDirectory, indexFile.getPath());
+    }
+    final File indexDirectory = indexFile.getAbsoluteFile().getParentFile();
+    if (!indexDirectory.isDirectory() && !indexDirectory.mkdirs() && !indexDirectory.isDirectory()) {
+      throw new MojoExecutionException(String.format("The directory %s could not be created.", indexDirectory), new PathCreationFailedException(indexDirectory));
+    }
+
+    final AnnotationDB db;
+    try {
+      db = this.scan(Collections.singleton(classesDirectory.toURI().toURL()));
+    } catch (final IOException kaboom) {
+      throw new MojoExecutionException(String.format("Execution failed because an IOException was encountered while scanning %s.", classesDirectory), kaboom);
+    }
+    if (db == null) {
+      throw new MojoExecutionException("No AnnotationDB was available for scanning.");
+    }
+
+    final Map<String, Set<String>> index = this.index(this.findAnnotatedClasses(db));
+    try {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+      final Writer writer = new OutputStreamWriter(bytes, "UTF-8");
+      EntityIndex.write(index, writer);
+      writer.close();
+      if (ListEntityClassnamesMojo.replaceIfChanged(indexFile, bytes.toByteArray())) {
+        if (log.isInfoEnabled()) {
+          log.info(String.format("Wrote an entity index of %d classes to %s", index.size(), indexFile));
+        }
+      } else if (log.isInfoEnabled()) {
+        log.info(String.format("%s is up to date", indexFile));
+      }
+    } catch (final IOException kaboom) {
+      throw new MojoExecutionException(String.format("While attempting to write the entity index to %s, an IOException was encountered.", indexFile), kaboom);
+    }
+    this.reportScanMetrics();
+  }
+
+  /**
+   * Builds and returns a {@link Map} of the names of the {@linkplain
+   * #getAnnotations() annotations of interest} borne by each class in
+   * the supplied annotation index, indexed by class name.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param ai the {@linkplain AnnotationDB#getAnnotationIndex()
+   * annotation index} produced by a scan, or the {@linkplain
+   * #findAnnotatedClasses(AnnotationDB) annotated classes} found in
+   * it; may be {@code null}
+   *
+   * @return a {@link Map} of annotation names indexed by class name;
+   * never {@code null}
+   */
+  final Map<String, Set<String>> index(final Map<String, Set<String>> ai) {
+    final Map<String, Set<String>> index = new HashMap<String, Set<String>>();
+    if (ai != null) {
+      for (final String annotationName : this.getAnnotations()) {
+        final Set<String> classNames = ai.get(annotationName);
+        if (classNames != null) {
+          for (final String className : classNames) {
+            Set<String> annotationNames = index.get(className);
+            if (annotationNames == null) {
+              annotationNames = new TreeSet<String>();
+              index.put(className, annotationNames);
+            }
+            annotationNames.add(annotationName);
+          }
+        }
+      }
+    }
+    return index;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>This implementation overrides that of {@link AbstractJPAMojo}
+   * to ensure that the created {@link AnnotationDB} {@linkplain
+   * AnnotationDB#setScanClassAnnotations(boolean) only scans
+   * <tt>Class</tt>-level annotations}, {@linkplain
+   * AnnotationDB#setClassAnnotationsOnly(boolean) reads nothing else}
+   * from each class file and {@linkplain
+   * AnnotationDB#setRequiredReferences(String[]) skips} any class
+   * file whose constant pool does not mention the package of any of
+   * the {@linkplain #getAnnotations() annotations} without parsing
+   * it, unless {@linkplain #getResolveAnnotations() annotations are
+   * resolved}, in which case it {@linkplain
+   * AnnotationDB#setIndexSupertypes(boolean) indexes supertypes}
+   * instead.</p>
+   *
+   * @return {@inheritDoc}
+   */
+  @Override
+  protected AnnotationDB createAnnotationDB() {
+    final AnnotationDB db = new AnnotationDB();
+    db.setScanClassAnnotations(true);
+    db.setScanMethodAnnotations(false);
+    db.setScanParameterAnnotations(false);
+    db.setScanFieldAnnotations(false);
+    return this.configureAnnotationDB(db);
+  }
+
+}
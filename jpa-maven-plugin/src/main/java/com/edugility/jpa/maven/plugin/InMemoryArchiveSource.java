@@ -0,0 +1,168 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * An {@link ArchiveSource} whose entries are held in memory as byte
+ * arrays.
+ *
+ * <p>{@link InMemoryArchiveSource}s hold the contents of archives
+ * found at {@link java.net.URL}s that do not designate local files,
+ * and are convenient for tests and for scanning generated
+ * classes.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ *
+ * @see #read(String, InputStream)
+ */
+final class InMemoryArchiveSource extends ArchiveSource {
+
+  /**
+   * The contents of each entry, indexed by entry name, in entry
+   * order.  This field is never {@code null}.
+   */
+  private final Map<String, byte[]> entries;
+
+  /**
+   * The names of the entries.  This field is never {@code null}.
+   */
+  private final List<String> entryNames;
+
+  /**
+   * Creates a new {@link InMemoryArchiveSource}.
+   *
+   * @param name a name for the new {@link InMemoryArchiveSource}
+   * suitable for use in messages; must not be {@code null}
+   *
+   * @param entries the contents of each entry, indexed by entry name;
+   * may be {@code null}.  The {@link Map} is copied, but the byte
+   * arrays it contains are not.
+   *
+   * @exception IllegalArgumentException if {@code name} is {@code
+   * null}
+   */
+  InMemoryArchiveSource(final String name, final Map<String, byte[]> entries) {
+    super(name);
+    if (entries == null || entries.isEmpty()) {
+      this.entries = Collections.emptyMap();
+      this.entryNames = Collections.emptyList();
+    } else {
+      this.entries = new LinkedHashMap<String, byte[]>(entries);
+      this.entryNames = Collections.unmodifiableList(new ArrayList<String>(this.entries.keySet()));
+    }
+  }
+
+  @Override
+  final List<String> getEntryNames() {
+    return this.entryNames;
+  }
+
+  @Override
+  final InputStream open(final String entryName) {
+    if (entryName == null) {
+      throw new IllegalArgumentException("entryName", new NullPointerException("entryName == null"));
+    }
+    final byte[] bytes = this.entries.get(entryName);
+    return bytes == null ? null : new ByteArrayInputStream(bytes);
+  }
+
+  /**
+   * Presents each entry that the supplied {@link Visitor} accepts.
+   *
+   * @param visitor the {@link Visitor}; must not be {@code null}
+   *
+   * @return {@code false} if the {@link Visitor} asked to stop;
+   * {@code true} otherwise
+   *
+   * @exception IOException if the {@link Visitor} throws one
+   */
+  @Override
+  final boolean scan(final Visitor visitor) throws IOException {
+    if (visitor == null) {
+      throw new IllegalArgumentException("visitor", new NullPointerException("visitor == null"));
+    }
+    for (final Entry<String, byte[]> entry : this.entries.entrySet()) {
+      final String entryName = entry.getKey();
+      if (visitor.accepts(entryName) && !visit(visitor, entryName, new ByteArrayInputStream(entry.getValue()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads a zip or jar file from the supplied {@link InputStream}
+   * into a new {@link InMemoryArchiveSource}.  The {@link
+   * InputStream} is not closed.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param name a name for the new {@link InMemoryArchiveSource}
+   * suitable for use in messages; must not be {@code null}
+   *
+   * @param stream the {@link InputStream} to read; must not be {@code
+   * null}
+   *
+   * @return a new {@link InMemoryArchiveSource}; never {@code null}
+   *
+   * @exception IOException if an error occurs while reading
+   */
+  static final InMemoryArchiveSource read(final String name, final InputStream stream) throws IOException {
+    if (stream == null) {
+      throw new IllegalArgumentException("stream", new NullPointerException("stream == null"));
+    }
+    final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+    final ZipInputStream zipStream = new ZipInputStream(stream);
+    ZipEntry entry;
+    while ((entry = zipStream.getNextEntry()) != null) {
+      if (!entry.isDirectory()) {
+        entries.put(entry.getName(), ClassFileReader.read(zipStream));
+      }
+    }
+    return new InMemoryArchiveSource(name, entries);
+  }
+
+}
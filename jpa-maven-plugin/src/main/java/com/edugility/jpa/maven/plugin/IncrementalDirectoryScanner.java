@@ -0,0 +1,585 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scans directories of class files incrementally, reparsing only
+ * those class files that have been added or changed since the
+ * previous scan of the same directory.
+ *
+ * <p>For each directory, the {@linkplain File#lastModified() last
+ * modification time}, {@linkplain File#length() size} and scan
+ * results of every class file are recorded in a state file stored in
+ * a {@linkplain #getStateDirectory() state directory}.  On the next
+ * scan, a class file whose modification time and size are unchanged
+ * contributes its recorded results; any other class file is reparsed;
+ * and the records of class files that no longer exist are
+ * dropped.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ *
+ * @see AbstractJPAMojo#getUseIncrementalScan()
+ */
+final class IncrementalDirectoryScanner {
+
+  /**
+   * The first four bytes of every state file.
+   */
+  private static final int MAGIC = 0x4A504144;
+
+  /**
+   * The version of the state file format.  State files of any other
+   * version are ignored.
+   */
+  private static final int VERSION = 2;
+
+  /**
+   * The directory in which state files are stored.  This field is
+   * never {@code null}.
+   */
+  private final File stateDirectory;
+
+  /**
+   * The number of class files whose recorded results were reused.
+   */
+  private final AtomicInteger hits;
+
+  /**
+   * The number of class files that were reparsed.
+   */
+  private final AtomicInteger misses;
+
+  /**
+   * Creates a new {@link IncrementalDirectoryScanner}.
+   *
+   * @param stateDirectory the directory in which state files will be
+   * stored; must not be {@code null}; need not exist
+   *
+   * @exception IllegalArgumentException if {@code stateDirectory} is
+   * {@code null}
+   */
+  IncrementalDirectoryScanner(final File stateDirectory) {
+    super();
+    if (stateDirectory == null) {
+      throw new IllegalArgumentException("stateDirectory", new NullPointerException("stateDirectory == null"));
+    }
+    this.stateDirectory = stateDirectory;
+    this.hits = new AtomicInteger();
+    this.misses = new AtomicInteger();
+  }
+
+  /**
+   * Returns the directory in which this {@link
+   * IncrementalDirectoryScanner} stores its state files.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return the state directory; never {@code null}
+   */
+  public final File getStateDirectory() {
+    return this.stateDirectory;
+  }
+
+  /**
+   * Returns the number of class files whose recorded results were reused
+   * instead of being reparsed.
+   *
+   * @return the number of cache hits
+   */
+  final int getHits() {
+    return this.hits.get();
+  }
+
+  /**
+   * Returns the number of class files that were reparsed.
+   *
+   * @return the number of cache misses
+   */
+  final int getMisses() {
+    return this.misses.get();
+  }
+
+  /**
+   * Scans the supplied directory incrementally and returns a new
+   * {@link AnnotationDB}, {@linkplain AnnotationDB#clone() cloned}
+   * from the supplied {@code prototype}, whose indices are identical
+   * to those that would result from {@linkplain
+   * AnnotationDB#scanArchives(java.net.URL[]) scanning} the directory
+   * in full.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param directory the directory to scan; must not be {@code null}
+   *
+   * @param prototype the {@link AnnotationDB} whose configuration
+   * governs the scan; must not be {@code null} and must not be
+   * modified while this method is executing
+   *
+   * @return a new {@link AnnotationDB} containing the results of
+   * scanning {@code directory}; never {@code null}
+   *
+   * @exception IOException if an error occurs while scanning or while
+   * storing the new state
+   */
+  public final AnnotationDB scan(final File directory, final AnnotationDB prototype) throws IOException {
+    if (directory == null) {
+      throw new IllegalArgumentException("directory", new NullPointerException("directory == null"));
+    }
+    if (prototype == null) {
+      throw new IllegalArgumentException("prototype", new NullPointerException("prototype == null"));
+    }
+    final String path = directory.getCanonicalPath();
+    final String configuration = prototype.getScanConfiguration();
+    final File stateFile = new File(this.getStateDirectory(), String.format("%s.dir", ScanCache.hex(ScanCache.digest(String.format("%s%n%s", path, configuration)))));
+
+    final Map<String, Record> oldRecords = load(stateFile, path, configuration);
+    final Map<String, Record> newRecords = new LinkedHashMap<String, Record>();
+    final AnnotationDB scratch = prototype.clone();
+    assert scratch != null;
+    scratch.clear();
+    final int reparsed = this.scan(directory, "", prototype, scratch, oldRecords, newRecords);
+    this.misses.addAndGet(reparsed);
+    this.hits.addAndGet(newRecords.size() - reparsed);
+
+    final AnnotationDB db = prototype.clone();
+    assert db != null;
+    db.clear();
+    for (final Record record : newRecords.values()) {
+      if (record.className != null) {
+        db.index(record.className, Arrays.asList(record.annotationNames), record.interfaceNames == null ? null : Arrays.asList(record.interfaceNames));
+      }
+    }
+
+    if (reparsed > 0 || !newRecords.keySet().equals(oldRecords.keySet())) {
+      this.store(stateFile, path, configuration, newRecords);
+    }
+    return db;
+  }
+
+  /**
+   * Recursively walks the supplied directory in the same order as
+   * {@link org.scannotation.archiveiterator.FileIterator}, reusing the
+   * records of unchanged class files and reparsing all others.
+   *
+   * @param directory the directory to walk; must not be {@code null}
+   *
+   * @param relativePath the path of {@code directory} relative to the
+   * directory being scanned, ending with {@code /} unless it is
+   * empty; must not be {@code null}
+   *
+   * @param prototype the {@link AnnotationDB} whose {@linkplain
+   * AnnotationDB#accepts(String) filter} selects class files; must
+   * not be {@code null}
+   *
+   * @param scratch an {@link AnnotationDB} used to reparse individual
+   * class files; must not be {@code null}
+   *
+   * @param oldRecords the records from the previous scan indexed by
+   * relative path; must not be {@code null}
+   *
+   * @param newRecords the {@link Map} to which records for all
+   * current class files will be added; must not be {@code null}
+   *
+   * @return the number of class files that were reparsed
+   *
+   * @exception IOException if a class file could not be read
+   */
+  private final int scan(final File directory, final String relativePath, final AnnotationDB prototype, final AnnotationDB scratch, final Map<String, Record> oldRecords, final Map<String, Record> newRecords) throws IOException {
+    int reparsed = 0;
+    final File[] files = directory.listFiles();
+    if (files != null) {
+      for (final File file : files) {
+        if (file.isDirectory()) {
+          reparsed += this.scan(file, String.format("%s%s/", relativePath, file.getName()), prototype, scratch, oldRecords, newRecords);
+        } else {
+          final String name = relativePath + file.getName();
+          if (prototype.accepts(name)) {
+            final long lastModified = file.lastModified();
+            final long length = file.length();
+            Record record = oldRecords.get(name);
+            if (record == null || record.lastModified != lastModified || record.length != length) {
+              record = parse(file, lastModified, length, scratch);
+              reparsed++;
+            }
+            newRecords.put(name, record);
+          }
+        }
+      }
+    }
+    return reparsed;
+  }
+
+  /**
+   * Parses the supplied class file using the supplied scratch {@link
+   * AnnotationDB} and returns a new {@link Record} describing it.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param file the class file; must not be {@code null}
+   *
+   * @param lastModified the class file's last modification time as
+   * observed before it was parsed
+   *
+   * @param length the class file's size as observed before it was
+   * parsed
+   *
+   * @param scratch the {@link AnnotationDB} to parse with; must not
+   * be {@code null}; will be {@linkplain AnnotationDB#clear()
+   * cleared}
+   *
+   * @return a new {@link Record}; never {@code null}
+   *
+   * @exception IOException if the class file could not be read
+   */
+  private static final Record parse(final File file, final long lastModified, final long length, final AnnotationDB scratch) throws IOException {
+    assert file != null;
+    assert scratch != null;
+    scratch.clear();
+    scratch.scanClass(new FileInputStream(file)); // closes the stream
+    final Map<String, Set<String>> classIndex = scratch.getClassIndex();
+    assert classIndex != null;
+    final String className;
+    final Set<String> annotationNames;
+    if (classIndex.isEmpty()) {
+      // Either the class file was rejected by the AnnotationDB's
+      // constant pool prefilter, or the AnnotationDB indexes class
+      // annotations only, in which case the annotation index is all
+      // there is to go on.
+      final Map<String, Set<String>> annotationIndex = scratch.getAnnotationIndex();
+      if (annotationIndex.isEmpty()) {
+        // Nothing was indexed; remember that so the class file is not
+        // read again.
+        return new Record(lastModified, length, null, new String[0], null);
+      }
+      className = annotationIndex.values().iterator().next().iterator().next();
+      annotationNames = annotationIndex.keySet();
+    } else {
+      assert classIndex.size() == 1;
+      final Entry<String, Set<String>> entry = classIndex.entrySet().iterator().next();
+      className = entry.getKey();
+      annotationNames = entry.getValue();
+    }
+    final Set<String> interfaceNames = scratch.getImplementsIndex().get(className);
+    return new Record(lastModified,
+                      length,
+                      className,
+                      annotationNames.toArray(new String[annotationNames.size()]),
+                      interfaceNames == null ? null : interfaceNames.toArray(new String[interfaceNames.size()]));
+  }
+
+  /**
+   * Loads the records stored in the supplied state file, returning an
+   * empty {@link Map} if the state file does not exist, cannot be
+   * read or was written for a different directory or scan
+   * configuration.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param stateFile the state file; must not be {@code null}
+   *
+   * @param path the canonical path of the directory being scanned;
+   * must not be {@code null}
+   *
+   * @param configuration the {@linkplain
+   * AnnotationDB#getScanConfiguration() scan configuration}; must not
+   * be {@code null}
+   *
+   * @return a {@link Map} of {@link Record}s indexed by relative path;
+   * never {@code null}
+   */
+  private static final Map<String, Record> load(final File stateFile, final String path, final String configuration) {
+    assert stateFile != null;
+    Map<String, Record> records = Collections.emptyMap();
+    if (stateFile.isFile()) {
+      DataInputStream in = null;
+      try {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)));
+        if (in.readInt() == MAGIC &&
+            in.readInt() == VERSION &&
+            path.equals(in.readUTF()) &&
+            configuration.equals(in.readUTF())) {
+          final int size = in.readInt();
+          final Map<String, Record> temp = new HashMap<String, Record>();
+          for (int i = 0; i < size; i++) {
+            final String name = in.readUTF();
+            temp.put(name, new Record(in));
+          }
+          records = temp;
+        }
+      } catch (final IOException unreadable) {
+        // Treat an unreadable state file as absent; every class file
+        // will be reparsed and the state file rewritten.
+        records = Collections.emptyMap();
+      } finally {
+        if (in != null) {
+          try {
+            in.close();
+          } catch (final IOException ignore) {
+            // ignored on purpose
+          }
+        }
+      }
+    }
+    return records;
+  }
+
+  /**
+   * Stores the supplied records in the supplied state file, replacing
+   * it atomically.
+   *
+   * @param stateFile the state file; must not be {@code null}
+   *
+   * @param path the canonical path of the directory being scanned;
+   * must not be {@code null}
+   *
+   * @param configuration the {@linkplain
+   * AnnotationDB#getScanConfiguration() scan configuration}; must not
+   * be {@code null}
+   *
+   * @param records the {@link Record}s to store indexed by relative
+   * path; must not be {@code null}
+   *
+   * @exception IOException if the state file could not be written
+   */
+  private final void store(final File stateFile, final String path, final String configuration, final Map<String, Record> records) throws IOException {
+    final File directory = this.getStateDirectory();
+    if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+      throw new PathCreationFailedException(directory);
+    }
+    final File temp = File.createTempFile("state", ".tmp", directory);
+    boolean renamed = false;
+    try {
+      DataOutputStream out = null;
+      try {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(path);
+        out.writeUTF(configuration);
+        out.writeInt(records.size());
+        for (final Entry<String, Record> entry : records.entrySet()) {
+          out.writeUTF(entry.getKey());
+          entry.getValue().write(out);
+        }
+        out.flush();
+      } finally {
+        if (out != null) {
+          out.close();
+        }
+      }
+      renamed = temp.renameTo(stateFile);
+      if (!renamed && stateFile.delete()) {
+        // Some platforms will not rename over an existing file.
+        renamed = temp.renameTo(stateFile);
+      }
+    } finally {
+      if (!renamed) {
+        temp.delete();
+      }
+    }
+  }
+
+  /**
+   * The recorded state and scan results of a single class file.
+   *
+   * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+   *
+   * @since 3-SNAPSHOT
+   */
+  private static final class Record {
+
+    /**
+     * The last modification time of the class file.
+     */
+    private final long lastModified;
+
+    /**
+     * The size of the class file in bytes.
+     */
+    private final long length;
+
+    /**
+     * The name of the class defined by the class file, or {@code null}
+     * if the class file was skipped by the {@linkplain
+     * AnnotationDB#setRequiredReferences(String[]) constant pool
+     * prefilter}.
+     */
+    private final String className;
+
+    /**
+     * The names of the annotations found in the class file.  This
+     * field is never {@code null}.
+     */
+    private final String[] annotationNames;
+
+    /**
+     * The names of the interfaces directly implemented by the class,
+     * or {@code null} if none were recorded.
+     */
+    private final String[] interfaceNames;
+
+    /**
+     * Creates a new {@link Record}.
+     *
+     * @param lastModified the last modification time of the class
+     * file
+     *
+     * @param length the size of the class file in bytes
+     *
+     * @param className the name of the class; may be {@code null}
+     * if the class file was skipped
+     *
+     * @param annotationNames the names of the annotations found; must
+     * not be {@code null}
+     *
+     * @param interfaceNames the names of the interfaces directly
+     * implemented by the class; may be {@code null}
+     */
+    private Record(final long lastModified, final long length, final String className, final String[] annotationNames, final String[] interfaceNames) {
+      super();
+      assert annotationNames != null;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.className = className;
+      this.annotationNames = annotationNames;
+      this.interfaceNames = interfaceNames;
+    }
+
+    /**
+     * Creates a new {@link Record} by reading it from the supplied
+     * {@link DataInput}.
+     *
+     * @param in the {@link DataInput} to read from; must not be {@code
+     * null}
+     *
+     * @exception IOException if an error occurs while reading
+     *
+     * @see #write(DataOutput)
+     */
+    private Record(final DataInput in) throws IOException {
+      super();
+      this.lastModified = in.readLong();
+      this.length = in.readLong();
+      this.className = in.readBoolean() ? in.readUTF() : null;
+      this.annotationNames = readStrings(in);
+      final String[] interfaceNames = readStrings(in);
+      this.interfaceNames = in.readBoolean() ? interfaceNames : null;
+    }
+
+    /**
+     * Writes this {@link Record} to the supplied {@link DataOutput}.
+     *
+     * @param out the {@link DataOutput} to write to; must not be {@code
+     * null}
+     *
+     * @exception IOException if an error occurs while writing
+     */
+    private final void write(final DataOutput out) throws IOException {
+      out.writeLong(this.lastModified);
+      out.writeLong(this.length);
+      out.writeBoolean(this.className != null);
+      if (this.className != null) {
+        out.writeUTF(this.className);
+      }
+      writeStrings(out, this.annotationNames);
+      writeStrings(out, this.interfaceNames);
+      out.writeBoolean(this.interfaceNames != null);
+    }
+
+    /**
+     * Reads an array of {@link String}s written by the {@link
+     * #writeStrings(DataOutput, String[])} method.
+     *
+     * <p>This method never returns {@code null}.</p>
+     *
+     * @param in the {@link DataInput} to read from; must not be {@code
+     * null}
+     *
+     * @return a new {@link String} array; never {@code null}
+     *
+     * @exception IOException if an error occurs while reading
+     */
+    private static final String[] readStrings(final DataInput in) throws IOException {
+      final String[] strings = new String[in.readInt()];
+      for (int i = 0; i < strings.length; i++) {
+        strings[i] = in.readUTF();
+      }
+      return strings;
+    }
+
+    /**
+     * Writes the supplied array of {@link String}s to the supplied
+     * {@link DataOutput}; a {@code null} array is written as an empty
+     * one.
+     *
+     * @param out the {@link DataOutput} to write to; must not be {@code
+     * null}
+     *
+     * @param strings the {@link String}s to write; may be {@code null}
+     *
+     * @exception IOException if an error occurs while writing
+     */
+    private static final void writeStrings(final DataOutput out, final String[] strings) throws IOException {
+      if (strings == null) {
+        out.writeInt(0);
+      } else {
+        out.writeInt(strings.length);
+        for (final String s : strings) {
+          out.writeUTF(s);
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,196 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * An {@link ArchiveSource} whose entries are those of a local zip or
+ * jar file, or of a directory within one.
+ *
+ * <p>The archive is read through a {@link ZipFile}, which consults
+ * the archive's central directory: only those entries that are
+ * actually {@linkplain #open(String) opened} or {@linkplain
+ * #scan(ArchiveSource.Visitor) accepted} are ever inflated.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+final class JarFileArchiveSource extends ArchiveSource {
+
+  /**
+   * The {@link ZipFile} being read.  This field is never {@code
+   * null}.
+   */
+  private final ZipFile zipFile;
+
+  /**
+   * The path, ending with {@code /}, of the directory within the
+   * {@link #zipFile} to which this {@link JarFileArchiveSource} is
+   * restricted, or the empty string.  This field is never {@code
+   * null}.
+   */
+  private final String prefix;
+
+  /**
+   * The names of the entries, computed lazily.  This field may be
+   * {@code null}.
+   *
+   * @see #getEntryNames()
+   */
+  private List<String> entryNames;
+
+  /**
+   * Creates a new {@link JarFileArchiveSource}.
+   *
+   * @param file the zip or jar file; must not be {@code null}
+   *
+   * @param prefix the path of the directory within the file to which
+   * the new {@link JarFileArchiveSource} will be restricted; may be
+   * {@code null} or empty, in which case all entries will be
+   * included
+   *
+   * @exception java.util.zip.ZipException if the file is not a zip
+   * file
+   *
+   * @exception IOException if the file could not be opened
+   *
+   * @exception IllegalArgumentException if {@code file} is {@code
+   * null}
+   */
+  JarFileArchiveSource(final File file, final String prefix) throws IOException {
+    super(file == null ? "" : file.getPath());
+    if (file == null) {
+      throw new IllegalArgumentException("file", new NullPointerException("file == null"));
+    }
+    if (prefix == null || prefix.isEmpty()) {
+      this.prefix = "";
+    } else if (prefix.endsWith("/")) {
+      this.prefix = prefix;
+    } else {
+      this.prefix = prefix + "/";
+    }
+    this.zipFile = new ZipFile(file);
+  }
+
+  @Override
+  final List<String> getEntryNames() {
+    if (this.entryNames == null) {
+      final List<String> entryNames = new ArrayList<String>(this.zipFile.size());
+      final Enumeration<? extends ZipEntry> entries = this.zipFile.entries();
+      while (entries.hasMoreElements()) {
+        final String entryName = this.getEntryName(entries.nextElement());
+        if (entryName != null) {
+          entryNames.add(entryName);
+        }
+      }
+      this.entryNames = Collections.unmodifiableList(entryNames);
+    }
+    return this.entryNames;
+  }
+
+  @Override
+  final InputStream open(final String entryName) throws IOException {
+    if (entryName == null) {
+      throw new IllegalArgumentException("entryName", new NullPointerException("entryName == null"));
+    }
+    final ZipEntry entry = this.zipFile.getEntry(this.prefix + entryName);
+    return entry == null || entry.isDirectory() ? null : this.zipFile.getInputStream(entry);
+  }
+
+  /**
+   * Reads the archive's central directory, inflating only those
+   * entries that the supplied {@link Visitor} accepts.
+   *
+   * @param visitor the {@link Visitor}; must not be {@code null}
+   *
+   * @return {@code false} if the {@link Visitor} asked to stop;
+   * {@code true} otherwise
+   *
+   * @exception IOException if an entry could not be read
+   */
+  @Override
+  final boolean scan(final Visitor visitor) throws IOException {
+    if (visitor == null) {
+      throw new IllegalArgumentException("visitor", new NullPointerException("visitor == null"));
+    }
+    final Enumeration<? extends ZipEntry> entries = this.zipFile.entries();
+    while (entries.hasMoreElements()) {
+      final ZipEntry entry = entries.nextElement();
+      final String entryName = this.getEntryName(entry);
+      if (entryName != null && visitor.accepts(entryName) && !visit(visitor, entryName, this.zipFile.getInputStream(entry))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Closes the underlying {@link ZipFile}.
+   *
+   * @exception IOException if an error occurs
+   */
+  @Override
+  public final void close() throws IOException {
+    this.zipFile.close();
+  }
+
+  /**
+   * Returns the name by which the supplied {@link ZipEntry} is known
+   * to users of this {@link JarFileArchiveSource}, or {@code null} if
+   * it is a directory or lies outside the {@link #prefix}.
+   *
+   * @param entry the {@link ZipEntry}; may be {@code null}
+   *
+   * @return an entry name, or {@code null}
+   */
+  private final String getEntryName(final ZipEntry entry) {
+    if (entry == null || entry.isDirectory()) {
+      return null;
+    }
+    final String name = entry.getName();
+    if (this.prefix.isEmpty()) {
+      return name;
+    }
+    return name.startsWith(this.prefix) ? name.substring(this.prefix.length()) : null;
+  }
+
+}
@@ -0,0 +1,2825 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.net.URI; // for javadoc only
+import java.net.URL;
+import java.net.MalformedURLException;
+
+import java.util.Collection; // for javadoc only
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+import org.apache.maven.plugin.logging.Log;
+
+import org.apache.maven.project.MavenProject;
+
+import org.apache.maven.model.Build;
+
+/**
+ * Generates a {@code .properties} file, suitable for use as a Maven
+ * <a
+ * href="http://maven.apache.org/plugins/maven-resources-plugin/examples/filter.html">filter</a>,
+ * whose contents are the set of names of classes that have been
+ * annotated with the {@link javax.persistence.Entity}, {@link
+ * javax.persistence.MappedSuperclass}, {@link
+ * javax.persistence.Embeddable} and {@link javax.persistence.IdClass}
+ * annotations.
+ *
+ * <p>This mojo may be run by several threads of a parallel ({@code
+ * mvn -T}) build at once: it modifies no global state, and the
+ * {@link URL}s it scans and the file it writes are computed afresh
+ * for each execution.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 1.0-SNAPSHOT
+ *
+ * @requiresDependencyResolution test
+ *
+ * @goal list-entity-classnames
+ *
+ * @phase process-test-classes
+ *
+ * @threadSafe
+ *
+ * @see AbstractJPAMojo
+ *
+ * @see javax.persistence.Entity
+ *
+ * @see javax.persistence.MappedSuperclass
+ *
+ * @see javax.persistence.Embeddable
+ *
+ * @see javax.persistence.IdClass
+ */
+public class ListEntityClassnamesMojo extends AbstractJPAMojo {
+
+  /**
+   * A workaround for <a
+   * href="http://jira.codehaus.org/browse/MODELLO-256">MODELLO-256</a>;
+   * a {@link Pattern} used to strip initial leading and (matching)
+   * trailing quotes from a {@link String}.  Used indirectly by the
+   * {@link #setPrefix(String)}, {@link #setSuffix(String)}, {@link
+   * #setFirstItemPrefix(String)} and {@link
+   * #setLastItemSuffix(String)} methods.
+   *
+   * @see #stripQuotes(String)
+   */
+  private static final Pattern quotePattern;
+
+  /**
+   * Static initializer; a workaround for <a
+   * href="http://jira.codehaus.org/browse/MODELLO-256">MODELLO-256</a>;
+   * initializes the {@link #quotePattern} field while avoiding {@link
+   * ExceptionInInitializerError}s.
+   */
+  static {
+    Pattern temp = null;
+    try {
+      temp = Pattern.compile("(?s)^(['\"])(.+)\\1$");
+    } catch (final PatternSyntaxException kaboom) {
+      kaboom.printStackTrace();
+    } finally {
+      quotePattern = temp;
+    }
+  }
+
+  /**
+   * The property name to use for classnames that belong to the
+   * default package when {@linkplain #getDefaultPropertyName()
+   * another default property name} cannot be found.
+   */
+  private static final String DEFAULT_DEFAULT_PROPERTY_NAME = "entityClassnames";
+
+  /**
+   * The default {@linkplain File#getName() name} used in constructing
+   * the {@link #outputFile} when no output file has been specified
+   * and the return value of the {@link #getUseOutputFile()} method is
+   * {@code true}.
+   */
+  private static final String DEFAULT_OUTPUT_FILENAME = String.format("%s.properties", DEFAULT_DEFAULT_PROPERTY_NAME);
+
+  /**
+   * The default subdirectory prefix that is <i>added to</i> the value
+   * of the current {@linkplain MavenProject Maven project}'s
+   * {@linkplain Build#getDirectory() build directory} when
+   * constructing a prefix for non-absolute output file
+   * specifications.
+   *
+   * <p>This field is package-private for unit testing purposes
+   * only.</p>
+   */
+  static final String DEFAULT_SUBDIR_PREFIX = String.format("generated-test-sources%1$sjpa-maven-plugin", File.separator);
+
+  /**
+   * The default subdirectory that is <i>added to</i> the value of the
+   * current {@linkplain MavenProject Maven project}'s {@linkplain
+   * Build#getDirectory() build directory} when constructing the
+   * {@linkplain #getScanCacheDirectory() scan cache directory} and
+   * when resolving a relative scan cache directory specification.
+   *
+   * <p>This field is package-private for unit testing purposes
+   * only.</p>
+   */
+  static final String DEFAULT_CACHE_SUBDIR_PREFIX = String.format("jpa-maven-plugin%1$scache", File.separator);
+
+  /**
+   * A workaround for <a
+   * href="http://jira.codehaus.org/browse/MODELLO-256">MODELLO-256</a>;
+   * if {@code true} then values for the {@link #getPrefix() prefix},
+   * {@link #getSuffix() suffix}, {@link #getFirstItemPrefix()
+   * firstItemPrefix} and {@link #getLastItemSuffix() lastItemSuffix}
+   * will have any leading and trailing quotes (if they are a matched
+   * pair) removed.  This should protect these values from undesired
+   * trimming by Maven.
+   *
+   * @parameter default-value="true"
+   */
+  private boolean stripQuotes;
+
+  /**
+   * The character encoding to use when writing the {@link
+   * #outputFile}.  The default value as configured by Maven will be
+   * {@code ${project.build.sourceEncoding}}.  This field may be
+   * {@code null} at any point.
+   *
+   * @parameter default-value="${project.build.sourceEncoding}" property="encoding"
+   */
+  private String encoding;
+
+  /**
+   * The {@link File} to which entity- and mapped superclass-annotated
+   * classnames will be written.  This field may be {@code null} at
+   * any point.  If this {@link File} is found to be relative, it will
+   * be relative to
+   * <tt>${project.build.directory}${file.separator}generated-test-sources${file.separator}jpa-maven-plugin${file.separator}</tt>.
+   *
+   * @parameter
+   * default-value="${project.build.directory}${file.separator}generated-test-sources${file.separator}jpa-maven-plugin${file.separator}entityClassnames.properties"
+   * property="outputFile"
+   */
+  private File outputFile;
+
+  /**
+   * Whether or not to write properties to an external file.
+   *
+   * @parameter default-value="true" property="useOutputFile"
+   */
+  boolean useOutputFile;
+
+  /**
+   * Whether or not to write the {@link #outputFile} by streaming
+   * {@linkplain #decorate(String, String, String) decorated} class
+   * names directly to it, instead of first assembling every property
+   * value in memory and storing them with the {@link
+   * Properties#store(Writer, String)} method.  Streamed output can be
+   * read by the {@link Properties#load(java.io.Reader)} method exactly
+   * like stored output, but its properties are written in property
+   * name order.
+   *
+   * @parameter default-value="false" property="streamOutput"
+   */
+  private boolean streamOutput;
+
+  /**
+   * Whether or not to write the {@link #outputFile} deterministically:
+   * without the date comment that {@link Properties#store(Writer,
+   * String)} writes, and with properties in property name order, so
+   * that the same classes always produce byte-for-byte the same file.
+   * Whether or not output is deterministic, the {@link #outputFile}
+   * is left untouched if only its leading comments would change.
+   *
+   * @parameter default-value="false" property="deterministicOutput"
+   */
+  private boolean deterministicOutput;
+
+  /**
+   * Whether or not to skip scanning entirely when the {@link URL}s to
+   * be scanned, their contents and this mojo's configuration are
+   * unchanged since the last execution, and the output file, if
+   * there is one, has not been touched since it was written.  In that
+   * case the project properties are restored from a snapshot recorded
+   * by the last execution.  The version of this plugin is part of the
+   * recorded configuration, so upgrading the plugin invalidates any
+   * snapshot.
+   *
+   * @parameter default-value="false" property="skipIfUpToDate"
+   */
+  private boolean skipIfUpToDate;
+
+  /**
+   * The version of this plugin.  This field may be {@code null} when
+   * this mojo is not <a
+   * href="http://maven.apache.org/guides/mini/guide-configuring-plugins.html">configured
+   * by Maven</a>.
+   *
+   * @parameter default-value="${plugin.version}"
+   *
+   * @readonly
+   *
+   * @see #getSkipIfUpToDate()
+   */
+  private String pluginVersion;
+
+  /**
+   * The file to which a machine-readable {@linkplain
+   * PerformanceReport performance report} covering the time spent in
+   * each phase of an execution, the cost of scanning, the size of the
+   * merged index, cache hit rates and thread usage is written, such as {@code
+   * ${project.build.directory}/jpa-maven-plugin/performance.json}.
+   * If {@code null}, no report is written.  Relative paths are
+   * resolved against the project's build directory.
+   *
+   * @parameter property="performanceReportFile"
+   */
+  private File performanceReportFile;
+
+  /**
+   * The format of the {@link #performanceReportFile}: either {@code
+   * json} or {@code csv}.
+   *
+   * @parameter default-value="json" property="performanceReportFormat"
+   */
+  private String performanceReportFormat;
+
+  /**
+   * The {@link File} to which a <tt>persistence.xml</tt> fragment
+   * listing every annotated class as a {@code <class>} element will
+   * be written, or {@code null} if no such fragment should be
+   * written.  If this {@link File} is relative, it will be relative
+   * to
+   * <tt>${project.build.directory}${file.separator}generated-test-sources${file.separator}jpa-maven-plugin${file.separator}</tt>.
+   *
+   * @parameter property="persistenceXmlFragmentFile"
+   */
+  private File persistenceXmlFragmentFile;
+
+  /**
+   * The {@link File} to which a JSON object holding an array of
+   * annotated class names per property name will be written, or
+   * {@code null} if no such file should be written.  If this {@link
+   * File} is relative, it will be relative to
+   * <tt>${project.build.directory}${file.separator}generated-test-sources${file.separator}jpa-maven-plugin${file.separator}</tt>.
+   *
+   * @parameter property="jsonFile"
+   */
+  private File jsonFile;
+
+  /**
+   * The fully qualified name of a Java class to generate that holds a
+   * {@code public static final String[]} of annotated class names per
+   * property name, or {@code null} if no such class should be
+   * generated.  The class is generated in the {@link
+   * #generatedSourceDirectory}, which is added to the project's test
+   * compile source roots, since the class names it holds are those
+   * found on the test classpath.
+   *
+   * <p>Because this goal scans compiled classes, the default
+   * lifecycle has already compiled the project's test sources by the
+   * time the class is generated.  The generated class is therefore
+   * only compiled if this goal is followed by a further {@code
+   * testCompile} execution of the <tt>maven-compiler-plugin</tt> in
+   * the same phase.  To avoid scanning at runtime, use the
+   * <tt>generate-entity-index</tt> goal instead.</p>
+   *
+   * @parameter property="generatedClassName"
+   */
+  private String generatedClassName;
+
+  /**
+   * The directory in which the {@link #generatedClassName generated
+   * class}, if any, is written.  If {@code null}, then
+   * <tt>${project.build.directory}${file.separator}generated-test-sources${file.separator}jpa-maven-plugin${file.separator}java</tt>
+   * is used; if relative, it will be relative to
+   * <tt>${project.build.directory}${file.separator}generated-test-sources${file.separator}jpa-maven-plugin${file.separator}</tt>.
+   *
+   * @parameter property="generatedSourceDirectory"
+   */
+  private File generatedSourceDirectory;
+
+  /**
+   * The property key under which the entity classname listing will be
+   * stored.  Maven will configure this by default to be {@code
+   * entityClassnames}.  This field may be {@code null} at any point.
+   *
+   * @parameter default-value="entityClassnames"
+   * property="defaultPropertyName"
+   */
+  private String defaultPropertyName;
+
+  /**
+   * A {@link Map} of property names indexed by package prefix
+   * segments.  Class names found belonging to packages that start
+   * with the given package prefix segment will be stored in the
+   * {@link #outputFile} indexed by the corresponding property name.
+   *
+   * <p>Segments in package names are delimited with a period ({@code
+   * .}).  The following are examples of package prefix segments:</p>
+   *
+   * <ul>
+   *
+   * <li>{@code com.foobar.biz}</li>
+   *
+   * <li>{@code com.foobar}</li>
+   *
+   * <li>{@code com}</li>
+   *
+   * </ul>
+   *
+   * @parameter property="propertyNames"
+   */
+  private Map<String, String> propertyNames;
+
+  /**
+   * A {@link Map} of property names indexed by annotation namespace
+   * (for example, {@code jakarta.persistence}).  Class names found
+   * because they bear an annotation from a namespace named in this
+   * {@link Map} are stored under the corresponding property name
+   * rather than under the property name that their package would
+   * otherwise {@linkplain #determinePropertyName(String) determine},
+   * so that a project holding both {@code javax.persistence} and
+   * {@code jakarta.persistence} classes can list each separately from
+   * a single scan.
+   *
+   * @parameter property="namespacePropertyNames"
+   *
+   * @see #getNamespacePropertyNames()
+   *
+   * @see #setNamespacePropertyNames(Map)
+   */
+  private Map<String, String> namespacePropertyNames;
+
+  /**
+   * A {@link PackageTrie} built from the {@link #propertyNames} by
+   * the {@link #initializePropertyNames()} method, or lazily by the
+   * {@link #determinePropertyName(String)} method, and discarded
+   * whenever the {@link #propertyNames} are {@linkplain
+   * #setPropertyNames(Map) replaced}.  This field may be {@code null}
+   * at any point.
+   */
+  private volatile PackageTrie<String> propertyNameTrie;
+
+  /**
+   * The textual prefix to prepend to the list of classnames.
+   * 
+   * @parameter default-value="" property="firstItemPrefix"
+   */
+  private String firstItemPrefix;
+  
+  /**
+   * The textual prefix to prepend to every element of the list of
+   * classnames, excluding the first element.
+   * 
+   * @parameter default-value="<class>" property="prefix"
+   */
+  private String prefix;
+  
+  /**
+   * The suffix to append to every element of the list of classnames,
+   * excluding the last element.  be {@code null} at any point.
+   *
+   * @parameter default-value="</class>${line.separator}"
+   * property="suffix"
+   */
+  private String suffix;
+  
+  /**
+   * The suffix to append to the list of classnames.
+   *
+   * @parameter default-value="" property="lastItemSuffix"
+   */
+  private String lastItemSuffix;
+
+  /**
+   * The {@link Set} of {@link URL}s to scan.  If not explicitly
+   * specified, this mojo will scan the test classpath.
+   * 
+   * @parameter property="URLs"
+   */
+  private Set<URL> urls;
+
+  /**
+   * Creates a new {@link ListEntityClassnamesMojo}.
+   */
+  public ListEntityClassnamesMojo() {
+    super();
+    this.stripQuotes = true;
+    this.setDefaultPropertyName(DEFAULT_DEFAULT_PROPERTY_NAME);
+    this.setFirstItemPrefix("");
+    this.setPrefix("");
+    this.setSuffix("");
+    this.setLastItemSuffix("");
+    this.setPerformanceReportFormat("json");
+  }
+
+  /**
+   * Returns a {@link Map} of property names indexed by package
+   * fragments.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return a {@link Map} of property names indexed by package
+   * fragments, or {@code null}
+   */
+  public Map<String, String> getPropertyNames() {
+    return this.propertyNames;
+  }
+
+  /**
+   * Sets the {@link Map} of property names indexed by package
+   * fragments that will be used to {@linkplain
+   * #determinePropertyName(String) determine} under which property
+   * name a given class name should be listed.
+   *
+   * <p>The supplied {@link Map} is read once, when this mojo is
+   * initialized or when a property name is first determined; changes
+   * made to it after that point are not seen unless it is supplied to
+   * this method again.</p>
+   *
+   * <p><strong>Note:</strong> it is technically permissible for the
+   * {@link #determinePropertyName(String)} method to be overridden
+   * such that this {@link Map} is ignored.</p>
+   *
+   * @param propertyNames the {@link Map} of property names indexed by
+   * package fragments; may be {@code null} in which case the
+   * {@linkplain #getDefaultPropertyName() default property name} will
+   * be used for all classes
+   */
+  public void setPropertyNames(final Map<String, String> propertyNames) {
+    this.propertyNames = propertyNames;
+    this.propertyNameTrie = null;
+  }
+
+  /**
+   * Returns a {@link Map} of property names indexed by annotation
+   * namespace.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return a {@link Map} of property names indexed by annotation
+   * namespace, or {@code null}
+   *
+   * @see #setNamespacePropertyNames(Map)
+   */
+  public Map<String, String> getNamespacePropertyNames() {
+    return this.namespacePropertyNames;
+  }
+
+  /**
+   * Sets the {@link Map} of property names indexed by annotation
+   * namespace that routes class names found through the annotations
+   * of a given namespace to a property of their own.  A class bearing
+   * annotations from more than one such namespace is listed under
+   * each of the corresponding properties.
+   *
+   * @param namespacePropertyNames the {@link Map} of property names
+   * indexed by annotation namespace; may be {@code null} in which
+   * case class names are listed under the property names {@linkplain
+   * #determinePropertyName(String) determined} by their packages
+   * regardless of namespace
+   *
+   * @see #getNamespacePropertyNames()
+   *
+   * @see AbstractJPAMojo#getNamespaces()
+   */
+  public void setNamespacePropertyNames(final Map<String, String> namespacePropertyNames) {
+    this.namespacePropertyNames = namespacePropertyNames;
+  }
+
+  /**
+   * A workaround for <a
+   * href="http://jira.codehaus.org/browse/MODELLO-256">MODELLO-256</a>;
+   * strips leading and trailing quotes from the supplied {@code text}
+   * parameter value and returns the result.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * <p>This method only does something if the {@link #stripQuotes}
+   * field is set to {@code true}.</p>
+   *
+   * <p>This method is package-private for testing only.</p>
+   *
+   * @param text the text to strip; may be {@code null} in which case
+   * no substitution will occur
+   *
+   * @return the supplied {@code text} with leading and trailing
+   * quotes stripped, or {@code null} if the supplied {@code text} was
+   * {@code null}
+   *
+   * @see <a
+   * href="http://jira.codehaus.org/browse/MODELLO-256">MODELLO-256</a>
+   */
+  final String stripQuotes(String text) {
+    if (text != null && this.stripQuotes && quotePattern != null) {
+      final Matcher matcher = quotePattern.matcher(text);
+      assert matcher != null;
+      final StringBuffer sb = new StringBuffer();
+      while (matcher.find()) {
+        matcher.appendReplacement(sb, matcher.group(2));
+      }
+      matcher.appendTail(sb);
+      text = sb.toString();
+    }
+    return text;
+  }
+
+  /**
+   * Returns the prefix prepended to every element of the list of
+   * classnames, excluding the first element.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the prefix prepended to every element of the list of
+   * classnames, excluding the first element, or {@code null}
+   *
+   * @see #setPrefix(String)
+   */
+  public String getPrefix() {
+    return this.prefix;
+  }
+
+  /**
+   * Sets the prefix prepended to every element of the list of
+   * classnames, excluding the first element.
+   *
+   * @param prefix the prefix in question; may be {@code null}
+   *
+   * @see #getPrefix()
+   *
+   * @see #setFirstItemPrefix(String)
+   */
+  public void setPrefix(final String prefix) {
+    // See http://jira.codehaus.org/browse/MODELLO-256.
+    this.prefix = this.stripQuotes(prefix);
+  }
+
+  /**
+   * Returns the prefix prepended to the list of classnames.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the prefix prepended to the list of classnames, or {@code
+   * null}
+   *
+   * @see #getPrefix()
+   *
+   * @see #setFirstItemPrefix(String)
+   */
+  public String getFirstItemPrefix() {
+    return this.firstItemPrefix;
+  }
+
+  /**
+   * Sets the prefix prepended to the list of classnames.
+   *
+   * @param firstItemPrefix the prefix to be prepended to the list of
+   * classnames; may be {@code null}
+   *
+   * @see #getFirstItemPrefix()
+   *
+   * @see #setPrefix(String)
+   */
+  public void setFirstItemPrefix(final String firstItemPrefix) {
+    // See http://jira.codehaus.org/browse/MODELLO-256.
+    this.firstItemPrefix = this.stripQuotes(firstItemPrefix);
+  }
+
+  /**
+   * Returns the suffix appended to every element of the list of
+   * classnames, excluding the last element.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the suffix appended to every element of the list of
+   * classnames, excluding the last element, or {@code null}
+   *
+   * @see #setSuffix(String)
+   */
+  public String getSuffix() {
+    return this.suffix;
+  }
+  
+  /**
+   * Sets the suffix appended to every element of the list of
+   * classnames, excluding the last element.
+   *
+   * @param suffix the suffix in question; may be {@code null}
+   *
+   * @see #getSuffix()
+   *
+   * @see #setLastItemSuffix(String)
+   */
+  public void setSuffix(final String suffix) {
+    // See http://jira.codehaus.org/browse/MODELLO-256.
+    this.suffix = this.stripQuotes(suffix);
+  }
+
+  /**
+   * Returns the suffix appended to the list of classnames.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the suffix appended to the list of classnames, or {@code
+   * null}
+   *
+   * @see #getSuffix()
+   *
+   * @see #setLastItemSuffix(String)
+   */
+  public String getLastItemSuffix() {
+    return this.lastItemSuffix;
+  }
+
+  /**
+   * Sets the suffix appended to the list of classnames.
+   *
+   * @param lastItemSuffix the suffix to be appended to the list of
+   * classnames; may be {@code null}
+   *
+   * @see #getLastItemSuffix()
+   *
+   * @see #setSuffix(String)
+   */
+  public void setLastItemSuffix(final String lastItemSuffix) {
+    // See http://jira.codehaus.org/browse/MODELLO-256.
+    this.lastItemSuffix = this.stripQuotes(lastItemSuffix);
+  }
+
+  /**
+   * Computes the {@link Set} of {@link URL}s to {@linkplain
+   * AbstractJPAMojo#scan(Set) scan} during the current execution and
+   * returns it.
+   *
+   * <p>If a {@linkplain #getURLFilter() <tt>URLFilter</tt>} has been
+   * set, then only those {@link URL}s that it {@linkplain
+   * URLFilter#accept(URL, String) accepts} are retained.  Each {@link
+   * URL} is presented to the {@link URLFilter} along with the Maven
+   * coordinates of the artifact it designates, if {@linkplain
+   * #getArtifactCoordinates() known}.</p>
+   *
+   * <p>The {@linkplain #getURLs() configured <tt>Set</tt> of
+   * <tt>URL</tt>s} is not modified, so that no scan state outlives,
+   * or is shared beyond, the execution that computed it.</p>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return the {@link Set} of {@link URL}s to scan; never {@code
+   * null}
+   */
+  private final Set<URL> initializeURLs() throws DependencyResolutionRequiredException {
+    Set<URL> urls = this.getURLs();
+    if (urls == null || urls.isEmpty()) {
+      urls = this.getTestClasspathURLs();
+    }
+    assert urls != null;
+    final URLFilter urlFilter = this.getURLFilter();
+    if (!urls.isEmpty()) {
+      final Log log = this.getLog();
+      final Map<URL, String> coordinates;
+      if (urlFilter == null) {
+        coordinates = null;
+      } else {
+        coordinates = this.getArtifactCoordinates();
+        assert coordinates != null;
+      }
+      final Set<URL> acceptedUrls = new LinkedHashSet<URL>(urls.size());
+      for (final URL url : urls) {
+        if (url != null) {
+          if (urlFilter == null || urlFilter.accept(url, coordinates.get(url))) {
+            acceptedUrls.add(url);
+          } else if (log != null && log.isDebugEnabled()) {
+            log.debug(String.format("Excluding %s", url));
+          }
+        }
+      }
+      urls = acceptedUrls;
+    }
+    return urls;
+  }
+
+  /**
+   * Returns a {@link Map} of <tt><i>groupId</i>:<i>artifactId</i></tt>
+   * coordinates indexed by the {@link URL} of the file or directory
+   * that holds the corresponding artifact.
+   *
+   * <p>The {@link Map} contains an entry for each of the {@linkplain
+   * #getProject() associated <tt>MavenProject</tt>}'s {@linkplain
+   * MavenProject#getArtifacts() resolved artifacts}, and entries
+   * mapping the project's own {@linkplain Build#getOutputDirectory()
+   * output} and {@linkplain Build#getTestOutputDirectory() test
+   * output} directories to the project's coordinates.  If there is no
+   * {@link MavenProject}, then an empty {@link Map} is returned.</p>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a {@link Map} of coordinates indexed by {@link URL};
+   * never {@code null}
+   */
+  private final Map<URL, String> getArtifactCoordinates() {
+    final MavenProject project = this.getProject();
+    if (project == null) {
+      return Collections.emptyMap();
+    }
+    final Map<URL, String> coordinates = new HashMap<URL, String>();
+    final Set<Artifact> artifacts = project.getArtifacts();
+    if (artifacts != null) {
+      for (final Artifact artifact : artifacts) {
+        if (artifact != null) {
+          putCoordinates(coordinates, artifact.getFile(), artifact.getGroupId(), artifact.getArtifactId());
+        }
+      }
+    }
+    final Build build = project.getBuild();
+    if (build != null) {
+      final String groupId = project.getGroupId();
+      final String artifactId = project.getArtifactId();
+      final String outputDirectory = build.getOutputDirectory();
+      if (outputDirectory != null) {
+        putCoordinates(coordinates, new File(outputDirectory), groupId, artifactId);
+      }
+      final String testOutputDirectory = build.getTestOutputDirectory();
+      if (testOutputDirectory != null) {
+        putCoordinates(coordinates, new File(testOutputDirectory), groupId, artifactId);
+      }
+    }
+    return coordinates;
+  }
+
+  /**
+   * Records the supplied coordinates in the supplied {@link Map}
+   * under the {@link URL} of the supplied {@link File}, using the
+   * same {@link File}-to-{@link URL} conversion as the {@link
+   * #getTestClasspathURLs()} method.
+   *
+   * @param coordinates the {@link Map} to populate; must not be
+   * {@code null}
+   *
+   * @param file the {@link File}; may be {@code null} in which case
+   * no operation takes place
+   *
+   * @param groupId the group identifier; may be {@code null} in which
+   * case no operation takes place
+   *
+   * @param artifactId the artifact identifier; may be {@code null} in
+   * which case no operation takes place
+   */
+  private static final void putCoordinates(final Map<URL, String> coordinates, final File file, final String groupId, final String artifactId) {
+    assert coordinates != null;
+    if (file != null && groupId != null && artifactId != null) {
+      try {
+        coordinates.put(file.toURI().toURL(), String.format("%s:%s", groupId, artifactId));
+      } catch (final MalformedURLException wontHappen) {
+        throw (InternalError)new InternalError(String.format("While attempting to convert a file, %s, into a URL, a MalformedURLException was encountered.", file)).initCause(wontHappen);
+      }
+    }
+  }
+
+  /**
+   * Returns a {@link Set} of {@link URL}s that represents the test
+   * classpath.
+   *
+   * <p>This uses the {@linkplain #getProject() associated
+   * <tt>MavenProject</tt>} to {@linkplain
+   * MavenProject#getTestClasspathElements() supply the information}.
+   * If that {@link MavenProject} is {@code null}, then an {@linkplain
+   * Collection#isEmpty() empty} {@linkplain
+   * Collections#unmodifiableSet(Set) unmodifiable <tt>Set</tt>} is
+   * returned.</p>
+   *
+   * <p>{@link String}-to-{@link URL} conversion is accomplished like
+   * this:</p>
+   *
+   * <ul>
+   *
+   * <li>The {@link MavenProject#getTestClasspathElements()} method
+   * returns an untyped {@link List}.  There is no contractual
+   * guarantee about the type of its contents.  Each element is
+   * therefore treated as an {@link Object}.</li>
+   *
+   * <li>If the element is non-{@code null}, then its {@link
+   * Object#toString()} method is invoked.  The resulting {@link
+   * String} is used to {@linkplain File#File(String) construct a
+   * <tt>File</tt>}.</li>
+   *
+   * <li>The resulting {@link File}'s {@link File#toURI()} method is
+   * invoked and the {@linkplain URI result}'s {@link URI#toURL()}
+   * method is invoked.  The return value is added to the {@link Set}
+   * that will be returned.</li>
+   *
+   * </ul>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a {@link Set} of {@link URL}s representing the test
+   * classpath, never {@code null}.  The {@link Set}'s iteration order
+   * is guaranteed to be equal to that of the iteration order of the
+   * return value of the {@link
+   * MavenProject#getTestClasspathElements()} method.
+   *
+   * @exception DependencyResolutionRequiredException if the {@link
+   * MavenProject#getTestClasspathElements()} method throws a {@link
+   * DependencyResolutionRequiredException}
+   */
+  private final Set<URL> getTestClasspathURLs() throws DependencyResolutionRequiredException {
+    final Set<URL> urls;
+
+    final Log log = this.getLog();
+    assert log != null;
+    
+    final MavenProject project = this.getProject();
+    final List<?> classpathElements;
+    if (project == null) {
+      classpathElements = null;
+    } else {
+      classpathElements = project.getTestClasspathElements();
+    }
+
+    if (classpathElements == null || classpathElements.isEmpty()) {
+      if (log.isWarnEnabled()) {
+        log.warn(String.format("The test classpath contained no elements. Consequently no Entities were found."));
+      }
+      urls = Collections.emptySet();
+    } else {
+      final Set<URL> mutableUrls = new LinkedHashSet<URL>(classpathElements.size());
+      for (final Object o : classpathElements) {
+        if (o != null) {
+          final File file = new File(o.toString());
+          if (file.canRead()) {
+            try {
+              mutableUrls.add(file.toURI().toURL());
+            } catch (final MalformedURLException wontHappen) {
+              throw (InternalError)new InternalError(String.format("While attempting to convert a file, %s, into a URL, a MalformedURLException was encountered.", file)).initCause(wontHappen);
+            }
+          } else if (log.isWarnEnabled()) {
+            log.warn(String.format("The test classpath element %s could not be read.", file));
+          }
+        }
+      }
+      if (mutableUrls.isEmpty()) {
+        urls = Collections.emptySet();
+      } else {
+        urls = Collections.unmodifiableSet(mutableUrls);
+      }
+    }
+    if (log.isWarnEnabled() && urls.isEmpty()) {
+      log.warn(String.format("No URLs were found from the test classpath (%s).", classpathElements));
+    }
+    return urls;
+  }
+
+  /**
+   * Returns this {@link ListEntityClassnamesMojo}'s best guess as to
+   * its {@linkplain #getProject() related Maven project}'s
+   * {@linkplain Build#getDirectory() build directory}.  If this
+   * {@link ListEntityClassnamesMojo} actually has a {@link
+   * MavenProject} {@linkplain AbstractJPAMojo#getProject()
+   * installed}, it will use the return value of that {@link
+   * MavenProject}'s {@link MavenProject#getBuild() Build}'s 
+   * {@link Build#getDirectory() getDirectory()} method.  Otherwise, it will
+   * return the following:
+   *
+   * <pre>System.getProperty("maven.project.build.directory", 
+   *                    System.getProperty("project.build.directory",
+   *                                       String.format("%1$s%2$starget",
+   *                                                     System.getProperty("basedir",
+   *                                                                        System.getProperty("user.dir", ".")),
+   *                                                     File.separator)));</pre>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return the current project's <i>build directory</i> name; never
+   * {@code null}
+   */
+  public final String getProjectBuildDirectoryName() {
+    String returnValue = null;
+    final MavenProject project = this.getProject();
+    if (project != null) {
+      final Build build = project.getBuild();
+      if (build != null) {
+        final String buildDirectoryName = build.getDirectory();
+        if (buildDirectoryName != null) {
+          returnValue = buildDirectoryName;
+        }
+      }
+    }
+    if (returnValue == null) {
+      returnValue = 
+        System.getProperty("maven.project.build.directory", 
+                           System.getProperty("project.build.directory",
+                                              String.format("%1$s%2$starget",
+                                                            System.getProperty("basedir",
+                                                                               System.getProperty("user.dir", ".")),
+                                                            File.separator)));
+    }
+    return returnValue;
+  }
+
+  /**
+   * Computes the file to which the current execution will write its
+   * output from the {@link #getOutputFile() outputFile} property and
+   * returns it.  The property itself is not modified.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return the validated, absolute output file; never {@code null}
+   *
+   * @exception FileException if the {@link #getOutputFile()
+   * outputFile} property could not be initialized
+   */
+  private final File initializeOutputFile() throws FileException {
+    return this.initializeOutputFile(this.getOutputFile());
+  }
+
+  /**
+   * Validates and "absolutizes" the supplied {@link File} and returns
+   * the corrected version.
+   *
+   * <p>The return value of this method is guaranteed to be a {@link
+   * File} that is:</p>
+   *
+   * <ul>
+   *
+   * <li>non-{@code null}</li>
+   *
+   * <li>{@linkplain File#isAbsolute() absolute}</li>
+   *
+   * <li>existent and {@linkplain File#canWrite() writable} or
+   * non-existent and {@linkplain File#getParentFile() parented} by a
+   * directory that is existent and writable</li>
+   *
+   * </ul>
+   *
+   * <p>If the supplied {@link File} is a relative {@link File}, then
+   * it will be made absolute by prepending it with the following
+   * platform-neutral path: <tt>${{@link Build#getDirectory()
+   * project.build.directory}}/generated-test-sources/jpa-maven-plugin/</tt></p>
+   *
+   * @param outputFile the {@link File} to validate
+   *
+   * @return the "absolutized" and validated value of the {@code
+   * outputFile} parameter; never {@code null}
+   *
+   * @exception FileException if the supplied {@code outputFile} did
+   * not pass validation
+   */
+  final File initializeOutputFile(File outputFile) throws FileException {
+    if (outputFile == null) {
+      final File projectBuildDirectory = new File(this.getProjectBuildDirectoryName());
+      final File outputDirectory = new File(projectBuildDirectory, DEFAULT_SUBDIR_PREFIX);
+      this.validateOutputDirectory(outputDirectory);
+      outputFile = new File(outputDirectory, DEFAULT_OUTPUT_FILENAME);
+    } else {
+      if (!outputFile.isAbsolute()) {
+        final File projectBuildDirectory = new File(this.getProjectBuildDirectoryName());
+        final File outputDirectory = new File(projectBuildDirectory, DEFAULT_SUBDIR_PREFIX);
+        this.validateOutputDirectory(outputDirectory);
+        outputFile = new File(outputDirectory, outputFile.getPath());
+      }
+      if (outputFile.isDirectory()) {
+        final File outputDirectory = outputFile;
+        this.validateOutputDirectory(outputDirectory);
+        outputFile = new File(outputDirectory, DEFAULT_OUTPUT_FILENAME);
+      } else if (outputFile.exists()) {
+        if (!outputFile.isFile()) {
+          throw new NotNormalFileException(outputFile);
+        } else if (!outputFile.canWrite()) {
+          throw new NotWritableFileException(outputFile);
+        } else {
+          this.validateOutputDirectory(outputFile.getParentFile());
+        }
+      } else {
+        this.validateOutputDirectory(outputFile.getParentFile());
+      }
+    }
+    assert outputFile != null;
+    assert outputFile.isAbsolute();
+    final Log log = this.getLog();
+    if (log != null && log.isDebugEnabled()) {
+      log.debug(String.format("Output file initialized to %s", outputFile));
+    }
+    return outputFile;
+  }
+  
+  /**
+   * Ensures that the supplied {@link File}, after this method is
+   * invoked, will designate a {@linkplain File#isDirectory()
+   * directory} that {@linkplain File#mkdirs() exists} and is
+   * {@linkplain File#canWrite() writable}.
+   *
+   * @param outputDirectory the {@link File} to validate; must not be
+   * {@code null}
+   *
+   * @exception IllegalArgumentException if {@code outputDirectory} is
+   * {@code null}
+   *
+   * @return {@code true} if {@link File#mkdirs()} was invoked on
+   * {@code outputDirectory}; {@code false} otherwise
+   *
+   * @exception FileException if the supplied {@code outputDirectory}
+   * failed validation
+   */
+  private boolean validateOutputDirectory(final File outputDirectory) throws FileException {
+    boolean mkdirs = false;
+    if (outputDirectory == null) {
+      throw new IllegalArgumentException("outputDirectory", new NullPointerException("outputDirectory == null"));
+    } else if (outputDirectory.exists()) {
+      if (!outputDirectory.isDirectory()) {
+        throw new NotDirectoryException(outputDirectory);
+      }
+      if (!outputDirectory.canWrite()) {
+        throw new NotWritableDirectoryException(outputDirectory);
+      }
+    } else {
+      mkdirs = outputDirectory.mkdirs();
+      if (!mkdirs) {
+        throw new PathCreationFailedException(outputDirectory);
+      }
+    }
+    return mkdirs;
+  }
+
+  /**
+   * Called by the {@link #execute()} method; initializes all fields
+   * to their defaults if for some reason they were not already set
+   * appropriately.
+   *
+   * <p>This method calls the following methods in order:
+   *
+   * <ol>
+   *
+   * <li>{@link #initializePropertyNames()}</li>
+   *
+   * <li>{@link #initializeScanCacheDirectory()} (if either the
+   * {@linkplain #getUseScanCache() scan cache} or {@linkplain
+   * #getUseIncrementalScan() incremental scanning} is in use)</li>
+   *
+   * </ol>
+   *
+   * <p>The {@link URL}s to scan and the output file are computed
+   * separately, by the {@link #initializeURLs()} and {@link
+   * #initializeOutputFile()} methods, and are held only for the
+   * duration of the execution.</p>
+   */
+  private final void initialize() throws FileException {
+    this.initializePropertyNames();
+    if (this.getUseScanCache() || this.getUseIncrementalScan()) {
+      this.initializeScanCacheDirectory();
+    }
+  }
+
+  /**
+   * Initializes the {@link #getScanCacheDirectory()
+   * scanCacheDirectory} property and returns its value.
+   *
+   * <p>If the {@linkplain #getScanCacheDirectory() scan cache
+   * directory} is {@code null}, then it will be set to
+   * <tt>${{@link Build#getDirectory()
+   * project.build.directory}}/jpa-maven-plugin/cache</tt>.  If it is
+   * relative, then it will be made absolute by resolving it against
+   * that directory.</p>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return the newly-set value of the {@link #getScanCacheDirectory()
+   * scanCacheDirectory} property; never {@code null}
+   *
+   * @exception FileException if the scan cache directory could not be
+   * created or is not writable
+   */
+  private final File initializeScanCacheDirectory() throws FileException {
+    File scanCacheDirectory = this.getScanCacheDirectory();
+    final File defaultScanCacheDirectory = new File(this.getProjectBuildDirectoryName(), DEFAULT_CACHE_SUBDIR_PREFIX);
+    if (scanCacheDirectory == null) {
+      scanCacheDirectory = defaultScanCacheDirectory;
+    } else if (!scanCacheDirectory.isAbsolute()) {
+      scanCacheDirectory = new File(defaultScanCacheDirectory, scanCacheDirectory.getPath());
+    }
+    this.validateOutputDirectory(scanCacheDirectory);
+    this.setScanCacheDirectory(scanCacheDirectory);
+    return scanCacheDirectory;
+  }
+
+  /**
+   * Called by the {@link #initialize()} method; sets up the {@link
+   * #propertyNames} field appropriately and builds the {@link
+   * PackageTrie} that the {@link #determinePropertyName(String)}
+   * method consults.
+   */
+  private final void initializePropertyNames() {
+    if (this.propertyNames == null) {
+      this.propertyNames = new HashMap<String, String>();
+    }
+    if (this.defaultPropertyName == null) {
+      this.propertyNames.put(DEFAULT_DEFAULT_PROPERTY_NAME, "");
+    } else {
+      final String defaultPropertyName = this.defaultPropertyName.trim();
+      if (defaultPropertyName.isEmpty()) {
+        this.propertyNames.put(DEFAULT_DEFAULT_PROPERTY_NAME, "");
+      } else {
+        this.propertyNames.put(defaultPropertyName, "");
+      }
+    }
+    this.propertyNameTrie = new PackageTrie<String>(this.propertyNames);
+  }
+
+  /**
+   * Returns the encoding used to write the {@link Properties} file
+   * that this mojo generates.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the encoding used to write the {@link Properties} file
+   * that this mojo generates, or {@code null}
+   */
+  public String getEncoding() {
+    return this.encoding;
+  }
+
+  /**
+   * Sets the encoding used to write the {@link Properties} file that
+   * this mojo generates.
+   *
+   * <p>If {@code null} is supplied to this method, then "{@code
+   * UTF8}" will be used instead.</p>
+   *
+   * @param encoding the encoding to use; may be {@code null} in which
+   * case "{@code UTF8}" will be used instead; otherwise the value is
+   * {@linkplain String#trim() trimmed} and used as-is
+   */
+  public void setEncoding(String encoding) {
+    if (encoding == null) {
+      encoding = "";
+    } else {
+      encoding = encoding.trim();
+    }
+    if (encoding.isEmpty()) {
+      this.encoding = "UTF8";
+    } else {
+      this.encoding = encoding;
+    }
+  }
+
+  /**
+   * Returns the output {@link File}.  This method does not perform
+   * any validation or initialization.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the output {@link File}, or {@code null}
+   *
+   * @see #initializeOutputFile()
+   */
+  public File getOutputFile() {
+    return this.outputFile;
+  }
+
+  /**
+   * Sets the {@link File} to use as the output file parameter.  This
+   * method does not perform any validation or initialization.
+   *
+   * @param file the {@link File} to use; may be {@code null}
+   *
+   * @see #initializeOutputFile()
+   */
+  public void setOutputFile(final File file) {
+    this.outputFile = file;
+  }
+
+  /**
+   * Returns whether or not this {@link ListEntityClassnamesMojo}
+   * should write its properties out to the associated {@link
+   * #getOutputFile() output file}.  By default this method returns
+   * {@code true} for backwards compatibility.
+   *
+   * @return whether or not this {@link ListEntityClassnamesMojo}
+   * should write its properties out to the associated {@link
+   * #getOutputFile() output file}
+   */
+  public boolean getUseOutputFile() {
+    return this.useOutputFile;
+  }
+
+  /**
+   * Sets whether or not this {@link ListEntityClassnamesMojo} should
+   * write its properties out to the associated {@linkplain
+   * #getOutputFile() output file}.
+   *
+   * @param useOutputFile whether or not to use the associated
+   * {@linkplain #getOutputFile() output file}
+   */
+  public void setUseOutputFile(final boolean useOutputFile) {
+    this.useOutputFile = useOutputFile;
+  }
+
+  /**
+   * Returns whether or not this {@link ListEntityClassnamesMojo}
+   * streams {@linkplain #decorate(String, String, String) decorated}
+   * class names directly to its {@linkplain #getOutputFile() output
+   * file} rather than assembling a {@link Properties} object first.
+   * By default this method returns {@code false}.
+   *
+   * @return whether or not output is streamed
+   *
+   * @see #write(Map, Writer)
+   */
+  public boolean getStreamOutput() {
+    return this.streamOutput;
+  }
+
+  /**
+   * Sets whether or not this {@link ListEntityClassnamesMojo} streams
+   * {@linkplain #decorate(String, String, String) decorated} class
+   * names directly to its {@linkplain #getOutputFile() output file}
+   * rather than assembling a {@link Properties} object first.
+   *
+   * @param streamOutput whether or not to stream output
+   *
+   * @see #write(Map, Writer)
+   */
+  public void setStreamOutput(final boolean streamOutput) {
+    this.streamOutput = streamOutput;
+  }
+
+  /**
+   * Returns whether or not this {@link ListEntityClassnamesMojo}
+   * writes its {@linkplain #getOutputFile() output file}
+   * deterministically, that is, without a date comment and with
+   * properties in property name order.  By default this method
+   * returns {@code false}.
+   *
+   * @return whether or not output is deterministic
+   */
+  public boolean getDeterministicOutput() {
+    return this.deterministicOutput;
+  }
+
+  /**
+   * Sets whether or not this {@link ListEntityClassnamesMojo} writes
+   * its {@linkplain #getOutputFile() output file} deterministically,
+   * that is, without a date comment and with properties in property
+   * name order.
+   *
+   * @param deterministicOutput whether or not output is
+   * deterministic
+   */
+  public void setDeterministicOutput(final boolean deterministicOutput) {
+    this.deterministicOutput = deterministicOutput;
+  }
+
+  /**
+   * Returns whether or not this {@link ListEntityClassnamesMojo}
+   * skips scanning when nothing relevant has changed since its last
+   * execution.  By default this method returns {@code true}.
+   *
+   * @return whether or not up-to-date executions are skipped
+   *
+   * @see UpToDateSnapshot
+   */
+  public boolean getSkipIfUpToDate() {
+    return this.skipIfUpToDate;
+  }
+
+  /**
+   * Sets whether or not this {@link ListEntityClassnamesMojo} skips
+   * scanning when nothing relevant has changed since its last
+   * execution.
+   *
+   * @param skipIfUpToDate whether or not up-to-date executions are
+   * skipped
+   *
+   * @see UpToDateSnapshot
+   */
+  public void setSkipIfUpToDate(final boolean skipIfUpToDate) {
+    this.skipIfUpToDate = skipIfUpToDate;
+  }
+
+  /**
+   * Returns the {@link File} to which a {@linkplain PerformanceReport
+   * performance report} is written, or {@code null} if no report is
+   * written.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the performance report file, or {@code null}
+   *
+   * @see #setPerformanceReportFile(File)
+   */
+  public File getPerformanceReportFile() {
+    return this.performanceReportFile;
+  }
+
+  /**
+   * Sets the {@link File} to which a {@linkplain PerformanceReport
+   * performance report} is written.
+   *
+   * @param performanceReportFile the performance report file; may be
+   * {@code null} in which case no report is written
+   *
+   * @see #getPerformanceReportFile()
+   */
+  public void setPerformanceReportFile(final File performanceReportFile) {
+    this.performanceReportFile = performanceReportFile;
+  }
+
+  /**
+   * Returns the format of the {@linkplain #getPerformanceReportFile()
+   * performance report}: {@code json} or {@code csv}.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the performance report format, or {@code null}
+   *
+   * @see #setPerformanceReportFormat(String)
+   */
+  public String getPerformanceReportFormat() {
+    return this.performanceReportFormat;
+  }
+
+  /**
+   * Sets the format of the {@linkplain #getPerformanceReportFile()
+   * performance report}.  The supplied value is trimmed and converted
+   * to lower case.  Unsupported formats cause {@link #execute()} to
+   * fail if a report is requested.
+   *
+   * @param performanceReportFormat the performance report format,
+   * either {@code json} or {@code csv}; may be {@code null} in which
+   * case {@code json} will be used
+   *
+   * @see #getPerformanceReportFormat()
+   */
+  public void setPerformanceReportFormat(final String performanceReportFormat) {
+    this.performanceReportFormat = performanceReportFormat == null ? null : performanceReportFormat.trim().toLowerCase(Locale.ENGLISH);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>This implementation also returns {@code true} if a
+   * {@linkplain #getPerformanceReportFile() performance report} is
+   * requested, since the report includes the scan metrics.</p>
+   *
+   * @return {@inheritDoc}
+   */
+  @Override
+  boolean isScanMetricsNeeded() {
+    return super.isScanMetricsNeeded() || this.getPerformanceReportFile() != null;
+  }
+
+  /**
+   * Writes the supplied {@link PerformanceReport} to the {@linkplain
+   * #getPerformanceReportFile() performance report file} in the
+   * {@linkplain #getPerformanceReportFormat() configured format},
+   * first recording the total time elapsed since the supplied start
+   * time.  Failure to write the report is logged as a warning and
+   * does not fail the build.
+   *
+   * @param report the {@link PerformanceReport} to write; may be
+   * {@code null} in which case no operation takes place
+   *
+   * @param start the value of {@link System#nanoTime()} when this
+   * execution began
+   */
+  private final void writePerformanceReport(final PerformanceReport report, final long start) {
+    if (report == null) {
+      return;
+    }
+    report.set("totalNanos", System.nanoTime() - start);
+    final Log log = this.getLog();
+    final File file = this.resolveAgainstBuildDirectory(this.getPerformanceReportFile());
+    assert file != null;
+    try {
+      final Writer writer = newReportWriter(file);
+      try {
+        if ("csv".equals(this.getPerformanceReportFormat())) {
+          report.writeCsv(writer);
+        } else {
+          report.writeJson(writer);
+        }
+      } finally {
+        writer.close();
+      }
+      if (log != null && log.isDebugEnabled()) {
+        log.debug(String.format("Wrote a performance report to %s", file));
+      }
+    } catch (final IOException kaboom) {
+      if (log != null && log.isWarnEnabled()) {
+        log.warn(String.format("The performance report could not be written to %s", file), kaboom);
+      }
+    }
+  }
+
+  /**
+   * Returns the {@link File} to which a <tt>persistence.xml</tt>
+   * fragment will be written.  This method does not perform any
+   * validation or initialization.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the <tt>persistence.xml</tt> fragment {@link File}, or
+   * {@code null} if none will be written
+   *
+   * @see OutputFormats#writePersistenceXmlFragment(Map, Writer)
+   */
+  public File getPersistenceXmlFragmentFile() {
+    return this.persistenceXmlFragmentFile;
+  }
+
+  /**
+   * Sets the {@link File} to which a <tt>persistence.xml</tt>
+   * fragment will be written.
+   *
+   * @param persistenceXmlFragmentFile the {@link File}; may be {@code
+   * null} in which case no fragment will be written
+   */
+  public void setPersistenceXmlFragmentFile(final File persistenceXmlFragmentFile) {
+    this.persistenceXmlFragmentFile = persistenceXmlFragmentFile;
+  }
+
+  /**
+   * Returns the {@link File} to which a JSON index of class names
+   * will be written.  This method does not perform any validation or
+   * initialization.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the JSON {@link File}, or {@code null} if none will be
+   * written
+   *
+   * @see OutputFormats#writeJson(Map, Writer)
+   */
+  public File getJsonFile() {
+    return this.jsonFile;
+  }
+
+  /**
+   * Sets the {@link File} to which a JSON index of class names will
+   * be written.
+   *
+   * @param jsonFile the {@link File}; may be {@code null} in which
+   * case no JSON index will be written
+   */
+  public void setJsonFile(final File jsonFile) {
+    this.jsonFile = jsonFile;
+  }
+
+  /**
+   * Returns the fully qualified name of the Java class holding class
+   * names that will be generated.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the generated class' name, or {@code null} if no class
+   * will be generated
+   *
+   * @see OutputFormats#writeJavaSource(Map, String, Writer)
+   */
+  public String getGeneratedClassName() {
+    return this.generatedClassName;
+  }
+
+  /**
+   * Sets the fully qualified name of the Java class holding class
+   * names that will be generated.
+   *
+   * @param generatedClassName the class name; may be {@code null} in
+   * which case no class will be generated; otherwise it is
+   * {@linkplain String#trim() trimmed}
+   */
+  public void setGeneratedClassName(final String generatedClassName) {
+    if (generatedClassName == null) {
+      this.generatedClassName = null;
+    } else {
+      final String trimmed = generatedClassName.trim();
+      this.generatedClassName = trimmed.isEmpty() ? null : trimmed;
+    }
+  }
+
+  /**
+   * Returns the directory in which the {@linkplain
+   * #getGeneratedClassName() generated class} is written.  This
+   * method does not perform any validation or initialization.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the generated source directory, or {@code null}
+   */
+  public File getGeneratedSourceDirectory() {
+    return this.generatedSourceDirectory;
+  }
+
+  /**
+   * Sets the directory in which the {@linkplain
+   * #getGeneratedClassName() generated class} is written.
+   *
+   * @param generatedSourceDirectory the directory; may be {@code
+   * null} in which case a default will be used
+   */
+  public void setGeneratedSourceDirectory(final File generatedSourceDirectory) {
+    this.generatedSourceDirectory = generatedSourceDirectory;
+  }
+
+  /**
+   * Returns the {@link Set} of {@link URL}s to scan for annotations.
+   * This method does not perform any validation or initialization.
+   *
+   * @return the {@link Set} of {@link URL}s to scan, or {@code null}
+   *
+   * @see #initializeURLs()
+   */
+  public Set<URL> getURLs() {
+    return this.urls;
+  }
+
+  /**
+   * Sets the {@link Set} of {@link URL}s to scan for annotations.
+   * This method does not perform any validation or initialization.
+   *
+   * @param urls the {@link Set} of {@link URL}s to scan; may be
+   * {@code null}
+   *
+   * @see #initializeURLs()
+   */
+  public void setURLs(final Set<URL> urls) {
+    this.urls = urls;
+  }
+
+  /**
+   * Executes this mojo.
+   *
+   * @exception MojoExecutionException if this mojo could not be executed
+   *
+   * @exception MojoFailureException if the build should fail
+   */
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException {
+    final long start = System.nanoTime();
+    final Log log = this.getLog();
+    if (log == null) {
+      throw new MojoExecutionException("this.getLog() == null");
+    }
+
+    final PerformanceReport report;
+    if (this.getPerformanceReportFile() == null) {
+      report = null;
+    } else {
+      final String format = this.getPerformanceReportFormat();
+      if (format != null && !"json".equals(format) && !"csv".equals(format)) {
+        throw new MojoExecutionException(String.format("Unsupported performanceReportFormat: %s; use json or csv.", format));
+      }
+      report = new PerformanceReport("list-entity-classnames");
+    }
+
+    final Set<URL> urls;
+    final File outputFile;
+    final File persistenceXmlFragmentFile;
+    final File jsonFile;
+    final File javaSourceFile;
+    try {
+      this.initialize();
+      urls = this.initializeURLs();
+      outputFile = this.getUseOutputFile() ? this.initializeOutputFile() : null;
+      persistenceXmlFragmentFile = this.getPersistenceXmlFragmentFile() == null ? null : this.initializeOutputFile(this.getPersistenceXmlFragmentFile());
+      jsonFile = this.getJsonFile() == null ? null : this.initializeOutputFile(this.getJsonFile());
+      javaSourceFile = this.initializeJavaSourceFile();
+    } catch (final DependencyResolutionRequiredException kaboom) {
+      throw new MojoExecutionException(String.format("Dependencies of the current Maven project could not be downloaded during initialization of the jpa-maven-plugin."), kaboom);
+    } catch (final NotWritableDirectoryException kaboom) {
+      throw new MojoExecutionException(String.format("The output directory path, %s, exists and is a directory, but the current user, %s, cannot write to it.", kaboom.getFile(), System.getProperty("user.name")), kaboom);
+    } catch (final NotWritableFileException kaboom) {
+      throw new MojoExecutionException(String.format("The output file specified, %s, is a regular file, but cannot be written to by Maven running as user %s.  Output files must be either existing, writable files or non-existent files.", kaboom.getFile(), System.getProperty("user.name")), kaboom);
+    } catch (final NotNormalFileException kaboom) {
+      throw new MojoExecutionException(String.format("The output file specified, %s, is not a directory, but is also not a normal file.  Output files must be either existing, writable, normal files or non-existent files.", kaboom.getFile()), kaboom);
+    } catch (final NotDirectoryException kaboom) {
+      throw new MojoExecutionException(String.format("The output directory path, %s, exists but is not a directory.", kaboom.getFile()), kaboom);
+    } catch (final PathCreationFailedException kaboom) {
+      throw new MojoExecutionException(String.format("Some portion of the output directory path, %s, could not be created.", kaboom.getFile()), kaboom);
+    } catch (final FileException other) {
+      throw new MojoExecutionException("An unexpected FileException occurred during initialization.", other);
+    }
+
+    final MavenProject project = this.getProject();
+    if (javaSourceFile != null && project != null) {
+      final String root = this.initializeGeneratedSourceDirectory().getAbsolutePath();
+      @SuppressWarnings("unchecked")
+      final List<String> roots = project.getTestCompileSourceRoots();
+      if (roots == null || !roots.contains(root)) {
+        project.addTestCompileSourceRoot(root);
+      }
+    }
+
+    final File[] outputFiles = { outputFile, persistenceXmlFragmentFile, jsonFile, javaSourceFile };
+
+    // If nothing that could affect the results has changed since
+    // the last execution, restore its results and stop.
+    UpToDateSnapshot snapshot = null;
+    String fingerprint = null;
+    if (this.getSkipIfUpToDate()) {
+      snapshot = new UpToDateSnapshot(this.getUpToDateSnapshotFile(outputFile));
+      try {
+        fingerprint = UpToDateSnapshot.fingerprint(urls, this.getUpToDateConfiguration(outputFile));
+      } catch (final IOException kaboom) {
+        if (log.isDebugEnabled()) {
+          log.debug("The URLs to be scanned could not be fingerprinted", kaboom);
+        }
+      }
+      if (fingerprint != null) {
+        final byte[] content = snapshot.get(fingerprint, outputFiles);
+        if (content != null) {
+          try {
+            this.restoreProjectProperties(content);
+            if (log.isInfoEnabled()) {
+              log.info("Nothing has changed since the last execution; skipping scan");
+            }
+            if (report != null) {
+              report.setSkipped(true);
+              report.setPhase("initialize", System.nanoTime() - start);
+              this.writePerformanceReport(report, start);
+            }
+            return;
+          } catch (final IOException kaboom) {
+            if (log.isDebugEnabled()) {
+              log.debug(String.format("The snapshot %s could not be restored", snapshot.getFile()), kaboom);
+            }
+          }
+        }
+      }
+    }
+
+    long mark = System.nanoTime();
+    if (report != null) {
+      report.setPhase("initialize", mark - start);
+    }
+
+    // Scan the test classpath for Entity, MappedSuperclass, IdClass,
+    // Embeddable, etc. annotations.
+    final AnnotationDB db;
+    AnnotationDB tempDb = null;
+    try {
+      tempDb = this.scan(urls);
+    } catch (final IOException kaboom) {
+      throw new MojoExecutionException("Execution failed because an IOException was encountered during URL scanning.", kaboom);
+    } finally {
+      db = tempDb;
+      tempDb = null;
+    }
+    assert db != null;
+
+    this.logAnnotationIndex(db);
+
+    if (report != null) {
+      final long now = System.nanoTime();
+      report.setPhase("scan", now - mark);
+      report.setScanMetrics(this.getScanMetrics(), this.getScanThreads());
+      report.setIndexSize(db);
+      mark = now;
+    }
+
+    final Map<String, Set<String>> annotatedClasses = this.findAnnotatedClasses(db);
+    if (report != null) {
+      final long now = System.nanoTime();
+      report.setPhase("index", now - mark);
+      mark = now;
+    }
+
+    final Map<String, Set<String>> propertyNameIndex = this.indexByPropertyName(annotatedClasses);
+    assert propertyNameIndex != null;
+    if (report != null) {
+      final long now = System.nanoTime();
+      report.setPhase("resolvePropertyNames", now - mark);
+      mark = now;
+    }
+
+    final Properties properties;
+    if (this.getStreamOutput()) {
+      properties = null;
+      this.setProjectProperties(propertyNameIndex);
+    } else {
+      properties = this.toProperties(propertyNameIndex);
+      assert properties != null;
+
+      if (log.isDebugEnabled()) {
+        final int limit = this.getDebugOutputLimit();
+        int logged = 0;
+        final Enumeration<?> propertyNames = properties.propertyNames();
+        if (propertyNames != null) {
+          while (propertyNames.hasMoreElements()) {
+            final Object nextElement = propertyNames.nextElement();
+            if (nextElement != null) {
+              if (logged >= limit) {
+                log.debug(String.format("...and %d more properties (debugOutputLimit = %d)", properties.size() - logged, limit));
+                break;
+              }
+              final String key = nextElement.toString();
+              assert key != null;
+              final String value = properties.getProperty(key);
+              log.debug(String.format("%s = %s", key, value));
+              logged++;
+            }
+          }
+        }
+      }
+
+      if (project != null) {
+        final Properties projectProperties = project.getProperties();
+        if (projectProperties != null) {
+          @SuppressWarnings("unchecked")
+          final Enumeration<String> propertyNames = (Enumeration<String>)properties.propertyNames();
+          if (propertyNames != null && propertyNames.hasMoreElements()) {
+            while (propertyNames.hasMoreElements()) {
+              final String propertyName = propertyNames.nextElement();
+              if (propertyName != null) {
+                projectProperties.setProperty(propertyName, properties.getProperty(propertyName));
+              }
+            }
+          }
+        }
+      }
+    }
+    
+    byte[] content = null;
+    if (this.getUseOutputFile()) {
+      if (outputFile != null) {
+        assert outputFile.exists() ? outputFile.isFile() : true;
+        assert outputFile.getParentFile() != null;
+        assert outputFile.getParentFile().isDirectory();
+        assert outputFile.getParentFile().canWrite();
+        assert !outputFile.exists() ? outputFile.getParentFile().canWrite() : true;
+
+        // Render the output into memory and only touch the
+        // outputFile if what is there differs, so that downstream
+        // steps that depend on its modification time are not
+        // needlessly triggered.
+        try {
+          content = this.render(propertyNameIndex, properties);
+        } catch (final IOException kaboom) {
+          throw new MojoExecutionException(String.format("While attempting to write to the outputFile parameter (%s), an IOException was encountered.", outputFile), kaboom);
+        }
+        // Its leading comments may carry a date, which is not
+        // content.
+        this.writeOutputFile(outputFile, content, true);
+      }
+    }
+
+    // Write any additional formats from the same index.
+    try {
+      if (persistenceXmlFragmentFile != null) {
+        this.writeOutputFile(persistenceXmlFragmentFile, this.renderPersistenceXmlFragment(propertyNameIndex), false);
+      }
+      if (jsonFile != null) {
+        this.writeOutputFile(jsonFile, this.renderJson(propertyNameIndex), false);
+      }
+      if (javaSourceFile != null) {
+        this.writeOutputFile(javaSourceFile, this.renderJavaSource(propertyNameIndex), false);
+      }
+    } catch (final IOException kaboom) {
+      throw new MojoExecutionException("While attempting to render additional output formats, an IOException was encountered.", kaboom);
+    }
+
+    if (fingerprint != null) {
+      assert snapshot != null;
+      try {
+        if (content == null) {
+          content = this.render(propertyNameIndex, properties);
+        }
+        snapshot.put(fingerprint, content, outputFiles);
+      } catch (final IOException kaboom) {
+        snapshot.delete();
+        if (log.isWarnEnabled()) {
+          log.warn(String.format("The results of this execution could not be recorded in %s", snapshot.getFile()), kaboom);
+        }
+      }
+    }
+
+    if (report != null) {
+      report.setPhase("writeOutput", System.nanoTime() - mark);
+      this.writePerformanceReport(report, start);
+    }
+    this.reportScanMetrics();
+  }
+
+  /**
+   * Replaces the contents of the supplied output file with the
+   * supplied bytes {@linkplain #replaceIfChanged(File, byte[],
+   * boolean) if they differ}, and logs the outcome.
+   *
+   * @param file the output file; must not be {@code null}
+   *
+   * @param content the new contents; must not be {@code null}
+   *
+   * @param ignoreLeadingComments whether lines beginning with {@code
+   * #} at the start of the file and of the new contents are ignored
+   * when comparing them
+   *
+   * @exception MojoExecutionException if the file could not be
+   * written
+   */
+  private final void writeOutputFile(final File file, final byte[] content, final boolean ignoreLeadingComments) throws MojoExecutionException {
+    assert file != null;
+    assert content != null;
+    final Log log = this.getLog();
+    try {
+      if (replaceIfChanged(file, content, ignoreLeadingComments)) {
+        if (log != null && log.isDebugEnabled()) {
+          log.debug(String.format("Wrote %d bytes to %s", content.length, file));
+        }
+      } else if (log != null && log.isInfoEnabled()) {
+        log.info(String.format("%s is up to date", file));
+      }
+    } catch (final IOException kaboom) {
+      throw new MojoExecutionException(String.format("While attempting to write to %s, an IOException was encountered.", file), kaboom);
+    }
+  }
+
+  /**
+   * Renders the supplied class names as a <tt>persistence.xml</tt>
+   * fragment using the {@linkplain #getEncoding() configured
+   * character encoding}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param propertyNameIndex a {@link Map} of class names indexed by
+   * property name; may be {@code null}
+   *
+   * @return the rendered fragment; never {@code null}
+   *
+   * @exception IOException if an error occurs while rendering
+   *
+   * @see OutputFormats#writePersistenceXmlFragment(Map, Writer)
+   */
+  final byte[] renderPersistenceXmlFragment(final Map<String, Set<String>> propertyNameIndex) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+    final Writer writer = new BufferedWriter(new OutputStreamWriter(bytes, this.getEffectiveEncoding()));
+    OutputFormats.writePersistenceXmlFragment(propertyNameIndex, writer);
+    writer.close();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Renders the supplied class names as a JSON object encoded in
+   * UTF-8.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param propertyNameIndex a {@link Map} of class names indexed by
+   * property name; may be {@code null}
+   *
+   * @return the rendered JSON; never {@code null}
+   *
+   * @exception IOException if an error occurs while rendering
+   *
+   * @see OutputFormats#writeJson(Map, Writer)
+   */
+  final byte[] renderJson(final Map<String, Set<String>> propertyNameIndex) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+    final Writer writer = new BufferedWriter(new OutputStreamWriter(bytes, "UTF-8"));
+    OutputFormats.writeJson(propertyNameIndex, writer);
+    writer.close();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Renders the supplied class names as the source of the {@linkplain
+   * #getGeneratedClassName() generated class}, using the {@linkplain
+   * #getEncoding() configured character encoding}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param propertyNameIndex a {@link Map} of class names indexed by
+   * property name; may be {@code null}
+   *
+   * @return the rendered source; never {@code null}
+   *
+   * @exception IOException if an error occurs while rendering
+   *
+   * @exception IllegalStateException if there is no {@linkplain
+   * #getGeneratedClassName() generated class name}
+   *
+   * @see OutputFormats#writeJavaSource(Map, String, Writer)
+   */
+  final byte[] renderJavaSource(final Map<String, Set<String>> propertyNameIndex) throws IOException {
+    final String generatedClassName = this.getGeneratedClassName();
+    if (generatedClassName == null) {
+      throw new IllegalStateException("this.getGeneratedClassName() == null");
+    }
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+    final Writer writer = new BufferedWriter(new OutputStreamWriter(bytes, this.getEffectiveEncoding()));
+    OutputFormats.writeJavaSource(propertyNameIndex, generatedClassName, writer);
+    writer.close();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Computes the directory in which the {@linkplain
+   * #getGeneratedClassName() generated class} is written from the
+   * {@link #getGeneratedSourceDirectory() generatedSourceDirectory}
+   * property and returns it.  The property itself is not modified.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return the absolute generated source directory; never {@code
+   * null}
+   */
+  private final File initializeGeneratedSourceDirectory() {
+    final File defaultDirectory = new File(new File(this.getProjectBuildDirectoryName()), DEFAULT_SUBDIR_PREFIX);
+    final File generatedSourceDirectory = this.getGeneratedSourceDirectory();
+    if (generatedSourceDirectory == null) {
+      return new File(defaultDirectory, "java");
+    } else if (!generatedSourceDirectory.isAbsolute()) {
+      return new File(defaultDirectory, generatedSourceDirectory.getPath());
+    }
+    return generatedSourceDirectory;
+  }
+
+  /**
+   * Computes and validates the source file of the {@linkplain
+   * #getGeneratedClassName() generated class}, creating its package
+   * directory if necessary, and returns it, or returns {@code null}
+   * if no class is to be generated.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the absolute source file, or {@code null}
+   *
+   * @exception FileException if the package directory could not be
+   * created or is not writable
+   */
+  private final File initializeJavaSourceFile() throws FileException {
+    final String generatedClassName = this.getGeneratedClassName();
+    if (generatedClassName == null) {
+      return null;
+    }
+    final File javaSourceFile = new File(this.initializeGeneratedSourceDirectory(), String.format("%s.java", generatedClassName.replace('.', File.separatorChar)));
+    this.validateOutputDirectory(javaSourceFile.getParentFile());
+    return javaSourceFile;
+  }
+
+  /**
+   * Returns the file in which the {@link UpToDateSnapshot} for the
+   * supplied output file is stored.  The file lives in the
+   * <tt>jpa-maven-plugin</tt> subdirectory of the {@linkplain
+   * #getProjectBuildDirectoryName() project build directory} and is
+   * named after the output file, or after the {@linkplain
+   * #getDefaultPropertyName() default property name} if there is no
+   * output file.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param outputFile the output file; may be {@code null}
+   *
+   * @return the snapshot file; never {@code null}
+   */
+  private final File getUpToDateSnapshotFile(final File outputFile) {
+    final String name;
+    if (outputFile == null) {
+      final String defaultPropertyName = this.getDefaultPropertyName();
+      name = defaultPropertyName == null ? DEFAULT_DEFAULT_PROPERTY_NAME : defaultPropertyName;
+    } else {
+      name = outputFile.getName();
+    }
+    return new File(new File(this.getProjectBuildDirectoryName(), "jpa-maven-plugin"), String.format("%s.snapshot", name));
+  }
+
+  /**
+   * Returns a {@link String} that describes every configuration
+   * setting of this {@link ListEntityClassnamesMojo}, other than the
+   * {@link URL}s to scan, that affects its results.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param outputFile the output file; may be {@code null}
+   *
+   * @return a description of this mojo's configuration; never {@code
+   * null}
+   */
+  private final String getUpToDateConfiguration(final File outputFile) {
+    final StringBuilder sb = new StringBuilder(this.getClass().getName());
+    sb.append(";pluginVersion=").append(this.pluginVersion);
+    // A rebuilt snapshot version of this plugin keeps its version but
+    // not its location, size and modification time.
+    final File plugin = toFile(ListEntityClassnamesMojo.class.getProtectionDomain().getCodeSource().getLocation());
+    if (plugin != null) {
+      sb.append(";plugin=").append(plugin.getAbsolutePath()).append(':').append(plugin.length()).append(':').append(plugin.lastModified());
+    }
+    sb.append(";annotations=").append(this.getAnnotations());
+    sb.append(";resolveAnnotations=").append(this.getResolveAnnotations());
+    sb.append(";db=").append(this.cloneAnnotationDB().getScanConfiguration());
+    sb.append(";outputFile=").append(outputFile == null ? "" : outputFile.getAbsolutePath());
+    sb.append(";encoding=").append(this.getEffectiveEncoding());
+    sb.append(";defaultPropertyName=").append(this.getDefaultPropertyName());
+    final Map<String, String> propertyNames = this.getPropertyNames();
+    sb.append(";propertyNames=").append(propertyNames == null ? "{}" : new TreeMap<String, String>(propertyNames));
+    final Map<String, String> namespacePropertyNames = this.getNamespacePropertyNames();
+    sb.append(";namespacePropertyNames=").append(namespacePropertyNames == null ? "{}" : new TreeMap<String, String>(namespacePropertyNames));
+    sb.append(";firstItemPrefix=").append(this.getFirstItemPrefix());
+    sb.append(";prefix=").append(this.getPrefix());
+    sb.append(";suffix=").append(this.getSuffix());
+    sb.append(";lastItemSuffix=").append(this.getLastItemSuffix());
+    sb.append(";streamOutput=").append(this.getStreamOutput());
+    sb.append(";deterministicOutput=").append(this.getDeterministicOutput());
+    sb.append(";persistenceXmlFragmentFile=").append(this.getPersistenceXmlFragmentFile());
+    sb.append(";jsonFile=").append(this.getJsonFile());
+    sb.append(";generatedClassName=").append(this.getGeneratedClassName());
+    sb.append(";generatedSourceDirectory=").append(this.getGeneratedSourceDirectory());
+    return sb.toString();
+  }
+
+  /**
+   * Sets the {@linkplain MavenProject#getProperties() project
+   * properties} recorded in the supplied rendered properties, as
+   * returned by the {@link #render(Map, Properties)} method.
+   *
+   * @param content the rendered properties; must not be {@code null}
+   *
+   * @exception IOException if {@code content} could not be read
+   */
+  private final void restoreProjectProperties(final byte[] content) throws IOException {
+    assert content != null;
+    final Properties properties = new Properties();
+    properties.load(new InputStreamReader(new ByteArrayInputStream(content), this.getEffectiveEncoding()));
+    final MavenProject project = this.getProject();
+    if (project != null) {
+      final Properties projectProperties = project.getProperties();
+      if (projectProperties != null) {
+        for (final String propertyName : properties.stringPropertyNames()) {
+          projectProperties.setProperty(propertyName, properties.getProperty(propertyName));
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the {@linkplain #getEncoding() configured character
+   * encoding}, accounting for possible {@code null} return values
+   * from an overridden {@link #getEncoding()} method, or {@code UTF8}
+   * if none is configured.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return the character encoding to write with; never {@code null}
+   */
+  private final String getEffectiveEncoding() {
+    String encoding = this.getEncoding();
+    if (encoding == null) {
+      encoding = "";
+    } else {
+      encoding = encoding.trim();
+    }
+    if (encoding.isEmpty()) {
+      encoding = "UTF8";
+    }
+    return encoding;
+  }
+
+  /**
+   * Renders the contents of the output file into a byte array using
+   * the {@linkplain #getEncoding() configured character encoding}, or
+   * UTF-8 if none is configured.
+   *
+   * <p>If the supplied {@link Properties} is {@code null}, the
+   * supplied {@link Map} is {@linkplain #write(Map, Writer) streamed};
+   * otherwise the {@link Properties} is {@linkplain #store(Properties,
+   * Writer) stored}.</p>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param propertyNameIndex a {@link Map} of class names indexed by
+   * property name, such as one returned by the {@link
+   * #indexByPropertyName(Map)} method; may be {@code null}
+   *
+   * @param properties the {@link Properties} to store; may be {@code
+   * null}
+   *
+   * @return the rendered contents; never {@code null}
+   *
+   * @exception IOException if an error occurs while rendering
+   */
+  final byte[] render(final Map<String, Set<String>> propertyNameIndex, final Properties properties) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+    final Writer writer = new BufferedWriter(new OutputStreamWriter(bytes, this.getEffectiveEncoding()));
+    if (properties == null) {
+      this.write(propertyNameIndex, writer);
+    } else {
+      this.store(properties, writer);
+    }
+    writer.close();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Replaces the contents of the supplied {@link File} with the
+   * supplied bytes, unless it already contains exactly those bytes.
+   *
+   * <p>This method behaves exactly like the {@link
+   * #replaceIfChanged(File, byte[], boolean)} method when that method
+   * is not told to ignore leading comments.</p>
+   *
+   * @param file the {@link File} to replace; must not be {@code null}
+   * and its parent directory must exist and be writable
+   *
+   * @param content the new contents; must not be {@code null}
+   *
+   * @return {@code true} if the {@link File} was written; {@code
+   * false} if it was left untouched because its contents were
+   * unchanged
+   *
+   * @exception IOException if an error occurs
+   *
+   * @exception IllegalArgumentException if either parameter is {@code
+   * null}
+   */
+  static final boolean replaceIfChanged(final File file, final byte[] content) throws IOException {
+    return replaceIfChanged(file, content, false);
+  }
+
+  /**
+   * Replaces the contents of the supplied {@link File} with the
+   * supplied bytes, unless it already contains those bytes.  If
+   * {@code ignoreLeadingComments} is {@code true}, then any lines
+   * beginning with {@code #} at the start of the {@link File} and of
+   * the supplied bytes, such as the date comment written by {@link
+   * Properties#store(Writer, String)}, are not compared.
+   *
+   * <p>The new contents are written to a temporary file in the same
+   * directory, which is then renamed to the supplied {@link File}, so
+   * that readers never observe a partially written file.  Where the
+   * platform does not permit renaming over an existing file, the
+   * existing file is deleted first, and so there is a brief window
+   * during which the {@link File} does not exist at all.</p>
+   *
+   * @param file the {@link File} to replace; must not be {@code null}
+   * and its parent directory must exist and be writable
+   *
+   * @param content the new contents; must not be {@code null}
+   *
+   * @param ignoreLeadingComments whether leading comment lines are
+   * ignored when comparing the {@link File} with the new contents
+   *
+   * @return {@code true} if the {@link File} was written; {@code
+   * false} if it was left untouched because its contents were
+   * unchanged
+   *
+   * @exception IOException if an error occurs
+   *
+   * @exception IllegalArgumentException if either {@code file} or
+   * {@code content} is {@code null}
+   */
+  static final boolean replaceIfChanged(final File file, final byte[] content, final boolean ignoreLeadingComments) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("file", new NullPointerException("file == null"));
+    }
+    if (content == null) {
+      throw new IllegalArgumentException("content", new NullPointerException("content == null"));
+    }
+    if (file.isFile() && (ignoreLeadingComments || file.length() == content.length) && contentEquals(file, content, ignoreLeadingComments)) {
+      return false;
+    }
+    final File directory = file.getAbsoluteFile().getParentFile();
+    final File temporaryFile = File.createTempFile(file.getName(), ".tmp", directory);
+    boolean renamed = false;
+    try {
+      final OutputStream out = new FileOutputStream(temporaryFile);
+      try {
+        out.write(content);
+      } finally {
+        out.close();
+      }
+      renamed = temporaryFile.renameTo(file);
+      if (!renamed && file.exists()) {
+        // Some platforms will not rename over an existing file.
+        file.delete();
+        renamed = temporaryFile.renameTo(file);
+      }
+      if (!renamed) {
+        throw new IOException(String.format("Could not rename %s to %s", temporaryFile, file));
+      }
+    } finally {
+      if (!renamed) {
+        temporaryFile.delete();
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns {@code true} if the supplied {@link File} contains the
+   * supplied bytes.
+   *
+   * @param file the {@link File} to read; must not be {@code null}
+   *
+   * @param content the bytes to compare against; must not be {@code
+   * null}
+   *
+   * @param ignoreLeadingComments whether lines beginning with {@code
+   * #} at the start of the {@link File} and of {@code content} are
+   * skipped before comparing
+   *
+   * @return {@code true} if the contents are equal; {@code false}
+   * otherwise
+   *
+   * @exception IOException if the {@link File} could not be read
+   */
+  private static final boolean contentEquals(final File file, final byte[] content, final boolean ignoreLeadingComments) throws IOException {
+    assert file != null;
+    assert content != null;
+    final InputStream in = new BufferedInputStream(new FileInputStream(file));
+    try {
+      int offset = 0;
+      if (ignoreLeadingComments) {
+        final InputStream contentStream = new ByteArrayInputStream(content);
+        skipLeadingComments(contentStream);
+        offset = content.length - contentStream.available();
+        skipLeadingComments(in);
+      }
+      for (int i = offset; i < content.length; i++) {
+        if (in.read() != (content[i] & 0xff)) {
+          return false;
+        }
+      }
+      return in.read() < 0;
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Reads past any lines beginning with {@code #} at the current
+   * position of the supplied {@link InputStream}, which must
+   * {@linkplain InputStream#markSupported() support marking}.
+   *
+   * @param in the {@link InputStream}; must not be {@code null}
+   *
+   * @exception IOException if an error occurs while reading
+   */
+  private static final void skipLeadingComments(final InputStream in) throws IOException {
+    assert in != null;
+    assert in.markSupported();
+    while (true) {
+      in.mark(1);
+      if (in.read() != '#') {
+        in.reset();
+        return;
+      }
+      int b;
+      do {
+        b = in.read();
+      } while (b >= 0 && b != '\n');
+    }
+  }
+
+  /**
+   * Sets a {@linkplain MavenProject#getProperties() project property}
+   * for each property name in the supplied {@link Map} whose value is
+   * the {@linkplain #decorate(String, String, String) decorated},
+   * concatenated class names indexed under it.  Only one such value
+   * is assembled at a time.
+   *
+   * <p>This method does nothing if there is no {@linkplain
+   * #getProject() project}.</p>
+   *
+   * @param propertyNameIndex a {@link Map} of class names indexed by
+   * property name, such as one returned by the {@link
+   * #indexByPropertyName(Map)} method; may be {@code null}
+   */
+  private final void setProjectProperties(final Map<String, Set<String>> propertyNameIndex) {
+    final MavenProject project = this.getProject();
+    if (project != null && propertyNameIndex != null && !propertyNameIndex.isEmpty()) {
+      final Properties projectProperties = project.getProperties();
+      if (projectProperties != null) {
+        final Log log = this.getLog();
+        final StringBuilder sb = new StringBuilder();
+        for (final Entry<String, Set<String>> entry : propertyNameIndex.entrySet()) {
+          assert entry != null;
+          sb.setLength(0);
+          try {
+            this.appendDecorated(entry.getValue(), sb);
+          } catch (final IOException impossible) {
+            throw (InternalError)new InternalError(impossible.toString()).initCause(impossible);
+          }
+          final String value = sb.toString();
+          if (log != null && log.isDebugEnabled()) {
+            log.debug(String.format("%s = %s", entry.getKey(), value));
+          }
+          projectProperties.setProperty(entry.getKey(), value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the property name to use for the names of {@link Class}es
+   * that belong to the default package.
+   *
+   * <p>This method may return {@code null}.  However, other portions
+   * of this mojo's code may substitute a default value in such
+   * cases.</p>
+   *
+   * @return the property name to use for the names of {@link Class}es
+   * that belong to the default package, or {@code null}
+   */
+  public String getDefaultPropertyName() {
+    return this.defaultPropertyName;
+  }
+
+  /**
+   * Sets the property name to use for the names of {@link Class}es
+   * that belong to the default package.
+   *
+   * @param defaultPropertyName the property name; may be {@code
+   * null}, but this mojo may use a default value instead
+   */
+  public void setDefaultPropertyName(String defaultPropertyName) {
+    if (defaultPropertyName == null) {
+      defaultPropertyName = "";
+    } else {
+      defaultPropertyName = defaultPropertyName.trim();
+    }
+    if (defaultPropertyName.isEmpty()) {
+      defaultPropertyName = DEFAULT_DEFAULT_PROPERTY_NAME;
+    }
+    this.defaultPropertyName = defaultPropertyName;
+  }
+
+  /**
+   * Builds and returns a {@link Map} of the names of classes bearing
+   * any of the {@linkplain #getAnnotations() annotations of
+   * interest}, indexed by the
+   * {@linkplain #determinePropertyName(String) property name} under
+   * which each will be reported.
+   *
+   * <p>The sets of class names in the returned {@link Map} are sorted
+   * by their natural order.</p>
+   *
+   * <p>This method is one of the steps of the {@link #execute()}
+   * method, and is package-private so that it can be measured and
+   * tested in isolation.</p>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param ai the {@linkplain AnnotationDB#getAnnotationIndex()
+   * annotation index} produced by a scan, or the {@linkplain
+   * #findAnnotatedClasses(AnnotationDB) annotated classes} found in
+   * it; may be {@code null}
+   *
+   * @return a {@link Map} of class names indexed by property name;
+   * never {@code null}
+   */
+  final Map<String, Set<String>> indexByPropertyName(final Map<String, Set<String>> ai) {
+    final Log log = this.getLog();
+    final Map<String, Set<String>> propertyNameIndex = new HashMap<String, Set<String>>();
+    if (ai == null) {
+      if (log != null && log.isWarnEnabled()) {
+        log.warn("After scanning for Entities, a null annotation index was returned by the AnnotationDB.");
+      }
+    } else if (ai.isEmpty()) {
+      if (log != null && log.isWarnEnabled()) {
+        log.warn("After scanning for Entities, no annotated Entities were found.");
+      }
+    } else {
+      
+      // For each of the annotations we are interested in, do some
+      // work on the classes that sport those annotations.
+      final Map<String, String> namespacePropertyNames = this.getNamespacePropertyNames();
+      for (final String jpaAnnotation : this.getAnnotations()) {
+
+        // Find all classnames annotated with that annotation
+        // (e.g. @Entity, @MappedSuperclass, etc.).
+        final Set<String> annotatedClassNames = ai.get(jpaAnnotation);
+
+        if (annotatedClassNames != null && !annotatedClassNames.isEmpty()) {
+
+          // If the annotation's namespace (e.g. jakarta.persistence)
+          // has a property of its own, everything found through it
+          // goes there.
+          String namespacePropertyName = null;
+          if (namespacePropertyNames != null) {
+            namespacePropertyName = this.stripQuotes(namespacePropertyNames.get(namespaceOf(jpaAnnotation)));
+            if (namespacePropertyName != null) {
+              namespacePropertyName = namespacePropertyName.trim();
+              if (namespacePropertyName.length() == 0) {
+                namespacePropertyName = null;
+              }
+            }
+          }
+
+          for (final String annotatedClassName : annotatedClassNames) {
+            assert annotatedClassName != null;
+            
+            // For every classname we find, see which property name it
+            // is going to be assigned to.  For example, we might be
+            // configured so that com.foobar.* get assigned to the
+            // foobarClassnames property.
+            final String propertyName = namespacePropertyName == null ? this.determinePropertyName(annotatedClassName) : namespacePropertyName;
+            assert propertyName != null;
+            
+            Set<String> relevantClassNames = propertyNameIndex.get(propertyName);
+            if (relevantClassNames == null) {
+              relevantClassNames = new TreeSet<String>();
+              propertyNameIndex.put(propertyName, relevantClassNames);
+            }
+            assert relevantClassNames != null;
+            
+            // Add the annotated class to the set of other annotated
+            // classnames stored under that property.
+            relevantClassNames.add(annotatedClassName);
+            
+          }
+        }
+      }
+    }
+    return propertyNameIndex;
+  }
+
+  /**
+   * Converts the supplied {@link Map} of class names indexed by
+   * property name into a {@link Properties} object whose values are
+   * the {@linkplain #decorate(String, String, String) decorated},
+   * concatenated class names.
+   *
+   * <p>This method is one of the steps of the {@link #execute()}
+   * method, and is package-private so that it can be measured and
+   * tested in isolation.</p>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param propertyNameIndex a {@link Map} of class names indexed by
+   * property name, such as one returned by the {@link
+   * #indexByPropertyName(Map)} method; may be {@code null}
+   *
+   * @return a new {@link Properties}; never {@code null}
+   */
+  final Properties toProperties(final Map<String, Set<String>> propertyNameIndex) {
+    final Properties properties = new Properties();
+    if (propertyNameIndex != null && !propertyNameIndex.isEmpty()) {
+      for (final Entry<String, Set<String>> entry : propertyNameIndex.entrySet()) {
+        assert entry != null;
+          
+        // For every entry indexing a set of classes under a property
+        // name, stringify the set of classnames into a single
+        // StringBuilder.  Index that stringified set under the
+        // property name.  This Properties will be the contents of our file.
+          
+        final StringBuilder sb = new StringBuilder();
+          
+        final String propertyName = entry.getKey();
+        assert propertyName != null;
+          
+        final Set<String> classNames = entry.getValue();
+        assert classNames != null;
+        assert !classNames.isEmpty();
+
+        try {
+          this.appendDecorated(classNames, sb);
+        } catch (final IOException impossible) {
+          throw (InternalError)new InternalError(impossible.toString()).initCause(impossible);
+        }
+          
+        properties.setProperty(propertyName, sb.toString());
+          
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * Appends the {@linkplain #decorate(String, String, String)
+   * decorated} forms of the supplied class names, in iteration order,
+   * to the supplied {@link Appendable}.  The first class name is
+   * decorated with the {@linkplain #getFirstItemPrefix() first item
+   * prefix}, the last with the {@linkplain #getLastItemSuffix() last
+   * item suffix}, and all others with the {@linkplain #getPrefix()
+   * prefix} and {@linkplain #getSuffix() suffix}.
+   *
+   * @param classNames the class names to decorate; may be {@code
+   * null}
+   *
+   * @param out the {@link Appendable} to append to; must not be
+   * {@code null}
+   *
+   * @exception IOException if {@code out} throws it
+   */
+  private final void appendDecorated(final Set<String> classNames, final Appendable out) throws IOException {
+    assert out != null;
+    if (classNames != null) {
+      final String firstItemPrefix = this.getFirstItemPrefix();
+      final String prefix = this.getPrefix();
+      final String suffix = this.getSuffix();
+      final String lastItemSuffix = this.getLastItemSuffix();
+      boolean first = true;
+      final Iterator<String> classNamesIterator = classNames.iterator();
+      while (classNamesIterator.hasNext()) {
+        final String decorated = this.decorate(classNamesIterator.next(), first ? firstItemPrefix : prefix, classNamesIterator.hasNext() ? suffix : lastItemSuffix);
+        if (decorated != null && decorated.length() > 0) {
+          out.append(decorated);
+          first = false;
+        }
+      }
+    }
+  }
+
+  /**
+   * Streams the supplied {@link Map} of class names indexed by
+   * property name to the supplied {@link Writer} in the format read
+   * by the {@link Properties#load(java.io.Reader)} method, and flushes
+   * it.  The {@link Writer} is not closed.
+   *
+   * <p>Each property's value consists of the {@linkplain
+   * #decorate(String, String, String) decorated}, concatenated class
+   * names indexed under it, as with the {@link #toProperties(Map)}
+   * method, but the value is escaped and written as each class name
+   * is decorated rather than being assembled in memory first.
+   * Properties are written in property name order.  A date comment
+   * is written unless {@linkplain #getDeterministicOutput() output is
+   * deterministic}.</p>
+   *
+   * <p>This method is one of the steps of the {@link #execute()}
+   * method when {@linkplain #getStreamOutput() output is streamed},
+   * and is package-private so that it can be measured and tested in
+   * isolation.</p>
+   *
+   * @param propertyNameIndex a {@link Map} of class names indexed by
+   * property name, such as one returned by the {@link
+   * #indexByPropertyName(Map)} method; may be {@code null}
+   *
+   * @param writer the {@link Writer} to write to; must not be {@code
+   * null}
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  final void write(final Map<String, Set<String>> propertyNameIndex, final Writer writer) throws IOException {
+    if (writer == null) {
+      throw new IllegalArgumentException("writer", new NullPointerException("writer == null"));
+    }
+    final PropertiesWriter pw = new PropertiesWriter(writer);
+    pw.writeComment("Generated by " + this.getClass().getName());
+    if (!this.getDeterministicOutput()) {
+      pw.writeDateComment();
+    }
+    if (propertyNameIndex != null && !propertyNameIndex.isEmpty()) {
+      final Appendable value = new Appendable() {
+          @Override
+          public final Appendable append(final CharSequence chars) throws IOException {
+            pw.appendValue(chars);
+            return this;
+          }
+
+          @Override
+          public final Appendable append(final CharSequence chars, final int start, final int end) throws IOException {
+            pw.appendValue(chars == null ? "null" : chars.subSequence(start, end));
+            return this;
+          }
+
+          @Override
+          public final Appendable append(final char c) throws IOException {
+            pw.appendValue(String.valueOf(c));
+            return this;
+          }
+        };
+      for (final String propertyName : new TreeSet<String>(propertyNameIndex.keySet())) {
+        if (propertyName != null) {
+          pw.startProperty(propertyName);
+          this.appendDecorated(propertyNameIndex.get(propertyName), value);
+          pw.endProperty();
+        }
+      }
+    }
+    pw.flush();
+  }
+
+  /**
+   * Writes the supplied {@link Properties} to the supplied {@link
+   * Writer} and flushes it.  The {@link Writer} is not closed.
+   *
+   * <p>If {@linkplain #getDeterministicOutput() output is
+   * deterministic}, the properties are written in key order and no
+   * date comment is written.</p>
+   *
+   * <p>This method is one of the steps of the {@link #execute()}
+   * method, and is package-private so that it can be measured and
+   * tested in isolation.</p>
+   *
+   * @param properties the {@link Properties} to write; must not be
+   * {@code null}
+   *
+   * @param writer the {@link Writer} to write to; must not be {@code
+   * null}
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  final void store(final Properties properties, final Writer writer) throws IOException {
+    if (properties == null) {
+      throw new IllegalArgumentException("properties", new NullPointerException("properties == null"));
+    }
+    if (writer == null) {
+      throw new IllegalArgumentException("writer", new NullPointerException("writer == null"));
+    }
+    if (this.getDeterministicOutput()) {
+      final PropertiesWriter pw = new PropertiesWriter(writer);
+      pw.writeComment("Generated by " + this.getClass().getName());
+      for (final String key : new TreeSet<String>(properties.stringPropertyNames())) {
+        pw.writeProperty(key, properties.getProperty(key));
+      }
+      pw.flush();
+    } else {
+      properties.store(writer, "Generated by " + this.getClass().getName());
+      writer.flush();
+    }
+  }
+
+  /**
+   * Returns the appropriate property name given a {@linkplain Class#getName() class name}.
+   *
+   * <p>If the supplied {@code className} is {@code null} or consists
+   * solely of {@linkplain Character#isWhitespace(char) whitespace},
+   * then the {@linkplain #getDefaultPropertyName() default property
+   * name} is returned.<p>
+   *
+   * <p>Otherwise, the property name is the one that the {@linkplain
+   * #getPropertyNames() property names} associate with the longest
+   * leading sequence of the class' package segments.  For example,
+   * given property names for {@code com.foobar} and {@code com}, the
+   * class name {@code com.foobar.biz.Foo} is assigned the property
+   * name for {@code com.foobar}.  If no such sequence has a property
+   * name then the {@linkplain #getDefaultPropertyName() default
+   * property name} is returned.</p>
+   *
+   * <p>The lookup is performed by a {@link PackageTrie} built once
+   * from the {@linkplain #getPropertyNames() property names}, and
+   * allocates nothing.</p>
+   *
+   * @param className the class name; may be {@code null}
+   *
+   * @return the property name under which {@code className} should
+   * be listed; never {@code null}
+   */
+  public String determinePropertyName(final String className) {
+    final Log log = this.getLog();
+    assert log != null;
+    String propertyName = this.getDefaultPropertyName();
+    if (className != null) {
+      // Trim without allocating.
+      int start = 0;
+      int end = className.length();
+      while (start < end && className.charAt(start) <= ' ') {
+        start++;
+      }
+      while (end > start && className.charAt(end - 1) <= ' ') {
+        end--;
+      }
+      if (start < end) {
+        final Map<String, String> propertyNames = this.getPropertyNames();
+        if (propertyNames == null) {
+          if (log.isWarnEnabled()) {
+            log.warn(String.format("Property names were never initialized; assigning default property name (%s) to class name %s.", propertyName, className));
+          }
+        } else if (propertyNames.isEmpty()) {
+          if (log.isWarnEnabled()) {
+            log.warn(String.format("Property names were initialized to the empty set; assigning default property name (%s) to class name %s.", propertyName, className));
+          }
+        } else {
+          PackageTrie<String> propertyNameTrie = this.propertyNameTrie;
+          if (propertyNameTrie == null) {
+            propertyNameTrie = new PackageTrie<String>(propertyNames);
+            this.propertyNameTrie = propertyNameTrie;
+          }
+          propertyName = propertyNameTrie.get(className, start, end);
+        }
+      }
+    }
+    if (propertyName == null) {
+      propertyName = this.getDefaultPropertyName();
+      if (propertyName == null) {
+        propertyName = DEFAULT_DEFAULT_PROPERTY_NAME;
+      }
+    }
+    return propertyName;
+  }
+
+  /**
+   * Decorates the supplied {@link Class#getName() class name} with
+   * the supplied {@code prefix} and {@code suffix} parameters and
+   * returns the result.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param classname the class name to decorate; if {@code null} then
+   * {@code null} will be returned
+   *
+   * @param prefix the prefix to decorate with; may be {@code null}
+   *
+   * @param suffix the suffix to decorate with; may be {@code null}
+   *
+   * @return the decorated class name, or {@code null}
+   */
+  protected String decorate(final String classname,
+                            final String prefix,
+                            final String suffix) {
+    final String returnValue;
+    if (classname == null) {
+      returnValue = null;
+    } else {
+      final StringBuilder sb = new StringBuilder();     
+      if (prefix != null) {
+        sb.append(prefix); 
+      }
+      sb.append(classname);
+      if (suffix != null) {
+        sb.append(suffix);
+      }
+      returnValue = sb.toString();
+    }
+    return returnValue;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>This implementation overrides that of {@link AbstractJPAMojo}
+   * to ensure that the created {@link AnnotationDB} {@linkplain
+   * AnnotationDB#setScanClassAnnotations(boolean) only scans
+   * <tt>Class</tt>-level annotations}, {@linkplain
+   * AnnotationDB#setClassAnnotationsOnly(boolean) reads nothing else}
+   * from each class file and {@linkplain
+   * AnnotationDB#setRequiredReferences(String[]) skips} any class
+   * file whose constant pool does not mention the package of any of
+   * the {@linkplain #getAnnotations() annotations} without parsing
+   * it, unless {@linkplain #getResolveAnnotations() annotations are
+   * resolved}, in which case it {@linkplain
+   * AnnotationDB#setIndexSupertypes(boolean) indexes supertypes}
+   * instead.</p>
+   *
+   * @return {@inheritDoc}
+   */
+  @Override
+  protected AnnotationDB createAnnotationDB() {
+    final AnnotationDB db = new AnnotationDB();
+    db.setScanClassAnnotations(true);
+    db.setScanMethodAnnotations(false);
+    db.setScanParameterAnnotations(false);
+    db.setScanFieldAnnotations(false);
+    return this.configureAnnotationDB(db);
+  }
+
+}
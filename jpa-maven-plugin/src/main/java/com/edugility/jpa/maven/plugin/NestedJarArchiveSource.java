@@ -0,0 +1,219 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * An {@link ArchiveSource} whose entries are those of a jar file
+ * stored as an entry of a local jar file, such as a library packaged
+ * within a web or enterprise application archive.
+ *
+ * <p>The inner jar file is streamed directly out of the outer one and
+ * is never extracted or buffered in its entirety.  {@linkplain
+ * #scan(ArchiveSource.Visitor) Sequential access} reads it exactly
+ * once.  {@linkplain #open(String) Random access} must read it from
+ * the start up to the requested entry, and so is best avoided for
+ * large inner jar files.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+final class NestedJarArchiveSource extends ArchiveSource {
+
+  /**
+   * The outer jar file.  This field is never {@code null}.
+   */
+  private final ZipFile outer;
+
+  /**
+   * The entry of the {@link #outer} jar file that holds the inner jar
+   * file.  This field is never {@code null}.
+   */
+  private final ZipEntry inner;
+
+  /**
+   * The names of the entries, computed lazily.  This field may be
+   * {@code null}.
+   *
+   * @see #getEntryNames()
+   */
+  private List<String> entryNames;
+
+  /**
+   * Creates a new {@link NestedJarArchiveSource}.
+   *
+   * @param outer the outer jar file; must not be {@code null}
+   *
+   * @param entryName the name of the entry of {@code outer} that
+   * holds the inner jar file; must not be {@code null}
+   *
+   * @exception FileNotFoundException if there is no such entry
+   *
+   * @exception IOException if the outer jar file could not be opened
+   *
+   * @exception IllegalArgumentException if either parameter is {@code
+   * null}
+   */
+  NestedJarArchiveSource(final File outer, final String entryName) throws IOException {
+    super(outer == null || entryName == null ? "" : String.format("%s!/%s", outer.getPath(), entryName));
+    if (outer == null) {
+      throw new IllegalArgumentException("outer", new NullPointerException("outer == null"));
+    }
+    if (entryName == null) {
+      throw new IllegalArgumentException("entryName", new NullPointerException("entryName == null"));
+    }
+    this.outer = new ZipFile(outer);
+    final ZipEntry inner = this.outer.getEntry(entryName);
+    if (inner == null || inner.isDirectory()) {
+      this.outer.close();
+      throw new FileNotFoundException(this.getName());
+    }
+    this.inner = inner;
+  }
+
+  @Override
+  final List<String> getEntryNames() throws IOException {
+    if (this.entryNames == null) {
+      final List<String> entryNames = new ArrayList<String>();
+      final ZipInputStream stream = this.openInner();
+      try {
+        ZipEntry entry;
+        while ((entry = stream.getNextEntry()) != null) {
+          if (!entry.isDirectory()) {
+            entryNames.add(entry.getName());
+          }
+        }
+      } finally {
+        stream.close();
+      }
+      this.entryNames = Collections.unmodifiableList(entryNames);
+    }
+    return this.entryNames;
+  }
+
+  @Override
+  final InputStream open(final String entryName) throws IOException {
+    if (entryName == null) {
+      throw new IllegalArgumentException("entryName", new NullPointerException("entryName == null"));
+    }
+    final ZipInputStream stream = this.openInner();
+    boolean found = false;
+    try {
+      ZipEntry entry;
+      while ((entry = stream.getNextEntry()) != null) {
+        if (!entry.isDirectory() && entryName.equals(entry.getName())) {
+          found = true;
+          return stream;
+        }
+      }
+      return null;
+    } finally {
+      if (!found) {
+        stream.close();
+      }
+    }
+  }
+
+  /**
+   * Streams the inner jar file once, presenting each entry that the
+   * supplied {@link Visitor} accepts.
+   *
+   * @param visitor the {@link Visitor}; must not be {@code null}
+   *
+   * @return {@code false} if the {@link Visitor} asked to stop;
+   * {@code true} otherwise
+   *
+   * @exception IOException if an entry could not be read
+   */
+  @Override
+  final boolean scan(final Visitor visitor) throws IOException {
+    if (visitor == null) {
+      throw new IllegalArgumentException("visitor", new NullPointerException("visitor == null"));
+    }
+    final ZipInputStream stream = this.openInner();
+    try {
+      final InputStream entryStream = new FilterInputStream(stream) {
+          @Override
+          public final void close() {
+            // The next call to getNextEntry() closes the entry.
+          }
+        };
+      ZipEntry entry;
+      while ((entry = stream.getNextEntry()) != null) {
+        final String entryName = entry.getName();
+        if (!entry.isDirectory() && visitor.accepts(entryName) && !visit(visitor, entryName, entryStream)) {
+          return false;
+        }
+      }
+    } finally {
+      stream.close();
+    }
+    return true;
+  }
+
+  /**
+   * Closes the outer jar file.
+   *
+   * @exception IOException if an error occurs
+   */
+  @Override
+  public final void close() throws IOException {
+    this.outer.close();
+  }
+
+  /**
+   * Returns a new {@link ZipInputStream} positioned at the start of
+   * the inner jar file.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a new {@link ZipInputStream}; never {@code null}
+   *
+   * @exception IOException if the inner jar file could not be opened
+   */
+  private final ZipInputStream openInner() throws IOException {
+    return new ZipInputStream(this.outer.getInputStream(this.inner));
+  }
+
+}
@@ -0,0 +1,446 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Writes {@link Map}s of class names indexed by property name, such
+ * as those built by the {@link
+ * ListEntityClassnamesMojo#indexByPropertyName(Map)} method, in
+ * formats other than that of a {@link java.util.Properties} file.
+ *
+ * <p>The following formats are supported:</p>
+ *
+ * <ul>
+ *
+ * <li>a <tt>persistence.xml</tt> fragment consisting of one {@code
+ * <class>} element per class name ({@link
+ * #writePersistenceXmlFragment(Map, Writer)})</li>
+ *
+ * <li>a JSON object whose members are arrays of class names ({@link
+ * #writeJson(Map, Writer)})</li>
+ *
+ * <li>the source of a Java class with one {@code public static final
+ * String[]} field per property name ({@link #writeJavaSource(Map,
+ * String, Writer)})</li>
+ *
+ * </ul>
+ *
+ * <p>Property names and the class names under each are always
+ * written in their natural order, so the same {@link Map} always
+ * produces the same output.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+final class OutputFormats {
+
+  /**
+   * The line separator used by all formats.
+   */
+  private static final String NEWLINE = "\n";
+
+  /**
+   * Creates a new {@link OutputFormats}; this constructor is never
+   * called.
+   */
+  private OutputFormats() {
+    super();
+  }
+
+  /**
+   * Writes the supplied class names as a <tt>persistence.xml</tt>
+   * fragment: one {@code <class>} element per class name, with the
+   * class names under each property name preceded by an XML comment
+   * naming it.  The fragment is suitable for inclusion within a
+   * {@code <persistence-unit>} element.
+   *
+   * @param propertyNameIndex a {@link Map} of class names indexed by
+   * property name; may be {@code null}
+   *
+   * @param writer the {@link Writer} to write to; must not be {@code
+   * null}; it is flushed but not closed
+   *
+   * @exception IOException if an error occurs while writing
+   *
+   * @exception IllegalArgumentException if {@code writer} is {@code
+   * null}
+   */
+  static final void writePersistenceXmlFragment(final Map<String, Set<String>> propertyNameIndex, final Writer writer) throws IOException {
+    if (writer == null) {
+      throw new IllegalArgumentException("writer", new NullPointerException("writer == null"));
+    }
+    writer.write("<!-- Generated by ");
+    writer.write(ListEntityClassnamesMojo.class.getName());
+    writer.write(" -->");
+    writer.write(NEWLINE);
+    if (propertyNameIndex != null) {
+      for (final String propertyName : new TreeSet<String>(propertyNameIndex.keySet())) {
+        writer.write("<!-- ");
+        // "--" may not appear within an XML comment.
+        writer.write(propertyName.replace("--", "- -"));
+        writer.write(" -->");
+        writer.write(NEWLINE);
+        for (final String className : sorted(propertyNameIndex.get(propertyName))) {
+          writer.write("<class>");
+          writeXmlText(className, writer);
+          writer.write("</class>");
+          writer.write(NEWLINE);
+        }
+      }
+    }
+    writer.flush();
+  }
+
+  /**
+   * Writes the supplied class names as a JSON object whose members
+   * are named after property names and whose values are arrays of
+   * class names.
+   *
+   * @param propertyNameIndex a {@link Map} of class names indexed by
+   * property name; may be {@code null}
+   *
+   * @param writer the {@link Writer} to write to; must not be {@code
+   * null}; it is flushed but not closed
+   *
+   * @exception IOException if an error occurs while writing
+   *
+   * @exception IllegalArgumentException if {@code writer} is {@code
+   * null}
+   */
+  static final void writeJson(final Map<String, Set<String>> propertyNameIndex, final Writer writer) throws IOException {
+    if (writer == null) {
+      throw new IllegalArgumentException("writer", new NullPointerException("writer == null"));
+    }
+    writer.write('{');
+    if (propertyNameIndex != null && !propertyNameIndex.isEmpty()) {
+      boolean firstProperty = true;
+      for (final String propertyName : new TreeSet<String>(propertyNameIndex.keySet())) {
+        writer.write(firstProperty ? NEWLINE : "," + NEWLINE);
+        firstProperty = false;
+        writer.write("  ");
+        writeJsonString(propertyName, writer);
+        writer.write(" : [");
+        boolean firstClassName = true;
+        for (final String className : sorted(propertyNameIndex.get(propertyName))) {
+          writer.write(firstClassName ? NEWLINE : "," + NEWLINE);
+          firstClassName = false;
+          writer.write("    ");
+          writeJsonString(className, writer);
+        }
+        if (!firstClassName) {
+          writer.write(NEWLINE);
+          writer.write("  ");
+        }
+        writer.write(']');
+      }
+      writer.write(NEWLINE);
+    }
+    writer.write('}');
+    writer.write(NEWLINE);
+    writer.flush();
+  }
+
+  /**
+   * Writes the source of a Java class with the supplied fully
+   * qualified name that declares, for each property name, a {@code
+   * public static final String[]} field holding the class names
+   * indexed under it.
+   *
+   * <p>Each field is named by converting its property name to upper
+   * case, separating words with underscores; for example, the class
+   * names listed under {@code entityClassnames} are held in a field
+   * named {@code ENTITY_CLASSNAMES}.</p>
+   *
+   * @param propertyNameIndex a {@link Map} of class names indexed by
+   * property name; may be {@code null}
+   *
+   * @param className the fully qualified name of the class to
+   * generate; must not be {@code null}
+   *
+   * @param writer the {@link Writer} to write to; must not be {@code
+   * null}; it is flushed but not closed
+   *
+   * @exception IOException if an error occurs while writing
+   *
+   * @exception IllegalArgumentException if {@code className} or
+   * {@code writer} is {@code null}, or if {@code className} is not a
+   * valid Java class name
+   */
+  static final void writeJavaSource(final Map<String, Set<String>> propertyNameIndex, final String className, final Writer writer) throws IOException {
+    if (className == null) {
+      throw new IllegalArgumentException("className", new NullPointerException("className == null"));
+    }
+    if (writer == null) {
+      throw new IllegalArgumentException("writer", new NullPointerException("writer == null"));
+    }
+    for (final String segment : className.split("\\.", -1)) {
+      if (!isJavaIdentifier(segment)) {
+        throw new IllegalArgumentException(String.format("Not a valid Java class name: %s", className));
+      }
+    }
+    final int lastDot = className.lastIndexOf('.');
+    final String simpleName = className.substring(lastDot + 1);
+
+    writer.write("// Generated by ");
+    writer.write(ListEntityClassnamesMojo.class.getName());
+    writer.write("; do not edit.");
+    writer.write(NEWLINE);
+    if (lastDot > 0) {
+      writer.write("package ");
+      writer.write(className.substring(0, lastDot));
+      writer.write(';');
+      writer.write(NEWLINE);
+    }
+    writer.write(NEWLINE);
+    writer.write("/**" + NEWLINE);
+    writer.write(" * The names of annotated persistent classes, indexed by property name." + NEWLINE);
+    writer.write(" */" + NEWLINE);
+    writer.write("public final class ");
+    writer.write(simpleName);
+    writer.write(" {" + NEWLINE);
+    if (propertyNameIndex != null) {
+      final Set<String> fieldNames = new HashSet<String>();
+      for (final String propertyName : new TreeSet<String>(propertyNameIndex.keySet())) {
+        String fieldName = toConstantName(propertyName);
+        if (!fieldNames.add(fieldName)) {
+          int i = 2;
+          while (!fieldNames.add(fieldName + "_" + i)) {
+            i++;
+          }
+          fieldName = fieldName + "_" + i;
+        }
+        writer.write(NEWLINE);
+        writer.write("  /**" + NEWLINE);
+        writer.write("   * The class names listed under the <tt>");
+        // "*/" would end the comment early.
+        writeXmlText(propertyName.replace("*/", "* /"), writer);
+        writer.write("</tt> property." + NEWLINE);
+        writer.write("   */" + NEWLINE);
+        writer.write("  public static final String[] ");
+        writer.write(fieldName);
+        writer.write(" = {");
+        boolean first = true;
+        for (final String name : sorted(propertyNameIndex.get(propertyName))) {
+          writer.write(first ? NEWLINE : "," + NEWLINE);
+          first = false;
+          writer.write("    ");
+          writeJavaString(name, writer);
+        }
+        writer.write(NEWLINE);
+        writer.write("  };" + NEWLINE);
+      }
+    }
+    writer.write(NEWLINE);
+    writer.write("  private ");
+    writer.write(simpleName);
+    writer.write("() {" + NEWLINE);
+    writer.write("    super();" + NEWLINE);
+    writer.write("  }" + NEWLINE);
+    writer.write(NEWLINE);
+    writer.write('}');
+    writer.write(NEWLINE);
+    writer.flush();
+  }
+
+  /**
+   * Returns the name of the constant that holds the class names
+   * listed under the supplied property name in a class generated by
+   * the {@link #writeJavaSource(Map, String, Writer)} method.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param propertyName the property name; must not be {@code null}
+   *
+   * @return a valid Java identifier; never {@code null}
+   */
+  static final String toConstantName(final String propertyName) {
+    assert propertyName != null;
+    final StringBuilder sb = new StringBuilder(propertyName.length() + 8);
+    final int length = propertyName.length();
+    for (int i = 0; i < length; i++) {
+      final char c = propertyName.charAt(i);
+      if (Character.isUpperCase(c) && i > 0 && Character.isLowerCase(propertyName.charAt(i - 1))) {
+        sb.append('_');
+      }
+      if (Character.isJavaIdentifierPart(c) && c != '$') {
+        sb.append(Character.toUpperCase(c));
+      } else {
+        sb.append('_');
+      }
+    }
+    if (sb.length() == 0 || !Character.isJavaIdentifierStart(sb.charAt(0))) {
+      sb.insert(0, '_');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Returns {@code true} if the supplied {@link String} is a valid
+   * Java identifier.
+   *
+   * @param s the {@link String} to test; must not be {@code null}
+   *
+   * @return {@code true} if {@code s} is a valid Java identifier
+   */
+  private static final boolean isJavaIdentifier(final String s) {
+    assert s != null;
+    if (s.isEmpty() || !Character.isJavaIdentifierStart(s.charAt(0))) {
+      return false;
+    }
+    for (int i = 1; i < s.length(); i++) {
+      if (!Character.isJavaIdentifierPart(s.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the supplied {@link Set} of class names in their natural
+   * order, without copying it if it is already so ordered.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param classNames the class names; may be {@code null}
+   *
+   * @return the class names in their natural order; never {@code
+   * null}
+   */
+  private static final Set<String> sorted(final Set<String> classNames) {
+    if (classNames == null) {
+      return new TreeSet<String>();
+    }
+    if (classNames instanceof TreeSet && ((TreeSet<String>)classNames).comparator() == null) {
+      return classNames;
+    }
+    return new TreeSet<String>(classNames);
+  }
+
+  /**
+   * Writes the supplied text with the XML markup characters {@code
+   * &}, {@code <} and {@code >} escaped.
+   *
+   * @param text the text; must not be {@code null}
+   *
+   * @param writer the {@link Writer} to write to; must not be {@code
+   * null}
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  private static final void writeXmlText(final String text, final Writer writer) throws IOException {
+    final int length = text.length();
+    for (int i = 0; i < length; i++) {
+      final char c = text.charAt(i);
+      switch (c) {
+      case '&':
+        writer.write("&amp;");
+        break;
+      case '<':
+        writer.write("&lt;");
+        break;
+      case '>':
+        writer.write("&gt;");
+        break;
+      default:
+        writer.write(c);
+        break;
+      }
+    }
+  }
+
+  /**
+   * Writes the supplied text as a quoted JSON string.
+   *
+   * <p>This method is package-private for use by this package's other
+   * JSON writers only.</p>
+   *
+   * @param text the text; must not be {@code null}
+   *
+   * @param writer the {@link Writer} to write to; must not be {@code
+   * null}
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  static final void writeJsonString(final String text, final Writer writer) throws IOException {
+    writer.write('"');
+    final int length = text.length();
+    for (int i = 0; i < length; i++) {
+      final char c = text.charAt(i);
+      if (c == '"' || c == '\\') {
+        writer.write('\\');
+        writer.write(c);
+      } else if (c < 0x20) {
+        writer.write(String.format("\\u%04x", (int)c));
+      } else {
+        writer.write(c);
+      }
+    }
+    writer.write('"');
+  }
+
+  /**
+   * Writes the supplied text as a Java string literal, escaping all
+   * characters outside of printable ASCII so that the result does not
+   * depend on the source encoding.
+   *
+   * @param text the text; must not be {@code null}
+   *
+   * @param writer the {@link Writer} to write to; must not be {@code
+   * null}
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  private static final void writeJavaString(final String text, final Writer writer) throws IOException {
+    writer.write('"');
+    final int length = text.length();
+    for (int i = 0; i < length; i++) {
+      final char c = text.charAt(i);
+      if (c == '"' || c == '\\') {
+        writer.write('\\');
+        writer.write(c);
+      } else if (c < 0x20 || c > 0x7e) {
+        writer.write(String.format("\\u%04x", (int)c));
+      } else {
+        writer.write(c);
+      }
+    }
+    writer.write('"');
+  }
+
+}
@@ -0,0 +1,251 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * An immutable trie of package names, each associated with a value,
+ * that finds the value associated with the longest package prefix of
+ * a class name without allocating any objects.
+ *
+ * <p>A package prefix of a class name is the class' package name or
+ * any leading sequence of its {@code .}-delimited segments, including
+ * the empty package prefix, which every class name has.  So {@code
+ * com.foobar.biz.Foo} has the package prefixes {@code com.foobar.biz},
+ * {@code com.foobar}, {@code com} and the empty string, and {@code
+ * com.foo} is not one of them.</p>
+ *
+ * <p>Instances of this class are safe for use by multiple
+ * threads.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ *
+ * @see ListEntityClassnamesMojo#determinePropertyName(String)
+ */
+final class PackageTrie<V> {
+
+  /**
+   * The root {@link Node} of this {@link PackageTrie}, which stands
+   * for the empty package prefix.  This field is never {@code null}.
+   */
+  private final Node<V> root;
+
+  /**
+   * Creates a new {@link PackageTrie} from the supplied {@link Map}
+   * of values indexed by package name.  Entries whose keys or values
+   * are {@code null} are ignored.
+   *
+   * @param values a {@link Map} of values indexed by package name;
+   * may be {@code null}
+   */
+  PackageTrie(final Map<String, ? extends V> values) {
+    super();
+    this.root = new Node<V>();
+    if (values != null) {
+      for (final Entry<String, ? extends V> entry : values.entrySet()) {
+        if (entry != null) {
+          final String packageName = entry.getKey();
+          final V value = entry.getValue();
+          if (packageName != null && value != null) {
+            Node<V> node = this.root;
+            final int length = packageName.length();
+            for (int i = 0; i < length; i++) {
+              node = node.getOrCreateChild(packageName.charAt(i));
+            }
+            node.value = value;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the value associated with the longest package prefix of
+   * the supplied class name, or {@code null} if none of its package
+   * prefixes has a value.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param className the class name; may be {@code null} in which
+   * case {@code null} will be returned
+   *
+   * @return the value associated with the longest package prefix of
+   * {@code className}, or {@code null}
+   */
+  final V get(final String className) {
+    if (className == null) {
+      return null;
+    }
+    return this.get(className, 0, className.length());
+  }
+
+  /**
+   * Returns the value associated with the longest package prefix of
+   * the class name held in the supplied range of the supplied {@link
+   * CharSequence}, or {@code null} if none of its package prefixes
+   * has a value.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param chars the {@link CharSequence} holding the class name; must
+   * not be {@code null}
+   *
+   * @param start the index of the first character of the class name
+   *
+   * @param end the index after the last character of the class name
+   *
+   * @return the value associated with the longest package prefix of
+   * the class name, or {@code null}
+   */
+  final V get(final CharSequence chars, final int start, final int end) {
+    assert chars != null;
+    // The package name ends at the last dot; everything after it is
+    // the simple class name.
+    int packageEnd = start;
+    for (int i = end - 1; i >= start; i--) {
+      if (chars.charAt(i) == '.') {
+        packageEnd = i;
+        break;
+      }
+    }
+    V returnValue = this.root.value;
+    Node<V> node = this.root;
+    for (int i = start; i < packageEnd; i++) {
+      node = node.getChild(chars.charAt(i));
+      if (node == null) {
+        break;
+      }
+      if (node.value != null && (i + 1 == packageEnd || chars.charAt(i + 1) == '.')) {
+        returnValue = node.value;
+      }
+    }
+    return returnValue;
+  }
+
+
+  /*
+   * Inner and nested classes.
+   */
+
+
+  /**
+   * A node in a {@link PackageTrie}, reached by a particular sequence
+   * of characters from the root.
+   *
+   * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+   *
+   * @since 3-SNAPSHOT
+   */
+  private static final class Node<V> {
+
+    /**
+     * An empty {@code char} array.
+     */
+    private static final char[] NO_CHARS = new char[0];
+
+    /**
+     * The characters that lead to this {@link Node}'s children, in
+     * ascending order.  This field is never {@code null}.
+     */
+    private char[] keys;
+
+    /**
+     * This {@link Node}'s children, in the same order as the {@link
+     * #keys}.  This field is never {@code null}.
+     */
+    private Node<?>[] children;
+
+    /**
+     * The value associated with the package name this {@link Node}
+     * stands for.  This field may be {@code null}.
+     */
+    private V value;
+
+    /**
+     * Creates a new {@link Node} with no children and no value.
+     */
+    private Node() {
+      super();
+      this.keys = NO_CHARS;
+      this.children = new Node<?>[0];
+    }
+
+    /**
+     * Returns the child of this {@link Node} reached by the supplied
+     * character, or {@code null} if there is none.
+     *
+     * @param c the character
+     *
+     * @return the child, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    private final Node<V> getChild(final char c) {
+      final int index = Arrays.binarySearch(this.keys, c);
+      return index < 0 ? null : (Node<V>)this.children[index];
+    }
+
+    /**
+     * Returns the child of this {@link Node} reached by the supplied
+     * character, creating it first if necessary.
+     *
+     * <p>This method never returns {@code null}.</p>
+     *
+     * @param c the character
+     *
+     * @return the child; never {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    private final Node<V> getOrCreateChild(final char c) {
+      int index = Arrays.binarySearch(this.keys, c);
+      if (index < 0) {
+        index = -index - 1;
+        final int length = this.keys.length;
+        final char[] keys = new char[length + 1];
+        final Node<?>[] children = new Node<?>[length + 1];
+        System.arraycopy(this.keys, 0, keys, 0, index);
+        System.arraycopy(this.children, 0, children, 0, index);
+        keys[index] = c;
+        children[index] = new Node<V>();
+        System.arraycopy(this.keys, index, keys, index + 1, length - index);
+        System.arraycopy(this.children, index, children, index + 1, length - index);
+        this.keys = keys;
+        this.children = children;
+      }
+      return (Node<V>)this.children[index];
+    }
+
+  }
+
+}
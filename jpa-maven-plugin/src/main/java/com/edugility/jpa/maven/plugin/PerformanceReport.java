@@ -0,0 +1,386 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * A flat, machine-readable record of how long an execution of a mojo
+ * in this package spent in each of its phases and what its scan
+ * cost, suitable for collecting from every build to track trends.
+ *
+ * <p>A {@link PerformanceReport} always holds exactly the {@linkplain
+ * #FIELDS fields} of its schema, in the same order, whether or not
+ * each was measured; unmeasured fields are {@code 0}.  New fields
+ * are only ever appended, and the {@code schemaVersion} field is
+ * incremented whenever the meaning of an existing field changes.
+ * The report is written either as a {@linkplain #writeJson(Writer)
+ * JSON object} or as {@linkplain #writeCsv(Writer) CSV} with a header
+ * row and a single data row.</p>
+ *
+ * <p>Instances of this class are not safe for use by multiple
+ * threads.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ *
+ * @see ListEntityClassnamesMojo#getPerformanceReportFile()
+ */
+final class PerformanceReport {
+
+  /**
+   * The version of the schema described by the {@link #FIELDS}.
+   */
+  static final int SCHEMA_VERSION = 1;
+
+  /**
+   * The phases of an execution, in order.
+   */
+  static final List<String> PHASES = Collections.unmodifiableList(Arrays.asList("initialize", "scan", "index", "resolvePropertyNames", "writeOutput"));
+
+  /**
+   * The names of the fields of a {@link PerformanceReport}, in order.
+   * Durations are in nanoseconds; {@code scanNanos} is the wall time
+   * of the scan phase, while {@code urlScanNanos} is the sum of the
+   * wall times spent on individual {@link java.net.URL}s, which
+   * exceeds it when several threads are used.  Hit rates are
+   * fractions between {@code 0} and {@code 1}.
+   */
+  static final List<String> FIELDS = Collections.unmodifiableList(Arrays.asList("schemaVersion",
+                                                                                "goal",
+                                                                                "skipped",
+                                                                                "totalNanos",
+                                                                                "initializeNanos",
+                                                                                "scanNanos",
+                                                                                "indexNanos",
+                                                                                "resolvePropertyNamesNanos",
+                                                                                "writeOutputNanos",
+                                                                                "urlScanNanos",
+                                                                                "urls",
+                                                                                "bytesRead",
+                                                                                "classEntries",
+                                                                                "classesParsed",
+                                                                                "matches",
+                                                                                "mergedIndexKeys",
+                                                                                "mergedIndexEntries",
+                                                                                "configuredThreads",
+                                                                                "usedThreads",
+                                                                                "scanCacheHits",
+                                                                                "scanCacheMisses",
+                                                                                "scanCacheHitRate",
+                                                                                "sessionScanCacheHits",
+                                                                                "sessionScanCacheMisses",
+                                                                                "sessionScanCacheHitRate",
+                                                                                "incrementalScanHits",
+                                                                                "incrementalScanMisses",
+                                                                                "incrementalScanHitRate"));
+
+  /**
+   * The line separator used in output.
+   */
+  private static final String NEWLINE = "\n";
+
+  /**
+   * The values of the {@link #FIELDS}, indexed by field name, in
+   * field order.  This field is never {@code null}.
+   */
+  private final Map<String, Object> values;
+
+  /**
+   * Creates a new {@link PerformanceReport} in which every field but
+   * {@code schemaVersion} and {@code goal} is {@code 0} or {@code
+   * false}.
+   *
+   * @param goal the name of the goal being reported on; must not be
+   * {@code null}
+   *
+   * @exception IllegalArgumentException if {@code goal} is {@code
+   * null}
+   */
+  PerformanceReport(final String goal) {
+    super();
+    if (goal == null) {
+      throw new IllegalArgumentException("goal", new NullPointerException("goal == null"));
+    }
+    this.values = new LinkedHashMap<String, Object>();
+    for (final String field : FIELDS) {
+      this.values.put(field, Long.valueOf(0L));
+    }
+    this.values.put("schemaVersion", Integer.valueOf(SCHEMA_VERSION));
+    this.values.put("goal", goal);
+    this.values.put("skipped", Boolean.FALSE);
+    for (final String field : FIELDS) {
+      if (field.endsWith("HitRate")) {
+        this.values.put(field, Double.valueOf(0.0));
+      }
+    }
+  }
+
+  /**
+   * Returns the value of the named field.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param field the name of one of the {@link #FIELDS}; must not be
+   * {@code null}
+   *
+   * @return the value of the field; never {@code null}
+   *
+   * @exception IllegalArgumentException if {@code field} is not one
+   * of the {@link #FIELDS}
+   */
+  final Object get(final String field) {
+    final Object value = this.values.get(field);
+    if (value == null) {
+      throw new IllegalArgumentException("field: " + field);
+    }
+    return value;
+  }
+
+  /**
+   * Sets the value of the named numeric field.
+   *
+   * @param field the name of one of the {@link #FIELDS}; must not be
+   * {@code null}
+   *
+   * @param value the new value
+   *
+   * @exception IllegalArgumentException if {@code field} is not one
+   * of the numeric {@link #FIELDS}
+   */
+  final void set(final String field, final long value) {
+    if (!(this.get(field) instanceof Long)) {
+      throw new IllegalArgumentException("field: " + field);
+    }
+    this.values.put(field, Long.valueOf(value));
+  }
+
+  /**
+   * Records whether the execution was skipped because nothing had
+   * changed since the previous one.
+   *
+   * @param skipped whether the execution was skipped
+   */
+  final void setSkipped(final boolean skipped) {
+    this.values.put("skipped", Boolean.valueOf(skipped));
+  }
+
+  /**
+   * Records the wall time spent in the named phase.
+   *
+   * @param phase the name of one of the {@link #PHASES}; must not be
+   * {@code null}
+   *
+   * @param nanos the wall time in nanoseconds
+   *
+   * @exception IllegalArgumentException if {@code phase} is not one
+   * of the {@link #PHASES}
+   */
+  final void setPhase(final String phase, final long nanos) {
+    if (!PHASES.contains(phase)) {
+      throw new IllegalArgumentException("phase: " + phase);
+    }
+    this.set(phase + "Nanos", nanos);
+  }
+
+  /**
+   * Copies the totals, thread usage and cache statistics recorded in
+   * the supplied {@link ScanMetrics} into this {@link
+   * PerformanceReport}.
+   *
+   * @param metrics the {@link ScanMetrics}; may be {@code null} in
+   * which case no operation takes place
+   *
+   * @param configuredThreads the number of threads the mojo was
+   * configured to use
+   */
+  final void setScanMetrics(final ScanMetrics metrics, final int configuredThreads) {
+    this.set("configuredThreads", configuredThreads);
+    if (metrics != null) {
+      final ScanMetrics.Entry total = metrics.getTotal();
+      this.set("urlScanNanos", total.getNanos());
+      this.set("urls", metrics.getEntries().size());
+      this.set("bytesRead", total.getBytesRead());
+      this.set("classEntries", total.getClassEntries());
+      this.set("classesParsed", total.getClassesParsed());
+      this.set("matches", total.getMatches());
+      this.set("usedThreads", metrics.getThreads());
+      this.setCache(ScanMetrics.SCAN_CACHE, metrics);
+      this.setCache(ScanMetrics.SESSION_SCAN_CACHE, metrics);
+      this.setCache(ScanMetrics.INCREMENTAL_SCAN, metrics);
+    }
+  }
+
+  /**
+   * Records the size of the supplied {@link AnnotationDB}'s indices
+   * once the results of every {@link java.net.URL} have been merged
+   * into it.  This is not necessarily the peak index size: while
+   * several threads scan, each also holds indices of its own.
+   *
+   * @param db the {@link AnnotationDB}; may be {@code null} in which
+   * case no operation takes place
+   */
+  final void setIndexSize(final AnnotationDB db) {
+    if (db != null) {
+      final Map<String, Set<String>> annotationIndex = db.getAnnotationIndex();
+      final Map<String, Set<String>> classIndex = db.getClassIndex();
+      final Map<String, Set<String>> implementsIndex = db.getImplementsIndex();
+      final long keys = (long)annotationIndex.size() + classIndex.size() + implementsIndex.size();
+      this.set("mergedIndexKeys", keys);
+      this.set("mergedIndexEntries", countEntries(annotationIndex) + countEntries(classIndex) + countEntries(implementsIndex));
+    }
+  }
+
+  /**
+   * Returns the total number of values in the supplied index.
+   *
+   * @param index the index; must not be {@code null}
+   *
+   * @return the total number of values in {@code index}
+   */
+  private static final long countEntries(final Map<String, Set<String>> index) {
+    assert index != null;
+    long entries = 0L;
+    for (final Set<String> values : index.values()) {
+      entries += values.size();
+    }
+    return entries;
+  }
+
+  /**
+   * Copies the hit and miss counts of the named cache from the
+   * supplied {@link ScanMetrics} and computes its hit rate.
+   *
+   * @param name the name of the cache, which is also the prefix of
+   * its fields; must not be {@code null}
+   *
+   * @param metrics the {@link ScanMetrics}; must not be {@code null}
+   */
+  private final void setCache(final String name, final ScanMetrics metrics) {
+    final int hits = metrics.getCacheHits(name);
+    final int misses = metrics.getCacheMisses(name);
+    this.set(name + "Hits", hits);
+    this.set(name + "Misses", misses);
+    this.values.put(name + "HitRate", Double.valueOf(hits + misses == 0 ? 0.0 : (double)hits / (double)(hits + misses)));
+  }
+
+  /**
+   * Writes this {@link PerformanceReport} to the supplied {@link
+   * Writer} as a single, flat JSON object whose members appear in
+   * {@linkplain #FIELDS field order}.
+   *
+   * @param writer the {@link Writer} to write to; must not be {@code
+   * null}
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  final void writeJson(final Writer writer) throws IOException {
+    if (writer == null) {
+      throw new IllegalArgumentException("writer", new NullPointerException("writer == null"));
+    }
+    writer.write("{");
+    boolean first = true;
+    for (final Entry<String, Object> entry : this.values.entrySet()) {
+      writer.write(first ? NEWLINE : "," + NEWLINE);
+      first = false;
+      writer.write("  ");
+      OutputFormats.writeJsonString(entry.getKey(), writer);
+      writer.write(": ");
+      final Object value = entry.getValue();
+      if (value instanceof String) {
+        OutputFormats.writeJsonString((String)value, writer);
+      } else {
+        writer.write(format(value));
+      }
+    }
+    writer.write(NEWLINE + "}" + NEWLINE);
+    writer.flush();
+  }
+
+  /**
+   * Writes this {@link PerformanceReport} to the supplied {@link
+   * Writer} as CSV: a header row naming the {@link #FIELDS} followed
+   * by a single data row.  No value requires quoting.
+   *
+   * @param writer the {@link Writer} to write to; must not be {@code
+   * null}
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  final void writeCsv(final Writer writer) throws IOException {
+    if (writer == null) {
+      throw new IllegalArgumentException("writer", new NullPointerException("writer == null"));
+    }
+    final StringBuilder header = new StringBuilder();
+    final StringBuilder row = new StringBuilder();
+    for (final Entry<String, Object> entry : this.values.entrySet()) {
+      if (header.length() > 0) {
+        header.append(',');
+        row.append(',');
+      }
+      header.append(entry.getKey());
+      row.append(format(entry.getValue()));
+    }
+    writer.write(header.toString());
+    writer.write(NEWLINE);
+    writer.write(row.toString());
+    writer.write(NEWLINE);
+    writer.flush();
+  }
+
+  /**
+   * Formats the supplied field value independently of the default
+   * {@link Locale}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param value the value; must not be {@code null}
+   *
+   * @return the formatted value; never {@code null}
+   */
+  private static final String format(final Object value) {
+    if (value instanceof Double) {
+      return String.format(Locale.ROOT, "%.4f", value);
+    }
+    return String.valueOf(value);
+  }
+
+}
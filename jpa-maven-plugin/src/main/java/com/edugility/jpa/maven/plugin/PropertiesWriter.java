@@ -0,0 +1,326 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+import java.util.Date;
+import java.util.Properties; // for javadoc only
+
+/**
+ * Writes properties to a {@link Writer} in the format read by the
+ * {@link Properties#load(java.io.Reader)} method, one piece at a
+ * time, so that a property value never has to exist in memory as a
+ * whole.
+ *
+ * <p>Keys and values are escaped exactly as the {@link
+ * Properties#store(Writer, String)} method escapes them.  A property
+ * is written by calling {@link #startProperty(String)}, then {@link
+ * #appendValue(CharSequence)} any number of times, then {@link
+ * #endProperty()}.</p>
+ *
+ * <p>Instances of this class are not safe for use by multiple
+ * threads.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ *
+ * @see ListEntityClassnamesMojo#write(java.util.Map, Writer)
+ */
+final class PropertiesWriter implements Closeable, Flushable {
+
+  /**
+   * The {@link Writer} to which properties are written.  This field
+   * is never {@code null}.
+   */
+  private final Writer writer;
+
+  /**
+   * The line separator written after comments and properties.  This
+   * field is never {@code null}.
+   */
+  private final String lineSeparator;
+
+  /**
+   * Whether a property has been {@linkplain #startProperty(String)
+   * started} but not yet {@linkplain #endProperty() ended}.
+   */
+  private boolean inProperty;
+
+  /**
+   * Whether any characters of the current property's value have been
+   * written yet; a leading space in a value must be escaped.
+   */
+  private boolean valueStarted;
+
+  /**
+   * Creates a new {@link PropertiesWriter} that writes to the
+   * supplied {@link Writer} and separates lines with the value of the
+   * {@code line.separator} system property, as {@link
+   * Properties#store(Writer, String)} does.
+   *
+   * @param writer the {@link Writer} to write to; must not be {@code
+   * null}
+   *
+   * @exception IllegalArgumentException if {@code writer} is {@code
+   * null}
+   */
+  PropertiesWriter(final Writer writer) {
+    this(writer, System.getProperty("line.separator", "\n"));
+  }
+
+  /**
+   * Creates a new {@link PropertiesWriter}.
+   *
+   * @param writer the {@link Writer} to write to; must not be {@code
+   * null}
+   *
+   * @param lineSeparator the line separator to use; if {@code null}
+   * then {@code \n} will be used instead
+   *
+   * @exception IllegalArgumentException if {@code writer} is {@code
+   * null}
+   */
+  PropertiesWriter(final Writer writer, final String lineSeparator) {
+    super();
+    if (writer == null) {
+      throw new IllegalArgumentException("writer", new NullPointerException("writer == null"));
+    }
+    this.writer = writer;
+    this.lineSeparator = lineSeparator == null ? "\n" : lineSeparator;
+  }
+
+  /**
+   * Writes the supplied comment on a line of its own.  Line breaks
+   * within the comment start new comment lines.
+   *
+   * @param comment the comment to write; if {@code null} then this
+   * method does nothing
+   *
+   * @exception IOException if an error occurs while writing
+   *
+   * @exception IllegalStateException if a property is in progress
+   */
+  final void writeComment(final String comment) throws IOException {
+    if (this.inProperty) {
+      throw new IllegalStateException("A property is in progress");
+    }
+    if (comment != null) {
+      this.writer.write('#');
+      final int length = comment.length();
+      for (int i = 0; i < length; i++) {
+        final char c = comment.charAt(i);
+        if (c == '\r' || c == '\n') {
+          if (c == '\r' && i + 1 < length && comment.charAt(i + 1) == '\n') {
+            i++;
+          }
+          this.writer.write(this.lineSeparator);
+          this.writer.write('#');
+        } else {
+          this.writer.write(c);
+        }
+      }
+      this.writer.write(this.lineSeparator);
+    }
+  }
+
+  /**
+   * Writes the current date as a comment, as {@link
+   * Properties#store(Writer, String)} does.
+   *
+   * @exception IOException if an error occurs while writing
+   *
+   * @exception IllegalStateException if a property is in progress
+   */
+  final void writeDateComment() throws IOException {
+    this.writeComment(new Date().toString());
+  }
+
+  /**
+   * Writes the supplied key and the separator that follows it, and
+   * begins a new property value.
+   *
+   * @param key the key; must not be {@code null}
+   *
+   * @exception IOException if an error occurs while writing
+   *
+   * @exception IllegalArgumentException if {@code key} is {@code
+   * null}
+   *
+   * @exception IllegalStateException if a property is already in
+   * progress
+   */
+  final void startProperty(final String key) throws IOException {
+    if (key == null) {
+      throw new IllegalArgumentException("key", new NullPointerException("key == null"));
+    }
+    if (this.inProperty) {
+      throw new IllegalStateException("A property is in progress");
+    }
+    this.escape(key, true);
+    this.writer.write('=');
+    this.inProperty = true;
+    this.valueStarted = false;
+  }
+
+  /**
+   * Appends the supplied characters to the value of the property in
+   * progress.
+   *
+   * @param chars the characters to append; if {@code null} then this
+   * method does nothing
+   *
+   * @exception IOException if an error occurs while writing
+   *
+   * @exception IllegalStateException if no property is in progress
+   */
+  final void appendValue(final CharSequence chars) throws IOException {
+    if (!this.inProperty) {
+      throw new IllegalStateException("No property is in progress");
+    }
+    if (chars != null && chars.length() > 0) {
+      this.escape(chars, false);
+      this.valueStarted = true;
+    }
+  }
+
+  /**
+   * Ends the property in progress.
+   *
+   * @exception IOException if an error occurs while writing
+   *
+   * @exception IllegalStateException if no property is in progress
+   */
+  final void endProperty() throws IOException {
+    if (!this.inProperty) {
+      throw new IllegalStateException("No property is in progress");
+    }
+    this.writer.write(this.lineSeparator);
+    this.inProperty = false;
+  }
+
+  /**
+   * Writes a complete property.
+   *
+   * @param key the key; must not be {@code null}
+   *
+   * @param value the value; may be {@code null}
+   *
+   * @exception IOException if an error occurs while writing
+   *
+   * @exception IllegalArgumentException if {@code key} is {@code
+   * null}
+   *
+   * @exception IllegalStateException if a property is already in
+   * progress
+   */
+  final void writeProperty(final String key, final CharSequence value) throws IOException {
+    this.startProperty(key);
+    this.appendValue(value);
+    this.endProperty();
+  }
+
+  /**
+   * Escapes the supplied characters in the manner of {@link
+   * Properties#store(Writer, String)} and writes them.
+   *
+   * @param chars the characters to write; must not be {@code null}
+   *
+   * @param key whether {@code chars} forms a key, in which case all
+   * spaces are escaped, rather than (part of) a value, in which case
+   * only a leading space is
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  private final void escape(final CharSequence chars, final boolean key) throws IOException {
+    assert chars != null;
+    final Writer writer = this.writer;
+    final int length = chars.length();
+    for (int i = 0; i < length; i++) {
+      final char c = chars.charAt(i);
+      switch (c) {
+      case ' ':
+        if (key || (i == 0 && !this.valueStarted)) {
+          writer.write('\\');
+        }
+        writer.write(' ');
+        break;
+      case '\t':
+        writer.write("\\t");
+        break;
+      case '\n':
+        writer.write("\\n");
+        break;
+      case '\r':
+        writer.write("\\r");
+        break;
+      case '\f':
+        writer.write("\\f");
+        break;
+      case '\\':
+      case '=':
+      case ':':
+      case '#':
+      case '!':
+        writer.write('\\');
+        writer.write(c);
+        break;
+      default:
+        writer.write(c);
+        break;
+      }
+    }
+  }
+
+  /**
+   * Flushes the underlying {@link Writer}.
+   *
+   * @exception IOException if an error occurs
+   */
+  @Override
+  public final void flush() throws IOException {
+    this.writer.flush();
+  }
+
+  /**
+   * Closes the underlying {@link Writer}.
+   *
+   * @exception IOException if an error occurs
+   */
+  @Override
+  public final void close() throws IOException {
+    this.writer.close();
+  }
+
+}
@@ -0,0 +1,500 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A persistent, on-disk cache of the {@link AnnotationDB} indices
+ * produced by scanning individual archive files.
+ *
+ * <p>Each cache entry is stored in its own file within a {@linkplain
+ * #getDirectory() cache directory} and is keyed by the archive's
+ * canonical path, its {@linkplain File#length() size}, its
+ * {@linkplain File#lastModified() last modification time}, the
+ * {@linkplain AnnotationDB#getScanConfiguration() scan
+ * configuration} of the {@link AnnotationDB} that produced it and,
+ * optionally, a checksum of the archive's contents.  An entry whose
+ * key does not match is treated as absent.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ *
+ * @see AbstractJPAMojo#getUseScanCache()
+ */
+final class ScanCache {
+
+  /**
+   * The first four bytes of every cache entry file.
+   */
+  private static final int MAGIC = 0x4A504143;
+
+  /**
+   * The version of the cache entry file format.  Cache entries of
+   * any other version are treated as absent.
+   */
+  private static final int VERSION = 1;
+
+  /**
+   * The directory in which cache entries are stored.  This field is
+   * never {@code null}.
+   */
+  private final File directory;
+
+  /**
+   * Whether the contents of archives should be checksummed in
+   * addition to having their sizes and modification times checked.
+   */
+  private final boolean checksums;
+
+  /**
+   * The number of lookups satisfied by a current cache entry.
+   */
+  private final AtomicInteger hits;
+
+  /**
+   * The number of lookups that found no current cache entry.
+   */
+  private final AtomicInteger misses;
+
+  /**
+   * Creates a new {@link ScanCache}.
+   *
+   * @param directory the directory in which cache entries will be
+   * stored; must not be {@code null}; need not exist
+   *
+   * @param checksums whether the contents of archives should be
+   * checksummed in addition to having their sizes and modification
+   * times checked
+   *
+   * @exception IllegalArgumentException if {@code directory} is
+   * {@code null}
+   */
+  ScanCache(final File directory, final boolean checksums) {
+    super();
+    if (directory == null) {
+      throw new IllegalArgumentException("directory", new NullPointerException("directory == null"));
+    }
+    this.directory = directory;
+    this.checksums = checksums;
+    this.hits = new AtomicInteger();
+    this.misses = new AtomicInteger();
+  }
+
+  /**
+   * Returns the directory in which this {@link ScanCache} stores its
+   * entries.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return the cache directory; never {@code null}
+   */
+  public final File getDirectory() {
+    return this.directory;
+  }
+
+  /**
+   * Returns the number of {@linkplain #get(Key, AnnotationDB) lookups} that
+   * were satisfied by a current cache entry.
+   *
+   * @return the number of cache hits
+   */
+  final int getHits() {
+    return this.hits.get();
+  }
+
+  /**
+   * Returns the number of {@linkplain #get(Key, AnnotationDB) lookups} that
+   * found no current cache entry.
+   *
+   * @return the number of cache misses
+   */
+  final int getMisses() {
+    return this.misses.get();
+  }
+
+  /**
+   * Computes and returns a {@link Key} describing the current state
+   * of the supplied archive file as it would be scanned by the
+   * supplied {@link AnnotationDB}.
+   *
+   * <p>The returned {@link Key} should be computed <em>before</em>
+   * the archive is scanned so that a concurrent modification of the
+   * archive can never cause stale scan results to be {@linkplain
+   * #put(Key, AnnotationDB) stored} under a current key.</p>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param archive the archive file; must not be {@code null}
+   *
+   * @param prototype the {@link AnnotationDB} whose {@linkplain
+   * AnnotationDB#getScanConfiguration() scan configuration} will
+   * scan the archive; must not be {@code null}
+   *
+   * @return a new {@link Key}; never {@code null}
+   *
+   * @exception IOException if the archive's canonical path or
+   * checksum could not be computed
+   */
+  public final Key getKey(final File archive, final AnnotationDB prototype) throws IOException {
+    if (archive == null) {
+      throw new IllegalArgumentException("archive", new NullPointerException("archive == null"));
+    }
+    if (prototype == null) {
+      throw new IllegalArgumentException("prototype", new NullPointerException("prototype == null"));
+    }
+    final File canonicalArchive = archive.getCanonicalFile();
+    final String path = canonicalArchive.getPath();
+    final String configuration = prototype.getScanConfiguration();
+    final File file = new File(this.getDirectory(), String.format("%s.idx", hex(digest(String.format("%s%n%s", path, configuration)))));
+    return new Key(file,
+                   path,
+                   canonicalArchive.length(),
+                   canonicalArchive.lastModified(),
+                   this.checksums ? hex(digest(canonicalArchive)) : "",
+                   configuration);
+  }
+
+  /**
+   * Returns a new {@link AnnotationDB}, {@linkplain
+   * AnnotationDB#clone() cloned} from the supplied {@code prototype},
+   * that holds the cached indices stored under the supplied {@link
+   * Key}, or {@code null} if there is no such cache entry or if it
+   * could not be read.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param key the {@link Key} to look up; must not be {@code null}
+   *
+   * @param prototype the {@link AnnotationDB} to clone; must not be
+   * {@code null}
+   *
+   * @return a new {@link AnnotationDB} holding the cached indices, or
+   * {@code null}
+   */
+  public final AnnotationDB get(final Key key, final AnnotationDB prototype) {
+    if (key == null) {
+      throw new IllegalArgumentException("key", new NullPointerException("key == null"));
+    }
+    if (prototype == null) {
+      throw new IllegalArgumentException("prototype", new NullPointerException("prototype == null"));
+    }
+    AnnotationDB returnValue = null;
+    if (key.file.isFile()) {
+      DataInputStream in = null;
+      try {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(key.file)));
+        if (in.readInt() == MAGIC &&
+            in.readInt() == VERSION &&
+            key.path.equals(in.readUTF()) &&
+            key.length == in.readLong() &&
+            key.lastModified == in.readLong() &&
+            (in.readUTF().equals(key.checksum) || !this.checksums) &&
+            key.configuration.equals(in.readUTF())) {
+          final AnnotationDB db = prototype.clone();
+          assert db != null;
+          db.clear();
+          db.readIndexes(in);
+          returnValue = db;
+        }
+      } catch (final IOException unreadable) {
+        // Treat a truncated or otherwise unreadable entry as a miss;
+        // it will be overwritten after the archive is rescanned.
+        returnValue = null;
+      } finally {
+        if (in != null) {
+          try {
+            in.close();
+          } catch (final IOException ignore) {
+            // ignored on purpose
+          }
+        }
+      }
+    }
+    if (returnValue == null) {
+      this.misses.incrementAndGet();
+    } else {
+      this.hits.incrementAndGet();
+    }
+    return returnValue;
+  }
+
+  /**
+   * Stores the indices of the supplied {@link AnnotationDB} under the
+   * supplied {@link Key}, replacing any existing entry.
+   *
+   * <p>The entry is written to a temporary file that is then renamed,
+   * so a concurrent reader will never observe a partially written
+   * entry.</p>
+   *
+   * @param key the {@link Key} under which to store the indices; must
+   * not be {@code null}
+   *
+   * @param db the {@link AnnotationDB} whose indices should be
+   * stored; must not be {@code null}
+   *
+   * @exception IOException if the entry could not be written
+   */
+  public final void put(final Key key, final AnnotationDB db) throws IOException {
+    if (key == null) {
+      throw new IllegalArgumentException("key", new NullPointerException("key == null"));
+    }
+    if (db == null) {
+      throw new IllegalArgumentException("db", new NullPointerException("db == null"));
+    }
+    final File directory = this.getDirectory();
+    if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+      throw new PathCreationFailedException(directory);
+    }
+    final File temp = File.createTempFile("entry", ".tmp", directory);
+    boolean renamed = false;
+    try {
+      DataOutputStream out = null;
+      try {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(key.path);
+        out.writeLong(key.length);
+        out.writeLong(key.lastModified);
+        out.writeUTF(key.checksum);
+        out.writeUTF(key.configuration);
+        db.writeIndexes(out);
+        out.flush();
+      } finally {
+        if (out != null) {
+          out.close();
+        }
+      }
+      renamed = temp.renameTo(key.file);
+      if (!renamed && key.file.delete()) {
+        // Some platforms will not rename over an existing file.
+        renamed = temp.renameTo(key.file);
+      }
+    } finally {
+      if (!renamed) {
+        temp.delete();
+      }
+    }
+  }
+
+  /**
+   * Returns the SHA-1 digest of the supplied {@link String}'s UTF-8
+   * representation.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param text the {@link String} to digest; must not be {@code
+   * null}
+   *
+   * @return the digest; never {@code null}
+   */
+  static final byte[] digest(final String text) {
+    assert text != null;
+    try {
+      return newDigest().digest(text.getBytes("UTF-8"));
+    } catch (final UnsupportedEncodingException wontHappen) {
+      throw (InternalError)new InternalError("UTF-8 is not supported").initCause(wontHappen);
+    }
+  }
+
+  /**
+   * Returns the SHA-1 digest of the supplied {@link File}'s contents.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param file the {@link File} to digest; must not be {@code null}
+   *
+   * @return the digest; never {@code null}
+   *
+   * @exception IOException if the {@link File} could not be read
+   */
+  private static final byte[] digest(final File file) throws IOException {
+    assert file != null;
+    final MessageDigest digest = newDigest();
+    final InputStream in = new FileInputStream(file);
+    try {
+      final byte[] buffer = new byte[8192];
+      int bytesRead;
+      while ((bytesRead = in.read(buffer)) >= 0) {
+        digest.update(buffer, 0, bytesRead);
+      }
+    } finally {
+      in.close();
+    }
+    return digest.digest();
+  }
+
+  /**
+   * Returns a new SHA-1 {@link MessageDigest}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a new SHA-1 {@link MessageDigest}; never {@code null}
+   */
+  private static final MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (final NoSuchAlgorithmException wontHappen) {
+      throw (InternalError)new InternalError("SHA-1 is not supported").initCause(wontHappen);
+    }
+  }
+
+  /**
+   * Returns the lowercase hexadecimal representation of the supplied
+   * {@code byte} array.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param bytes the {@code byte}s to render; must not be {@code
+   * null}
+   *
+   * @return a hexadecimal {@link String}; never {@code null}
+   */
+  static final String hex(final byte[] bytes) {
+    assert bytes != null;
+    final StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (final byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+      sb.append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * An immutable snapshot of the state of an archive file as it
+   * will be scanned by a particular {@link AnnotationDB}.
+   *
+   * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+   *
+   * @since 3-SNAPSHOT
+   *
+   * @see ScanCache#getKey(File, AnnotationDB)
+   */
+  static final class Key {
+
+    /**
+     * The cache entry file.  This field is never {@code null}.
+     */
+    private final File file;
+
+    /**
+     * The canonical path of the archive.  This field is never {@code
+     * null}.
+     */
+    private final String path;
+
+    /**
+     * The size of the archive in bytes.
+     */
+    private final long length;
+
+    /**
+     * The last modification time of the archive.
+     */
+    private final long lastModified;
+
+    /**
+     * The hexadecimal SHA-1 checksum of the archive's contents, or
+     * the empty {@link String} if checksums are not in use.  This
+     * field is never {@code null}.
+     */
+    private final String checksum;
+
+    /**
+     * The {@linkplain AnnotationDB#getScanConfiguration() scan
+     * configuration} of the {@link AnnotationDB} that scans the
+     * archive.  This field is never {@code null}.
+     */
+    private final String configuration;
+
+    /**
+     * Creates a new {@link Key}.
+     *
+     * @param file the cache entry file; must not be {@code null}
+     *
+     * @param path the canonical path of the archive; must not be
+     * {@code null}
+     *
+     * @param length the size of the archive in bytes
+     *
+     * @param lastModified the last modification time of the archive
+     *
+     * @param checksum the checksum of the archive's contents; must not
+     * be {@code null}
+     *
+     * @param configuration the scan configuration; must not be {@code
+     * null}
+     */
+    private Key(final File file, final String path, final long length, final long lastModified, final String checksum, final String configuration) {
+      super();
+      assert file != null;
+      assert path != null;
+      assert checksum != null;
+      assert configuration != null;
+      this.file = file;
+      this.path = path;
+      this.length = length;
+      this.lastModified = lastModified;
+      this.checksum = checksum;
+      this.configuration = configuration;
+    }
+
+    /**
+     * Returns a {@link String} representation of this {@link Key}.
+     *
+     * <p>This method never returns {@code null}.</p>
+     *
+     * @return a {@link String} representation of this {@link Key};
+     * never {@code null}
+     */
+    @Override
+    public final String toString() {
+      return String.format("%s (%d bytes, last modified %d)", this.path, this.length, this.lastModified);
+    }
+
+  }
+
+}
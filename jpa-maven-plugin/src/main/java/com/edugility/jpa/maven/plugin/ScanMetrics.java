@@ -0,0 +1,613 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import java.net.URL;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records, for each {@link URL} scanned by an {@link
+ * AbstractJPAMojo}, how long the scan took, how many class file bytes
+ * were read, how many class file entries were seen, how many class
+ * files were parsed and how many classes bearing one of the
+ * {@linkplain AbstractJPAMojo#getAnnotations() annotations of
+ * interest} were found.
+ *
+ * <p>Instances of this class are safe for use by multiple
+ * threads.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ *
+ * @see AbstractJPAMojo#getScanMetrics()
+ */
+final class ScanMetrics {
+
+  /**
+   * The line separator used in JSON output.
+   */
+  private static final String NEWLINE = "\n";
+
+  /**
+   * A {@link Comparator} that orders {@link Entry} instances from
+   * slowest to fastest, and then by {@link URL}.
+   */
+  private static final Comparator<Entry> SLOWEST_FIRST = new Comparator<Entry>() {
+      @Override
+      public final int compare(final Entry a, final Entry b) {
+        if (a.nanos != b.nanos) {
+          return a.nanos > b.nanos ? -1 : 1;
+        }
+        return a.url.toString().compareTo(b.url.toString());
+      }
+    };
+
+  /**
+   * The name under which the statistics of the persistent {@link
+   * ScanCache} are {@linkplain #recordCache(String, int, int)
+   * recorded}.
+   */
+  static final String SCAN_CACHE = "scanCache";
+
+  /**
+   * The name under which the statistics of the {@link
+   * SessionScanCache} are {@linkplain #recordCache(String, int, int)
+   * recorded}.
+   */
+  static final String SESSION_SCAN_CACHE = "sessionScanCache";
+
+  /**
+   * The name under which the statistics of the {@link
+   * IncrementalDirectoryScanner} are {@linkplain #recordCache(String,
+   * int, int) recorded}.
+   */
+  static final String INCREMENTAL_SCAN = "incrementalScan";
+
+  /**
+   * The names of the annotations whose bearers count as matches.
+   * This field is never {@code null}.
+   */
+  private final Collection<String> annotations;
+
+  /**
+   * The {@link Entry} instances recorded so far, in the order in
+   * which they were recorded.  This field is never {@code null}.
+   */
+  private final List<Entry> entries;
+
+  /**
+   * The hit and miss counts of each cache consulted during the scan,
+   * indexed by cache name.  This field is never {@code null}.
+   */
+  private final Map<String, int[]> caches;
+
+  /**
+   * The number of threads used to scan.
+   */
+  private volatile int threads;
+
+  /**
+   * Creates a new {@link ScanMetrics}.
+   *
+   * @param annotations the names of the annotations whose bearers
+   * count as matches; must not be {@code null}
+   *
+   * @exception IllegalArgumentException if {@code annotations} is
+   * {@code null}
+   */
+  ScanMetrics(final Collection<String> annotations) {
+    super();
+    if (annotations == null) {
+      throw new IllegalArgumentException("annotations", new NullPointerException("annotations == null"));
+    }
+    this.annotations = annotations;
+    this.entries = new ArrayList<Entry>();
+    this.caches = new HashMap<String, int[]>();
+    this.threads = 1;
+  }
+
+  /**
+   * Returns the number of threads used to scan.
+   *
+   * @return the number of threads used to scan
+   */
+  final int getThreads() {
+    return this.threads;
+  }
+
+  /**
+   * Sets the number of threads used to scan.
+   *
+   * @param threads the number of threads used to scan; values less
+   * than {@code 1} are treated as {@code 1}
+   */
+  final void setThreads(final int threads) {
+    this.threads = Math.max(1, threads);
+  }
+
+  /**
+   * Records the number of hits and misses that a cache experienced
+   * during the scan.  Counts recorded under the same name are added
+   * together.
+   *
+   * @param name the name of the cache, such as {@link #SCAN_CACHE};
+   * must not be {@code null}
+   *
+   * @param hits the number of hits
+   *
+   * @param misses the number of misses
+   */
+  final void recordCache(final String name, final int hits, final int misses) {
+    assert name != null;
+    synchronized (this.caches) {
+      int[] counts = this.caches.get(name);
+      if (counts == null) {
+        counts = new int[2];
+        this.caches.put(name, counts);
+      }
+      counts[0] += hits;
+      counts[1] += misses;
+    }
+  }
+
+  /**
+   * Returns the number of hits recorded for the named cache, or
+   * {@code 0} if none have been {@linkplain #recordCache(String, int,
+   * int) recorded}.
+   *
+   * @param name the name of the cache; must not be {@code null}
+   *
+   * @return the number of hits
+   */
+  final int getCacheHits(final String name) {
+    synchronized (this.caches) {
+      final int[] counts = this.caches.get(name);
+      return counts == null ? 0 : counts[0];
+    }
+  }
+
+  /**
+   * Returns the number of misses recorded for the named cache, or
+   * {@code 0} if none have been {@linkplain #recordCache(String, int,
+   * int) recorded}.
+   *
+   * @param name the name of the cache; must not be {@code null}
+   *
+   * @return the number of misses
+   */
+  final int getCacheMisses(final String name) {
+    synchronized (this.caches) {
+      final int[] counts = this.caches.get(name);
+      return counts == null ? 0 : counts[1];
+    }
+  }
+
+  /**
+   * Records the outcome of scanning a single {@link URL}.
+   *
+   * @param url the {@link URL} that was scanned; must not be {@code
+   * null}
+   *
+   * @param outcome the {@link Outcome} describing how the results
+   * were obtained; must not be {@code null} and must have had its
+   * {@linkplain Outcome#setSource(String) source noted}
+   *
+   * @param nanos the wall time, in nanoseconds, that obtaining the
+   * results took
+   *
+   * @param result the {@link AnnotationDB} holding the results; must
+   * not be {@code null}
+   *
+   * @exception IllegalStateException if the source of {@code
+   * outcome} has not been noted
+   */
+  final void record(final URL url, final Outcome outcome, final long nanos, final AnnotationDB result) {
+    assert url != null;
+    assert outcome != null;
+    assert result != null;
+    final String source = outcome.getSource();
+    if (source == null) {
+      throw new IllegalStateException("No source was noted for " + url);
+    }
+    final Map<String, Set<String>> ai = result.getAnnotationIndex();
+    long matches = 0L;
+    for (final String annotation : this.annotations) {
+      final Set<String> classNames = ai.get(annotation);
+      if (classNames != null) {
+        matches += classNames.size();
+      }
+    }
+    final AnnotationDB scanner = outcome.getScanner();
+    final Entry entry;
+    if (scanner == null) {
+      entry = new Entry(url, source, nanos, 0L, 0L, 0L, matches);
+    } else {
+      entry = new Entry(url, source, nanos, scanner.getBytesRead(), scanner.getClassEntryCount(), scanner.getClassesParsedCount(), matches);
+    }
+    synchronized (this.entries) {
+      this.entries.add(entry);
+    }
+  }
+
+  /**
+   * Returns an unmodifiable snapshot of the {@link Entry} instances
+   * recorded so far, sorted from slowest to fastest.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a sorted, unmodifiable {@link List} of {@link Entry}
+   * instances; never {@code null}
+   */
+  final List<Entry> getEntries() {
+    final List<Entry> entries;
+    synchronized (this.entries) {
+      entries = new ArrayList<Entry>(this.entries);
+    }
+    Collections.sort(entries, SLOWEST_FIRST);
+    return Collections.unmodifiableList(entries);
+  }
+
+  /**
+   * Returns an {@link Entry} whose counters are the sums of those of
+   * all the {@link Entry} instances recorded so far, and whose {@link
+   * Entry#getURL() URL} is {@code null}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a total {@link Entry}; never {@code null}
+   */
+  final Entry getTotal() {
+    long nanos = 0L;
+    long bytesRead = 0L;
+    long classEntries = 0L;
+    long classesParsed = 0L;
+    long matches = 0L;
+    synchronized (this.entries) {
+      for (final Entry entry : this.entries) {
+        nanos += entry.nanos;
+        bytesRead += entry.bytesRead;
+        classEntries += entry.classEntries;
+        classesParsed += entry.classesParsed;
+        matches += entry.matches;
+      }
+    }
+    return new Entry(null, "total", nanos, bytesRead, classEntries, classesParsed, matches);
+  }
+
+  /**
+   * Writes the {@linkplain #getTotal() total} and the {@linkplain
+   * #getEntries() entries} recorded so far to the supplied {@link
+   * Writer} as a JSON object, slowest entries first.
+   *
+   * @param writer the {@link Writer} to write to; must not be {@code
+   * null}
+   *
+   * @exception IOException if an error occurs while writing
+   */
+  final void writeJson(final Writer writer) throws IOException {
+    if (writer == null) {
+      throw new IllegalArgumentException("writer", new NullPointerException("writer == null"));
+    }
+    writer.write("{" + NEWLINE);
+    writer.write("  \"total\": ");
+    this.getTotal().writeJson(writer);
+    writer.write("," + NEWLINE);
+    writer.write("  \"urls\": [");
+    boolean first = true;
+    for (final Entry entry : this.getEntries()) {
+      writer.write(first ? NEWLINE : "," + NEWLINE);
+      first = false;
+      writer.write("    ");
+      entry.writeJson(writer);
+    }
+    writer.write(first ? "]" + NEWLINE : NEWLINE + "  ]" + NEWLINE);
+    writer.write("}" + NEWLINE);
+    writer.flush();
+  }
+
+  /**
+   * A mutable note, filled in by whichever part of an {@link
+   * AbstractJPAMojo}'s scanning machinery obtains the results for a
+   * {@link URL}, of how they were obtained.
+   *
+   * <p>Instances of this class are not safe for use by multiple
+   * threads.</p>
+   *
+   * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+   *
+   * @since 3-SNAPSHOT
+   */
+  static final class Outcome {
+
+    /**
+     * How the results were obtained.  This field is {@code null}
+     * until it is {@linkplain #setSource(String) noted}.
+     */
+    private String source;
+
+    /**
+     * The {@link AnnotationDB} that actually scanned the {@link URL},
+     * or {@code null} if it was not scanned.
+     */
+    private AnnotationDB scanner;
+
+    /**
+     * Creates a new {@link Outcome}.
+     */
+    Outcome() {
+      super();
+    }
+
+    /**
+     * Returns how the results were obtained, or {@code null} if that
+     * has not yet been {@linkplain #setSource(String) noted}.
+     *
+     * @return how the results were obtained, or {@code null}
+     */
+    final String getSource() {
+      return this.source;
+    }
+
+    /**
+     * Notes how the results were obtained.
+     *
+     * @param source how the results were obtained; must not be {@code
+     * null}
+     */
+    final void setSource(final String source) {
+      assert source != null;
+      this.source = source;
+    }
+
+    /**
+     * Returns the {@link AnnotationDB} that actually scanned the {@link
+     * URL}, or {@code null} if it was not scanned.
+     *
+     * @return the scanning {@link AnnotationDB}, or {@code null}
+     */
+    final AnnotationDB getScanner() {
+      return this.scanner;
+    }
+
+    /**
+     * Notes the {@link AnnotationDB} that actually scanned the {@link
+     * URL}.
+     *
+     * @param scanner the scanning {@link AnnotationDB}; may be {@code
+     * null}
+     */
+    final void setScanner(final AnnotationDB scanner) {
+      this.scanner = scanner;
+    }
+
+  }
+
+  /**
+   * The metrics recorded for a single scanned {@link URL}.
+   *
+   * <p>Instances of this class are immutable.</p>
+   *
+   * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+   *
+   * @since 3-SNAPSHOT
+   */
+  static final class Entry {
+
+    /**
+     * The {@link URL} that was scanned.  This field may be {@code
+     * null} only in a {@linkplain ScanMetrics#getTotal() total}.
+     */
+    private final URL url;
+
+    /**
+     * How the results were obtained.  This field is never {@code
+     * null}.
+     */
+    private final String source;
+
+    /**
+     * The wall time, in nanoseconds, that obtaining the results took.
+     */
+    private final long nanos;
+
+    /**
+     * The number of class file bytes read.
+     */
+    private final long bytesRead;
+
+    /**
+     * The number of class file entries seen.
+     */
+    private final long classEntries;
+
+    /**
+     * The number of class files parsed.
+     */
+    private final long classesParsed;
+
+    /**
+     * The number of classes found bearing an annotation of interest.
+     */
+    private final long matches;
+
+    /**
+     * Creates a new {@link Entry}.
+     *
+     * @param url the {@link URL} that was scanned; may be {@code
+     * null}
+     *
+     * @param source how the results were obtained; must not be {@code
+     * null}
+     *
+     * @param nanos the wall time, in nanoseconds
+     *
+     * @param bytesRead the number of class file bytes read
+     *
+     * @param classEntries the number of class file entries seen
+     *
+     * @param classesParsed the number of class files parsed
+     *
+     * @param matches the number of classes found bearing an
+     * annotation of interest
+     */
+    private Entry(final URL url, final String source, final long nanos, final long bytesRead, final long classEntries, final long classesParsed, final long matches) {
+      super();
+      this.url = url;
+      this.source = source;
+      this.nanos = nanos;
+      this.bytesRead = bytesRead;
+      this.classEntries = classEntries;
+      this.classesParsed = classesParsed;
+      this.matches = matches;
+    }
+
+    /**
+     * Returns the {@link URL} that was scanned, or {@code null} if
+     * this {@link Entry} is a {@linkplain ScanMetrics#getTotal()
+     * total}.
+     *
+     * @return the {@link URL}, or {@code null}
+     */
+    final URL getURL() {
+      return this.url;
+    }
+
+    /**
+     * Returns how the results were obtained: {@code scanned}, {@code
+     * skipped} (every class file was rejected by the constant pool
+     * prefilter), {@code
+     * cached}, {@code session} (shared with an earlier execution in
+     * the same build), {@code incremental} or {@code total}.
+     *
+     * @return the source of the results; never {@code null}
+     */
+    final String getSource() {
+      return this.source;
+    }
+
+    /**
+     * Returns the wall time, in nanoseconds, that obtaining the
+     * results took.
+     *
+     * @return the wall time in nanoseconds
+     */
+    final long getNanos() {
+      return this.nanos;
+    }
+
+    /**
+     * Returns the number of class file bytes read.
+     *
+     * @return the number of class file bytes read
+     */
+    final long getBytesRead() {
+      return this.bytesRead;
+    }
+
+    /**
+     * Returns the number of class file entries seen.
+     *
+     * @return the number of class file entries seen
+     */
+    final long getClassEntries() {
+      return this.classEntries;
+    }
+
+    /**
+     * Returns the number of class files parsed.
+     *
+     * @return the number of class files parsed
+     */
+    final long getClassesParsed() {
+      return this.classesParsed;
+    }
+
+    /**
+     * Returns the number of classes found bearing an annotation of
+     * interest.
+     *
+     * @return the number of matches
+     */
+    final long getMatches() {
+      return this.matches;
+    }
+
+    /**
+     * Writes this {@link Entry} to the supplied {@link Writer} as a
+     * single-line JSON object.
+     *
+     * @param writer the {@link Writer} to write to; must not be
+     * {@code null}
+     *
+     * @exception IOException if an error occurs while writing
+     */
+    private final void writeJson(final Writer writer) throws IOException {
+      assert writer != null;
+      writer.write("{");
+      if (this.url != null) {
+        writer.write("\"url\": ");
+        OutputFormats.writeJsonString(this.url.toString(), writer);
+        writer.write(", ");
+      }
+      writer.write("\"source\": ");
+      OutputFormats.writeJsonString(this.source, writer);
+      writer.write(String.format(", \"nanos\": %d, \"bytesRead\": %d, \"classEntries\": %d, \"classesParsed\": %d, \"matches\": %d}",
+                                 this.nanos, this.bytesRead, this.classEntries, this.classesParsed, this.matches));
+    }
+
+    /**
+     * Returns a one-line, human-readable description of this {@link
+     * Entry}.
+     *
+     * <p>This method never returns {@code null}.</p>
+     *
+     * @return a description of this {@link Entry}; never {@code null}
+     */
+    @Override
+    public final String toString() {
+      return String.format("%6d ms %-11s %s (%d bytes, %d class entries, %d parsed, %d matches)",
+                           this.nanos / 1000000L, this.source, this.url == null ? "" : this.url, this.bytesRead, this.classEntries, this.classesParsed, this.matches);
+    }
+
+  }
+
+}
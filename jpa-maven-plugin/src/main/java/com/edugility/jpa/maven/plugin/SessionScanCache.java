@@ -0,0 +1,258 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-memory cache of archive scan results that lives exactly as
+ * long as a given Maven session, so that an archive shared by many
+ * modules of a reactor build is scanned at most once per build.
+ *
+ * <p>Entries are keyed by the canonical path, last modification time
+ * and length of the archive together with the {@linkplain
+ * AnnotationDB#getScanConfiguration() scan configuration} of the
+ * {@link AnnotationDB} that scanned it.  An archive that is rebuilt
+ * during the session therefore simply acquires a new entry.</p>
+ *
+ * <p>Instances of this class are safe for use by multiple threads.
+ * If several threads ask for the same archive at once, exactly one
+ * of them scans it while the others wait for its results.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ *
+ * @see #forSession(Object)
+ */
+final class SessionScanCache {
+
+  /**
+   * The {@link SessionScanCache} for each live session, indexed
+   * weakly by the object identifying the session.  This field is never {@code null}; all access
+   * to it must be synchronized on it.
+   */
+  private static final Map<Object, SessionScanCache> caches = new WeakHashMap<Object, SessionScanCache>();
+
+  /**
+   * The scan results, or the pending scans that will produce them,
+   * indexed by {@linkplain #getKey(File, AnnotationDB) key}.  This
+   * field is never {@code null}.
+   */
+  private final ConcurrentMap<String, Future<AnnotationDB>> results;
+
+  /**
+   * The number of requests satisfied from this {@link
+   * SessionScanCache}.
+   */
+  private final AtomicInteger hits;
+
+  /**
+   * The number of requests that required an archive to be scanned.
+   */
+  private final AtomicInteger misses;
+
+  /**
+   * Creates a new, empty {@link SessionScanCache}.
+   */
+  SessionScanCache() {
+    super();
+    this.results = new ConcurrentHashMap<String, Future<AnnotationDB>>();
+    this.hits = new AtomicInteger();
+    this.misses = new AtomicInteger();
+  }
+
+  /**
+   * Returns the {@link SessionScanCache} associated with the supplied
+   * session, creating it if necessary.
+   *
+   * <p>The association is held weakly: once the session is no longer
+   * referenced, its {@link SessionScanCache} may be reclaimed.</p>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param session an object identifying the session, normally the
+   * {@link org.apache.maven.execution.MavenExecutionRequest} shared by
+   * every project's copy of the {@link
+   * org.apache.maven.execution.MavenSession}; must not be {@code null}
+   *
+   * @return the {@link SessionScanCache} for {@code session}; never
+   * {@code null}
+   *
+   * @exception IllegalArgumentException if {@code session} is {@code
+   * null}
+   */
+  static final SessionScanCache forSession(final Object session) {
+    if (session == null) {
+      throw new IllegalArgumentException("session", new NullPointerException("session == null"));
+    }
+    synchronized (caches) {
+      SessionScanCache cache = caches.get(session);
+      if (cache == null) {
+        cache = new SessionScanCache();
+        caches.put(session, cache);
+      }
+      return cache;
+    }
+  }
+
+  /**
+   * Returns a {@linkplain AnnotationDB#clone() copy} of the scan
+   * results for the supplied archive, calling the supplied {@link
+   * Callable} to produce them only if no thread has done so before
+   * for the same archive and scan configuration.
+   *
+   * <p>The {@link AnnotationDB} produced by the {@link Callable} is
+   * retained and must not be modified afterwards.  If the {@link
+   * Callable} fails, nothing is retained and the failure is
+   * propagated to every caller waiting for it.</p>
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param archive the archive file; must not be {@code null}
+   *
+   * @param prototype the {@link AnnotationDB} whose {@linkplain
+   * AnnotationDB#getScanConfiguration() scan configuration} will be
+   * used to scan the archive; must not be {@code null}
+   *
+   * @param scanner a {@link Callable} that scans the archive and
+   * returns the results; must not be {@code null} and must not return
+   * {@code null}
+   *
+   * @return a copy of the scan results; never {@code null}
+   *
+   * @exception IOException if the archive could not be examined or
+   * scanned, or if the current thread was interrupted while waiting
+   * for another thread to scan it
+   */
+  final AnnotationDB get(final File archive, final AnnotationDB prototype, final Callable<AnnotationDB> scanner) throws IOException {
+    if (archive == null) {
+      throw new IllegalArgumentException("archive", new NullPointerException("archive == null"));
+    }
+    if (prototype == null) {
+      throw new IllegalArgumentException("prototype", new NullPointerException("prototype == null"));
+    }
+    if (scanner == null) {
+      throw new IllegalArgumentException("scanner", new NullPointerException("scanner == null"));
+    }
+    final String key = getKey(archive, prototype);
+    Future<AnnotationDB> future = this.results.get(key);
+    if (future == null) {
+      final FutureTask<AnnotationDB> task = new FutureTask<AnnotationDB>(scanner);
+      future = this.results.putIfAbsent(key, task);
+      if (future == null) {
+        future = task;
+        this.misses.incrementAndGet();
+        task.run();
+      } else {
+        this.hits.incrementAndGet();
+      }
+    } else {
+      this.hits.incrementAndGet();
+    }
+    try {
+      return future.get().clone();
+    } catch (final InterruptedException kaboom) {
+      Thread.currentThread().interrupt();
+      throw (IOException)new InterruptedIOException("Interrupted while waiting for " + archive + " to be scanned").initCause(kaboom);
+    } catch (final ExecutionException kaboom) {
+      this.results.remove(key, future);
+      final Throwable cause = kaboom.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException)cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
+      } else if (cause instanceof Error) {
+        throw (Error)cause;
+      } else {
+        throw (IOException)new IOException("An unexpected exception was encountered while scanning " + archive).initCause(cause);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of requests that were satisfied without
+   * scanning.
+   *
+   * @return the number of cache hits
+   */
+  final int getHits() {
+    return this.hits.get();
+  }
+
+  /**
+   * Returns the number of requests that caused an archive to be
+   * scanned.
+   *
+   * @return the number of cache misses
+   */
+  final int getMisses() {
+    return this.misses.get();
+  }
+
+  /**
+   * Returns the key under which the scan results for the supplied
+   * archive are stored.
+   *
+   * @param archive the archive file; must not be {@code null}
+   *
+   * @param prototype the {@link AnnotationDB} that will scan it; must
+   * not be {@code null}
+   *
+   * @return a key; never {@code null}
+   *
+   * @exception IOException if the canonical path of {@code archive}
+   * could not be determined
+   */
+  private static final String getKey(final File archive, final AnnotationDB prototype) throws IOException {
+    assert archive != null;
+    assert prototype != null;
+    return new StringBuilder(archive.getCanonicalPath())
+      .append('\n').append(archive.lastModified())
+      .append('\n').append(archive.length())
+      .append('\n').append(prototype.getScanConfiguration())
+      .toString();
+  }
+
+}
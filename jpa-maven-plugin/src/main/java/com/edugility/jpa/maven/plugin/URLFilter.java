@@ -0,0 +1,453 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+
+import java.net.URL;
+import java.net.URLDecoder;
+
+import java.util.ArrayList;
+import java.util.Collection; // for javadoc only
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import java.util.regex.Pattern;
+
+import org.codehaus.plexus.util.FileUtils;
+
+ /**
+  * A filter that can cull a {@link Collection} of {@link URL}s.
+  *
+  * <p>A {@link URL} is {@linkplain #accept(URL, String) accepted} if
+  * it matches at least one of the {@linkplain #getIncludes()
+  * includes} (or if there are no includes) and matches none of the
+  * {@linkplain #getExcludes() excludes}.  Each pattern is one of the
+  * following:</p>
+  *
+  * <ul>
+  *
+  * <li>A <em>coordinate pattern</em> of the form
+  * <tt><i>groupId</i>:<i>artifactId</i></tt>, such as {@code
+  * com.foo:*} or {@code *:junit}, in which {@code *} matches any run
+  * of characters.  A coordinate pattern is recognized by the presence
+  * of a {@code :} character and the absence of any {@code /}
+  * characters.  It is matched against the Maven coordinates, if any,
+  * of the artifact that the {@link URL} designates.</li>
+  *
+  * <li>A <em>path pattern</em> in the <a
+  * href="http://ant.apache.org/manual/dirtasks.html#patterns">Ant</a>
+  * style understood by {@linkplain FileUtils Plexus
+  * <tt>FileUtils</tt>}, such as {@code **}{@code /junit-*.jar} or
+  * {@code **}{@code /target/classes}, in which {@code **} matches
+  * any number of directories, {@code *} matches any run of characters
+  * within a single path segment and {@code ?} matches any single
+  * character within a path segment.  A path pattern that ends with
+  * {@code /} has {@code **} appended to it.  It is matched against
+  * the path of the {@link URL}, always using {@code /} as the
+  * separator and without any trailing {@code /}.</li>
+  *
+  * </ul>
+  *
+  * <p>Patterns are compiled once, when they are {@linkplain
+  * #setIncludes(Set) set}, rather than every time a {@link URL} is
+  * tested.</p>
+  *
+  * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+  *
+  * @version 1.0-SNAPSHOT
+  *
+  * @since 1.0-SNAPSHOT
+  */
+public class URLFilter {
+  
+  /**
+   * The {@linkplain FileUtils Plexus <tt>FileUtils</tt>-compatible}
+   * {@link Set} of inclusion {@link String}s.
+   *
+   * <p>This field may be {@code null} at any point.</p>
+   */
+  private Set<String> includes;
+
+  /**
+   * The {@linkplain FileUtils Plexus <tt>FileUtils</tt>-compatible}
+   * {@link Set} of exclusion {@link String}s.
+   *
+   * <p>This field may be {@code null} at any point.</p>
+   */
+  private Set<String> excludes;
+
+  /**
+   * The compiled form of the {@link #includes} field.  This field is
+   * {@code null} until the {@link #includes} field has been compiled.
+   *
+   * @see #getIncludeMatchers()
+   */
+  private List<Matcher> includeMatchers;
+
+  /**
+   * The compiled form of the {@link #excludes} field.  This field is
+   * {@code null} until the {@link #excludes} field has been compiled.
+   *
+   * @see #getExcludeMatchers()
+   */
+  private List<Matcher> excludeMatchers;
+  
+  /**
+   * Creates a new {@link URLFilter}.
+   */
+  public URLFilter() {
+    super();
+  }
+
+  /**
+   * Returns {@code true} if the supplied {@link URL} should be
+   * accepted.  This implementation calls the {@link #accept(URL,
+   * String)} method with no Maven coordinates, so only path patterns
+   * can match.
+   *
+   * @param url the {@link URL} to accept; may be {@code null}
+   *
+   * @return {@code true} if the supplied {@link URL} should be
+   * accepted; {@code false} otherwise
+   *
+   * @see #accept(URL, String)
+   */
+  public boolean accept(final URL url) {
+    return this.accept(url, null);
+  }
+
+  /**
+   * Returns {@code true} if the supplied {@link URL}, designating the
+   * artifact with the supplied Maven coordinates, should be accepted.
+   * This implementation returns {@code true} if the supplied {@link
+   * URL} is non-{@code null}, matches at least one of the
+   * {@linkplain #getIncludes() includes} (or there are no includes)
+   * and matches none of the {@linkplain #getExcludes() excludes}.
+   *
+   * @param url the {@link URL} to accept; may be {@code null}
+   *
+   * @param coordinates the <tt><i>groupId</i>:<i>artifactId</i></tt>
+   * coordinates of the artifact designated by the {@link URL}; may be
+   * {@code null} in which case no coordinate pattern will match
+   *
+   * @return {@code true} if the supplied {@link URL} should be
+   * accepted; {@code false} otherwise
+   */
+  public boolean accept(final URL url, final String coordinates) {
+    if (url == null) {
+      return false;
+    }
+    final String path = toPath(url);
+    final List<Matcher> includeMatchers = this.getIncludeMatchers();
+    if (!includeMatchers.isEmpty() && !matches(includeMatchers, path, coordinates)) {
+      return false;
+    }
+    return !matches(this.getExcludeMatchers(), path, coordinates);
+  }
+
+  /**
+   * Sets the {@linkplain FileUtils Plexus
+   * <tt>FileUtils</tt>-compatible} {@link Set} of inclusion {@link
+   * String}s.
+   *
+   * @param includes the {@link Set} of {@link String}s to set; may be
+   * {@code null}
+   */
+  public void setIncludes(final Set<String> includes) {
+    this.includes = includes;
+    this.includeMatchers = compile(includes);
+  }
+
+  /**
+   * Returns the {@linkplain FileUtils Plexus
+   * <tt>FileUtils</tt>-compatible} {@link Set} of inclusion {@link
+   * String}s.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the {@linkplain FileUtils Plexus
+   * <tt>FileUtils</tt>-compatible} {@link Set} of inclusion {@link
+   * String}s, or {@code null}
+   */
+  public Set<String> getIncludes() {
+    return this.includes;
+  }
+
+  /**
+   * Sets the {@linkplain FileUtils Plexus
+   * <tt>FileUtils</tt>-compatible} {@link Set} of exclusion {@link
+   * String}s.
+   *
+   * @param excludes the {@link Set} of {@link String}s to set; may be
+   * {@code null}
+   */
+  public void setExcludes(final Set<String> excludes) {
+    this.excludes = excludes;
+    this.excludeMatchers = compile(excludes);
+  }
+
+  /**
+   * Returns the {@linkplain FileUtils Plexus
+   * <tt>FileUtils</tt>-compatible} {@link Set} of exclusion {@link
+   * String}s.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @return the {@linkplain FileUtils Plexus
+   * <tt>FileUtils</tt>-compatible} {@link Set} of exclusion {@link
+   * String}s, or {@code null}
+   */
+  public Set<String> getExcludes() {
+    return this.excludes;
+  }
+
+  /**
+   * Returns the compiled form of the {@linkplain #getIncludes()
+   * includes}, compiling them first if they were injected directly
+   * into the {@link #includes} field without going through the
+   * {@link #setIncludes(Set)} method.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a {@link List} of {@link Matcher}s; never {@code null}
+   */
+  private final List<Matcher> getIncludeMatchers() {
+    if (this.includeMatchers == null) {
+      this.includeMatchers = compile(this.includes);
+    }
+    return this.includeMatchers;
+  }
+
+  /**
+   * Returns the compiled form of the {@linkplain #getExcludes()
+   * excludes}, compiling them first if they were injected directly
+   * into the {@link #excludes} field without going through the
+   * {@link #setExcludes(Set)} method.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return a {@link List} of {@link Matcher}s; never {@code null}
+   */
+  private final List<Matcher> getExcludeMatchers() {
+    if (this.excludeMatchers == null) {
+      this.excludeMatchers = compile(this.excludes);
+    }
+    return this.excludeMatchers;
+  }
+
+  /**
+   * Returns {@code true} if any of the supplied {@link Matcher}s
+   * matches the supplied path or coordinates.
+   *
+   * @param matchers the {@link Matcher}s to consult; must not be
+   * {@code null}
+   *
+   * @param path the path to match; must not be {@code null}
+   *
+   * @param coordinates the coordinates to match; may be {@code null}
+   *
+   * @return {@code true} if any {@link Matcher} matches
+   */
+  private static final boolean matches(final List<Matcher> matchers, final String path, final String coordinates) {
+    for (final Matcher matcher : matchers) {
+      if (matcher.matches(path, coordinates)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Compiles the supplied patterns into a new {@link List} of {@link
+   * Matcher}s.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param patterns the patterns to compile; may be {@code null}
+   *
+   * @return a {@link List} of {@link Matcher}s; never {@code null}
+   */
+  private static final List<Matcher> compile(final Set<String> patterns) {
+    if (patterns == null || patterns.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final List<Matcher> matchers = new ArrayList<Matcher>(patterns.size());
+    for (String pattern : patterns) {
+      if (pattern != null) {
+        pattern = pattern.trim();
+        if (pattern.length() > 0) {
+          matchers.add(new Matcher(pattern));
+        }
+      }
+    }
+    return Collections.unmodifiableList(matchers);
+  }
+
+  /**
+   * Returns the path of the supplied {@link URL} in a form suitable
+   * for matching against path patterns: decoded, using {@code /} as
+   * the separator and without any trailing {@code /}.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param url the {@link URL}; must not be {@code null}
+   *
+   * @return the path; never {@code null}
+   */
+  private static final String toPath(final URL url) {
+    String path = url.getPath();
+    if (path == null) {
+      path = "";
+    }
+    try {
+      path = URLDecoder.decode(path.replace("+", "%2B"), "UTF-8");
+    } catch (final UnsupportedEncodingException wontHappen) {
+      throw (InternalError)new InternalError(String.format("While attempting to decode a path, %s, an UnsupportedEncodingException was encountered.", path)).initCause(wontHappen);
+    }
+    if (File.separatorChar != '/') {
+      path = path.replace(File.separatorChar, '/');
+    }
+    while (path.length() > 1 && path.endsWith("/")) {
+      path = path.substring(0, path.length() - 1);
+    }
+    return path;
+  }
+
+  /**
+   * A single compiled include or exclude pattern.
+   *
+   * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+   *
+   * @since 3-SNAPSHOT
+   */
+  private static final class Matcher {
+
+    /**
+     * Whether this {@link Matcher} matches Maven coordinates rather
+     * than paths.
+     */
+    private final boolean coordinates;
+
+    /**
+     * The compiled regular expression.  This field is never {@code
+     * null}.
+     */
+    private final Pattern pattern;
+
+    /**
+     * Creates a new {@link Matcher}.
+     *
+     * @param pattern the pattern to compile; must not be {@code null}
+     */
+    private Matcher(String pattern) {
+      super();
+      assert pattern != null;
+      this.coordinates = pattern.indexOf(':') >= 0 && pattern.indexOf('/') < 0 && pattern.indexOf('\\') < 0;
+      if (this.coordinates) {
+        this.pattern = Pattern.compile(toRegex(pattern, false));
+      } else {
+        pattern = pattern.replace('\\', '/');
+        if (pattern.endsWith("/")) {
+          pattern = pattern + "**";
+        }
+        this.pattern = Pattern.compile(toRegex(pattern, true));
+      }
+    }
+
+    /**
+     * Returns {@code true} if this {@link Matcher} matches the
+     * supplied path or coordinates, as appropriate.
+     *
+     * @param path the path to match; must not be {@code null}
+     *
+     * @param coordinates the coordinates to match; may be {@code
+     * null}
+     *
+     * @return {@code true} if this {@link Matcher} matches
+     */
+    private final boolean matches(final String path, final String coordinates) {
+      if (this.coordinates) {
+        return coordinates != null && this.pattern.matcher(coordinates).matches();
+      }
+      return this.pattern.matcher(path).matches();
+    }
+
+    /**
+     * Converts the supplied wildcard pattern into a regular
+     * expression.
+     *
+     * <p>This method never returns {@code null}.</p>
+     *
+     * @param pattern the pattern to convert; must not be {@code null}
+     *
+     * @param path if {@code true}, the pattern is a path pattern in
+     * which {@code *} and {@code ?} do not match {@code /} and {@code
+     * **} matches any number of directories; if {@code false}, {@code
+     * *} matches any run of characters
+     *
+     * @return a regular expression; never {@code null}
+     */
+    private static final String toRegex(final String pattern, final boolean path) {
+      final StringBuilder sb = new StringBuilder();
+      final int length = pattern.length();
+      for (int i = 0; i < length; i++) {
+        final char c = pattern.charAt(i);
+        switch (c) {
+        case '*':
+          if (path && i + 1 < length && pattern.charAt(i + 1) == '*') {
+            i++;
+            if (i + 1 < length && pattern.charAt(i + 1) == '/') {
+              // "**/" matches zero or more whole directories.
+              i++;
+              sb.append("(?:.*/)?");
+            } else {
+              sb.append(".*");
+            }
+          } else {
+            sb.append(path ? "[^/]*" : ".*");
+          }
+          break;
+        case '?':
+          sb.append(path ? "[^/]" : ".");
+          break;
+        default:
+          sb.append(Pattern.quote(String.valueOf(c)));
+          break;
+        }
+      }
+      return sb.toString();
+    }
+
+  }
+
+}
\ No newline at end of file
@@ -0,0 +1,342 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.net.URL;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A persistent record of the inputs and outputs of a single
+ * execution of the {@link ListEntityClassnamesMojo}, used to decide
+ * whether a subsequent execution would produce the same results and
+ * may therefore be skipped.
+ *
+ * <p>A snapshot holds a {@linkplain #fingerprint(Collection, String)
+ * fingerprint} of the scanned {@link URL}s and the mojo's
+ * configuration, the sizes and modification times of the output files
+ * (if there are any) as they stood after they were written, and the
+ * rendered properties themselves, so that they can be restored
+ * without scanning.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ *
+ * @see ListEntityClassnamesMojo#getSkipIfUpToDate()
+ */
+final class UpToDateSnapshot {
+
+  /**
+   * The first four bytes of every snapshot file.
+   */
+  private static final int MAGIC = 0x4A504155;
+
+  /**
+   * The version of the snapshot file format.  Snapshots of any other
+   * version are treated as absent.
+   */
+  private static final int VERSION = 1;
+
+  /**
+   * The file in which this snapshot is stored.  This field is never
+   * {@code null}.
+   */
+  private final File file;
+
+  /**
+   * Creates a new {@link UpToDateSnapshot}.
+   *
+   * @param file the file in which the snapshot is stored; must not be
+   * {@code null}; need not exist
+   *
+   * @exception IllegalArgumentException if {@code file} is {@code
+   * null}
+   */
+  UpToDateSnapshot(final File file) {
+    super();
+    if (file == null) {
+      throw new IllegalArgumentException("file", new NullPointerException("file == null"));
+    }
+    this.file = file;
+  }
+
+  /**
+   * Returns the file in which this snapshot is stored.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @return the snapshot file; never {@code null}
+   */
+  public final File getFile() {
+    return this.file;
+  }
+
+  /**
+   * Computes a fingerprint of the supplied {@link URL}s and
+   * configuration, or returns {@code null} if any of the {@link
+   * URL}s cannot be fingerprinted.
+   *
+   * <p>Only {@link URL}s that use the {@code file} protocol can be
+   * fingerprinted.  A file contributes its canonical path, size and
+   * modification time; a directory contributes the relative path,
+   * size and modification time of every file beneath it.</p>
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param urls the {@link URL}s to fingerprint, in scan order; may
+   * be {@code null}
+   *
+   * @param configuration a description of every setting that affects
+   * the results; must not be {@code null}
+   *
+   * @return a fingerprint, or {@code null}
+   *
+   * @exception IOException if a canonical path could not be computed
+   *
+   * @exception IllegalArgumentException if {@code configuration} is
+   * {@code null}
+   */
+  static final String fingerprint(final Collection<? extends URL> urls, final String configuration) throws IOException {
+    if (configuration == null) {
+      throw new IllegalArgumentException("configuration", new NullPointerException("configuration == null"));
+    }
+    final StringBuilder sb = new StringBuilder(configuration);
+    if (urls != null) {
+      for (final URL url : urls) {
+        final File file = AbstractJPAMojo.toFile(url);
+        if (file == null) {
+          return null;
+        }
+        final File canonicalFile = file.getCanonicalFile();
+        sb.append('\n').append(canonicalFile.getPath());
+        if (canonicalFile.isDirectory()) {
+          append(sb, canonicalFile, "");
+        } else if (canonicalFile.isFile()) {
+          sb.append('\t').append(canonicalFile.length()).append('\t').append(canonicalFile.lastModified());
+        } else {
+          sb.append("\t-");
+        }
+      }
+    }
+    return ScanCache.hex(ScanCache.digest(sb.toString()));
+  }
+
+  /**
+   * Appends the relative path, size and modification time of every
+   * file beneath the supplied directory, in name order, to the
+   * supplied {@link StringBuilder}.
+   *
+   * @param sb the {@link StringBuilder} to append to; must not be
+   * {@code null}
+   *
+   * @param directory the directory to walk; must not be {@code null}
+   *
+   * @param relativePath the path of {@code directory} relative to the
+   * root of the walk, ending with {@code /} unless it is empty; must
+   * not be {@code null}
+   */
+  private static final void append(final StringBuilder sb, final File directory, final String relativePath) {
+    assert sb != null;
+    assert directory != null;
+    assert relativePath != null;
+    final File[] files = directory.listFiles();
+    if (files != null) {
+      Arrays.sort(files);
+      for (final File file : files) {
+        if (file.isDirectory()) {
+          append(sb, file, relativePath + file.getName() + "/");
+        } else {
+          sb.append('\n').append(relativePath).append(file.getName())
+            .append('\t').append(file.length())
+            .append('\t').append(file.lastModified());
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the rendered properties stored in this snapshot if it was
+   * recorded with the supplied fingerprint and the supplied output
+   * files still have the sizes and modification times they had when
+   * the snapshot was recorded; otherwise returns {@code null}.
+   *
+   * <p>This method may return {@code null}.</p>
+   *
+   * @param fingerprint the current {@linkplain
+   * #fingerprint(Collection, String) fingerprint}; must not be {@code
+   * null}
+   *
+   * @param outputFiles the output files, any of which may be {@code
+   * null}; must be supplied in the same order as they were to the
+   * {@link #put(String, byte[], File[])} method
+   *
+   * @return the stored rendered properties, or {@code null}
+   */
+  public final byte[] get(final String fingerprint, final File... outputFiles) {
+    if (fingerprint == null) {
+      throw new IllegalArgumentException("fingerprint", new NullPointerException("fingerprint == null"));
+    }
+    byte[] returnValue = null;
+    if (this.file.isFile()) {
+      DataInputStream in = null;
+      try {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)));
+        if (in.readInt() == MAGIC &&
+            in.readInt() == VERSION &&
+            fingerprint.equals(in.readUTF()) &&
+            describe(outputFiles).equals(in.readUTF())) {
+          final byte[] content = new byte[in.readInt()];
+          in.readFully(content);
+          returnValue = content;
+        }
+      } catch (final IOException unreadable) {
+        // Treat a truncated or otherwise unreadable snapshot as
+        // absent; it will be overwritten after the next execution.
+        returnValue = null;
+      } finally {
+        if (in != null) {
+          try {
+            in.close();
+          } catch (final IOException ignore) {
+            // ignored on purpose
+          }
+        }
+      }
+    }
+    return returnValue;
+  }
+
+  /**
+   * Records this snapshot, replacing any existing one.
+   *
+   * <p>The snapshot is written to a temporary file that is then
+   * renamed, so a concurrent reader will never observe a partially
+   * written snapshot.</p>
+   *
+   * @param fingerprint the {@linkplain #fingerprint(Collection,
+   * String) fingerprint} computed <em>before</em> scanning; must not
+   * be {@code null}
+   *
+   * @param content the rendered properties; must not be {@code null}
+   *
+   * @param outputFiles the output files as written, any of which may
+   * be {@code null}
+   *
+   * @exception IOException if the snapshot could not be written
+   */
+  public final void put(final String fingerprint, final byte[] content, final File... outputFiles) throws IOException {
+    if (fingerprint == null) {
+      throw new IllegalArgumentException("fingerprint", new NullPointerException("fingerprint == null"));
+    }
+    if (content == null) {
+      throw new IllegalArgumentException("content", new NullPointerException("content == null"));
+    }
+    final File directory = this.file.getAbsoluteFile().getParentFile();
+    if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+      throw new PathCreationFailedException(directory);
+    }
+    final File temp = File.createTempFile("snapshot", ".tmp", directory);
+    boolean renamed = false;
+    try {
+      DataOutputStream out = null;
+      try {
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(fingerprint);
+        out.writeUTF(describe(outputFiles));
+        out.writeInt(content.length);
+        out.write(content);
+        out.flush();
+      } finally {
+        if (out != null) {
+          out.close();
+        }
+      }
+      renamed = temp.renameTo(this.file);
+      if (!renamed && this.file.delete()) {
+        // Some platforms will not rename over an existing file.
+        renamed = temp.renameTo(this.file);
+      }
+    } finally {
+      if (!renamed) {
+        temp.delete();
+      }
+    }
+  }
+
+  /**
+   * Deletes this snapshot, if it exists.
+   */
+  public final void delete() {
+    this.file.delete();
+  }
+
+  /**
+   * Returns a description of the supplied output files' paths, sizes
+   * and modification times, or of their absence.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param outputFiles the output files; may be {@code null} and may
+   * contain {@code null} elements
+   *
+   * @return a description; never {@code null}
+   */
+  private static final String describe(final File... outputFiles) {
+    final StringBuilder sb = new StringBuilder();
+    if (outputFiles != null) {
+      for (final File outputFile : outputFiles) {
+        if (outputFile != null) {
+          sb.append(outputFile.getAbsolutePath());
+          if (outputFile.isFile()) {
+            sb.append('\t').append(outputFile.length()).append('\t').append(outputFile.lastModified());
+          } else {
+            sb.append("\t-");
+          }
+        }
+        sb.append('\n');
+      }
+    }
+    return sb.toString();
+  }
+
+}
@@ -0,0 +1,95 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2010-2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Creates and deletes the private temporary directories used as
+ * fixtures by this package's unit tests.
+ *
+ * <p>This class is package-private for use by this package's unit
+ * tests only.</p>
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+final class TemporaryDirectories {
+
+  /**
+   * Creates a new {@link TemporaryDirectories}.
+   */
+  private TemporaryDirectories() {
+    super();
+  }
+
+  /**
+   * Creates a new, empty, private temporary directory whose name
+   * begins with the supplied prefix.
+   *
+   * <p>This method never returns {@code null}.</p>
+   *
+   * @param prefix the prefix of the directory's name; must not be
+   * {@code null} and must be at least three characters long
+   *
+   * @return the new directory; never {@code null}
+   *
+   * @exception IOException if the directory could not be created
+   *
+   * @see #delete(File)
+   */
+  static final File create(final String prefix) throws IOException {
+    final File directory = File.createTempFile(prefix, "");
+    if (!directory.delete() || !directory.mkdirs()) {
+      throw new IOException(String.format("Could not create the temporary directory %s", directory));
+    }
+    return directory;
+  }
+
+  /**
+   * Recursively deletes the supplied {@link File}.
+   *
+   * @param file the {@link File} to delete; may be {@code null}
+   */
+  static final void delete(final File file) {
+    if (file != null) {
+      final File[] children = file.listFiles();
+      if (children != null) {
+        for (final File child : children) {
+          delete(child);
+        }
+      }
+      file.delete();
+    }
+  }
+
+}
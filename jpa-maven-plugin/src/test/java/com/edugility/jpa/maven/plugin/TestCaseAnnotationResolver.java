@@ -0,0 +1,233 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2010-2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.Entity;
+import javax.persistence.MappedSuperclass;
+
+import com.edugility.jpa.maven.plugin.test.project.SimpleEntity;
+import com.edugility.jpa.maven.plugin.test.project.SimpleMappedSuperclass;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that
+ * exercises the {@link AnnotationResolver} class and the supertype
+ * indexing it relies upon.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCaseAnnotationResolver {
+
+  /**
+   * The name of the {@link java.lang.annotation.Annotation}
+   * interface.
+   */
+  private static final String ANNOTATION = "java.lang.annotation.Annotation";
+
+  /**
+   * An {@link AnnotationDB} that indexes supertypes, populated by
+   * hand.  This field is never {@code null} during a test run.
+   *
+   * @see #setUp()
+   */
+  private AnnotationDB db;
+
+  /**
+   * Creates a new {@link TestCaseAnnotationResolver}.
+   */
+  public TestCaseAnnotationResolver() {
+    super();
+  }
+
+  /**
+   * Runs before each test and creates the {@link #db}.
+   */
+  @Before
+  public void setUp() {
+    this.db = new AnnotationDB();
+    this.db.setClassAnnotationsOnly(true);
+    this.db.setIndexSupertypes(true);
+  }
+
+  /**
+   * Ensures that classes bearing stereotypes, and stereotypes of
+   * stereotypes, are found while the stereotypes themselves are not.
+   */
+  @Test
+  public void testMetaAnnotations() {
+    final String entity = Entity.class.getName();
+    this.index("com.foo.AuditedEntity", list(entity), list("java.lang.Object", ANNOTATION));
+    this.index("com.foo.TenantEntity", list("com.foo.AuditedEntity"), list("java.lang.Object", ANNOTATION));
+    this.index("com.foo.Plain", list(entity), list("java.lang.Object"));
+    this.index("com.foo.Audited", list("com.foo.AuditedEntity"), list("java.lang.Object"));
+    this.index("com.foo.Tenant", list("com.foo.TenantEntity"), list("java.lang.Object"));
+    this.index("com.foo.Other", list("com.foo.Unrelated"), list("java.lang.Object"));
+
+    final Map<String, Set<String>> result = new AnnotationResolver(list(entity, MappedSuperclass.class.getName())).resolve(this.db);
+    assertNotNull(result);
+    assertEquals(new HashSet<String>(list("com.foo.Plain", "com.foo.Audited", "com.foo.Tenant")), result.get(entity));
+    assertFalse(result.containsKey(MappedSuperclass.class.getName()));
+  }
+
+  /**
+   * Ensures that a stereotype meta-annotated with {@link
+   * java.lang.annotation.Inherited @Inherited} is propagated through
+   * a {@link MappedSuperclass @MappedSuperclass} to its subclasses,
+   * and that one that is not is not.
+   */
+  @Test
+  public void testInheritance() {
+    final String entity = Entity.class.getName();
+    final String mappedSuperclass = MappedSuperclass.class.getName();
+    this.index("com.foo.InheritedEntity", list(entity, "java.lang.annotation.Inherited"), list("java.lang.Object", ANNOTATION));
+    this.index("com.foo.Base", list("com.foo.InheritedEntity"), list("java.lang.Object"));
+    this.index("com.foo.Middle", list(mappedSuperclass), list("com.foo.Base", "java.io.Serializable"));
+    this.index("com.foo.Leaf", Collections.<String>emptyList(), list("com.foo.Middle"));
+    this.index("com.foo.Unmapped", Collections.<String>emptyList(), list("com.foo.Plain"));
+    this.index("com.foo.Plain", list(entity), list("java.lang.Object"));
+
+    final Map<String, Set<String>> result = new AnnotationResolver(list(entity, mappedSuperclass)).resolve(this.db);
+    assertEquals(new HashSet<String>(list("com.foo.Base", "com.foo.Middle", "com.foo.Leaf", "com.foo.Plain")), result.get(entity));
+    assertEquals(Collections.singleton("com.foo.Middle"), result.get(mappedSuperclass));
+  }
+
+  /**
+   * Ensures that the {@link ClassFileReader} reports the superclass
+   * and interfaces of a class when asked to.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testReadSupertypes() throws Exception {
+    final List<String> annotationNames = new ArrayList<String>();
+    final List<String> supertypeNames = new ArrayList<String>();
+    final byte[] classFile = ClassFileReader.read(SimpleEntity.class.getResourceAsStream("SimpleEntity.class"));
+    assertEquals(SimpleEntity.class.getName(), ClassFileReader.readClassAnnotations(classFile, annotationNames, supertypeNames));
+    assertTrue(annotationNames.contains(Entity.class.getName()));
+    assertEquals(list(SimpleMappedSuperclass.class.getName()), supertypeNames);
+  }
+
+  /**
+   * Ensures that a stereotype whose retention policy is {@link
+   * RetentionPolicy#CLASS CLASS}, the default, is read from class
+   * files and resolved like any other.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testClassRetentionStereotype() throws Exception {
+    for (final Class<?> c : new Class<?>[] { ClassRetainedEntity.class, Stereotyped.class }) {
+      final List<String> annotationNames = new ArrayList<String>();
+      final List<String> supertypeNames = new ArrayList<String>();
+      final byte[] classFile = ClassFileReader.read(c.getResourceAsStream(c.getName().substring(c.getName().lastIndexOf('.') + 1) + ".class"));
+      this.index(ClassFileReader.readClassAnnotations(classFile, annotationNames, supertypeNames), annotationNames, supertypeNames);
+    }
+    final String entity = Entity.class.getName();
+    final Map<String, Set<String>> result = new AnnotationResolver(list(entity)).resolve(this.db);
+    assertEquals(Collections.singleton(Stereotyped.class.getName()), result.get(entity));
+  }
+
+  /**
+   * Ensures that the mojos derive their constant pool prefilter from
+   * the configured annotations, and disable it when resolving.
+   */
+  @Test
+  public void testRequiredReferences() {
+    final ListEntityClassnamesMojo mojo = new ListEntityClassnamesMojo();
+    assertArrayEquals(new String[] { "jakarta/persistence/", "javax/persistence/" }, mojo.getRequiredReferences());
+    mojo.setAnnotations(list(" jakarta.persistence.Entity ", "javax.persistence.Converter", "", null, "jakarta.persistence.Entity"));
+    assertEquals(list("jakarta.persistence.Entity", "javax.persistence.Converter"), mojo.getAnnotations());
+    assertArrayEquals(new String[] { "jakarta/persistence/", "javax/persistence/" }, mojo.getRequiredReferences());
+    mojo.setResolveAnnotations(true);
+    assertNull(mojo.getRequiredReferences());
+  }
+
+  /**
+   * Records a scanned class in the {@link #db}.
+   *
+   * @param className the class name; must not be {@code null}
+   *
+   * @param annotationNames its annotations; must not be {@code null}
+   *
+   * @param supertypeNames its direct supertypes; must not be {@code
+   * null}
+   */
+  private final void index(final String className, final Collection<String> annotationNames, final Collection<String> supertypeNames) {
+    this.db.index(className, annotationNames, supertypeNames);
+  }
+
+  /**
+   * Returns the supplied {@link String}s as a {@link List}.
+   *
+   * @param strings the {@link String}s
+   *
+   * @return a {@link List}; never {@code null}
+   */
+  private static final List<String> list(final String... strings) {
+    return Arrays.asList(strings);
+  }
+
+  /**
+   * A stereotype that is recorded in class files but not retained at
+   * runtime.
+   */
+  @Entity
+  @Retention(RetentionPolicy.CLASS)
+  private static @interface ClassRetainedEntity {
+
+  }
+
+  /**
+   * A class bearing the {@link ClassRetainedEntity} stereotype.
+   */
+  @ClassRetainedEntity
+  private static final class Stereotyped {
+
+  }
+
+}
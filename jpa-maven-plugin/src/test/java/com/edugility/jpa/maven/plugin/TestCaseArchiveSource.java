@@ -0,0 +1,320 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.net.URL;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.scannotation.archiveiterator.Filter;
+import org.scannotation.archiveiterator.JarIterator;
+import org.scannotation.archiveiterator.StreamIterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that
+ * exercises the {@link ArchiveSource} implementations.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCaseArchiveSource {
+
+  /**
+   * A {@link Filter} that accepts class files only.
+   */
+  private static final Filter CLASS_FILTER = new Filter() {
+      @Override
+      public final boolean accepts(final String name) {
+        return name != null && name.endsWith(".class");
+      }
+    };
+
+  /**
+   * A small jar file containing a directory, a resource and a class
+   * file.  This field is never {@code null} during a test run.
+   *
+   * @see #setUp()
+   */
+  private File archive;
+
+  /**
+   * Creates a new {@link TestCaseArchiveSource}.
+   */
+  public TestCaseArchiveSource() {
+    super();
+  }
+
+  /**
+   * Runs before each test; creates the {@link #archive}.
+   *
+   * @exception Exception if an error occurs
+   *
+   * @see Before
+   */
+  @Before
+  public void setUp() throws Exception {
+    this.archive = File.createTempFile("archivesource", ".jar");
+    final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+    entries.put("com/", null);
+    entries.put("com/README.txt", "Not a class file".getBytes());
+    entries.put("com/Foo.class", new byte[] { (byte)0xCA, (byte)0xFE, (byte)0xBA, (byte)0xBE });
+    write(this.archive, entries);
+  }
+
+  /**
+   * Runs after each test and deletes the {@link #archive}.
+   *
+   * @see After
+   */
+  @After
+  public void tearDown() {
+    this.archive.delete();
+  }
+
+  /**
+   * Ensures that a {@link JarFileArchiveSource} and a {@link
+   * JarIterator} visit the same number of class files in the JUnit
+   * jar file.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testSameEntriesAsJarIterator() throws Exception {
+    final File junit = new File(Test.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    assertTrue(junit.isFile());
+    final int expected = count(new JarIterator(new FileInputStream(junit), CLASS_FILTER));
+    assertTrue(expected > 0);
+    final ArchiveSource source = ArchiveSource.forURL(junit.toURI().toURL());
+    try {
+      assertTrue(source instanceof JarFileArchiveSource);
+      assertEquals(expected, visit(source).size());
+    } finally {
+      source.close();
+    }
+  }
+
+  /**
+   * Ensures that directories and rejected entries are skipped, and
+   * that entries can be opened by name.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testJarFileArchiveSource() throws Exception {
+    final ArchiveSource source = new JarFileArchiveSource(this.archive, null);
+    try {
+      assertEquals(Collections.singletonList("com/Foo.class"), visit(source));
+      assertEquals(2, source.getEntryNames().size());
+      assertNotNull(source.open("com/README.txt"));
+      assertNull(source.open("com/"));
+      assertNull(source.open("com/Bar.class"));
+    } finally {
+      source.close();
+    }
+
+    final ArchiveSource restricted = ArchiveSource.forURL(new URL("jar:" + this.archive.toURI().toURL() + "!/com/"));
+    try {
+      assertTrue(restricted instanceof JarFileArchiveSource);
+      assertEquals(Collections.singletonList("Foo.class"), visit(restricted));
+    } finally {
+      restricted.close();
+    }
+  }
+
+  /**
+   * Ensures that a {@link DirectoryArchiveSource} names its entries
+   * relative to its directory.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testDirectoryArchiveSource() throws Exception {
+    final File directory = new File(TestCaseArchiveSource.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    final ArchiveSource source = ArchiveSource.forURL(directory.toURI().toURL());
+    assertTrue(source instanceof DirectoryArchiveSource);
+    final String name = TestCaseArchiveSource.class.getName().replace('.', '/') + ".class";
+    assertTrue(visit(source).contains(name));
+    assertTrue(source.getEntryNames().contains(name));
+    final InputStream stream = source.open(name);
+    assertNotNull(stream);
+    stream.close();
+  }
+
+  /**
+   * Ensures that a {@link NestedJarArchiveSource} reads a jar file
+   * stored within another jar file.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testNestedJarArchiveSource() throws Exception {
+    final File outer = File.createTempFile("archivesource", ".war");
+    try {
+      final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+      entries.put("WEB-INF/lib/inner.jar", ClassFileReader.read(new FileInputStream(this.archive)));
+      write(outer, entries);
+      final ArchiveSource source = ArchiveSource.forURL(new URL("jar:" + outer.toURI().toURL() + "!/WEB-INF/lib/inner.jar"));
+      try {
+        assertTrue(source instanceof NestedJarArchiveSource);
+        assertEquals(Collections.singletonList("com/Foo.class"), visit(source));
+        assertEquals(2, source.getEntryNames().size());
+        final InputStream stream = source.open("com/Foo.class");
+        assertNotNull(stream);
+        assertEquals(4, ClassFileReader.read(stream).length);
+        stream.close();
+        assertNull(source.open("com/Bar.class"));
+      } finally {
+        source.close();
+      }
+    } finally {
+      assertTrue(outer.delete());
+    }
+  }
+
+  /**
+   * Ensures that an {@link InMemoryArchiveSource} read from a jar
+   * file holds the same entries as the jar file.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testInMemoryArchiveSource() throws Exception {
+    final InputStream stream = new FileInputStream(this.archive);
+    final ArchiveSource source;
+    try {
+      source = InMemoryArchiveSource.read("test", stream);
+    } finally {
+      stream.close();
+    }
+    assertEquals(Collections.singletonList("com/Foo.class"), visit(source));
+    assertEquals(2, source.getEntryNames().size());
+    assertNotNull(source.open("com/Foo.class"));
+  }
+
+  /**
+   * Returns the names of the class file entries of the supplied
+   * {@link ArchiveSource}, in the order in which they are {@linkplain
+   * ArchiveSource#scan(ArchiveSource.Visitor) scanned}.
+   *
+   * @param source the {@link ArchiveSource}; must not be {@code null}
+   *
+   * @return a {@link List} of entry names; never {@code null}
+   *
+   * @exception IOException if an error occurs
+   */
+  private static final List<String> visit(final ArchiveSource source) throws IOException {
+    final List<String> names = new ArrayList<String>();
+    assertTrue(source.scan(new ArchiveSource.Visitor() {
+        @Override
+        public final boolean accepts(final String entryName) {
+          return CLASS_FILTER.accepts(entryName);
+        }
+
+        @Override
+        public final boolean visit(final String entryName, final InputStream stream) throws IOException {
+          assertNotNull(ClassFileReader.read(stream));
+          names.add(entryName);
+          return true;
+        }
+      }));
+    return names;
+  }
+
+  /**
+   * Writes a jar file with the supplied entries; a {@code null} value
+   * denotes a directory.
+   *
+   * @param file the file to write; must not be {@code null}
+   *
+   * @param entries the entries; must not be {@code null}
+   *
+   * @exception IOException if an error occurs
+   */
+  private static final void write(final File file, final Map<String, byte[]> entries) throws IOException {
+    final JarOutputStream out = new JarOutputStream(new FileOutputStream(file));
+    try {
+      for (final Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        out.putNextEntry(new JarEntry(entry.getKey()));
+        if (entry.getValue() != null) {
+          out.write(entry.getValue());
+        }
+        out.closeEntry();
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Counts and closes the {@link InputStream}s returned by the
+   * supplied {@link StreamIterator}, and then closes it.
+   *
+   * @param iterator the {@link StreamIterator}; must not be {@code
+   * null}
+   *
+   * @return the number of {@link InputStream}s returned
+   *
+   * @exception IOException if an error occurs
+   */
+  private static final int count(final StreamIterator iterator) throws IOException {
+    int count = 0;
+    try {
+      InputStream stream;
+      while ((stream = iterator.next()) != null) {
+        count++;
+        stream.close();
+      }
+    } finally {
+      iterator.close();
+    }
+    return count;
+  }
+
+}
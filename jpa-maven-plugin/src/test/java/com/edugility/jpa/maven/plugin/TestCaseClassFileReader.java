@@ -0,0 +1,254 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+
+import java.net.URL;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import javax.persistence.Entity;
+import javax.persistence.MappedSuperclass;
+
+import com.edugility.jpa.maven.plugin.test.project.SimpleEntity;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that
+ * exercises the {@link ClassFileReader} class and the {@linkplain
+ * AnnotationDB#setRequiredReferences(String[]) constant pool
+ * prefilter} built upon it.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCaseClassFileReader {
+
+  /**
+   * The needles to look for.
+   */
+  private static final byte[][] NEEDLES = { "javax/persistence/".getBytes() };
+
+  /**
+   * Creates a new {@link TestCaseClassFileReader}.
+   */
+  public TestCaseClassFileReader() {
+    super();
+  }
+
+  /**
+   * Ensures that a JPA entity's class file is recognized as
+   * referencing the {@code javax.persistence} package and that an
+   * unrelated class file is not.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testContainsUtf8() throws Exception {
+    assertTrue(ClassFileReader.containsUtf8(bytes(SimpleEntity.class), NEEDLES));
+    assertFalse(ClassFileReader.containsUtf8(bytes(String.class), NEEDLES));
+    assertFalse(ClassFileReader.containsUtf8(bytes(Test.class), NEEDLES));
+  }
+
+  /**
+   * Ensures that a class file read from a stream is returned whole
+   * when it references the {@code javax.persistence} package, and
+   * that reading stops at the end of the constant pool when it does
+   * not.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testReadIfContainsUtf8() throws Exception {
+    final byte[] entity = bytes(SimpleEntity.class);
+    assertArrayEquals(entity, ClassFileReader.readIfContainsUtf8(new ByteArrayInputStream(entity), NEEDLES));
+
+    final byte[] test = bytes(Test.class);
+    final byte[] padded = new byte[test.length + 100000];
+    System.arraycopy(test, 0, padded, 0, test.length);
+    final ByteArrayInputStream stream = new ByteArrayInputStream(padded);
+    assertNull(ClassFileReader.readIfContainsUtf8(stream, NEEDLES));
+    // At most one buffer's worth beyond the constant pool is read.
+    assertTrue(stream.available() >= padded.length - test.length - 1024);
+  }
+
+  /**
+   * Ensures that bytes that do not form a class file are passed on
+   * for a full parse rather than silently rejected.
+   */
+  @Test
+  public void testMalformedClassFileIsNotRejected() {
+    assertTrue(ClassFileReader.containsUtf8(new byte[0], NEEDLES));
+    assertTrue(ClassFileReader.containsUtf8(new byte[] { (byte)0xCA, (byte)0xFE, (byte)0xBA, (byte)0xBE, 0, 0, 0, 50, 0, 5, 1, 0 }, NEEDLES));
+  }
+
+  /**
+   * Ensures that enabling the prefilter does not change which
+   * classes are found to bear JPA annotations.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testPrefilterPreservesJPAResults() throws Exception {
+    final URL url = SimpleEntity.class.getProtectionDomain().getCodeSource().getLocation();
+    final AnnotationDB filtered = new ListEntityClassnamesMojo().cloneAnnotationDB();
+    assertNotNull(filtered.getRequiredReferences());
+    filtered.setClassAnnotationsOnly(false);
+
+    final AnnotationDB unfiltered = filtered.clone();
+    unfiltered.setRequiredReferences(null);
+
+    filtered.scanArchives(url);
+    unfiltered.scanArchives(url);
+
+    final Set<String> entities = filtered.getAnnotationIndex().get(Entity.class.getName());
+    assertNotNull(entities);
+    assertTrue(entities.contains(SimpleEntity.class.getName()));
+    assertEquals(unfiltered.getAnnotationIndex().get(Entity.class.getName()), entities);
+    assertTrue(filtered.getClassIndex().size() < unfiltered.getClassIndex().size());
+  }
+
+  /**
+   * Ensures that the class-annotation-only reader finds exactly the
+   * runtime-visible class annotations that a full Javassist parse
+   * finds, and populates nothing but the annotation index.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testClassAnnotationsOnly() throws Exception {
+    final List<String> annotationNames = new ArrayList<String>();
+    assertEquals(SimpleEntity.class.getName(), ClassFileReader.readClassAnnotations(bytes(SimpleEntity.class), annotationNames));
+    assertTrue(annotationNames.contains(Entity.class.getName()));
+    assertEquals(SimpleEntity.class.getAnnotations().length, annotationNames.size());
+
+    final URL url = SimpleEntity.class.getProtectionDomain().getCodeSource().getLocation();
+    final AnnotationDB classAnnotationsOnly = new ListEntityClassnamesMojo().cloneAnnotationDB();
+    assertTrue(classAnnotationsOnly.getClassAnnotationsOnly());
+    classAnnotationsOnly.setRequiredReferences(null);
+
+    final AnnotationDB full = classAnnotationsOnly.clone();
+    full.setClassAnnotationsOnly(false);
+
+    classAnnotationsOnly.scanArchives(url);
+    full.scanArchives(url);
+
+    assertTrue(classAnnotationsOnly.getClassIndex().isEmpty());
+    assertFalse(full.getClassIndex().isEmpty());
+    for (final String annotationName : Arrays.asList(Entity.class.getName(), MappedSuperclass.class.getName(), Test.class.getName())) {
+      assertEquals(full.getAnnotationIndex().get(annotationName), classAnnotationsOnly.getAnnotationIndex().get(annotationName));
+    }
+  }
+
+  /**
+   * Ensures that an archive none of whose classes reference the
+   * {@code javax.persistence} package is rejected as a whole within
+   * a single scanning pass, and that an archive containing a JPA
+   * entity is not.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testArchiveLevelReject() throws Exception {
+    final AnnotationDB prototype = new ListEntityClassnamesMojo().cloneAnnotationDB();
+    assertNotNull(prototype.getRequiredReferences());
+
+    final URL junit = Test.class.getProtectionDomain().getCodeSource().getLocation();
+    AnnotationDB db = prototype.clone();
+    db.scanArchives(junit);
+    assertTrue(db.getClassEntryCount() > 0L);
+    assertEquals(0L, db.getClassesParsedCount());
+    assertTrue(db.getAnnotationIndex().isEmpty());
+
+    final File archive = File.createTempFile("entities", ".jar");
+    try {
+      final JarOutputStream out = new JarOutputStream(new FileOutputStream(archive));
+      try {
+        out.putNextEntry(new JarEntry("README.txt"));
+        out.write("Not a class file".getBytes());
+        out.closeEntry();
+        final String name = String.format("%s.class", SimpleEntity.class.getName().replace('.', '/'));
+        out.putNextEntry(new JarEntry(name));
+        out.write(bytes(SimpleEntity.class));
+        out.closeEntry();
+      } finally {
+        out.close();
+      }
+      db = prototype.clone();
+      db.scanArchives(archive.toURI().toURL());
+      assertEquals(1L, db.getClassEntryCount());
+      assertEquals(1L, db.getClassesParsedCount());
+      assertTrue(db.getAnnotationIndex().get(Entity.class.getName()).contains(SimpleEntity.class.getName()));
+
+      db = prototype.clone();
+      db.setRequiredReferences(null);
+      db.scanArchives(junit);
+      assertEquals(db.getClassEntryCount(), db.getClassesParsedCount());
+    } finally {
+      assertTrue(archive.delete());
+    }
+  }
+
+  /**
+   * Returns the bytes of the class file that defines the supplied
+   * {@link Class}.
+   *
+   * @param c the {@link Class}; must not be {@code null}
+   *
+   * @return the class file bytes; never {@code null}
+   *
+   * @exception Exception if an error occurs
+   */
+  private static final byte[] bytes(final Class<?> c) throws Exception {
+    final InputStream stream = c.getResourceAsStream(String.format("/%s.class", c.getName().replace('.', '/')));
+    assertNotNull(stream);
+    try {
+      return ClassFileReader.read(stream);
+    } finally {
+      stream.close();
+    }
+  }
+
+}
@@ -0,0 +1,181 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2010-2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+
+import java.net.URL;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.persistence.Entity;
+
+import com.edugility.jpa.maven.plugin.test.project.SimpleEntity;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that ensures
+ * that {@linkplain AnnotationDB#setCompactIndices(boolean) compact
+ * indices} hold exactly the same information as ordinary ones.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCaseCompactIndex {
+
+  /**
+   * The {@link URL}s to scan.  This field must never be {@code null}
+   * during a test run.
+   *
+   * @see #setUp()
+   */
+  private URL[] urls;
+
+  /**
+   * Creates a new {@link TestCaseCompactIndex}.
+   */
+  public TestCaseCompactIndex() {
+    super();
+  }
+
+  /**
+   * Runs before each test; sets up the {@link #urls} field to hold
+   * this project's test classes directory and the jar files
+   * containing JUnit and the JPA annotations.
+   *
+   * @exception Exception if an error occurs
+   *
+   * @see Before
+   */
+  @Before
+  public void setUp() throws Exception {
+    final File testOutputDirectory =
+      new File(System.getProperty("maven.project.build.testOutputDirectory",
+                                  System.getProperty("project.build.testOutputDirectory",
+                                                     String.format("%1$s%2$starget%2$stest-classes",
+                                                                   System.getProperty("basedir", "."), File.separator))));
+    assertTrue(testOutputDirectory.isDirectory());
+    this.urls = new URL[] {
+      testOutputDirectory.toURI().toURL(),
+      Test.class.getProtectionDomain().getCodeSource().getLocation(),
+      Entity.class.getProtectionDomain().getCodeSource().getLocation()
+    };
+  }
+
+  /**
+   * Ensures that a full scan into compact indices yields indices
+   * equal to those produced by a full scan into ordinary ones, and
+   * that converting back yields ordinary indices again.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testCompactScanMatchesOrdinaryScan() throws Exception {
+    final AnnotationDB ordinary = new AnnotationDB();
+    ordinary.scanArchives(this.urls);
+    assertFalse(ordinary.getAnnotationIndex().isEmpty());
+
+    final AnnotationDB compact = new AnnotationDB();
+    compact.setCompactIndices(true);
+    assertTrue(compact.getAnnotationIndex() instanceof CompactIndex);
+    compact.scanArchives(this.urls);
+
+    assertEquals(ordinary.getAnnotationIndex(), compact.getAnnotationIndex());
+    assertEquals(ordinary.getClassIndex(), compact.getClassIndex());
+    assertEquals(ordinary.getImplementsIndex(), compact.getImplementsIndex());
+
+    final Set<String> entities = compact.getAnnotationIndex().get(Entity.class.getName());
+    assertNotNull(entities);
+    assertTrue(entities.contains(SimpleEntity.class.getName()));
+    assertFalse(entities.contains(TestCaseCompactIndex.class.getName()));
+
+    compact.setCompactIndices(false);
+    assertFalse(compact.getAnnotationIndex() instanceof CompactIndex);
+    assertEquals(ordinary.getAnnotationIndex(), compact.getAnnotationIndex());
+    assertEquals(ordinary.getClassIndex(), compact.getClassIndex());
+  }
+
+  /**
+   * Ensures that a clone of an {@link AnnotationDB} using compact
+   * indices is unaffected by subsequent changes to the original.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testCloneIsIndependent() throws Exception {
+    final AnnotationDB original = new AnnotationDB();
+    original.setCompactIndices(true);
+    original.scanArchives(this.urls[0]);
+    final AnnotationDB copy = original.clone();
+    assertTrue(copy.getCompactIndices());
+    assertEquals(original.getAnnotationIndex(), copy.getAnnotationIndex());
+
+    final int size = copy.getAnnotationIndex().get(Entity.class.getName()).size();
+    original.index("com.foo.Bar", Collections.singleton(Entity.class.getName()), null);
+    original.index("com.foo.Baz", Collections.singleton("com.foo.Qux"), null);
+    assertEquals(size, copy.getAnnotationIndex().get(Entity.class.getName()).size());
+    assertFalse(copy.getAnnotationIndex().containsKey("com.foo.Qux"));
+  }
+
+  /**
+   * Ensures that the {@link AbstractJPAMojo#setCompactIndices(boolean)
+   * compactIndices} mojo parameter does not change scan results,
+   * whether scanning is sequential or parallel.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testMojoScanWithCompactIndices() throws Exception {
+    final Set<URL> urls = new LinkedHashSet<URL>();
+    for (final URL url : this.urls) {
+      urls.add(url);
+    }
+    final ListEntityClassnamesMojo mojo = new ListEntityClassnamesMojo();
+    final AnnotationDB ordinary = mojo.scan(urls);
+    assertNotNull(ordinary);
+
+    mojo.setCompactIndices(true);
+    final AnnotationDB sequential = mojo.scan(urls);
+    assertTrue(sequential.getCompactIndices());
+    assertEquals(ordinary.getAnnotationIndex(), sequential.getAnnotationIndex());
+
+    mojo.setScanThreads(4);
+    final AnnotationDB parallel = mojo.scan(urls);
+    assertEquals(ordinary.getAnnotationIndex(), parallel.getAnnotationIndex());
+  }
+
+}
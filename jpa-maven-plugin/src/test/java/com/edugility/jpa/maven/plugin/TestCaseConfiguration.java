@@ -33,6 +33,7 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 
@@ -202,6 +203,44 @@ public class TestCaseConfiguration extends AbstractMojoTestCase {
     assertNotNull(properties.getProperty("edugilityClasses"));
   }
 
+  /**
+   * Runs the {@link ListEntityClassnamesMojo} goal twice and verifies
+   * that the second execution is skipped because nothing has changed,
+   * and that a third execution after the output file is touched is
+   * not.
+   *
+   * @exception Exception if an error occurs
+   */
+  public void testUpToDateExecutionIsSkipped() throws Exception {
+    final List<String> messages = new ArrayList<String>();
+    this.mojo.setLog(new SystemStreamLog() {
+        @Override
+        public final void info(final CharSequence message) {
+          messages.add(String.valueOf(message));
+          super.info(message);
+        }
+      });
+    this.mojo.setSkipIfUpToDate(true);
+    this.mojo.execute();
+    final File snapshotFile = 
+      new File(this.getBuildDirectory(), 
+               String.format("jpa-maven-plugin%1$sentityClassnames.properties.snapshot", File.separator));
+    assertTrue(snapshotFile.isFile());
+
+    messages.clear();
+    this.mojo.execute();
+    assertTrue(messages.toString(), messages.contains("Nothing has changed since the last execution; skipping scan"));
+
+    final File propertiesFile = 
+      new File(this.getBuildDirectory(), 
+               String.format("generated-test-sources%1$sjpa-maven-plugin%1$sentityClassnames.properties",
+                             File.separator));
+    assertTrue(propertiesFile.setLastModified(propertiesFile.lastModified() - 60000L));
+    messages.clear();
+    this.mojo.execute();
+    assertFalse(messages.toString(), messages.contains("Nothing has changed since the last execution; skipping scan"));
+  }
+
   /**
    * A {@link SystemStreamLog} that is enabled for debug logging.
    *
@@ -0,0 +1,137 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2010-2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.Entity;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that ensures
+ * that {@linkplain AnnotationDB#clone() cloned} {@link AnnotationDB}s
+ * share their indices until one of them writes to them, and are
+ * nevertheless independent of one another.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCaseCopyOnWrite {
+
+  /**
+   * An {@link AnnotationDB} that has scanned this project's test
+   * classes.  This field must never be {@code null} during a test
+   * run.
+   *
+   * @see #setUp()
+   */
+  private AnnotationDB prototype;
+
+  /**
+   * Creates a new {@link TestCaseCopyOnWrite}.
+   */
+  public TestCaseCopyOnWrite() {
+    super();
+  }
+
+  /**
+   * Runs before each test; sets up the {@link #prototype} field.
+   *
+   * @exception Exception if an error occurs
+   *
+   * @see Before
+   */
+  @Before
+  public void setUp() throws Exception {
+    final File testOutputDirectory =
+      new File(System.getProperty("maven.project.build.testOutputDirectory",
+                                  System.getProperty("project.build.testOutputDirectory",
+                                                     String.format("%1$s%2$starget%2$stest-classes",
+                                                                   System.getProperty("basedir", "."), File.separator))));
+    assertTrue(testOutputDirectory.isDirectory());
+    this.prototype = new AnnotationDB();
+    this.prototype.setIgnoredPackages(new String[] { "org.junit" });
+    this.prototype.scanArchives(testOutputDirectory.toURI().toURL());
+    assertNotNull(this.prototype.getAnnotationIndex().get(Entity.class.getName()));
+  }
+
+  /**
+   * Ensures that a clone shares its prototype's indices and
+   * configuration until it is written to.
+   */
+  @Test
+  public void testCloneSharesUntilWritten() {
+    final AnnotationDB copy = this.prototype.clone();
+    assertSame(this.prototype.getAnnotationIndex(), copy.getAnnotationIndex());
+    assertSame(this.prototype.getClassIndex(), copy.getClassIndex());
+    assertSame(this.prototype.getIgnoredPackages(), copy.getIgnoredPackages());
+
+    copy.index("com.foo.Bar", Collections.singleton(Entity.class.getName()), null);
+    assertNotSame(this.prototype.getAnnotationIndex(), copy.getAnnotationIndex());
+    assertTrue(copy.getAnnotationIndex().get(Entity.class.getName()).contains("com.foo.Bar"));
+    assertFalse(this.prototype.getAnnotationIndex().get(Entity.class.getName()).contains("com.foo.Bar"));
+    assertFalse(this.prototype.getClassIndex().containsKey("com.foo.Bar"));
+  }
+
+  /**
+   * Ensures that clearing a clone allocates nothing and affects
+   * neither the clone's prototype nor the clone's later writes.
+   */
+  @Test
+  public void testClearedCloneIsIndependent() {
+    final Map<String, Set<String>> annotationIndex = this.prototype.getAnnotationIndex();
+    final int size = annotationIndex.size();
+    final AnnotationDB copy = this.prototype.clone();
+    copy.clear();
+    assertTrue(copy.getAnnotationIndex().isEmpty());
+    assertSame(Collections.emptyMap(), copy.getAnnotationIndex());
+    assertEquals(size, this.prototype.getAnnotationIndex().size());
+
+    copy.index("com.foo.Bar", Collections.singleton(Entity.class.getName()), null);
+    assertEquals(1, copy.getAnnotationIndex().size());
+    assertEquals(1, copy.getClassIndex().size());
+
+    // The prototype writes to its own copy too.
+    this.prototype.index("com.foo.Baz", Collections.singleton("com.foo.Qux"), null);
+    assertNotSame(annotationIndex, this.prototype.getAnnotationIndex());
+    assertFalse(copy.getAnnotationIndex().containsKey("com.foo.Qux"));
+    assertFalse(annotationIndex.containsKey("com.foo.Qux"));
+  }
+
+}
@@ -0,0 +1,173 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2010-2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.net.URL;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.edugility.jpa.maven.plugin.test.project.SimpleEntity;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that ensures
+ * that potentially large debug listings are streamed, capped and
+ * summarized, and that nothing is logged when debug logging is off.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCaseDebugOutput {
+
+  /**
+   * Creates a new {@link TestCaseDebugOutput}.
+   */
+  public TestCaseDebugOutput() {
+    super();
+  }
+
+  /**
+   * Ensures that the list of scanned {@link URL}s and the annotation
+   * index are logged one line at a time, no further than the {@link
+   * AbstractJPAMojo#getDebugOutputLimit() debug output limit}.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testDebugOutputIsCapped() throws Exception {
+    final Set<URL> urls = new LinkedHashSet<URL>();
+    urls.add(SimpleEntity.class.getProtectionDomain().getCodeSource().getLocation());
+    urls.add(Test.class.getProtectionDomain().getCodeSource().getLocation());
+
+    final ListEntityClassnamesMojo mojo = new ListEntityClassnamesMojo();
+    final RecordingLog log = new RecordingLog(true);
+    mojo.setLog(log);
+    mojo.setDebugOutputLimit(1);
+    final AnnotationDB db = mojo.scan(urls);
+    assertNotNull(db);
+    assertTrue(log.messages.contains("Scanning 2 URLs:"));
+    assertTrue(log.messages.contains("...and 1 more (debugOutputLimit = 1)"));
+
+    log.messages.clear();
+    mojo.logAnnotationIndex(db);
+    int classLines = 0;
+    for (final String message : log.messages) {
+      if (message.startsWith("    ")) {
+        classLines++;
+      }
+    }
+    assertEquals(1, classLines);
+    final String summary = log.messages.get(log.messages.size() - 1);
+    assertTrue(summary, summary.startsWith("Annotation index: "));
+    assertTrue(summary, summary.endsWith("(debugOutputLimit = 1)"));
+  }
+
+  /**
+   * Ensures that nothing is logged at debug level when debug logging
+   * is disabled.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testNothingIsLoggedWhenDebugIsOff() throws Exception {
+    final ListEntityClassnamesMojo mojo = new ListEntityClassnamesMojo();
+    final RecordingLog log = new RecordingLog(false);
+    mojo.setLog(log);
+    final Set<URL> urls = new LinkedHashSet<URL>();
+    urls.add(SimpleEntity.class.getProtectionDomain().getCodeSource().getLocation());
+    final AnnotationDB db = mojo.scan(urls);
+    mojo.logAnnotationIndex(db);
+    assertTrue(log.messages.isEmpty());
+  }
+
+  /**
+   * A {@link SystemStreamLog} that records, rather than prints, its
+   * debug messages.
+   *
+   * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+   *
+   * @since 3-SNAPSHOT
+   */
+  private static final class RecordingLog extends SystemStreamLog {
+
+    /**
+     * Whether debug logging is enabled.
+     */
+    private final boolean debugEnabled;
+
+    /**
+     * The debug messages recorded so far.  This field is never {@code
+     * null}.
+     */
+    private final List<String> messages;
+
+    /**
+     * Creates a new {@link RecordingLog}.
+     *
+     * @param debugEnabled whether debug logging is enabled
+     */
+    private RecordingLog(final boolean debugEnabled) {
+      super();
+      this.debugEnabled = debugEnabled;
+      this.messages = new ArrayList<String>();
+    }
+
+    /**
+     * Returns whether debug logging is enabled.
+     *
+     * @return whether debug logging is enabled
+     */
+    @Override
+    public final boolean isDebugEnabled() {
+      return this.debugEnabled;
+    }
+
+    /**
+     * Records the supplied message.
+     *
+     * @param message the message; may be {@code null}
+     */
+    @Override
+    public final void debug(final CharSequence message) {
+      this.messages.add(String.valueOf(message));
+    }
+
+  }
+
+}
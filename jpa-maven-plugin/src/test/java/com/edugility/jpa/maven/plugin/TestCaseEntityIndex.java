@@ -0,0 +1,161 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2010-2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.StringWriter;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.edugility.jpa.index.EntityIndex;
+
+import com.edugility.jpa.maven.plugin.test.project.SimpleEntity;
+import com.edugility.jpa.maven.plugin.test.project.SimpleMappedSuperclass;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that
+ * exercises the {@link GenerateEntityIndexMojo} and {@link
+ * EntityIndex} classes.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCaseEntityIndex {
+
+  /**
+   * A private temporary directory.  This field is never {@code null}
+   * during a test run.
+   *
+   * @see #setUp()
+   */
+  private File directory;
+
+  /**
+   * Creates a new {@link TestCaseEntityIndex}.
+   */
+  public TestCaseEntityIndex() {
+    super();
+  }
+
+  /**
+   * Runs before each test and creates a private temporary directory.
+   *
+   * @exception Exception if an error occurs
+   *
+   * @see Before
+   */
+  @Before
+  public void setUp() throws Exception {
+    this.directory = TemporaryDirectories.create("entityindex");
+  }
+
+  /**
+   * Runs after each test and deletes the private temporary directory.
+   *
+   * @see After
+   */
+  @After
+  public void tearDown() {
+    TemporaryDirectories.delete(this.directory);
+  }
+
+  /**
+   * Ensures that an index written by {@link EntityIndex#write(Map,
+   * java.io.Writer)} is read back intact, and that comments and blank
+   * lines are ignored.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testWriteAndRead() throws Exception {
+    final Map<String, Set<String>> index = new HashMap<String, Set<String>>();
+    index.put("com.foo.B", Collections.singleton("javax.persistence.Entity"));
+    index.put("com.foo.A", new HashSet<String>(Arrays.asList("javax.persistence.IdClass", "javax.persistence.Entity")));
+    final StringWriter writer = new StringWriter();
+    EntityIndex.write(index, writer);
+    assertEquals("# META-INF/jpa-entity-index\ncom.foo.A=javax.persistence.Entity,javax.persistence.IdClass\ncom.foo.B=javax.persistence.Entity\n", writer.toString());
+
+    final EntityIndex entityIndex = EntityIndex.read(new ByteArrayInputStream((writer.toString() + "\n  \n# comment\n").getBytes("UTF-8")));
+    assertEquals(Arrays.asList("com.foo.A", "com.foo.B"), new ArrayList<String>(entityIndex.getClassNames()));
+    assertEquals(entityIndex.getClassNames(), entityIndex.getClassNames("javax.persistence.Entity"));
+    assertEquals(Collections.singleton("com.foo.A"), entityIndex.getClassNames("javax.persistence.IdClass"));
+    assertTrue(entityIndex.getClassNames("javax.persistence.Embeddable").isEmpty());
+    assertEquals(2, entityIndex.getAnnotationNames("com.foo.A").size());
+    assertTrue(entityIndex.getAnnotationNames("com.foo.C").isEmpty());
+  }
+
+  /**
+   * Runs the {@link GenerateEntityIndexMojo} over this project's test
+   * classes and ensures that the index it writes can be loaded
+   * through a {@link ClassLoader}.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testGenerateAndLoad() throws Exception {
+    final File classesDirectory = new File(SimpleEntity.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    assertTrue(classesDirectory.isDirectory());
+    final File indexFile = new File(this.directory, EntityIndex.RESOURCE_NAME);
+
+    final GenerateEntityIndexMojo mojo = new GenerateEntityIndexMojo();
+    mojo.setClassesDirectory(classesDirectory);
+    mojo.setIndexFile(indexFile);
+    mojo.execute();
+    assertTrue(indexFile.isFile());
+    final long lastModified = indexFile.lastModified();
+    assertTrue(indexFile.setLastModified(lastModified - 60000L));
+    mojo.execute();
+    assertEquals(lastModified - 60000L, indexFile.lastModified());
+
+    final ClassLoader loader = new URLClassLoader(new URL[] { this.directory.toURI().toURL() }, null);
+    final EntityIndex entityIndex = EntityIndex.load(loader);
+    assertTrue(entityIndex.getClassNames("javax.persistence.Entity").contains(SimpleEntity.class.getName()));
+    assertTrue(entityIndex.getClassNames("javax.persistence.MappedSuperclass").contains(SimpleMappedSuperclass.class.getName()));
+    assertFalse(entityIndex.getClassNames().contains(TestCaseEntityIndex.class.getName()));
+  }
+
+}
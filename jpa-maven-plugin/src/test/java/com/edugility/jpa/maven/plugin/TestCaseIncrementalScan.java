@@ -0,0 +1,221 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.net.URL;
+
+import java.util.Collections;
+import java.util.Set;
+
+import javax.persistence.Entity;
+
+import com.edugility.jpa.maven.plugin.test.project.SimpleEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that
+ * exercises the {@link IncrementalDirectoryScanner} class and its use
+ * by the {@link AbstractJPAMojo#scan(java.util.Set)} method.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCaseIncrementalScan {
+
+  /**
+   * A private temporary directory.  This field is never {@code null}
+   * during a test run.
+   *
+   * @see #setUp()
+   */
+  private File directory;
+
+  /**
+   * A copy of this project's test classes directory located within
+   * the {@link #directory}.  This field is never {@code null} during
+   * a test run.
+   *
+   * @see #setUp()
+   */
+  private File classes;
+
+  /**
+   * The {@link ListEntityClassnamesMojo} under test.  This field must
+   * never be {@code null} during a test run.
+   *
+   * @see #setUp()
+   */
+  protected ListEntityClassnamesMojo mojo;
+
+  /**
+   * Creates a new {@link TestCaseIncrementalScan}.
+   */
+  public TestCaseIncrementalScan() {
+    super();
+  }
+
+  /**
+   * Runs before each test; creates a private temporary directory,
+   * copies this project's test classes into it and sets up the {@link
+   * #mojo} field to keep its incremental scanning state within it.
+   *
+   * @exception Exception if an error occurs
+   *
+   * @see Before
+   */
+  @Before
+  public void setUp() throws Exception {
+    final File testOutputDirectory =
+      new File(System.getProperty("maven.project.build.testOutputDirectory",
+                                  System.getProperty("project.build.testOutputDirectory",
+                                                     String.format("%1$s%2$starget%2$stest-classes",
+                                                                   System.getProperty("basedir", "."), File.separator))));
+    assertTrue(testOutputDirectory.isDirectory());
+    this.directory = TemporaryDirectories.create("incrementalscan");
+    this.classes = new File(this.directory, "classes");
+    copy(testOutputDirectory, this.classes);
+    this.mojo = new ListEntityClassnamesMojo();
+    this.mojo.setScanCacheDirectory(new File(this.directory, "cache"));
+  }
+
+  /**
+   * Runs after each test and deletes the private temporary directory.
+   *
+   * @see After
+   */
+  @After
+  public void tearDown() {
+    TemporaryDirectories.delete(this.directory);
+  }
+
+  /**
+   * Ensures that incremental scanning yields the same results as a
+   * full scan, both when no state has been stored yet and when it
+   * has.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testIncrementalScanMatchesFullScan() throws Exception {
+    final Set<URL> urls = Collections.singleton(this.classes.toURI().toURL());
+
+    this.mojo.setUseIncrementalScan(false);
+    final AnnotationDB full = this.mojo.scan(urls);
+    assertNotNull(full);
+    assertFalse(full.getAnnotationIndex().isEmpty());
+
+    this.mojo.setUseIncrementalScan(true);
+    final AnnotationDB cold = this.mojo.scan(urls);
+    final String[] entries = new File(this.directory, "cache").list();
+    assertNotNull(entries);
+    assertEquals(1, entries.length);
+    final AnnotationDB warm = this.mojo.scan(urls);
+
+    assertEquals(full.getAnnotationIndex(), cold.getAnnotationIndex());
+    assertEquals(full.getClassIndex(), cold.getClassIndex());
+    assertEquals(full.getAnnotationIndex(), warm.getAnnotationIndex());
+    assertEquals(full.getClassIndex(), warm.getClassIndex());
+  }
+
+  /**
+   * Ensures that deleted class files no longer contribute to the
+   * results of an incremental scan.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testDeletedClassIsForgotten() throws Exception {
+    final Set<URL> urls = Collections.singleton(this.classes.toURI().toURL());
+    this.mojo.setUseIncrementalScan(true);
+
+    AnnotationDB db = this.mojo.scan(urls);
+    Set<String> entities = db.getAnnotationIndex().get(Entity.class.getName());
+    assertNotNull(entities);
+    assertTrue(entities.contains(SimpleEntity.class.getName()));
+
+    final File classFile = new File(this.classes, SimpleEntity.class.getName().replace('.', File.separatorChar) + ".class");
+    assertTrue(classFile.isFile());
+    assertTrue(classFile.delete());
+
+    db = this.mojo.scan(urls);
+    entities = db.getAnnotationIndex().get(Entity.class.getName());
+    assertTrue(entities == null || !entities.contains(SimpleEntity.class.getName()));
+    assertFalse(db.getClassIndex().containsKey(SimpleEntity.class.getName()));
+  }
+
+  /**
+   * Recursively copies the supplied source {@link File} to the
+   * supplied target {@link File}.
+   *
+   * @param source the {@link File} to copy; must not be {@code null}
+   *
+   * @param target the {@link File} to create; must not be {@code
+   * null}
+   *
+   * @exception Exception if an error occurs
+   */
+  private static final void copy(final File source, final File target) throws Exception {
+    if (source.isDirectory()) {
+      assertTrue(target.mkdirs());
+      final File[] children = source.listFiles();
+      if (children != null) {
+        for (final File child : children) {
+          copy(child, new File(target, child.getName()));
+        }
+      }
+    } else {
+      final InputStream in = new FileInputStream(source);
+      final OutputStream out = new FileOutputStream(target);
+      try {
+        final byte[] buffer = new byte[8192];
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) >= 0) {
+          out.write(buffer, 0, bytesRead);
+        }
+      } finally {
+        out.close();
+        in.close();
+      }
+    }
+  }
+
+}
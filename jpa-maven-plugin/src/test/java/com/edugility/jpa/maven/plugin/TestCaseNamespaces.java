@@ -0,0 +1,106 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2010-2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that
+ * exercises the selection of JPA annotation namespaces and the
+ * routing of the classes found in each to properties of their own.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCaseNamespaces {
+
+  /**
+   * Creates a new {@link TestCaseNamespaces}.
+   */
+  public TestCaseNamespaces() {
+    super();
+  }
+
+  /**
+   * Ensures that both the {@code javax.persistence} and {@code
+   * jakarta.persistence} annotations are sought by default, and that
+   * the namespaces can be chosen.
+   */
+  @Test
+  public void testNamespaceSelection() {
+    final ListEntityClassnamesMojo mojo = new ListEntityClassnamesMojo();
+    assertEquals(Arrays.asList("javax.persistence", "jakarta.persistence"), mojo.getNamespaces());
+    assertTrue(mojo.getAnnotations().contains("javax.persistence.Entity"));
+    assertTrue(mojo.getAnnotations().contains("jakarta.persistence.Embeddable"));
+    assertEquals(2 * AbstractJPAMojo.JPA_ANNOTATIONS.size(), mojo.getAnnotations().size());
+
+    mojo.setNamespaces(Collections.singletonList(" jakarta.persistence "));
+    assertEquals(Arrays.asList("jakarta.persistence.Entity", "jakarta.persistence.MappedSuperclass", "jakarta.persistence.Embeddable", "jakarta.persistence.IdClass"), mojo.getAnnotations());
+    assertArrayEquals(new String[] { "jakarta/persistence/" }, mojo.getRequiredReferences());
+
+    mojo.setAnnotations(Collections.singletonList("javax.persistence.Converter"));
+    assertEquals(Collections.singletonList("javax.persistence.Converter"), mojo.getAnnotations());
+  }
+
+  /**
+   * Ensures that classes found through the annotations of a namespace
+   * with a property of its own are listed under that property, and
+   * that all others are listed as before.
+   */
+  @Test
+  public void testNamespaceRouting() {
+    final ListEntityClassnamesMojo mojo = new ListEntityClassnamesMojo();
+    mojo.setNamespacePropertyNames(Collections.singletonMap("jakarta.persistence", "jakartaClassnames"));
+
+    final Map<String, Set<String>> ai = new HashMap<String, Set<String>>();
+    ai.put("javax.persistence.Entity", new HashSet<String>(Arrays.asList("com.foo.Old")));
+    ai.put("jakarta.persistence.Entity", new HashSet<String>(Arrays.asList("com.foo.New", "com.foo.Both")));
+    ai.put("jakarta.persistence.Embeddable", new HashSet<String>(Arrays.asList("com.foo.Address")));
+    ai.put("javax.persistence.MappedSuperclass", new HashSet<String>(Arrays.asList("com.foo.Both")));
+
+    final Map<String, Set<String>> index = mojo.indexByPropertyName(ai);
+    assertNotNull(index);
+    assertEquals(2, index.size());
+    assertEquals(new TreeSet<String>(Arrays.asList("com.foo.Address", "com.foo.Both", "com.foo.New")), index.get("jakartaClassnames"));
+    assertEquals(new TreeSet<String>(Arrays.asList("com.foo.Both", "com.foo.Old")), index.get(mojo.getDefaultPropertyName()));
+  }
+
+}
@@ -0,0 +1,185 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2010-2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that
+ * exercises the {@link OutputFormats} class.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCaseOutputFormats {
+
+  /**
+   * A {@link Map} of class names indexed by property name to render.
+   * This field is never {@code null} during a test run.
+   *
+   * @see #setUp()
+   */
+  private Map<String, Set<String>> propertyNameIndex;
+
+  /**
+   * Creates a new {@link TestCaseOutputFormats}.
+   */
+  public TestCaseOutputFormats() {
+    super();
+  }
+
+  /**
+   * Runs before each test; sets up the {@link #propertyNameIndex}.
+   */
+  @Before
+  public void setUp() {
+    this.propertyNameIndex = new HashMap<String, Set<String>>();
+    this.propertyNameIndex.put("entityClassnames", new TreeSet<String>(Arrays.asList("com.foo.B", "com.foo.A")));
+    this.propertyNameIndex.put("barClassnames", new TreeSet<String>(Arrays.asList("com.bar.Outer$Inner")));
+  }
+
+  /**
+   * Ensures that the <tt>persistence.xml</tt> fragment lists every
+   * class name, grouped by property name, in order.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testPersistenceXmlFragment() throws Exception {
+    final StringWriter writer = new StringWriter();
+    OutputFormats.writePersistenceXmlFragment(this.propertyNameIndex, writer);
+    final String expected =
+      "<!-- Generated by " + ListEntityClassnamesMojo.class.getName() + " -->\n" +
+      "<!-- barClassnames -->\n" +
+      "<class>com.bar.Outer$Inner</class>\n" +
+      "<!-- entityClassnames -->\n" +
+      "<class>com.foo.A</class>\n" +
+      "<class>com.foo.B</class>\n";
+    assertEquals(expected, writer.toString());
+  }
+
+  /**
+   * Ensures that the JSON index holds an array of class names per
+   * property name, and that an empty index is an empty object.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testJson() throws Exception {
+    StringWriter writer = new StringWriter();
+    OutputFormats.writeJson(this.propertyNameIndex, writer);
+    final String expected =
+      "{\n" +
+      "  \"barClassnames\" : [\n" +
+      "    \"com.bar.Outer$Inner\"\n" +
+      "  ],\n" +
+      "  \"entityClassnames\" : [\n" +
+      "    \"com.foo.A\",\n" +
+      "    \"com.foo.B\"\n" +
+      "  ]\n" +
+      "}\n";
+    assertEquals(expected, writer.toString());
+
+    writer = new StringWriter();
+    OutputFormats.writeJson(null, writer);
+    assertEquals("{}\n", writer.toString());
+  }
+
+  /**
+   * Ensures that the generated Java class compiles and holds the
+   * class names in its constants.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testJavaSource() throws Exception {
+    assertEquals("ENTITY_CLASSNAMES", OutputFormats.toConstantName("entityClassnames"));
+    assertEquals("_1FOO_BAR", OutputFormats.toConstantName("1foo.bar"));
+
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    assumeNotNull(compiler);
+
+    final File directory = TemporaryDirectories.create("outputformats");
+    final File packageDirectory = new File(directory, "com/foo/generated");
+    assertTrue(packageDirectory.mkdirs());
+    final File sourceFile = new File(packageDirectory, "EntityClassnames.java");
+    try {
+      final StringWriter writer = new StringWriter();
+      OutputFormats.writeJavaSource(this.propertyNameIndex, "com.foo.generated.EntityClassnames", writer);
+      final OutputStream out = new FileOutputStream(sourceFile);
+      try {
+        out.write(writer.toString().getBytes("UTF-8"));
+      } finally {
+        out.close();
+      }
+      assertEquals(0, compiler.run(null, null, null, sourceFile.getPath()));
+
+      final URLClassLoader loader = new URLClassLoader(new URL[] { directory.toURI().toURL() }, null);
+      final Class<?> c = loader.loadClass("com.foo.generated.EntityClassnames");
+      assertArrayEquals(new String[] { "com.foo.A", "com.foo.B" }, (String[])c.getField("ENTITY_CLASSNAMES").get(null));
+      assertArrayEquals(new String[] { "com.bar.Outer$Inner" }, (String[])c.getField("BAR_CLASSNAMES").get(null));
+    } finally {
+      TemporaryDirectories.delete(directory);
+    }
+  }
+
+  /**
+   * Ensures that an invalid generated class name is rejected.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidJavaClassName() throws Exception {
+    OutputFormats.writeJavaSource(this.propertyNameIndex, "com.foo..Bar", new StringWriter());
+  }
+
+}
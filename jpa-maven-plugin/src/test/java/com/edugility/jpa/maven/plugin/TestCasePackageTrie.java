@@ -0,0 +1,116 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2010-2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that
+ * exercises the {@link PackageTrie} class and its use by the {@link
+ * ListEntityClassnamesMojo#determinePropertyName(String)} method.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCasePackageTrie {
+
+  /**
+   * Creates a new {@link TestCasePackageTrie}.
+   */
+  public TestCasePackageTrie() {
+    super();
+  }
+
+  /**
+   * Ensures that the longest whole-segment package prefix wins.
+   */
+  @Test
+  public void testLongestPackagePrefix() {
+    final Map<String, String> values = new HashMap<String, String>();
+    values.put("com", "com");
+    values.put("com.foobar", "foobar");
+    values.put("com.foobar.biz.Foo", "class");
+    final PackageTrie<String> trie = new PackageTrie<String>(values);
+
+    assertEquals("foobar", trie.get("com.foobar.biz.Foo"));
+    assertEquals("foobar", trie.get("com.foobar.Foo"));
+    assertEquals("com", trie.get("com.foo.Bar"));
+    assertEquals("com", trie.get("com.foobarbaz.Bar"));
+    assertEquals("com", trie.get("com.Foo"));
+    assertNull(trie.get("org.Foo"));
+    assertNull(trie.get("com"));
+    assertNull(trie.get(null));
+    assertEquals("foobar", trie.get("  com.foobar.Foo  ", 2, 16));
+  }
+
+  /**
+   * Ensures that a value for the empty package applies to every class
+   * name that matches nothing longer.
+   */
+  @Test
+  public void testEmptyPackagePrefix() {
+    final Map<String, String> values = new HashMap<String, String>();
+    values.put("", "everything");
+    values.put("org", "org");
+    final PackageTrie<String> trie = new PackageTrie<String>(values);
+    assertEquals("everything", trie.get("Foo"));
+    assertEquals("everything", trie.get("com.Foo"));
+    assertEquals("org", trie.get("org.Foo"));
+  }
+
+  /**
+   * Ensures that the {@link
+   * ListEntityClassnamesMojo#determinePropertyName(String)} method
+   * resolves property names through the configured {@link Map} and
+   * sees a replacement {@link Map}.
+   */
+  @Test
+  public void testDeterminePropertyName() {
+    final ListEntityClassnamesMojo mojo = new ListEntityClassnamesMojo();
+    final Map<String, String> propertyNames = new HashMap<String, String>();
+    propertyNames.put("com.foobar", "foobarClassnames");
+    mojo.setPropertyNames(propertyNames);
+    assertEquals("foobarClassnames", mojo.determinePropertyName(" com.foobar.biz.Foo "));
+    assertEquals("entityClassnames", mojo.determinePropertyName("com.foo.Bar"));
+    assertEquals("entityClassnames", mojo.determinePropertyName("   "));
+
+    final Map<String, String> otherPropertyNames = new HashMap<String, String>();
+    otherPropertyNames.put("com", "comClassnames");
+    mojo.setPropertyNames(otherPropertyNames);
+    assertEquals("comClassnames", mojo.determinePropertyName("com.foobar.biz.Foo"));
+  }
+
+}
@@ -0,0 +1,181 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2010-2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+
+import java.lang.reflect.Field;
+
+import java.net.URL;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.persistence.Entity;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.scannotation.archiveiterator.FileProtocolIteratorFactory;
+import org.scannotation.archiveiterator.IteratorFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that ensures
+ * that {@linkplain AbstractJPAMojo#setScanThreads(int) parallel
+ * scanning} produces the same results as sequential scanning.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCaseParallelScan {
+
+  /**
+   * The {@link ListEntityClassnamesMojo} under test.  This field must
+   * never be {@code null} during a test run.
+   *
+   * @see #setUp()
+   */
+  protected ListEntityClassnamesMojo mojo;
+
+  /**
+   * The {@link Set} of {@link URL}s to scan.  This field must never
+   * be {@code null} during a test run.
+   *
+   * @see #setUp()
+   */
+  private Set<URL> urls;
+
+  /**
+   * Creates a new {@link TestCaseParallelScan}.
+   */
+  public TestCaseParallelScan() {
+    super();
+  }
+
+  /**
+   * Runs before each test; sets up the {@link #mojo} and {@link
+   * #urls} fields.  The {@link URL}s consist of this project's test
+   * classes directory and the jar files containing JUnit and the JPA
+   * annotations.
+   *
+   * @exception Exception if an error occurs
+   *
+   * @see Before
+   */
+  @Before
+  public void setUp() throws Exception {
+    this.mojo = new ListEntityClassnamesMojo();
+    this.urls = new LinkedHashSet<URL>();
+    final File testOutputDirectory =
+      new File(System.getProperty("maven.project.build.testOutputDirectory",
+                                  System.getProperty("project.build.testOutputDirectory",
+                                                     String.format("%1$s%2$starget%2$stest-classes",
+                                                                   System.getProperty("basedir", "."), File.separator))));
+    assertTrue(testOutputDirectory.isDirectory());
+    this.urls.add(testOutputDirectory.toURI().toURL());
+    this.urls.add(Test.class.getProtectionDomain().getCodeSource().getLocation());
+    this.urls.add(Entity.class.getProtectionDomain().getCodeSource().getLocation());
+    assertEquals(3, this.urls.size());
+  }
+
+  /**
+   * Ensures that scanning with several threads yields exactly the
+   * same annotation and class indices as scanning with one.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testParallelScanMatchesSequentialScan() throws Exception {
+    this.mojo.setScanThreads(1);
+    final AnnotationDB sequential = this.mojo.scan(this.urls);
+    assertNotNull(sequential);
+    assertFalse(sequential.getAnnotationIndex().isEmpty());
+
+    this.mojo.setScanThreads(4);
+    final AnnotationDB parallel = this.mojo.scan(this.urls);
+    assertNotNull(parallel);
+    assertNotSame(sequential, parallel);
+
+    assertEquals(sequential.getAnnotationIndex(), parallel.getAnnotationIndex());
+    assertEquals(sequential.getClassIndex(), parallel.getClassIndex());
+  }
+
+  /**
+   * Ensures that several mojos scanning at once, as they would in a
+   * parallel Maven build, each obtain the same results as a lone
+   * sequential scan, and that scanning leaves Scannotation's global
+   * {@link IteratorFactory} registry untouched.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testConcurrentMojos() throws Exception {
+    final AnnotationDB expected = this.mojo.scan(this.urls);
+    assertNotNull(expected);
+
+    final int threads = 4;
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final List<Future<AnnotationDB>> futures = new ArrayList<Future<AnnotationDB>>(threads);
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(new Callable<AnnotationDB>() {
+            @Override
+            public final AnnotationDB call() throws Exception {
+              final ListEntityClassnamesMojo mojo = new ListEntityClassnamesMojo();
+              mojo.setScanThreads(2);
+              return mojo.scan(urls);
+            }
+          }));
+      }
+      for (final Future<AnnotationDB> future : futures) {
+        assertEquals(expected.getAnnotationIndex(), future.get().getAnnotationIndex());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    final Field field = IteratorFactory.class.getDeclaredField("registry");
+    field.setAccessible(true);
+    final Map<?, ?> registry = (Map<?, ?>)field.get(null);
+    assertSame(FileProtocolIteratorFactory.class, registry.get("file").getClass());
+  }
+
+}
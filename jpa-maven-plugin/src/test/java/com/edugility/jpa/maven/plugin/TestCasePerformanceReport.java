@@ -0,0 +1,141 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2010-2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+import java.io.StringWriter;
+
+import java.net.URL;
+
+import java.util.Collections;
+
+import com.edugility.jpa.maven.plugin.test.project.SimpleEntity;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that
+ * exercises the {@link PerformanceReport} class.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCasePerformanceReport {
+
+  /**
+   * Creates a new {@link TestCasePerformanceReport}.
+   */
+  public TestCasePerformanceReport() {
+    super();
+  }
+
+  /**
+   * Ensures that a report filled in from a real scan carries its
+   * counters, and that both of its formats name every field in
+   * schema order.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testReportFromScan() throws Exception {
+    final URL classes = SimpleEntity.class.getProtectionDomain().getCodeSource().getLocation();
+    final ListEntityClassnamesMojo mojo = new ListEntityClassnamesMojo();
+    assertFalse(mojo.isScanMetricsNeeded());
+    mojo.setPerformanceReportFile(new File("report.json"));
+    // A report needs metrics even though none were asked for.
+    assertTrue(mojo.isScanMetricsNeeded());
+    final AnnotationDB db = mojo.scan(Collections.singleton(classes));
+    assertNotNull(db);
+
+    final PerformanceReport report = new PerformanceReport("list-entity-classnames");
+    report.setPhase("scan", 42L);
+    report.setScanMetrics(mojo.getScanMetrics(), mojo.getScanThreads());
+    report.setIndexSize(db);
+    assertEquals(Long.valueOf(42L), report.get("scanNanos"));
+    assertEquals(Long.valueOf(1L), report.get("urls"));
+    assertTrue(((Long)report.get("classesParsed")).longValue() > 0L);
+    assertTrue(((Long)report.get("matches")).longValue() >= 2L);
+    assertTrue(((Long)report.get("mergedIndexKeys")).longValue() > 0L);
+
+    final StringWriter json = new StringWriter();
+    report.writeJson(json);
+    int position = -1;
+    for (final String field : PerformanceReport.FIELDS) {
+      final int next = json.toString().indexOf("\"" + field + "\": ");
+      assertTrue(field, next > position);
+      position = next;
+    }
+    assertTrue(json.toString().contains("\"goal\": \"list-entity-classnames\""));
+
+    final StringWriter csv = new StringWriter();
+    report.writeCsv(csv);
+    final String[] lines = csv.toString().split("\n");
+    assertEquals(2, lines.length);
+    final StringBuilder header = new StringBuilder();
+    for (final String field : PerformanceReport.FIELDS) {
+      if (header.length() > 0) {
+        header.append(',');
+      }
+      header.append(field);
+    }
+    assertEquals(header.toString(), lines[0]);
+    assertEquals(PerformanceReport.FIELDS.size(), lines[1].split(",").length);
+  }
+
+  /**
+   * Ensures that unknown fields and phases are rejected.
+   */
+  @Test
+  public void testUnknownFieldsAreRejected() {
+    final PerformanceReport report = new PerformanceReport("list-entity-classnames");
+    try {
+      report.set("bogus", 1L);
+      fail();
+    } catch (final IllegalArgumentException expected) {
+      // expected
+    }
+    try {
+      report.set("goal", 1L);
+      fail();
+    } catch (final IllegalArgumentException expected) {
+      // expected
+    }
+    try {
+      report.setPhase("bogus", 1L);
+      fail();
+    } catch (final IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+}
@@ -0,0 +1,194 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2010-2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that
+ * exercises the {@link PropertiesWriter} class and the streaming
+ * output mode of the {@link ListEntityClassnamesMojo} class.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCasePropertiesWriter {
+
+  /**
+   * Creates a new {@link TestCasePropertiesWriter}.
+   */
+  public TestCasePropertiesWriter() {
+    super();
+  }
+
+  /**
+   * Ensures that keys and values containing characters that must be
+   * escaped, and values written in several pieces, are read back
+   * intact by {@link Properties#load(java.io.Reader)}.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testEscaping() throws Exception {
+    final StringWriter sw = new StringWriter();
+    final PropertiesWriter pw = new PropertiesWriter(sw);
+    pw.writeComment("first line\nsecond line");
+    pw.writeProperty(" odd key=:#!\t", " leading space\\ and é");
+    pw.startProperty("pieces");
+    pw.appendValue("a ");
+    pw.appendValue(" b\r\n");
+    pw.appendValue("=c");
+    pw.endProperty();
+    pw.flush();
+
+    final Properties properties = new Properties();
+    properties.load(new StringReader(sw.toString()));
+    assertEquals(2, properties.size());
+    assertEquals(" leading space\\ and é", properties.getProperty(" odd key=:#!\t"));
+    assertEquals("a  b\r\n=c", properties.getProperty("pieces"));
+  }
+
+  /**
+   * Ensures that the {@link ListEntityClassnamesMojo#write(Map,
+   * java.io.Writer)} method produces the same properties as the
+   * {@link ListEntityClassnamesMojo#toProperties(Map)} method.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testStreamedOutputMatchesStoredOutput() throws Exception {
+    final ListEntityClassnamesMojo mojo = new ListEntityClassnamesMojo();
+    mojo.setFirstItemPrefix(" <first>");
+    mojo.setPrefix("<class>");
+    mojo.setSuffix("</class>\n");
+    mojo.setLastItemSuffix("</class> # end");
+
+    final Map<String, Set<String>> propertyNameIndex = new HashMap<String, Set<String>>();
+    propertyNameIndex.put("entityClassnames", new TreeSet<String>(Arrays.asList("com.foo.B", "com.foo.A", "com.foo.C")));
+    propertyNameIndex.put("singleton", new TreeSet<String>(Arrays.asList("com.bar.Only")));
+
+    final StringWriter sw = new StringWriter();
+    mojo.write(propertyNameIndex, sw);
+    final Properties streamed = new Properties();
+    streamed.load(new StringReader(sw.toString()));
+
+    assertEquals(mojo.toProperties(propertyNameIndex), streamed);
+    assertEquals(" <first>com.foo.A</class>\n<class>com.foo.B</class>\n<class>com.foo.C</class> # end", streamed.getProperty("entityClassnames"));
+  }
+
+  /**
+   * Ensures that deterministic output is identical across renderings,
+   * whether streamed or stored, and carries no date comment.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testDeterministicOutput() throws Exception {
+    final ListEntityClassnamesMojo mojo = new ListEntityClassnamesMojo();
+    mojo.setDeterministicOutput(true);
+    final Map<String, Set<String>> propertyNameIndex = new HashMap<String, Set<String>>();
+    propertyNameIndex.put("b", new TreeSet<String>(Arrays.asList("com.foo.B")));
+    propertyNameIndex.put("a", new TreeSet<String>(Arrays.asList("com.foo.A")));
+
+    final byte[] streamed = mojo.render(propertyNameIndex, null);
+    final byte[] stored = mojo.render(propertyNameIndex, mojo.toProperties(propertyNameIndex));
+    assertTrue(Arrays.equals(streamed, stored));
+    assertTrue(Arrays.equals(streamed, mojo.render(propertyNameIndex, null)));
+    final String text = new String(streamed, "UTF8");
+    assertEquals(1, text.split("#", -1).length - 1);
+    assertTrue(text.indexOf("a=") < text.indexOf("b="));
+  }
+
+  /**
+   * Ensures that the {@link
+   * ListEntityClassnamesMojo#replaceIfChanged(File, byte[])} method
+   * leaves a file with identical contents untouched and replaces one
+   * whose contents differ.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testReplaceIfChanged() throws Exception {
+    final File file = File.createTempFile("entityClassnames", ".properties");
+    try {
+      assertTrue(ListEntityClassnamesMojo.replaceIfChanged(file, "a=b\n".getBytes("UTF8")));
+      assertTrue(file.setLastModified(file.lastModified() - 60000L));
+      final long lastModified = file.lastModified();
+      assertFalse(ListEntityClassnamesMojo.replaceIfChanged(file, "a=b\n".getBytes("UTF8")));
+      assertEquals(lastModified, file.lastModified());
+      assertTrue(ListEntityClassnamesMojo.replaceIfChanged(file, "a=c\n".getBytes("UTF8")));
+      assertEquals(4, file.length());
+      final String[] siblings = file.getParentFile().list();
+      assertNotNull(siblings);
+      for (final String sibling : siblings) {
+        assertFalse(sibling.startsWith(file.getName()) && sibling.endsWith(".tmp"));
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Ensures that the {@link
+   * ListEntityClassnamesMojo#replaceIfChanged(File, byte[], boolean)}
+   * method, when told to ignore leading comments, leaves a file
+   * untouched when only its date comment would change, as happens on
+   * every run when output is not deterministic.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testReplaceIfChangedIgnoresLeadingComments() throws Exception {
+    final File file = File.createTempFile("entityClassnames", ".properties");
+    try {
+      assertTrue(ListEntityClassnamesMojo.replaceIfChanged(file, "#Generated\n#Mon Jan 02 03:04:05 UTC 2012\na=b\n".getBytes("UTF8"), true));
+      assertFalse(ListEntityClassnamesMojo.replaceIfChanged(file, "#Generated\r\n#Tue Jan 03 03:04:05 GMT+01:00 2012\r\na=b\n".getBytes("UTF8"), true));
+      assertTrue(ListEntityClassnamesMojo.replaceIfChanged(file, "#Generated\n#Tue Jan 03 03:04:05 GMT+01:00 2012\na=c\n".getBytes("UTF8"), true));
+      assertTrue(ListEntityClassnamesMojo.replaceIfChanged(file, "#Generated\n#Wed Jan 04 03:04:05 GMT+01:00 2012\na=c\n".getBytes("UTF8"), false));
+    } finally {
+      file.delete();
+    }
+  }
+
+}
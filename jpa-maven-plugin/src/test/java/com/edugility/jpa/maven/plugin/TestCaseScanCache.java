@@ -0,0 +1,191 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2010-2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.net.URL;
+
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that
+ * exercises the {@link ScanCache} class and its use by the {@link
+ * AbstractJPAMojo#scan(java.util.Set)} method.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCaseScanCache {
+
+  /**
+   * A private temporary directory.  This field is never {@code null}
+   * during a test run.
+   *
+   * @see #setUp()
+   */
+  private File directory;
+
+  /**
+   * A copy of the JUnit jar file located within the {@link
+   * #directory}.  This field is never {@code null} during a test run.
+   *
+   * @see #setUp()
+   */
+  private File archive;
+
+  /**
+   * The {@link ListEntityClassnamesMojo} under test.  This field must
+   * never be {@code null} during a test run.
+   *
+   * @see #setUp()
+   */
+  protected ListEntityClassnamesMojo mojo;
+
+  /**
+   * Creates a new {@link TestCaseScanCache}.
+   */
+  public TestCaseScanCache() {
+    super();
+  }
+
+  /**
+   * Runs before each test; creates a private temporary directory,
+   * copies the JUnit jar file into it and sets up the {@link #mojo}
+   * field to use a scan cache located within it.
+   *
+   * @exception Exception if an error occurs
+   *
+   * @see Before
+   */
+  @Before
+  public void setUp() throws Exception {
+    this.directory = TemporaryDirectories.create("scancache");
+    this.archive = new File(this.directory, "junit.jar");
+    final InputStream in = Test.class.getProtectionDomain().getCodeSource().getLocation().openStream();
+    final OutputStream out = new FileOutputStream(this.archive);
+    try {
+      final byte[] buffer = new byte[8192];
+      int bytesRead;
+      while ((bytesRead = in.read(buffer)) >= 0) {
+        out.write(buffer, 0, bytesRead);
+      }
+    } finally {
+      out.close();
+      in.close();
+    }
+    this.mojo = new ListEntityClassnamesMojo();
+    this.mojo.setUseScanCache(true);
+    this.mojo.setScanCacheDirectory(new File(this.directory, "cache"));
+  }
+
+  /**
+   * Runs after each test and deletes the private temporary directory.
+   *
+   * @see After
+   */
+  @After
+  public void tearDown() {
+    TemporaryDirectories.delete(this.directory);
+  }
+
+  /**
+   * Ensures that a cached entry is returned while an archive is
+   * unchanged and is ignored once the archive's modification time
+   * changes.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testEntryIsInvalidatedByModification() throws Exception {
+    final ScanCache cache = new ScanCache(new File(this.directory, "cache"), true);
+    final AnnotationDB prototype = this.mojo.cloneAnnotationDB();
+    assertNotNull(prototype);
+    // JUnit references no JPA types; index everything it contains.
+    prototype.setRequiredReferences(null);
+
+    ScanCache.Key key = cache.getKey(this.archive, prototype);
+    assertNull(cache.get(key, prototype));
+
+    final AnnotationDB db = prototype.clone();
+    db.scanArchives(this.archive.toURI().toURL());
+    assertFalse(db.getAnnotationIndex().isEmpty());
+    cache.put(key, db);
+
+    key = cache.getKey(this.archive, prototype);
+    final AnnotationDB cached = cache.get(key, prototype);
+    assertNotNull(cached);
+    assertEquals(db.getAnnotationIndex(), cached.getAnnotationIndex());
+    assertEquals(db.getClassIndex(), cached.getClassIndex());
+
+    assertTrue(this.archive.setLastModified(this.archive.lastModified() - 60000L));
+    key = cache.getKey(this.archive, prototype);
+    assertNull(cache.get(key, prototype));
+  }
+
+  /**
+   * Ensures that scanning through the cache yields the same results
+   * as scanning without it, both when the cache is cold and when it
+   * is warm.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testCachedScanMatchesUncachedScan() throws Exception {
+    final URL url = this.archive.toURI().toURL();
+
+    this.mojo.setUseScanCache(false);
+    final AnnotationDB uncached = this.mojo.scan(Collections.singleton(url));
+    assertNotNull(uncached);
+
+    this.mojo.setUseScanCache(true);
+    final AnnotationDB cold = this.mojo.scan(Collections.singleton(url));
+    final String[] entries = new File(this.directory, "cache").list();
+    assertNotNull(entries);
+    assertEquals(1, entries.length);
+    final AnnotationDB warm = this.mojo.scan(Collections.singleton(url));
+
+    assertEquals(uncached.getAnnotationIndex(), cold.getAnnotationIndex());
+    assertEquals(uncached.getAnnotationIndex(), warm.getAnnotationIndex());
+    assertEquals(uncached.getClassIndex(), warm.getClassIndex());
+  }
+
+}
@@ -0,0 +1,185 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2010-2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+import java.io.StringWriter;
+
+import java.net.URL;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.edugility.jpa.maven.plugin.test.project.SimpleEntity;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that
+ * exercises the {@link ScanMetrics} class and its use by the {@link
+ * AbstractJPAMojo#scan(java.util.Set)} method.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCaseScanMetrics {
+
+  /**
+   * Creates a new {@link TestCaseScanMetrics}.
+   */
+  public TestCaseScanMetrics() {
+    super();
+  }
+
+  /**
+   * Ensures that a metrics entry is recorded for each scanned {@link
+   * URL} with sensible counters, and that the metrics can be written
+   * as JSON.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testScanMetricsAreRecorded() throws Exception {
+    final URL classes = SimpleEntity.class.getProtectionDomain().getCodeSource().getLocation();
+    final URL junit = Test.class.getProtectionDomain().getCodeSource().getLocation();
+    final Set<URL> urls = new LinkedHashSet<URL>();
+    urls.add(classes);
+    urls.add(junit);
+
+    final ListEntityClassnamesMojo mojo = new ListEntityClassnamesMojo();
+    mojo.scan(urls);
+    assertNull(mojo.getScanMetrics());
+
+    mojo.setCollectScanMetrics(true);
+    mojo.scan(urls);
+    final ScanMetrics metrics = mojo.getScanMetrics();
+    assertNotNull(metrics);
+    final List<ScanMetrics.Entry> entries = metrics.getEntries();
+    assertEquals(2, entries.size());
+    assertTrue(entries.get(0).getNanos() >= entries.get(1).getNanos());
+
+    ScanMetrics.Entry classesEntry = null;
+    ScanMetrics.Entry junitEntry = null;
+    for (final ScanMetrics.Entry entry : entries) {
+      if (classes.equals(entry.getURL())) {
+        classesEntry = entry;
+      } else if (junit.equals(entry.getURL())) {
+        junitEntry = entry;
+      }
+    }
+    assertNotNull(classesEntry);
+    assertEquals("scanned", classesEntry.getSource());
+    assertTrue(classesEntry.getClassEntries() > 0L);
+    assertTrue(classesEntry.getBytesRead() > 0L);
+    assertTrue(classesEntry.getClassesParsed() > 0L);
+    assertTrue(classesEntry.getClassesParsed() <= classesEntry.getClassEntries());
+    assertTrue(classesEntry.getMatches() >= 2L);
+
+    // JUnit references no JPA types, so the prefilter skips it whole.
+    assertNotNull(junitEntry);
+    assertEquals("skipped", junitEntry.getSource());
+    assertEquals(0L, junitEntry.getMatches());
+
+    final ScanMetrics.Entry total = metrics.getTotal();
+    assertNull(total.getURL());
+    assertEquals(classesEntry.getClassEntries() + junitEntry.getClassEntries(), total.getClassEntries());
+
+    final StringWriter writer = new StringWriter();
+    metrics.writeJson(writer);
+    final String json = writer.toString();
+    assertTrue(json.startsWith("{"));
+    assertTrue(json.contains("\"urls\": ["));
+    assertTrue(json.contains("\"source\": \"skipped\""));
+  }
+
+  /**
+   * Ensures that executions in different projects of the same
+   * build share a {@link SessionScanCache}, even though each project
+   * is given its own copy of the {@link MavenSession}, and that each
+   * execution records only its own hits and misses.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testSessionScanCacheIsCountedPerExecution() throws Exception {
+    final Set<URL> urls = Collections.singleton(Test.class.getProtectionDomain().getCodeSource().getLocation());
+    final MavenSession session = new MavenSession(null, null, new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult());
+
+    final ListEntityClassnamesMojo first = new ListEntityClassnamesMojo();
+    first.setSession(session);
+    first.setUseSessionScanCache(true);
+    first.setCollectScanMetrics(true);
+    first.scan(urls);
+    assertEquals(0, first.getScanMetrics().getCacheHits(ScanMetrics.SESSION_SCAN_CACHE));
+    assertEquals(1, first.getScanMetrics().getCacheMisses(ScanMetrics.SESSION_SCAN_CACHE));
+
+    final ListEntityClassnamesMojo second = new ListEntityClassnamesMojo();
+    second.setSession(session.clone());
+    second.setUseSessionScanCache(true);
+    second.setCollectScanMetrics(true);
+    second.scan(urls);
+    assertEquals("session", second.getScanMetrics().getEntries().get(0).getSource());
+    assertEquals(1, second.getScanMetrics().getCacheHits(ScanMetrics.SESSION_SCAN_CACHE));
+    assertEquals(0, second.getScanMetrics().getCacheMisses(ScanMetrics.SESSION_SCAN_CACHE));
+  }
+
+  /**
+   * Ensures that the scan metrics file is written when one has been
+   * set.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testScanMetricsFileIsWritten() throws Exception {
+    final File file = File.createTempFile("scan-metrics", ".json");
+    assertTrue(file.delete());
+    try {
+      final ListEntityClassnamesMojo mojo = new ListEntityClassnamesMojo();
+      mojo.setCollectScanMetrics(true);
+      mojo.setScanMetricsFile(file);
+      mojo.scan(Collections.singleton(SimpleEntity.class.getProtectionDomain().getCodeSource().getLocation()));
+      mojo.reportScanMetrics();
+      assertTrue(file.isFile());
+      assertTrue(file.length() > 0L);
+    } finally {
+      file.delete();
+    }
+  }
+
+}
@@ -0,0 +1,139 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2010-2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that
+ * exercises the {@link SessionScanCache} class.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCaseSessionScanCache {
+
+  /**
+   * Creates a new {@link TestCaseSessionScanCache}.
+   */
+  public TestCaseSessionScanCache() {
+    super();
+  }
+
+  /**
+   * Ensures that each session gets its own {@link SessionScanCache}
+   * and that a session always gets the same one.
+   */
+  @Test
+  public void testForSession() {
+    final Object session = new Object();
+    final SessionScanCache cache = SessionScanCache.forSession(session);
+    assertNotNull(cache);
+    assertSame(cache, SessionScanCache.forSession(session));
+    assertNotSame(cache, SessionScanCache.forSession(new Object()));
+  }
+
+  /**
+   * Ensures that an archive requested by many threads at once is
+   * scanned exactly once, and that every thread receives its own
+   * copy of the results.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testArchiveIsScannedOnce() throws Exception {
+    final File archive = new File(Test.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    assertTrue(archive.isFile());
+    final SessionScanCache cache = new SessionScanCache();
+    final AnnotationDB prototype = new AnnotationDB();
+    final AtomicInteger scans = new AtomicInteger();
+    final Callable<AnnotationDB> scanner = new Callable<AnnotationDB>() {
+      @Override
+      public final AnnotationDB call() throws Exception {
+        scans.incrementAndGet();
+        final AnnotationDB db = prototype.clone();
+        db.scanArchives(archive.toURI().toURL());
+        return db;
+      }
+    };
+
+    final int threads = 8;
+    final CountDownLatch start = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final List<Future<AnnotationDB>> futures = new ArrayList<Future<AnnotationDB>>(threads);
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(new Callable<AnnotationDB>() {
+            @Override
+            public final AnnotationDB call() throws Exception {
+              start.await();
+              return cache.get(archive, prototype, scanner);
+            }
+          }));
+      }
+      start.countDown();
+      final AnnotationDB first = futures.get(0).get();
+      assertFalse(first.getAnnotationIndex().isEmpty());
+      for (final Future<AnnotationDB> future : futures) {
+        final AnnotationDB db = future.get();
+        assertEquals(first.getAnnotationIndex(), db.getAnnotationIndex());
+      }
+      assertNotSame(first, futures.get(1).get());
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(1, scans.get());
+    assertEquals(1, cache.getMisses());
+    assertEquals(threads - 1, cache.getHits());
+
+    // A different scan configuration is a different entry.
+    final AnnotationDB other = prototype.clone();
+    other.setScanFieldAnnotations(!prototype.getScanFieldAnnotations());
+    cache.get(archive, other, scanner);
+    assertEquals(2, scans.get());
+  }
+
+}
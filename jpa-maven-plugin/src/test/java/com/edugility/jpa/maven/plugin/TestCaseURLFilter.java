@@ -0,0 +1,145 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+
+import java.net.URL;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that
+ * exercises the include and exclude patterns of the {@link URLFilter}
+ * class.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCaseURLFilter {
+
+  /**
+   * The {@link URLFilter} under test.  This field is never {@code
+   * null} during a test run.
+   *
+   * @see #setUp()
+   */
+  private URLFilter filter;
+
+  /**
+   * A {@link URL} designating a jar file in a local repository.
+   */
+  private URL jar;
+
+  /**
+   * A {@link URL} designating a directory of classes.
+   */
+  private URL classes;
+
+  /**
+   * Creates a new {@link TestCaseURLFilter}.
+   */
+  public TestCaseURLFilter() {
+    super();
+  }
+
+  /**
+   * Runs before each test; sets up the {@link #filter}, {@link #jar}
+   * and {@link #classes} fields.
+   *
+   * @exception Exception if an error occurs
+   *
+   * @see Before
+   */
+  @Before
+  public void setUp() throws Exception {
+    this.filter = new URLFilter();
+    this.jar = new File("/home/user/.m2/repository/junit/junit/4.11/junit-4.11.jar").toURI().toURL();
+    this.classes = new File("/home/user/project/target/classes").toURI().toURL();
+  }
+
+  /**
+   * Ensures that a {@link URLFilter} with no patterns accepts every
+   * non-{@code null} {@link URL}.
+   */
+  @Test
+  public void testNoPatterns() {
+    assertFalse(this.filter.accept(null));
+    assertTrue(this.filter.accept(this.jar));
+    assertTrue(this.filter.accept(this.classes, "com.foo:bar"));
+  }
+
+  /**
+   * Ensures that Ant-style path patterns are matched against {@link
+   * URL} paths.
+   */
+  @Test
+  public void testPathPatterns() {
+    this.filter.setIncludes(new HashSet<String>(Arrays.asList("**/target/classes", "**/junit/")));
+    assertTrue(this.filter.accept(this.jar));
+    assertTrue(this.filter.accept(this.classes));
+
+    this.filter.setExcludes(Collections.singleton("**/junit-*.jar"));
+    assertFalse(this.filter.accept(this.jar));
+    assertTrue(this.filter.accept(this.classes));
+
+    this.filter.setIncludes(Collections.singleton("*/classes"));
+    assertFalse(this.filter.accept(this.classes));
+    this.filter.setIncludes(Collections.singleton("/home/?ser/**/classes"));
+    assertTrue(this.filter.accept(this.classes));
+  }
+
+  /**
+   * Ensures that <tt><i>groupId</i>:<i>artifactId</i></tt> patterns
+   * are matched against Maven coordinates, and never match when no
+   * coordinates are known.
+   */
+  @Test
+  public void testCoordinatePatterns() {
+    this.filter.setIncludes(Collections.singleton("com.foo:*"));
+    assertTrue(this.filter.accept(this.classes, "com.foo:entities"));
+    assertFalse(this.filter.accept(this.jar, "junit:junit"));
+    assertFalse(this.filter.accept(this.classes));
+
+    this.filter.setIncludes(null);
+    this.filter.setExcludes(Collections.singleton("*:junit"));
+    assertFalse(this.filter.accept(this.jar, "junit:junit"));
+    assertTrue(this.filter.accept(this.jar));
+  }
+
+}
@@ -0,0 +1,173 @@
+/* -*- mode: Java; c-basic-offset: 2; indent-tabs-mode: nil -*-
+ *
+ * $Id$
+ *
+ * Copyright (c) 2010-2011 Edugility LLC.
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use, copy,
+ * modify, merge, publish, distribute, sublicense and/or sell copies
+ * of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THIS SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT.  IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ * The original copy of this license is available at
+ * http://www.opensource.org/license/mit-license.html.
+ */
+package com.edugility.jpa.maven.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import java.net.URL;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * A <a href="http://www.junit.org/">JUnit</a> test case that
+ * exercises the {@link UpToDateSnapshot} class.
+ *
+ * @author <a href="mailto:ljnelson@gmail.com">Laird Nelson</a>
+ *
+ * @since 3-SNAPSHOT
+ */
+public class TestCaseUpToDateSnapshot {
+
+  /**
+   * A private temporary directory.  This field is never {@code null}
+   * during a test run.
+   *
+   * @see #setUp()
+   */
+  private File directory;
+
+  /**
+   * A directory of "classes" within the {@link #directory} whose
+   * contents are fingerprinted.  This field is never {@code null}
+   * during a test run.
+   *
+   * @see #setUp()
+   */
+  private File classes;
+
+  /**
+   * Creates a new {@link TestCaseUpToDateSnapshot}.
+   */
+  public TestCaseUpToDateSnapshot() {
+    super();
+  }
+
+  /**
+   * Runs before each test; creates a private temporary directory
+   * containing a directory with a single file in a subdirectory.
+   *
+   * @exception Exception if an error occurs
+   *
+   * @see Before
+   */
+  @Before
+  public void setUp() throws Exception {
+    this.directory = TemporaryDirectories.create("snapshot");
+    this.classes = new File(this.directory, "classes");
+    assertTrue(new File(this.classes, "com/foo").mkdirs());
+    write(new File(this.classes, "com/foo/A.class"), "A");
+  }
+
+  /**
+   * Runs after each test and deletes the private temporary directory.
+   *
+   * @see After
+   */
+  @After
+  public void tearDown() {
+    TemporaryDirectories.delete(this.directory);
+  }
+
+  /**
+   * Ensures that a fingerprint changes when the configuration or the
+   * contents of a fingerprinted directory change, and that {@link
+   * URL}s that are not files cannot be fingerprinted.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testFingerprint() throws Exception {
+    final Collection<URL> urls = Collections.singleton(this.classes.toURI().toURL());
+    final String fingerprint = UpToDateSnapshot.fingerprint(urls, "a");
+    assertNotNull(fingerprint);
+    assertEquals(fingerprint, UpToDateSnapshot.fingerprint(urls, "a"));
+    assertFalse(fingerprint.equals(UpToDateSnapshot.fingerprint(urls, "b")));
+
+    write(new File(this.classes, "com/foo/B.class"), "B");
+    assertFalse(fingerprint.equals(UpToDateSnapshot.fingerprint(urls, "a")));
+
+    assertNull(UpToDateSnapshot.fingerprint(Arrays.asList(this.classes.toURI().toURL(), new URL("http://example.com/x.jar")), "a"));
+  }
+
+  /**
+   * Ensures that a recorded snapshot is returned only for the
+   * fingerprint it was recorded with, and only while the output file
+   * is untouched.
+   *
+   * @exception Exception if an error occurs
+   */
+  @Test
+  public void testGetAndPut() throws Exception {
+    final File outputFile = new File(this.directory, "entityClassnames.properties");
+    write(outputFile, "a=b");
+    final UpToDateSnapshot snapshot = new UpToDateSnapshot(new File(this.directory, "snapshots/entityClassnames.properties.snapshot"));
+    assertNull(snapshot.get("x", outputFile));
+
+    final byte[] content = "a=b".getBytes("UTF8");
+    snapshot.put("x", content, outputFile);
+    assertTrue(Arrays.equals(content, snapshot.get("x", outputFile)));
+    assertNull(snapshot.get("y", outputFile));
+
+    assertTrue(outputFile.setLastModified(outputFile.lastModified() - 60000L));
+    assertNull(snapshot.get("x", outputFile));
+
+    assertTrue(outputFile.delete());
+    assertNull(snapshot.get("x", outputFile));
+  }
+
+  /**
+   * Writes the supplied text to the supplied {@link File}.
+   *
+   * @param file the {@link File} to write; must not be {@code null}
+   *
+   * @param text the text to write; must not be {@code null}
+   *
+   * @exception Exception if an error occurs
+   */
+  private static final void write(final File file, final String text) throws Exception {
+    final OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(text.getBytes("UTF8"));
+    } finally {
+      out.close();
+    }
+  }
+
+}